@@ -45,6 +45,7 @@ import java.util.Map;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 import org.opentox.toxotis.client.collection.Media;
 import org.opentox.toxotis.client.http.AbstractHttpClient;
+import org.opentox.toxotis.client.transport.IHttpTransport;
 import org.opentox.toxotis.exceptions.impl.BadRequestException;
 import org.opentox.toxotis.exceptions.impl.ConnectionException;
 import org.opentox.toxotis.exceptions.impl.RemoteServiceException;
@@ -64,6 +65,8 @@ public abstract class AbstractClient implements IClient {
     private VRI vri = null;
     /** Connection to the above URI */
     private java.net.HttpURLConnection con = null;
+    /** Transport used to open and release the connection */
+    private IHttpTransport transport = null;
     /** Size of a buffer used to download the data from the remote server */
     protected static final int bufferSize = 4194304;
     /** Accepted media-type  */
@@ -93,6 +96,33 @@ public abstract class AbstractClient implements IClient {
         this.con = con;
     }
 
+    /**
+     * The transport used by this client to open, read and release its connection.
+     * Unless set explicitly, this is the transport returned by {@link ClientFactory#getTransport() }
+     * at the time the transport was first needed.
+     * @return
+     *      The transport of this client.
+     */
+    public IHttpTransport getTransport() {
+        if (transport == null) {
+            transport = ClientFactory.getTransport();
+        }
+        return transport;
+    }
+
+    /**
+     * Set the transport to be used by this client. This should be done before
+     * any connection is opened.
+     * @param transport
+     *      The transport of this client.
+     * @return
+     *      This AbstractClient object.
+     */
+    public AbstractClient setTransport(IHttpTransport transport) {
+        this.transport = transport;
+        return this;
+    }
+
     protected Map<String, String> getHeaderValues() {
         return headerValues;
     }
@@ -213,7 +243,7 @@ public abstract class AbstractClient implements IClient {
             }
             InputStream is = null;
             try {
-                is = getConnection().getInputStream();
+                is = getTransport().getInputStream(getConnection(), false);
             } catch (IOException ex) {
                 ConnectionException connectionExc = new ConnectionException(String.format(IO_ERROR_MSG, getUri()), ex);
                 connectionExc.setActor(getUri() != null ? getUri().toString() : NO_TARGET_MSG);
@@ -257,7 +287,15 @@ public abstract class AbstractClient implements IClient {
                     || connectionResponseCode == HttpStatusCodes.Created.getStatus()) {
                 return new java.io.BufferedInputStream(getConnectionInputStream(), bufferSize);
             } else {
-                return new java.io.BufferedInputStream(getConnection().getErrorStream(), bufferSize);
+                InputStream errorStream = null;
+                try {
+                    errorStream = getTransport().getInputStream(getConnection(), true);
+                } catch (IOException ex) {
+                    ConnectionException connectionExc = new ConnectionException(String.format(IO_ERROR_MSG, getUri()), ex);
+                    connectionExc.setActor(getUri() != null ? getUri().toString() : NO_TARGET_MSG);
+                    throw connectionExc;
+                }
+                return new java.io.BufferedInputStream(errorStream, bufferSize);
             }
         } finally {
             getReadLock().unlock();
@@ -479,7 +517,7 @@ public abstract class AbstractClient implements IClient {
     @Override
     public void close() throws IOException {
         if (getConnection() != null) {
-            getConnection().disconnect();
+            getTransport().release(getConnection());
         }
     }
 
@@ -0,0 +1,179 @@
+/*
+ *
+ * ToxOtis
+ *
+ * ToxOtis is the Greek word for Sagittarius, that actually means ‘archer’. ToxOtis
+ * is a Java interface to the predictive toxicology services of OpenTox. ToxOtis is
+ * being developed to help both those who need a painless way to consume OpenTox
+ * services and for ambitious service providers that don’t want to spend half of
+ * their time in RDF parsing and creation.
+ *
+ * Copyright (C) 2009-2010 Pantelis Sopasakis & Charalampos Chomenides
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Contact:
+ * Pantelis Sopasakis
+ * chvng@mail.ntua.gr
+ * Address: Iroon Politechniou St. 9, Zografou, Athens Greece
+ * tel. +30 210 7723236
+ *
+ */
+package org.opentox.toxotis.client;
+
+import com.hp.hpl.jena.ontology.OntModel;
+import java.io.IOException;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import org.opentox.toxotis.exceptions.impl.ServiceInvocationException;
+
+/**
+ * Default implementation of {@link IAsyncClient} which delegates every operation
+ * to a synchronous {@link IClient} running on an executor. Use
+ * {@link ClientFactory#createAsyncClient(org.opentox.toxotis.client.IClient) }
+ * to obtain instances which run on the shared bounded executor.
+ *
+ * @author Pantelis Sopasakis
+ * @author Charalampos Chomenides
+ */
+public class AsyncClient implements IAsyncClient {
+
+    private final IClient client;
+    private final ExecutorService executor;
+    private org.slf4j.Logger logger = org.slf4j.LoggerFactory.getLogger(AsyncClient.class);
+
+    /**
+     * Create a new asynchronous client.
+     * @param client
+     *      The synchronous client to which operations are delegated.
+     * @param executor
+     *      The executor on which operations run. The executor is not shut
+     *      down by this client.
+     * @throws NullPointerException
+     *      If any of the arguments is <code>null</code>.
+     */
+    public AsyncClient(IClient client, ExecutorService executor) {
+        if (client == null || executor == null) {
+            throw new NullPointerException("Neither the client nor the executor can be null");
+        }
+        this.client = client;
+        this.executor = executor;
+    }
+
+    @Override
+    public IClient getClient() {
+        return client;
+    }
+
+    @Override
+    public VRI getUri() {
+        return client.getUri();
+    }
+
+    @Override
+    public Future<Integer> getResponseCode() {
+        return executor.submit(new Callable<Integer>() {
+
+            @Override
+            public Integer call() throws ServiceInvocationException {
+                return client.getResponseCode();
+            }
+        });
+    }
+
+    @Override
+    public Future<OntModel> getResponseOntModel() {
+        return getResponseOntModel(null);
+    }
+
+    @Override
+    public Future<OntModel> getResponseOntModel(final String specification) {
+        return executor.submit(new Callable<OntModel>() {
+
+            @Override
+            public OntModel call() throws ServiceInvocationException {
+                try {
+                    return client.getResponseOntModel(specification);
+                } finally {
+                    closeQuietly();
+                }
+            }
+        });
+    }
+
+    @Override
+    public Future<String> getResponseText() {
+        return executor.submit(new Callable<String>() {
+
+            @Override
+            public String call() throws ServiceInvocationException {
+                try {
+                    return client.getResponseText();
+                } finally {
+                    closeQuietly();
+                }
+            }
+        });
+    }
+
+    @Override
+    public Future<Set<VRI>> getResponseUriList() {
+        return executor.submit(new Callable<Set<VRI>>() {
+
+            @Override
+            public Set<VRI> call() throws ServiceInvocationException {
+                try {
+                    return client.getResponseUriList();
+                } finally {
+                    closeQuietly();
+                }
+            }
+        });
+    }
+
+    @Override
+    public Future<Integer> post() {
+        if (!(client instanceof IPostClient)) {
+            throw new UnsupportedOperationException("POST is not supported by " + client.getClass().getName());
+        }
+        final IPostClient postClient = (IPostClient) client;
+        return executor.submit(new Callable<Integer>() {
+
+            @Override
+            public Integer call() throws ServiceInvocationException {
+                try {
+                    postClient.post();
+                    return postClient.getResponseCode();
+                } finally {
+                    closeQuietly();
+                }
+            }
+        });
+    }
+
+    @Override
+    public void close() throws IOException {
+        client.close();
+    }
+
+    private void closeQuietly() {
+        try {
+            client.close();
+        } catch (IOException ex) {
+            logger.warn("Client could not be closed after the response was read", ex);
+        }
+    }
+}
@@ -32,10 +32,18 @@
  */
 package org.opentox.toxotis.client;
 
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import org.opentox.toxotis.client.http.GetHttpClient;
 import org.opentox.toxotis.client.http.PostHttpClient;
 import org.opentox.toxotis.client.https.GetHttpsClient;
 import org.opentox.toxotis.client.https.PostHttpsClient;
+import org.opentox.toxotis.client.transport.DefaultHttpTransport;
+import org.opentox.toxotis.client.transport.IHttpTransport;
 
 /**
  * Factory for creating clients. 
@@ -43,11 +51,107 @@ import org.opentox.toxotis.client.https.PostHttpsClient;
  * @author Charalampos Chomenides
  */
 public class ClientFactory {
+
+    /**
+     * Number of threads of the default executor for asynchronous clients.
+     */
+    public static final int ASYNC_THREADS = 16;
+    /**
+     * Number of asynchronous operations that may be queued on the default executor
+     * while all its threads are busy. Beyond this limit, submissions are rejected
+     * with a {@link java.util.concurrent.RejectedExecutionException}.
+     */
+    public static final int ASYNC_QUEUE_CAPACITY = 1024;
+    private static volatile IHttpTransport transport = new DefaultHttpTransport();
+    private static volatile ExecutorService asyncExecutor;
     
     private ClientFactory(){
         // Hidden Constructor - ClientFactory is a utility class.
     }
 
+    /**
+     * The transport used by all clients which have not been assigned a transport
+     * of their own. By default this is a {@link DefaultHttpTransport }.
+     * @return
+     *      The default transport.
+     */
+    public static IHttpTransport getTransport() {
+        return transport;
+    }
+
+    /**
+     * Set the transport to be used by clients created hereafter, for example an
+     * instance of {@link org.opentox.toxotis.client.transport.PooledHttpTransport }
+     * to reuse connections. Clients which have already opened a connection keep
+     * using the transport they started with.
+     * @param transport
+     *      The new default transport.
+     * @throws NullPointerException
+     *      If the provided transport is <code>null</code>.
+     */
+    public static void setTransport(IHttpTransport transport) {
+        if (transport == null) {
+            throw new NullPointerException("Transport must not be null");
+        }
+        ClientFactory.transport = transport;
+    }
+
+    /**
+     * The executor on which asynchronous clients run unless they are given an
+     * executor of their own. Unless {@link #setAsyncExecutor(java.util.concurrent.ExecutorService) 
+     * another executor is set}, this is a pool of {@link #ASYNC_THREADS } daemon
+     * threads with a queue bounded to {@link #ASYNC_QUEUE_CAPACITY } operations
+     * which is created on first use.
+     * @return
+     *      The default executor for asynchronous operations.
+     */
+    public static ExecutorService getAsyncExecutor() {
+        ExecutorService executor = asyncExecutor;
+        if (executor == null) {
+            synchronized (ClientFactory.class) {
+                executor = asyncExecutor;
+                if (executor == null) {
+                    ThreadPoolExecutor pool = new ThreadPoolExecutor(ASYNC_THREADS, ASYNC_THREADS,
+                            60L, TimeUnit.SECONDS,
+                            new ArrayBlockingQueue<Runnable>(ASYNC_QUEUE_CAPACITY),
+                            new AsyncThreadFactory());
+                    pool.allowCoreThreadTimeOut(true);
+                    asyncExecutor = executor = pool;
+                }
+            }
+        }
+        return executor;
+    }
+
+    /**
+     * Set the executor to be used by asynchronous clients created hereafter. The
+     * previous executor is not shut down.
+     * @param executor
+     *      The new default executor.
+     * @throws NullPointerException
+     *      If the provided executor is <code>null</code>.
+     */
+    public static void setAsyncExecutor(ExecutorService executor) {
+        if (executor == null) {
+            throw new NullPointerException("Executor must not be null");
+        }
+        synchronized (ClientFactory.class) {
+            asyncExecutor = executor;
+        }
+    }
+
+    /**
+     * Wrap a configured client into an asynchronous client which runs on the
+     * {@link #getAsyncExecutor() default executor}.
+     * @param client
+     *      A GET or POST client.
+     * @return
+     *      Asynchronous client delegating to the given client.
+     */
+    public static IAsyncClient createAsyncClient(IClient client) {
+        return new AsyncClient(client, getAsyncExecutor());
+    }
+
     /**
      * Create a Get-client as an instance of {@link IGetClient } providing it's
      * URI. Either an HTTP or an HTTPS client is created according to the protocol
@@ -86,4 +190,15 @@ public class ClientFactory {
         return null;
     }
 
+    private static class AsyncThreadFactory implements ThreadFactory {
+
+        private final AtomicInteger count = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "toxotis-async-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
 }
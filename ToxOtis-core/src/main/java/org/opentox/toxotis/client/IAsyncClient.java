@@ -0,0 +1,134 @@
+/*
+ *
+ * ToxOtis
+ *
+ * ToxOtis is the Greek word for Sagittarius, that actually means ‘archer’. ToxOtis
+ * is a Java interface to the predictive toxicology services of OpenTox. ToxOtis is
+ * being developed to help both those who need a painless way to consume OpenTox
+ * services and for ambitious service providers that don’t want to spend half of
+ * their time in RDF parsing and creation.
+ *
+ * Copyright (C) 2009-2010 Pantelis Sopasakis & Charalampos Chomenides
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Contact:
+ * Pantelis Sopasakis
+ * chvng@mail.ntua.gr
+ * Address: Iroon Politechniou St. 9, Zografou, Athens Greece
+ * tel. +30 210 7723236
+ *
+ */
+package org.opentox.toxotis.client;
+
+import com.hp.hpl.jena.ontology.OntModel;
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Set;
+import java.util.concurrent.Future;
+
+/**
+ * Asynchronous counterpart of {@link IClient}. Every operation is submitted to
+ * a bounded executor (by default the one returned by {@link ClientFactory#getAsyncExecutor() })
+ * and returns immediately with a {@link Future} so that a caller may fan out
+ * requests to several services and collect the results afterwards. Failures of
+ * the underlying client are reported through {@link java.util.concurrent.ExecutionException}
+ * whose cause is the original {@link org.opentox.toxotis.exceptions.impl.ServiceInvocationException}.
+ * 
+ * <p>The wrapped client must be fully configured (URI, headers, postable
+ * entities etc) before any asynchronous operation is invoked. Operations which
+ * consume the response body close the wrapped client once they complete.</p>
+ *
+ * @author Pantelis Sopasakis
+ * @author Charalampos Chomenides
+ */
+public interface IAsyncClient extends Closeable {
+
+    /**
+     * The client on which the asynchronous operations are delegated.
+     * @return
+     *      The wrapped synchronous client.
+     */
+    IClient getClient();
+
+    /**
+     * Get the targetted URI
+     * @return
+     *      The target URI
+     */
+    VRI getUri();
+
+    /**
+     * Asynchronous version of {@link IClient#getResponseCode() }.
+     * @return
+     *      Future holding the HTTP status of the response.
+     */
+    Future<Integer> getResponseCode();
+
+    /**
+     * Asynchronous version of {@link IClient#getResponseOntModel() }. The client
+     * is closed once the model has been parsed.
+     * @return
+     *      Future holding the ontological model of the response.
+     */
+    Future<OntModel> getResponseOntModel();
+
+    /**
+     * Asynchronous version of {@link IClient#getResponseOntModel(java.lang.String) }.
+     * The client is closed once the model has been parsed.
+     * @param specification
+     *      The language of the serialization; <code>null</code> selects the default
+     *      that is "RDF/XML".
+     * @return
+     *      Future holding the ontological model of the response.
+     */
+    Future<OntModel> getResponseOntModel(String specification);
+
+    /**
+     * Asynchronous version of {@link IClient#getResponseText() }. The client
+     * is closed once the response has been read.
+     * @return
+     *      Future holding the response body.
+     */
+    Future<String> getResponseText();
+
+    /**
+     * Asynchronous version of {@link IClient#getResponseUriList() }. The client
+     * is closed once the response has been read.
+     * @return
+     *      Future holding the set of URIs returned by the remote service.
+     */
+    Future<Set<VRI>> getResponseUriList();
+
+    /**
+     * Asynchronous version of {@link IPostClient#post() }. The future completes
+     * once the entity has been posted and the status of the response is available.
+     * The client is closed at that point, releasing its connection, so the body
+     * of the response cannot be read afterwards; to read it, use the synchronous
+     * client of {@link #getClient() } on a thread of your own.
+     * @return
+     *      Future holding the HTTP status of the response.
+     * @throws UnsupportedOperationException
+     *      If the wrapped client is not an {@link IPostClient}.
+     */
+    Future<Integer> post();
+
+    /**
+     * Closes the wrapped client.
+     * @throws IOException 
+     *      If the connection cannot be released.
+     */
+    @Override
+    void close() throws IOException;
+}
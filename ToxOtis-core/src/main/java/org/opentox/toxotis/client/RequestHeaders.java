@@ -171,6 +171,12 @@ public class RequestHeaders {
      * @see <a href="http://www.w3.org/Protocols/rfc2616/rfc2616-sec14.html#sec14.36">W3C specification for this header</a>
      */
     public static final String REFERER = "Referer";
+    /**
+     * Response header indicating how long the client is expected to wait before
+     * repeating its request, either as a number of seconds or as an HTTP-date.
+     * @see <a href="http://www.w3.org/Protocols/rfc2616/rfc2616-sec14.html#sec14.37">W3C specification for this header</a>
+     */
+    public static final String RETRY_AFTER = "Retry-After";
     /**
      * Contains information about the user agent (client) originating the request
      */
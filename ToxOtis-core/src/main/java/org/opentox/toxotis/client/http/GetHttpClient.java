@@ -70,7 +70,7 @@ public class GetHttpClient extends AbstractHttpClient implements IGetClient {
         try {
             java.net.HttpURLConnection.setFollowRedirects(true);
             java.net.URL url = uri.toURL();
-            setConnection((java.net.HttpURLConnection) url.openConnection());
+            setConnection(getTransport().openConnection(url));
             getConnection().setDoInput(true);
             getConnection().setUseCaches(false);
             getConnection().setRequestMethod(METHOD);
@@ -280,7 +280,7 @@ public class PostHttpClient extends AbstractHttpClient implements IPostClient {
         try {
             java.net.HttpURLConnection.setFollowRedirects(true);
             java.net.URL target = uri.toURL();
-            setConnection((java.net.HttpURLConnection) target.openConnection());
+            setConnection(getTransport().openConnection(target));
             getConnection().setRequestMethod(METHOD);
             getConnection().setAllowUserInteraction(false);
             getConnection().setDoInput(true);
@@ -65,7 +65,7 @@ public class GetHttpsClient extends AbstractHttpsClient implements IGetClient{
     protected HttpURLConnection initializeConnection(URI uri) throws ServiceInvocationException {
         try {
             java.net.URL targetUrl = uri.toURL();
-            setConnection((javax.net.ssl.HttpsURLConnection) targetUrl.openConnection());
+            setConnection((javax.net.ssl.HttpsURLConnection) getTransport().openConnection(targetUrl));
             getConnection().setRequestMethod(METHOD);
             getConnection().setDoInput(true);
             getConnection().setDoOutput(true);
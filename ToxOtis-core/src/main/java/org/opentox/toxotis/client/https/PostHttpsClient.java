@@ -128,7 +128,7 @@ public class PostHttpsClient extends AbstractHttpsClient implements IPostClient
     protected HttpURLConnection initializeConnection(URI uri) throws ServiceInvocationException {
         try {
             java.net.URL targetUrl = uri.toURL();
-            setConnection((javax.net.ssl.HttpsURLConnection) targetUrl.openConnection());
+            setConnection((javax.net.ssl.HttpsURLConnection) getTransport().openConnection(targetUrl));
             getConnection().setRequestMethod(METHOD);
             getConnection().setDoInput(true);
             getConnection().setDoOutput(true);
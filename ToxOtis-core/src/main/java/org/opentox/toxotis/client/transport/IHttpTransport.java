@@ -0,0 +1,93 @@
+/*
+ *
+ * ToxOtis
+ *
+ * ToxOtis is the Greek word for Sagittarius, that actually means ‘archer’. ToxOtis
+ * is a Java interface to the predictive toxicology services of OpenTox. ToxOtis is
+ * being developed to help both those who need a painless way to consume OpenTox
+ * services and for ambitious service providers that don’t want to spend half of
+ * their time in RDF parsing and creation.
+ *
+ * Copyright (C) 2009-2010 Pantelis Sopasakis & Charalampos Chomenides
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Contact:
+ * Pantelis Sopasakis
+ * chvng@mail.ntua.gr
+ * Address: Iroon Politechniou St. 9, Zografou, Athens Greece
+ * tel. +30 210 7723236
+ *
+ */
+package org.opentox.toxotis.client.transport;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+
+/**
+ * A transport opens, reads and releases the connections used by the clients of
+ * ToxOtis (see {@link org.opentox.toxotis.client.AbstractClient }). The transport
+ * used by default is the {@link DefaultHttpTransport } which opens a new
+ * <code>HttpURLConnection</code> per request and disconnects it when the client
+ * is closed. A different transport can be installed for all clients through
+ * {@link org.opentox.toxotis.client.ClientFactory#setTransport(IHttpTransport) }
+ * or for a single client through
+ * {@link org.opentox.toxotis.client.AbstractClient#setTransport(IHttpTransport) }.
+ *
+ * @author Pantelis Sopasakis
+ * @author Charalampos Chomenides
+ */
+public interface IHttpTransport {
+
+    /**
+     * Opens a connection to the given URL. The client will then set the request
+     * method and headers on the returned connection; headers set by the client
+     * override those set by the transport.
+     *
+     * @param url
+     *      Target URL.
+     * @return
+     *      A connection which has not connected yet.
+     * @throws IOException
+     *      In case the connection cannot be opened.
+     */
+    HttpURLConnection openConnection(URL url) throws IOException;
+
+    /**
+     * The body of the response of a connection opened by this transport.
+     *
+     * @param connection
+     *      A connection opened by this transport.
+     * @param error
+     *      Whether the error stream (for error responses) should be returned.
+     * @return
+     *      Input stream over the (decoded) body of the response; may be
+     *      <code>null</code> if there is no error stream.
+     * @throws IOException
+     *      In case the response cannot be read.
+     */
+    InputStream getInputStream(HttpURLConnection connection, boolean error) throws IOException;
+
+    /**
+     * Releases a connection opened by this transport once the client is done
+     * with it. Invoking this method more than once for the same connection has
+     * no effect.
+     *
+     * @param connection
+     *      A connection opened by this transport.
+     */
+    void release(HttpURLConnection connection);
+}
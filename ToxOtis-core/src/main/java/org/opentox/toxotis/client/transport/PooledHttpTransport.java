@@ -0,0 +1,395 @@
+/*
+ *
+ * ToxOtis
+ *
+ * ToxOtis is the Greek word for Sagittarius, that actually means ‘archer’. ToxOtis
+ * is a Java interface to the predictive toxicology services of OpenTox. ToxOtis is
+ * being developed to help both those who need a painless way to consume OpenTox
+ * services and for ambitious service providers that don’t want to spend half of
+ * their time in RDF parsing and creation.
+ *
+ * Copyright (C) 2009-2010 Pantelis Sopasakis & Charalampos Chomenides
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Contact:
+ * Pantelis Sopasakis
+ * chvng@mail.ntua.gr
+ * Address: Iroon Politechniou St. 9, Zografou, Athens Greece
+ * tel. +30 210 7723236
+ *
+ */
+package org.opentox.toxotis.client.transport;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.SocketTimeoutException;
+import java.net.URL;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
+import org.opentox.toxotis.client.RequestHeaders;
+
+/**
+ * <p align="justify">A transport which keeps connections alive so that subsequent
+ * requests to the same host reuse the same socket (and TLS session) instead of
+ * connecting anew. The idle connections are kept in the keep-alive cache of the
+ * JVM's HTTP implementation which holds up to <code>http.maxConnections</code>
+ * (system property, 5 by default) idle connections per host. A connection is
+ * returned to that cache when its response body has been fully read and closed,
+ * so when a client is closed, whatever is left of the response is read and
+ * discarded (up to {@link #MAX_DRAIN_BYTES }; larger leftovers are disconnected).</p>
+ *
+ * <p align="justify">This transport also:</p>
+ * <ul>
+ * <li>limits the number of concurrent connections per host; a request waits
+ * for at most the <em>acquire timeout</em> for a connection to become available,</li>
+ * <li>applies connect and read timeouts,</li>
+ * <li>requests compressed responses (<code>Accept-Encoding: gzip, deflate</code>)
+ * and decodes them transparently,</li>
+ * <li>keeps metrics on its usage.</li>
+ * </ul>
+ * <p align="justify">Clients must be closed (or the streams they return fully
+ * read and closed) for their connections to be released.</p>
+ *
+ * @author Pantelis Sopasakis
+ * @author Charalampos Chomenides
+ */
+public class PooledHttpTransport implements IHttpTransport {
+
+    /** Maximum number of bytes read from an unread response to keep the connection alive */
+    public static final int MAX_DRAIN_BYTES = 65536;
+    private static final String ENCODING_GZIP = "gzip", ENCODING_DEFLATE = "deflate";
+    private final int maxConnectionsPerHost;
+    private final int connectTimeout;
+    private final int readTimeout;
+    private final long acquireTimeout;
+    private final boolean compression;
+    private final ConcurrentMap<String, Semaphore> hostPermits = new ConcurrentHashMap<String, Semaphore>();
+    private final ConcurrentMap<HttpURLConnection, Lease> leases = new ConcurrentHashMap<HttpURLConnection, Lease>();
+    /* Metrics */
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicInteger activeConnections = new AtomicInteger();
+    private final AtomicInteger peakActiveConnections = new AtomicInteger();
+    private final AtomicLong waits = new AtomicLong();
+    private final AtomicLong waitTime = new AtomicLong();
+    private final AtomicLong acquireTimeouts = new AtomicLong();
+    private final AtomicLong keptAlive = new AtomicLong();
+    private final AtomicLong disconnected = new AtomicLong();
+    private final AtomicLong compressedResponses = new AtomicLong();
+    private org.slf4j.Logger logger = org.slf4j.LoggerFactory.getLogger(PooledHttpTransport.class);
+
+    private static class Lease {
+
+        private final String host;
+        private volatile InputStream stream;
+
+        Lease(String host) {
+            this.host = host;
+        }
+    }
+
+    /**
+     * Closing the stream releases its connection.
+     */
+    private class ReleasingInputStream extends FilterInputStream {
+
+        private final HttpURLConnection connection;
+
+        ReleasingInputStream(InputStream in, HttpURLConnection connection) {
+            super(in);
+            this.connection = connection;
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                release(connection);
+            } finally {
+                super.close();
+            }
+        }
+    }
+
+    /**
+     * A pooled transport with at most 10 concurrent connections per host, a
+     * connect timeout of 10 seconds, a read timeout of 60 seconds, an acquire
+     * timeout of 60 seconds and compression enabled.
+     */
+    public PooledHttpTransport() {
+        this(10, 10000, 60000, 60000, true);
+    }
+
+    /**
+     * Creates a new pooled transport.
+     *
+     * @param maxConnectionsPerHost
+     *      Maximum number of concurrent connections per host.
+     * @param connectTimeout
+     *      Connect timeout in milliseconds (<code>0</code> for no timeout).
+     * @param readTimeout
+     *      Read timeout in milliseconds (<code>0</code> for no timeout).
+     * @param acquireTimeout
+     *      Maximum time in milliseconds to wait for a connection to some host
+     *      to become available when the limit of connections has been reached.
+     * @param compression
+     *      Whether compressed responses should be requested.
+     */
+    public PooledHttpTransport(int maxConnectionsPerHost, int connectTimeout, int readTimeout,
+            long acquireTimeout, boolean compression) {
+        if (maxConnectionsPerHost <= 0) {
+            throw new IllegalArgumentException("The maximum number of connections per host must be positive");
+        }
+        this.maxConnectionsPerHost = maxConnectionsPerHost;
+        this.connectTimeout = connectTimeout;
+        this.readTimeout = readTimeout;
+        this.acquireTimeout = acquireTimeout;
+        this.compression = compression;
+    }
+
+    @Override
+    public HttpURLConnection openConnection(URL url) throws IOException {
+        String host = url.getHost() + ":" + (url.getPort() != -1 ? url.getPort() : url.getDefaultPort());
+        Semaphore permits = hostPermits.get(host);
+        if (permits == null) {
+            Semaphore newPermits = new Semaphore(maxConnectionsPerHost, true);
+            permits = hostPermits.putIfAbsent(host, newPermits);
+            if (permits == null) {
+                permits = newPermits;
+            }
+        }
+        if (!permits.tryAcquire()) {
+            waits.incrementAndGet();
+            long timeFlag = System.currentTimeMillis();
+            boolean acquired = false;
+            try {
+                acquired = permits.tryAcquire(acquireTimeout, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while waiting for a connection to " + host, ex);
+            } finally {
+                waitTime.addAndGet(System.currentTimeMillis() - timeFlag);
+            }
+            if (!acquired) {
+                acquireTimeouts.incrementAndGet();
+                throw new SocketTimeoutException("Timeout while waiting for a connection to " + host
+                        + " (" + maxConnectionsPerHost + " connections in use)");
+            }
+        }
+        HttpURLConnection connection = null;
+        try {
+            connection = (HttpURLConnection) url.openConnection();
+            connection.setConnectTimeout(connectTimeout);
+            connection.setReadTimeout(readTimeout);
+            if (compression) {
+                connection.setRequestProperty(RequestHeaders.ACCEPT_ENCODING, ENCODING_GZIP + ", " + ENCODING_DEFLATE);
+            }
+        } catch (IOException ex) {
+            permits.release();
+            throw ex;
+        } catch (RuntimeException ex) {
+            permits.release();
+            throw ex;
+        }
+        leases.put(connection, new Lease(host));
+        requests.incrementAndGet();
+        int active = activeConnections.incrementAndGet();
+        int peak = peakActiveConnections.get();
+        while (active > peak && !peakActiveConnections.compareAndSet(peak, active)) {
+            peak = peakActiveConnections.get();
+        }
+        return connection;
+    }
+
+    @Override
+    public InputStream getInputStream(HttpURLConnection connection, boolean error) throws IOException {
+        InputStream raw = error ? connection.getErrorStream() : connection.getInputStream();
+        if (raw == null) {
+            return null;
+        }
+        Lease lease = leases.get(connection);
+        if (lease == null) { // not opened by this transport or already released
+            return raw;
+        }
+        lease.stream = raw;
+        InputStream decoded = raw;
+        String encoding = connection.getContentEncoding();
+        if (ENCODING_GZIP.equalsIgnoreCase(encoding)) {
+            compressedResponses.incrementAndGet();
+            decoded = new GZIPInputStream(raw);
+        } else if (ENCODING_DEFLATE.equalsIgnoreCase(encoding)) {
+            compressedResponses.incrementAndGet();
+            decoded = new InflaterInputStream(raw);
+        }
+        return new ReleasingInputStream(decoded, connection);
+    }
+
+    @Override
+    public void release(HttpURLConnection connection) {
+        Lease lease = leases.remove(connection);
+        if (lease == null) {
+            return;
+        }
+        try {
+            if (lease.stream != null && drain(lease.stream)) {
+                keptAlive.incrementAndGet();
+            } else {
+                connection.disconnect();
+                disconnected.incrementAndGet();
+            }
+        } finally {
+            activeConnections.decrementAndGet();
+            hostPermits.get(lease.host).release();
+        }
+    }
+
+    /**
+     * Reads what is left from the response and closes the stream.
+     * @return
+     *      <code>true</code> if the end of the stream was reached.
+     */
+    private boolean drain(InputStream stream) {
+        byte[] buffer = new byte[4096];
+        int total = 0;
+        try {
+            int read;
+            while ((read = stream.read(buffer)) != -1) {
+                total += read;
+                if (total > MAX_DRAIN_BYTES) {
+                    return false;
+                }
+            }
+            stream.close();
+            return true;
+        } catch (IOException ex) {
+            logger.debug("Connection could not be kept alive", ex);
+            return false;
+        }
+    }
+
+    public int getMaxConnectionsPerHost() {
+        return maxConnectionsPerHost;
+    }
+
+    public int getConnectTimeout() {
+        return connectTimeout;
+    }
+
+    public int getReadTimeout() {
+        return readTimeout;
+    }
+
+    public long getAcquireTimeout() {
+        return acquireTimeout;
+    }
+
+    public boolean isCompression() {
+        return compression;
+    }
+
+    /**
+     * Total number of connections opened through this transport.
+     * @return
+     *      Number of requests.
+     */
+    public long getRequestCount() {
+        return requests.get();
+    }
+
+    /**
+     * Number of connections which have been opened and not yet released.
+     * @return
+     *      Number of connections in use.
+     */
+    public int getActiveConnections() {
+        return activeConnections.get();
+    }
+
+    /**
+     * Number of connections to a certain host which are currently in use.
+     * @param host
+     *      Host and port separated by a colon, e.g. <code>opentox.ntua.gr:8080</code>.
+     * @return
+     *      Number of connections in use.
+     */
+    public int getActiveConnections(String host) {
+        Semaphore permits = hostPermits.get(host);
+        return permits != null ? maxConnectionsPerHost - permits.availablePermits() : 0;
+    }
+
+    public int getPeakActiveConnections() {
+        return peakActiveConnections.get();
+    }
+
+    /**
+     * Number of requests which had to wait for a connection because the limit
+     * of connections to their host had been reached.
+     * @return
+     *      Number of requests that waited.
+     */
+    public long getWaitCount() {
+        return waits.get();
+    }
+
+    /**
+     * Total time (in milliseconds) requests have spent waiting for a connection.
+     * @return
+     *      Total waiting time.
+     */
+    public long getWaitTime() {
+        return waitTime.get();
+    }
+
+    public long getAcquireTimeoutCount() {
+        return acquireTimeouts.get();
+    }
+
+    /**
+     * Number of connections that were released with their response fully read
+     * and thus could be reused.
+     * @return
+     *      Number of connections kept alive.
+     */
+    public long getKeptAliveCount() {
+        return keptAlive.get();
+    }
+
+    /**
+     * Number of connections that were disconnected when released.
+     * @return
+     *      Number of connections disconnected.
+     */
+    public long getDisconnectedCount() {
+        return disconnected.get();
+    }
+
+    public long getCompressedResponseCount() {
+        return compressedResponses.get();
+    }
+
+    @Override
+    public String toString() {
+        return "PooledHttpTransport{requests=" + getRequestCount() + ", active=" + getActiveConnections()
+                + ", peak=" + getPeakActiveConnections() + ", waits=" + getWaitCount() + ", waitTime=" + getWaitTime()
+                + ", acquireTimeouts=" + getAcquireTimeoutCount() + ", keptAlive=" + getKeptAliveCount()
+                + ", disconnected=" + getDisconnectedCount() + ", compressed=" + getCompressedResponseCount() + "}";
+    }
+}
@@ -46,6 +46,9 @@ import java.io.OutputStreamWriter;
 import java.io.Writer;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 import javax.imageio.ImageIO;
 import org.opentox.toxotis.client.collection.Media;
 import org.opentox.toxotis.client.ClientFactory;
@@ -162,6 +165,49 @@ public abstract class OTOnlineResource<T extends OTOnlineResource> extends OTCom
         return loadFromRemote(authenticatedUri, authentication);
     }
 
+    /**
+     * Asynchronous version of {@link #loadFromRemote(org.opentox.toxotis.util.aa.AuthenticationToken) }
+     * which runs on the shared bounded executor of asynchronous clients (see
+     * {@link ClientFactory#getAsyncExecutor() }). Use it to load several
+     * resources concurrently without dedicating a thread to each one of them.
+     *
+     * @param authentication
+     *      Token used to authenticate the user against the SSO server and acquire
+     *      permission to download the resource.
+     * @return
+     *      Future holding the parsed instance of the component. In case of failure,
+     *      {@link Future#get() } throws an {@link java.util.concurrent.ExecutionException}
+     *      which wraps the {@link ServiceInvocationException} thrown while loading
+     *      the resource.
+     * @throws java.util.concurrent.RejectedExecutionException
+     *      If the executor cannot accept any more tasks.
+     */
+    public Future<T> loadFromRemoteAsync(AuthenticationToken authentication) {
+        return loadFromRemoteAsync(authentication, ClientFactory.getAsyncExecutor());
+    }
+
+    /**
+     * Asynchronous version of {@link #loadFromRemote(org.opentox.toxotis.util.aa.AuthenticationToken) }
+     * running on a given executor. The executor is not shut down by this method.
+     *
+     * @param authentication
+     *      Token used to authenticate the user against the SSO server and acquire
+     *      permission to download the resource.
+     * @param executor
+     *      Executor on which the resource will be loaded.
+     * @return
+     *      Future holding the parsed instance of the component.
+     */
+    public Future<T> loadFromRemoteAsync(final AuthenticationToken authentication, ExecutorService executor) {
+        return executor.submit(new Callable<T>() {
+
+            @Override
+            public T call() throws ServiceInvocationException {
+                return loadFromRemote(authentication);
+            }
+        });
+    }
+
     /**
      * Loads an OpenTox component from a remote location identified by its {@link VRI uri} and
      * parses it into an instance of <code>T</code>. This method is protected and should be
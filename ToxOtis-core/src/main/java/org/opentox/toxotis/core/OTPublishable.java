@@ -34,12 +34,16 @@ package org.opentox.toxotis.core;
 
 import org.opentox.toxotis.core.component.Task;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import org.opentox.toxotis.client.ClientFactory;
 import org.opentox.toxotis.client.VRI;
 import org.opentox.toxotis.exceptions.impl.ForbiddenRequest;
 import org.opentox.toxotis.exceptions.impl.ServiceInvocationException;
+import org.opentox.toxotis.util.TaskMonitor;
 import org.opentox.toxotis.util.aa.AuthenticationToken;
 
 /**
@@ -108,38 +112,62 @@ public abstract class OTPublishable<T extends OTPublishable> extends OTOnlineRes
     public abstract Task publishOnline(VRI vri, AuthenticationToken token) 
             throws ServiceInvocationException;
 
+    /**
+     * Publish the component to a given server. The POST request is performed on the
+     * given executor, which is shut down afterwards, while the task returned by the
+     * remote service is monitored by the shared {@link TaskMonitor}.
+     * @param vri
+     *      The URI where the component should be posted.
+     * @param token
+     *      Authentication token (may be <code>null</code>).
+     * @param executor
+     *      Executor on which the POST request is performed.
+     * @return
+     *      Future for the URI of the published resource.
+     * @throws ServiceInvocationException
+     *      In case the provided token is inactive.
+     */
     public Future<VRI> publish(final VRI vri, final AuthenticationToken token, ExecutorService executor) throws ServiceInvocationException {
+        return publish(vri, token, executor, true);
+    }
+
+    /**
+     * Publish the component to a given server. The POST request is performed on the
+     * shared executor of asynchronous clients (see {@link ClientFactory#getAsyncExecutor() })
+     * and the task returned by the remote service is monitored by the shared
+     * {@link TaskMonitor}, so no thread is dedicated to each publication.
+     * @param vri
+     *      The URI where the component should be posted.
+     * @param token
+     *      Authentication token (may be <code>null</code>).
+     * @return
+     *      Future for the URI of the published resource.
+     * @throws ServiceInvocationException
+     *      In case the provided token is inactive.
+     */
+    public Future<VRI> publish(final VRI vri, final AuthenticationToken token) throws ServiceInvocationException {
+        return publish(vri, token, ClientFactory.getAsyncExecutor(), false);
+    }
+
+    private Future<VRI> publish(final VRI vri, final AuthenticationToken token, ExecutorService executor,
+            boolean shutdownExecutor) throws ServiceInvocationException {
         if (token != null && !AuthenticationToken.TokenStatus.ACTIVE.equals(token.getStatus())) {
             throw new ForbiddenRequest("The Provided token is inactive");
         }
 
-        Callable<VRI> backgroundJob = new Callable<VRI>() {
+        Callable<Future<Task>> backgroundJob = new Callable<Future<Task>>() {
 
             @Override
-            public VRI call() throws Exception {
+            public Future<Task> call() throws Exception {
                 Task t = publishOnline(vri, token);
-
-                while (t.getStatus().equals(Task.Status.RUNNING)||t.getStatus().equals(Task.Status.QUEUED)) {
-                    t.loadFromRemote();
-                    Thread.sleep(100);
-                }
-                if (!Task.Status.COMPLETED.equals(t.getStatus())) {
-                    throw new ServiceInvocationException("Task failed! This entity was not published online "
-                            + "due to some unexpected error. Error Report : " + t.getErrorReport());
-                }
-                return t.getResultUri();
+                return TaskMonitor.getInstance().monitor(t, token);
             }
         };
-        Future<VRI> future = executor.submit(backgroundJob);
-        executor.shutdown();
-        return future;
-    }
-
-    public Future<VRI> publish(final VRI vri, final AuthenticationToken token) throws ServiceInvocationException {
-        if (token != null && !AuthenticationToken.TokenStatus.ACTIVE.equals(token.getStatus())) {
-            throw new ForbiddenRequest("The Provided token is inactive");
+        Future<Future<Task>> posted = executor.submit(backgroundJob);
+        if (shutdownExecutor) {
+            executor.shutdown();
         }
-        return publish(vri, token, Executors.newSingleThreadExecutor());
+        return new ResultUriFuture(posted);
     }
 
     /**
@@ -172,4 +200,78 @@ public abstract class OTPublishable<T extends OTPublishable> extends OTOnlineRes
      * @see OTPublishable#publishOnline(org.opentox.toxotis.client.VRI, org.opentox.toxotis.util.aa.AuthenticationToken) alternative method
      */
     public abstract Task publishOnline(AuthenticationToken token) throws ServiceInvocationException;
+
+    /**
+     * Future for the result URI of a publication: completes once the POST request
+     * has been performed and the returned task has completed.
+     */
+    private static class ResultUriFuture implements Future<VRI> {
+
+        private final Future<Future<Task>> posted;
+
+        ResultUriFuture(Future<Future<Task>> posted) {
+            this.posted = posted;
+        }
+
+        private Future<Task> monitored() {
+            if (!posted.isDone() || posted.isCancelled()) {
+                return null;
+            }
+            try {
+                return posted.get();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                return null;
+            } catch (ExecutionException ex) {
+                return null;
+            }
+        }
+
+        private VRI resultUri(Task t) throws ExecutionException {
+            if (!Task.Status.COMPLETED.equals(t.getStatus())) {
+                throw new ExecutionException(new ServiceInvocationException("Task failed! This entity was not published online "
+                        + "due to some unexpected error. Error Report : " + t.getErrorReport()));
+            }
+            return t.getResultUri();
+        }
+
+        @Override
+        public boolean cancel(boolean mayInterruptIfRunning) {
+            if (posted.cancel(mayInterruptIfRunning)) {
+                return true;
+            }
+            Future<Task> monitored = monitored();
+            return monitored != null && monitored.cancel(mayInterruptIfRunning);
+        }
+
+        @Override
+        public boolean isCancelled() {
+            if (posted.isCancelled()) {
+                return true;
+            }
+            Future<Task> monitored = monitored();
+            return monitored != null && monitored.isCancelled();
+        }
+
+        @Override
+        public boolean isDone() {
+            if (!posted.isDone()) {
+                return false;
+            }
+            Future<Task> monitored = monitored();
+            return monitored == null || monitored.isDone();
+        }
+
+        @Override
+        public VRI get() throws InterruptedException, ExecutionException {
+            return resultUri(posted.get().get());
+        }
+
+        @Override
+        public VRI get(long timeout, TimeUnit unit) throws InterruptedException, ExecutionException, TimeoutException {
+            long deadline = System.nanoTime() + unit.toNanos(timeout);
+            Future<Task> monitored = posted.get(timeout, unit);
+            return resultUri(monitored.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS));
+        }
+    }
 }
@@ -0,0 +1,491 @@
+/*
+ *
+ * ToxOtis
+ *
+ * ToxOtis is the Greek word for Sagittarius, that actually means ‘archer’. ToxOtis
+ * is a Java interface to the predictive toxicology services of OpenTox. ToxOtis is
+ * being developed to help both those who need a painless way to consume OpenTox
+ * services and for ambitious service providers that don’t want to spend half of
+ * their time in RDF parsing and creation.
+ *
+ * Copyright (C) 2009-2010 Pantelis Sopasakis & Charalampos Chomenides
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Contact:
+ * Pantelis Sopasakis
+ * chvng@mail.ntua.gr
+ * Address: Iroon Politechniou St. 9, Zografou, Athens Greece
+ * tel. +30 210 7723236
+ *
+ */
+package org.opentox.toxotis.core.component;
+
+import com.hp.hpl.jena.datatypes.xsd.XSDDatatype;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.opentox.toxotis.client.VRI;
+import org.opentox.toxotis.ontology.LiteralValue;
+import org.opentox.toxotis.ontology.MetaInfo;
+import org.opentox.toxotis.ontology.collection.OTClasses;
+
+/**
+ * <p align="justify">A compact, column-oriented in-memory representation of a
+ * dataset. Instead of one {@link FeatureValue} object per compound and feature,
+ * a columnar dataset holds a dictionary of the features of the dataset and one
+ * column per feature: numeric features are stored in <code>double[]</code>
+ * columns (with <code>NaN</code> for missing values) while nominal and string
+ * features are stored in dictionary-encoded <code>int[]</code> columns (with
+ * <code>-1</code> for missing values).</p>
+ *
+ * <p align="justify">A columnar dataset may be created from a {@link Dataset}
+ * or populated while a dataset is being parsed since it is also an
+ * {@link IDataEntryConsumer} (see {@link org.opentox.toxotis.util.spiders.DatasetSpider#stream(IDataEntryConsumer) }).
+ * For compatibility with code that works on data entries, {@link #getDataEntries() }
+ * and {@link #asDataset() } provide views whose data entries are created on
+ * access from the columns. Note that numeric values are held as doubles, so
+ * the view returns them as <code>xsd:double</code> literals, and that string
+ * values are returned as <code>xsd:string</code> literals.</p>
+ *
+ * @author Pantelis Sopasakis
+ * @author Charalampos Chomenides
+ */
+public class ColumnarDataset implements IDataEntryConsumer {
+
+    private static final int INITIAL_CAPACITY = 16;
+    private VRI uri;
+    private MetaInfo meta;
+    private Compound[] compounds = new Compound[INITIAL_CAPACITY];
+    private int size = 0;
+    private final List<Feature> features = new ArrayList<Feature>();
+    private final Map<Feature, Integer> featureIndices = new HashMap<Feature, Integer>();
+    private final List<Column> columns = new ArrayList<Column>();
+    private final org.slf4j.Logger logger = org.slf4j.LoggerFactory.getLogger(ColumnarDataset.class);
+
+    private abstract static class Column {
+
+        abstract void set(int row, LiteralValue value);
+
+        abstract boolean isMissing(int row);
+
+        abstract LiteralValue get(int row);
+
+        abstract void trimToSize(int size);
+    }
+
+    private final class NumericColumn extends Column {
+
+        private double[] values = new double[0];
+
+        @Override
+        void set(int row, LiteralValue value) {
+            if (row >= values.length) {
+                int oldLength = values.length;
+                values = Arrays.copyOf(values, Math.max(row + 1, compounds.length));
+                Arrays.fill(values, oldLength, values.length, Double.NaN);
+            }
+            values[row] = toDouble(value.getValue());
+        }
+
+        double getDouble(int row) {
+            return row < values.length ? values[row] : Double.NaN;
+        }
+
+        @Override
+        boolean isMissing(int row) {
+            return Double.isNaN(getDouble(row));
+        }
+
+        @Override
+        LiteralValue get(int row) {
+            return isMissing(row) ? null : new LiteralValue<Double>(values[row], XSDDatatype.XSDdouble);
+        }
+
+        @Override
+        void trimToSize(int size) {
+            if (values.length > size) {
+                values = Arrays.copyOf(values, size);
+            }
+        }
+    }
+
+    private final class DictionaryColumn extends Column {
+
+        private int[] codes = new int[0];
+        private final List<String> dictionary = new ArrayList<String>();
+        private final Map<String, Integer> codesByValue = new HashMap<String, Integer>();
+
+        @Override
+        void set(int row, LiteralValue value) {
+            setString(row, value.getValue().toString());
+        }
+
+        void setString(int row, String value) {
+            if (row >= codes.length) {
+                int oldLength = codes.length;
+                codes = Arrays.copyOf(codes, Math.max(row + 1, compounds.length));
+                Arrays.fill(codes, oldLength, codes.length, -1);
+            }
+            Integer code = codesByValue.get(value);
+            if (code == null) {
+                code = dictionary.size();
+                dictionary.add(value);
+                codesByValue.put(value, code);
+            }
+            codes[row] = code;
+        }
+
+        String getString(int row) {
+            return isMissing(row) ? null : dictionary.get(codes[row]);
+        }
+
+        @Override
+        boolean isMissing(int row) {
+            return row >= codes.length || codes[row] < 0;
+        }
+
+        @Override
+        LiteralValue get(int row) {
+            return isMissing(row) ? null : new LiteralValue<String>(dictionary.get(codes[row]), XSDDatatype.XSDstring);
+        }
+
+        @Override
+        void trimToSize(int size) {
+            if (codes.length > size) {
+                codes = Arrays.copyOf(codes, size);
+            }
+        }
+    }
+
+    /**
+     * Creates an empty columnar dataset.
+     */
+    public ColumnarDataset() {
+    }
+
+    /**
+     * Creates a columnar dataset holding the data of the given dataset.
+     * @param dataset
+     *      A dataset.
+     */
+    public ColumnarDataset(Dataset dataset) {
+        for (DataEntry dataEntry : dataset.getDataEntries()) {
+            consume(dataEntry);
+        }
+        finish(dataset);
+    }
+
+    /**
+     * Appends a data entry (a row) to the dataset.
+     * @param dataEntry
+     *      The data entry to be added.
+     */
+    @Override
+    public void consume(DataEntry dataEntry) {
+        if (size == compounds.length) {
+            compounds = Arrays.copyOf(compounds, 2 * compounds.length);
+        }
+        int row = size++;
+        compounds[row] = dataEntry.getConformer();
+        for (FeatureValue featureValue : dataEntry.getFeatureValues()) {
+            if (featureValue.getValue() == null || featureValue.getValue().getValue() == null) {
+                continue;
+            }
+            Feature feature = featureValue.getFeature();
+            Integer index = featureIndices.get(feature);
+            if (index == null) {
+                index = features.size();
+                features.add(feature);
+                featureIndices.put(feature, index);
+                columns.add(createColumn(feature, featureValue.getValue()));
+            }
+            columns.get(index).set(row, featureValue.getValue());
+        }
+    }
+
+    /**
+     * Adopts the URI and meta information of the given dataset and, now that the
+     * features are complete, converts columns whose type does not agree with
+     * the type of their feature. Finally releases any unused capacity.
+     *
+     * @param dataset
+     *      A dataset whose URI and meta information are copied (its data entries
+     *      are not taken into account).
+     */
+    @Override
+    public void finish(Dataset dataset) {
+        setUri(dataset.getUri());
+        setMeta(dataset.getMeta());
+        for (int i = 0; i < columns.size(); i++) {
+            Column column = columns.get(i);
+            Boolean numeric = isNumeric(features.get(i));
+            if (Boolean.TRUE.equals(numeric) && column instanceof DictionaryColumn) {
+                columns.set(i, toNumeric((DictionaryColumn) column));
+            } else if (Boolean.FALSE.equals(numeric) && column instanceof NumericColumn) {
+                columns.set(i, toDictionary((NumericColumn) column));
+            }
+        }
+        trimToSize();
+    }
+
+    /**
+     * Releases any unused capacity of the columns.
+     */
+    public void trimToSize() {
+        if (compounds.length > size) {
+            compounds = Arrays.copyOf(compounds, size);
+        }
+        for (Column column : columns) {
+            column.trimToSize(size);
+        }
+    }
+
+    public VRI getUri() {
+        return uri;
+    }
+
+    public void setUri(VRI uri) {
+        this.uri = uri;
+    }
+
+    public MetaInfo getMeta() {
+        return meta;
+    }
+
+    public void setMeta(MetaInfo meta) {
+        this.meta = meta;
+    }
+
+    /**
+     * The number of data entries (rows) in the dataset.
+     * @return
+     *      Number of compounds.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * The features (columns) of the dataset in the order they were first
+     * encountered.
+     * @return
+     *      Unmodifiable list of features.
+     */
+    public List<Feature> getFeatures() {
+        return Collections.unmodifiableList(features);
+    }
+
+    /**
+     * The column of a feature.
+     * @param feature
+     *      A feature.
+     * @return
+     *      The index of the column or <code>-1</code> if the feature is not
+     *      contained in the dataset.
+     */
+    public int indexOf(Feature feature) {
+        Integer index = featureIndices.get(feature);
+        return index != null ? index : -1;
+    }
+
+    public Compound getCompound(int row) {
+        checkRow(row);
+        return compounds[row];
+    }
+
+    /**
+     * Whether a column holds numeric values.
+     * @param column
+     *      Index of the column.
+     * @return
+     *      <code>true</code> if the values of the column are stored as doubles.
+     */
+    public boolean isNumeric(int column) {
+        return columns.get(column) instanceof NumericColumn;
+    }
+
+    public boolean isMissing(int row, int column) {
+        checkRow(row);
+        return columns.get(column).isMissing(row);
+    }
+
+    /**
+     * The value of a numeric column.
+     * @param row
+     *      Index of the row.
+     * @param column
+     *      Index of a numeric column.
+     * @return
+     *      The value or <code>NaN</code> if missing.
+     * @throws IllegalArgumentException
+     *      If the column is not numeric.
+     */
+    public double getDouble(int row, int column) {
+        checkRow(row);
+        Column c = columns.get(column);
+        if (!(c instanceof NumericColumn)) {
+            throw new IllegalArgumentException("Column " + column + " is not numeric");
+        }
+        return ((NumericColumn) c).getDouble(row);
+    }
+
+    /**
+     * The value of a nominal or string column.
+     * @param row
+     *      Index of the row.
+     * @param column
+     *      Index of a nominal or string column.
+     * @return
+     *      The value or <code>null</code> if missing.
+     * @throws IllegalArgumentException
+     *      If the column is numeric.
+     */
+    public String getString(int row, int column) {
+        checkRow(row);
+        Column c = columns.get(column);
+        if (!(c instanceof DictionaryColumn)) {
+            throw new IllegalArgumentException("Column " + column + " is numeric");
+        }
+        return ((DictionaryColumn) c).getString(row);
+    }
+
+    /**
+     * Creates a data entry for a row of the dataset. The feature values of the
+     * data entry refer to the (shared) features of the dataset.
+     * @param row
+     *      Index of the row.
+     * @return
+     *      A new data entry.
+     */
+    public DataEntry getDataEntry(int row) {
+        checkRow(row);
+        List<FeatureValue> featureValues = new ArrayList<FeatureValue>();
+        for (int i = 0; i < columns.size(); i++) {
+            LiteralValue value = columns.get(i).get(row);
+            if (value != null) {
+                featureValues.add(new FeatureValue(features.get(i), value));
+            }
+        }
+        return new DataEntry(compounds[row], featureValues);
+    }
+
+    /**
+     * A read-only view of the rows of the dataset as data entries. Data entries
+     * are created upon access and are not retained by the view.
+     * @return
+     *      List of data entries backed by this columnar dataset.
+     */
+    public List<DataEntry> getDataEntries() {
+        return new AbstractList<DataEntry>() {
+
+            @Override
+            public DataEntry get(int index) {
+                return getDataEntry(index);
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        };
+    }
+
+    /**
+     * A {@link Dataset} whose data entries are a view of this columnar dataset.
+     * @return
+     *      A dataset backed by this columnar dataset.
+     * @see #getDataEntries()
+     */
+    public Dataset asDataset() {
+        Dataset dataset = new Dataset(getDataEntries());
+        dataset.setUri(uri);
+        dataset.setMeta(meta);
+        return dataset;
+    }
+
+    private void checkRow(int row) {
+        if (row < 0 || row >= size) {
+            throw new IndexOutOfBoundsException("Row: " + row + ", Size: " + size);
+        }
+    }
+
+    /**
+     * Whether the feature is numeric, as in the conversion into Weka instances
+     * (nominal and string types prevail).
+     * @return
+     *      <code>null</code> if the feature declares no such type.
+     */
+    private static Boolean isNumeric(Feature feature) {
+        if (feature.getOntologicalClasses() == null) {
+            return null;
+        }
+        if (feature.getOntologicalClasses().contains(OTClasses.nominalFeature())
+                || feature.getOntologicalClasses().contains(OTClasses.stringFeature())) {
+            return Boolean.FALSE;
+        } else if (feature.getOntologicalClasses().contains(OTClasses.numericFeature())) {
+            return Boolean.TRUE;
+        }
+        return null;
+    }
+
+    private Column createColumn(Feature feature, LiteralValue firstValue) {
+        Boolean numeric = isNumeric(feature);
+        if (numeric == null) {
+            // Undeclared (yet) type; decide from the value
+            numeric = firstValue.getValue() instanceof Number;
+        }
+        return numeric ? new NumericColumn() : new DictionaryColumn();
+    }
+
+    private NumericColumn toNumeric(DictionaryColumn column) {
+        NumericColumn numericColumn = new NumericColumn();
+        for (int row = 0; row < size; row++) {
+            if (!column.isMissing(row)) {
+                numericColumn.set(row, new LiteralValue<String>(column.getString(row)));
+            }
+        }
+        return numericColumn;
+    }
+
+    private DictionaryColumn toDictionary(NumericColumn column) {
+        DictionaryColumn dictionaryColumn = new DictionaryColumn();
+        for (int row = 0; row < size; row++) {
+            if (!column.isMissing(row)) {
+                dictionaryColumn.setString(row, Double.toString(column.getDouble(row)));
+            }
+        }
+        return dictionaryColumn;
+    }
+
+    /*
+     * Same as in the conversion into Weka instances
+     */
+    private double toDouble(Object value) {
+        if (value instanceof Double || value instanceof Integer || value instanceof Long
+                || value instanceof Short || value instanceof Byte) {
+            return ((Number) value).doubleValue();
+        }
+        try {
+            return Double.parseDouble(value.toString());
+        } catch (NumberFormatException ex) {
+            logger.debug("Non-numeric value " + value + " in numeric column; it is considered missing");
+            return Double.NaN;
+        }
+    }
+}
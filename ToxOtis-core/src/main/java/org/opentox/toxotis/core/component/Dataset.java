@@ -32,12 +32,10 @@
  */
 package org.opentox.toxotis.core.component;
 
-import com.hp.hpl.jena.datatypes.xsd.XSDDatatype;
 import com.hp.hpl.jena.ontology.Individual;
 import com.hp.hpl.jena.ontology.ObjectProperty;
 import com.hp.hpl.jena.ontology.OntModel;
 import java.net.URISyntaxException;
-import java.text.ParseException;
 import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.LinkedHashSet;
@@ -64,9 +62,6 @@ import org.opentox.toxotis.ontology.collection.OTObjectProperties;
 import org.opentox.toxotis.util.aa.AuthenticationToken;
 import org.opentox.toxotis.util.spiders.DatasetSpider;
 import org.opentox.toxotis.util.spiders.TaskSpider;
-import weka.core.Attribute;
-import weka.core.FastVector;
-import weka.core.Instance;
 import weka.core.Instances;
 
 /**
@@ -80,6 +75,9 @@ public class Dataset extends OTPublishable<Dataset> {
 
     public static final String COMPOUND_URI = "compound_uri";
     private long timeInstancesConversion = -1;
+    private long timeInstancesAttributes = -1;
+    private long timeInstancesValues = -1;
+    private long timeInstancesAssembly = -1;
     private long timeDownload = -1;
     private long timeParse = -1;
     private List<DataEntry> dataEntries = new ArrayList<DataEntry>();
@@ -344,26 +342,6 @@ public class Dataset extends OTPublishable<Dataset> {
         return publishOnline(Services.ideaconsult().augment("dataset"), token);
     }
 
-    private enum WekaDataTypes {
-
-        string,
-        nominal,
-        numeric,
-        general;
-
-        static WekaDataTypes getFromFeature(Feature feature) {
-            if (feature.getOntologicalClasses().contains(OTClasses.nominalFeature())) {
-                return nominal;
-            } else if (feature.getOntologicalClasses().contains(OTClasses.stringFeature())) {
-                return string;
-            } else if (feature.getOntologicalClasses().contains(OTClasses.numericFeature())) {
-                return numeric;
-            } else {
-                return string;
-            }
-        }
-    }
-
     public List<DataEntry> getDataEntries() {
         return dataEntries;
     }
@@ -448,88 +426,22 @@ public class Dataset extends OTPublishable<Dataset> {
      * Numeric|String and Nominal, the Nominal property wins. If it is tagged as
      * both Numeric and String, the String property wins.
      * </p>
+     * <p align="justify">For large datasets the values of the instances are
+     * computed in parallel. The time needed for each phase of the conversion is
+     * available through {@link #getTimeInstancesAttributes() },
+     * {@link #getTimeInstancesValues() } and {@link #getTimeInstancesAssembly() }.
+     * </p>
      *
      * @return
      *      Weka Instances from the data contained in this Dataset.
      */
     public Instances getInstances() {
         long timeFlag = System.currentTimeMillis();
-        // GET THE ATTRIBUTES FOR THE DATASET:
-        FastVector attributes = new FastVector();
-        Set<Feature> features = getContainedFeatures();
-        // THE EXISTENCE OF THE (STRING) ATTRIBUTE 'COMPOUND_URI' IS MANDATORY FOR ALL
-        // DATASETS. THIS IS ALWAYS THE FIRST ATTRIBUTE IN THE LIST.
-        attributes.addElement(new Attribute(COMPOUND_URI, (FastVector) null));
-        // ADD NUMERIC AND STRING ATTRIBUTES INTO THE FASTVECTOR:
-        for (Feature feature : features) {
-            WekaDataTypes dataType = WekaDataTypes.getFromFeature(feature);
-            if (dataType.equals(WekaDataTypes.numeric)) {
-                attributes.addElement(new Attribute(feature.getUri().getStringNoQuery()));
-            } else if (dataType.equals(WekaDataTypes.string) || dataType.equals(WekaDataTypes.general)) {
-                attributes.addElement(new Attribute(feature.getUri().getStringNoQuery(), (FastVector) null));
-            } else if (dataType.equals(WekaDataTypes.nominal)) {
-                // COPE WITH NOMINAL VALUES:
-                FastVector nominalFVec = new FastVector(feature.getAdmissibleValues().size());
-                for (LiteralValue value : feature.getAdmissibleValues()) {
-                    nominalFVec.addElement(value.getValue());
-                }
-                attributes.addElement(new Attribute(feature.getUri().getStringNoQuery(), nominalFVec));
-            }
-        }
-
-        Instances data = new Instances(this.getUri().getStringNoQuery(), attributes, 0);
-
-        //POPULATE WITH VALUES:
-        for (DataEntry dataEntry : this.getDataEntries()) {
-            double[] vals = new double[data.numAttributes()];
-            for (int i = 0; i < data.numAttributes(); i++) {
-                vals[i] = Instance.missingValue();
-            }
-
-            Compound conformer = dataEntry.getConformer();
-
-            vals[data.attribute(COMPOUND_URI).index()] =
-                    data.attribute(COMPOUND_URI).addStringValue(conformer.getUri().getStringNoQuery());
-
-            for (FeatureValue featureValue : dataEntry.getFeatureValues()) {
-                Feature feature = featureValue.getFeature();
-                String featureName = feature.getUri().getStringNoQuery();
-                LiteralValue value = featureValue.getValue();
-
-                if (value != null) {
-                    if (WekaDataTypes.getFromFeature(feature).equals(WekaDataTypes.numeric)) {
-                        try {
-                            vals[data.attribute(featureName).index()] =
-                                    Double.parseDouble(value.getValue().toString());
-                        } catch (NumberFormatException ex) {
-                            logger.warn("NFE while trying to convert to double the value " + value.getValue(), ex);
-                        }
-                    } else if (WekaDataTypes.getFromFeature(feature).equals(WekaDataTypes.string)) {
-                        vals[data.attribute(featureName).index()] =
-                                data.attribute(featureName).addStringValue((String) value.getValue().toString());
-                    } else if (XSDDatatype.XSDdate.getURI().equals(featureName)) {
-                        try {
-                            vals[data.attribute(featureName).index()] = data.attribute(featureName).parseDate((String) value.getValue());
-                        } catch (ParseException ex) {
-                            logger.error("Parsing Exception for Date in Dataset", ex);
-                        }
-                    } else if (WekaDataTypes.getFromFeature(feature).equals(WekaDataTypes.nominal)) {
-                        //TODO: Nominals may not work, testing is needed.
-                        vals[data.attribute(featureName).index()] =
-                                data.attribute(featureName).indexOfValue(value.getValue().toString());
-                    }
-                }
-            }
-
-            Instance valuesInstance = new Instance(1.0, vals);
-            // Add the Instance only if its compatible with the dataset!
-            if (data.checkInstance(valuesInstance)) {
-                data.add(valuesInstance);
-            } else {
-                logger.warn("Warning! The instance "
-                        + valuesInstance + " is not compatible with the dataset!");
-            }
-        }
+        InstancesConverter converter = new InstancesConverter(this);
+        Instances data = converter.convert();
+        timeInstancesAttributes = converter.getTimeAttributes();
+        timeInstancesValues = converter.getTimeValues();
+        timeInstancesAssembly = converter.getTimeAssembly();
         timeInstancesConversion = System.currentTimeMillis() - timeFlag;
         return data;
     }
@@ -550,6 +462,39 @@ public class Dataset extends OTPublishable<Dataset> {
         return timeInstancesConversion;
     }
 
+    /**
+     * Time needed by the last invocation of {@link #getInstances() } to collect
+     * the features of the dataset and create the attributes.
+     *
+     * @return
+     *      Time in milliseconds or <code>-1</code> if no conversion took place.
+     */
+    public long getTimeInstancesAttributes() {
+        return timeInstancesAttributes;
+    }
+
+    /**
+     * Time needed by the last invocation of {@link #getInstances() } to compute
+     * the (numeric and nominal) values of all rows.
+     *
+     * @return
+     *      Time in milliseconds or <code>-1</code> if no conversion took place.
+     */
+    public long getTimeInstancesValues() {
+        return timeInstancesValues;
+    }
+
+    /**
+     * Time needed by the last invocation of {@link #getInstances() } to add the
+     * string values to their attributes and assemble the instances.
+     *
+     * @return
+     *      Time in milliseconds or <code>-1</code> if no conversion took place.
+     */
+    public long getTimeInstancesAssembly() {
+        return timeInstancesAssembly;
+    }
+
     public long getTimeParse() {
         return timeParse;
     }
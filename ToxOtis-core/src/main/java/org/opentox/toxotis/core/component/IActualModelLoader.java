@@ -0,0 +1,64 @@
+/*
+ *
+ * ToxOtis
+ *
+ * ToxOtis is the Greek word for Sagittarius, that actually means ‘archer’. ToxOtis
+ * is a Java interface to the predictive toxicology services of OpenTox. ToxOtis is
+ * being developed to help both those who need a painless way to consume OpenTox
+ * services and for ambitious service providers that don’t want to spend half of
+ * their time in RDF parsing and creation.
+ *
+ * Copyright (C) 2009-2010 Pantelis Sopasakis & Charalampos Chomenides
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Contact:
+ * Pantelis Sopasakis
+ * chvng@mail.ntua.gr
+ * Address: Iroon Politechniou St. 9, Zografou, Athens Greece
+ * tel. +30 210 7723236
+ *
+ */
+package org.opentox.toxotis.core.component;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Provides on-demand access to the serialized actual model of a {@link Model}.
+ * A model which is retrieved from some storage (e.g. a database) without its
+ * actual model can be equipped with a loader, so that the (potentially huge)
+ * actual model is only fetched and deserialized the first time
+ * {@link Model#getActualModel() } is invoked.
+ *
+ * @author Pantelis Sopasakis
+ * @author Charalampos Chomenides
+ */
+public interface IActualModelLoader {
+
+    /**
+     * Opens a stream over the Java-serialized actual model of the given model.
+     * The caller is responsible for closing the returned stream and closing it
+     * releases any resources held by the loader.
+     *
+     * @param model
+     *      The model whose actual model is to be loaded.
+     * @return
+     *      Input stream from which the actual model can be deserialized or
+     *      <code>null</code> if no actual model is available.
+     * @throws IOException
+     *      In case the actual model cannot be retrieved.
+     */
+    InputStream openActualModel(Model model) throws IOException;
+}
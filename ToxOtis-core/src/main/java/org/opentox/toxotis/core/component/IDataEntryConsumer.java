@@ -0,0 +1,74 @@
+/*
+ *
+ * ToxOtis
+ *
+ * ToxOtis is the Greek word for Sagittarius, that actually means ‘archer’. ToxOtis
+ * is a Java interface to the predictive toxicology services of OpenTox. ToxOtis is
+ * being developed to help both those who need a painless way to consume OpenTox
+ * services and for ambitious service providers that don’t want to spend half of
+ * their time in RDF parsing and creation.
+ *
+ * Copyright (C) 2009-2010 Pantelis Sopasakis & Charalampos Chomenides
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Contact:
+ * Pantelis Sopasakis
+ * chvng@mail.ntua.gr
+ * Address: Iroon Politechniou St. 9, Zografou, Athens Greece
+ * tel. +30 210 7723236
+ *
+ */
+package org.opentox.toxotis.core.component;
+
+import org.opentox.toxotis.exceptions.impl.ServiceInvocationException;
+
+/**
+ * Receives the data entries of a dataset one at a time, as they are parsed,
+ * instead of a fully materialized {@link Dataset}. Implementations may convert
+ * every entry to some other representation (e.g. a row of Weka instances, a
+ * database batch or a line in a file) and discard it, so that the memory needed
+ * does not grow with the size of the dataset.
+ *
+ * @see org.opentox.toxotis.util.spiders.DatasetSpider#stream(IDataEntryConsumer)
+ * @author Pantelis Sopasakis
+ * @author Charalampos Chomenides
+ */
+public interface IDataEntryConsumer {
+
+    /**
+     * Consumes the next data entry of the dataset. Features are shared among the
+     * feature values of all entries; since the declarations of the features
+     * may follow the data entries in the representation of the dataset, their
+     * ontological classes, units and admissible values are only guaranteed to
+     * be available when {@link #finish(Dataset) } is invoked.
+     *
+     * @param dataEntry
+     *      A data entry of the dataset.
+     * @throws ServiceInvocationException
+     *      Thrown by the implementation to abort the consumption of the dataset.
+     */
+    void consume(DataEntry dataEntry) throws ServiceInvocationException;
+
+    /**
+     * Invoked once all data entries have been consumed.
+     *
+     * @param dataset
+     *      The dataset with its URI and meta information but without any data
+     *      entries.
+     * @throws ServiceInvocationException
+     *      Thrown by the implementation on failure.
+     */
+    void finish(Dataset dataset) throws ServiceInvocationException;
+}
@@ -0,0 +1,420 @@
+/*
+ *
+ * ToxOtis
+ *
+ * ToxOtis is the Greek word for Sagittarius, that actually means ‘archer’. ToxOtis
+ * is a Java interface to the predictive toxicology services of OpenTox. ToxOtis is
+ * being developed to help both those who need a painless way to consume OpenTox
+ * services and for ambitious service providers that don’t want to spend half of
+ * their time in RDF parsing and creation.
+ *
+ * Copyright (C) 2009-2010 Pantelis Sopasakis & Charalampos Chomenides
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Contact:
+ * Pantelis Sopasakis
+ * chvng@mail.ntua.gr
+ * Address: Iroon Politechniou St. 9, Zografou, Athens Greece
+ * tel. +30 210 7723236
+ *
+ */
+package org.opentox.toxotis.core.component;
+
+import com.hp.hpl.jena.datatypes.xsd.XSDDatatype;
+import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.opentox.toxotis.ontology.LiteralValue;
+import org.opentox.toxotis.ontology.collection.OTClasses;
+import weka.core.Attribute;
+import weka.core.FastVector;
+import weka.core.Instance;
+import weka.core.Instances;
+
+/**
+ * Converts a {@link Dataset} into Weka {@link Instances} (see {@link Dataset#getInstances() }
+ * for the structure of the result). Every feature is resolved once into the
+ * index of its attribute and the way its values are encoded, so that rows are
+ * filled directly into <code>double[]</code> arrays. Rows are computed in
+ * parallel for large datasets; operations which modify the attributes (i.e.
+ * adding values to string attributes) are then applied in the original order,
+ * so the result is identical to a sequential conversion.
+ *
+ * @author Pantelis Sopasakis
+ * @author Charalampos Chomenides
+ */
+final class InstancesConverter {
+
+    /**
+     * Minimum number of feature values in a dataset for rows to be computed in
+     * parallel.
+     */
+    static final int PARALLEL_THRESHOLD = 50000;
+    private static final int MIN_ROWS_PER_TASK = 256;
+    private final Dataset dataset;
+    private long timeAttributes = -1;
+    private long timeValues = -1;
+    private long timeAssembly = -1;
+    private Instances data;
+    /** Resolved column for each (distinct) feature object of the dataset */
+    private final Map<Feature, Column> columns = new IdentityHashMap<Feature, Column>();
+    private final org.slf4j.Logger logger = org.slf4j.LoggerFactory.getLogger(InstancesConverter.class);
+
+    private enum WekaDataTypes {
+
+        string,
+        nominal,
+        numeric,
+        general;
+
+        static WekaDataTypes getFromFeature(Feature feature) {
+            if (feature.getOntologicalClasses().contains(OTClasses.nominalFeature())) {
+                return nominal;
+            } else if (feature.getOntologicalClasses().contains(OTClasses.stringFeature())) {
+                return string;
+            } else if (feature.getOntologicalClasses().contains(OTClasses.numericFeature())) {
+                return numeric;
+            } else {
+                return string;
+            }
+        }
+    }
+
+    /**
+     * How a value of some feature is written into a row.
+     */
+    private enum Encoding {
+
+        /** Parsed as a double */
+        NUMERIC,
+        /** Index of the value in the nominal attribute */
+        NOMINAL,
+        /** Not representable; the value is set to <code>-1</code> */
+        UNKNOWN,
+        /** Value added to a string attribute (modifies the attribute) */
+        STRING,
+        /** Index of the value in a string attribute (depends on the values added so far) */
+        STRING_INDEX,
+        /** Parsed as a date */
+        DATE,
+        /** Ignored */
+        NONE;
+
+        boolean isSequential() {
+            return this == STRING || this == STRING_INDEX || this == DATE;
+        }
+    }
+
+    private static class Column {
+
+        private final int index;
+        private final Encoding encoding;
+        private final Map<String, Integer> nominalIndices;
+
+        Column(int index, Encoding encoding, Map<String, Integer> nominalIndices) {
+            this.index = index;
+            this.encoding = encoding;
+            this.nominalIndices = nominalIndices;
+        }
+    }
+
+    /**
+     * The values of a row and the feature values which have to be applied to it
+     * sequentially.
+     */
+    private static class Row {
+
+        private double[] values;
+        private List<FeatureValue> sequential;
+    }
+
+    InstancesConverter(Dataset dataset) {
+        this.dataset = dataset;
+    }
+
+    Instances convert() {
+        long timeFlag = System.currentTimeMillis();
+        DataEntry[] entries = dataset.getDataEntries().toArray(new DataEntry[dataset.getDataEntries().size()]);
+        int numValues = createAttributes(entries);
+        timeAttributes = System.currentTimeMillis() - timeFlag;
+
+        timeFlag = System.currentTimeMillis();
+        Row[] rows = new Row[entries.length];
+        int nThreads = Runtime.getRuntime().availableProcessors();
+        if (numValues >= PARALLEL_THRESHOLD && nThreads > 1 && entries.length >= 2 * MIN_ROWS_PER_TASK) {
+            computeRowsInParallel(entries, rows, Math.min(nThreads, entries.length / MIN_ROWS_PER_TASK));
+        } else {
+            computeRows(entries, rows, 0, entries.length);
+        }
+        timeValues = System.currentTimeMillis() - timeFlag;
+
+        timeFlag = System.currentTimeMillis();
+        Attribute compoundAttribute = data.attribute(Dataset.COMPOUND_URI);
+        for (int i = 0; i < entries.length; i++) {
+            double[] vals = rows[i].values;
+            vals[compoundAttribute.index()] =
+                    compoundAttribute.addStringValue(entries[i].getConformer().getUri().getStringNoQuery());
+            if (rows[i].sequential != null) {
+                for (FeatureValue featureValue : rows[i].sequential) {
+                    applySequential(featureValue, vals);
+                }
+            }
+            rows[i] = null;
+            Instance valuesInstance = new Instance(1.0, vals);
+            // Add the Instance only if its compatible with the dataset!
+            if (data.checkInstance(valuesInstance)) {
+                data.add(valuesInstance);
+            } else {
+                logger.warn("Warning! The instance "
+                        + valuesInstance + " is not compatible with the dataset!");
+            }
+        }
+        timeAssembly = System.currentTimeMillis() - timeFlag;
+        return data;
+    }
+
+    /**
+     * Time needed to scan the dataset for its features and create the attributes.
+     */
+    long getTimeAttributes() {
+        return timeAttributes;
+    }
+
+    /**
+     * Time needed to compute the values of the rows.
+     */
+    long getTimeValues() {
+        return timeValues;
+    }
+
+    /**
+     * Time needed to add string values and assemble the instances.
+     */
+    long getTimeAssembly() {
+        return timeAssembly;
+    }
+
+    /**
+     * Creates the (empty) instances with one attribute per feature and resolves
+     * the column of every feature.
+     * @return
+     *      The number of feature values in the dataset.
+     */
+    private int createAttributes(DataEntry[] entries) {
+        Set<Feature> features = new LinkedHashSet<Feature>();
+        List<Feature> featureObjects = new ArrayList<Feature>();
+        int numValues = 0;
+        for (DataEntry dataEntry : entries) {
+            for (FeatureValue featureValue : dataEntry.getFeatureValues()) {
+                Feature feature = featureValue.getFeature();
+                if (!columns.containsKey(feature)) {
+                    columns.put(feature, null);
+                    featureObjects.add(feature);
+                    features.add(feature);
+                }
+                numValues++;
+            }
+        }
+        FastVector attributes = new FastVector();
+        // THE EXISTENCE OF THE (STRING) ATTRIBUTE 'COMPOUND_URI' IS MANDATORY FOR ALL
+        // DATASETS. THIS IS ALWAYS THE FIRST ATTRIBUTE IN THE LIST.
+        attributes.addElement(new Attribute(Dataset.COMPOUND_URI, (FastVector) null));
+        for (Feature feature : features) {
+            WekaDataTypes dataType = WekaDataTypes.getFromFeature(feature);
+            if (dataType.equals(WekaDataTypes.numeric)) {
+                attributes.addElement(new Attribute(feature.getUri().getStringNoQuery()));
+            } else if (dataType.equals(WekaDataTypes.string) || dataType.equals(WekaDataTypes.general)) {
+                attributes.addElement(new Attribute(feature.getUri().getStringNoQuery(), (FastVector) null));
+            } else if (dataType.equals(WekaDataTypes.nominal)) {
+                // COPE WITH NOMINAL VALUES:
+                FastVector nominalFVec = new FastVector(feature.getAdmissibleValues().size());
+                for (LiteralValue value : feature.getAdmissibleValues()) {
+                    nominalFVec.addElement(value.getValue());
+                }
+                attributes.addElement(new Attribute(feature.getUri().getStringNoQuery(), nominalFVec));
+            }
+        }
+        data = new Instances(dataset.getUri().getStringNoQuery(), attributes, 0);
+
+        // Attributes are looked up by name; the first one with a given name wins
+        Map<String, Attribute> attributesByName = new HashMap<String, Attribute>();
+        for (int i = data.numAttributes() - 1; i >= 0; i--) {
+            attributesByName.put(data.attribute(i).name(), data.attribute(i));
+        }
+        for (Feature feature : featureObjects) {
+            String featureName = feature.getUri().getStringNoQuery();
+            columns.put(feature, resolveColumn(feature, featureName, attributesByName.get(featureName)));
+        }
+        return numValues;
+    }
+
+    /*
+     * Mirrors the way values used to be assigned to attributes: numeric, string,
+     * date (when the feature is the xsd:date) and nominal in that order.
+     */
+    private Column resolveColumn(Feature feature, String featureName, Attribute attribute) {
+        WekaDataTypes dataType = WekaDataTypes.getFromFeature(feature);
+        if (dataType.equals(WekaDataTypes.numeric)) {
+            return new Column(attribute.index(), Encoding.NUMERIC, null);
+        } else if (dataType.equals(WekaDataTypes.string)) {
+            return new Column(attribute.index(), Encoding.STRING, null);
+        } else if (XSDDatatype.XSDdate.getURI().equals(featureName)) {
+            return new Column(attribute.index(), Encoding.DATE, null);
+        } else if (dataType.equals(WekaDataTypes.nominal)) {
+            if (attribute.isNominal()) {
+                Map<String, Integer> nominalIndices = new HashMap<String, Integer>();
+                for (int i = 0; i < attribute.numValues(); i++) {
+                    nominalIndices.put(attribute.value(i), i);
+                }
+                return new Column(attribute.index(), Encoding.NOMINAL, nominalIndices);
+            } else if (attribute.isString()) {
+                return new Column(attribute.index(), Encoding.STRING_INDEX, null);
+            }
+            return new Column(attribute.index(), Encoding.UNKNOWN, null);
+        }
+        return new Column(attribute.index(), Encoding.NONE, null);
+    }
+
+    private void computeRows(DataEntry[] entries, Row[] rows, int from, int to) {
+        int numAttributes = data.numAttributes();
+        for (int i = from; i < to; i++) {
+            Row row = new Row();
+            row.values = new double[numAttributes];
+            Arrays.fill(row.values, Instance.missingValue());
+            BitSet sequentialColumns = null;
+            for (FeatureValue featureValue : entries[i].getFeatureValues()) {
+                LiteralValue value = featureValue.getValue();
+                if (value == null) {
+                    continue;
+                }
+                Column column = columns.get(featureValue.getFeature());
+                // Values of a column which has been assigned sequentially must also
+                // be assigned sequentially to preserve their order
+                if (column.encoding.isSequential()
+                        || (sequentialColumns != null && sequentialColumns.get(column.index))) {
+                    if (row.sequential == null) {
+                        row.sequential = new ArrayList<FeatureValue>(2);
+                        sequentialColumns = new BitSet(numAttributes);
+                    }
+                    row.sequential.add(featureValue);
+                    sequentialColumns.set(column.index);
+                } else {
+                    applyValue(column, value, row.values);
+                }
+            }
+            rows[i] = row;
+        }
+    }
+
+    private void computeRowsInParallel(final DataEntry[] entries, final Row[] rows, int nTasks) {
+        ExecutorService executor = Executors.newFixedThreadPool(nTasks);
+        try {
+            List<Future<Object>> futures = new ArrayList<Future<Object>>(nTasks);
+            int chunk = (entries.length + nTasks - 1) / nTasks;
+            for (int start = 0; start < entries.length; start += chunk) {
+                final int from = start;
+                final int to = Math.min(start + chunk, entries.length);
+                futures.add(executor.submit(new Callable<Object>() {
+
+                    @Override
+                    public Object call() {
+                        computeRows(entries, rows, from, to);
+                        return null;
+                    }
+                }));
+            }
+            for (Future<Object> future : futures) {
+                future.get();
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while converting the dataset into instances", ex);
+        } catch (ExecutionException ex) {
+            Throwable cause = ex.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            } else if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IllegalStateException(cause);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private void applyValue(Column column, LiteralValue value, double[] vals) {
+        switch (column.encoding) {
+            case NUMERIC:
+                Object numericValue = value.getValue();
+                // Double.parseDouble(x.toString()) is exact for these types
+                if (numericValue instanceof Double || numericValue instanceof Integer
+                        || numericValue instanceof Long || numericValue instanceof Short
+                        || numericValue instanceof Byte) {
+                    vals[column.index] = ((Number) numericValue).doubleValue();
+                } else {
+                    try {
+                        vals[column.index] = Double.parseDouble(numericValue.toString());
+                    } catch (NumberFormatException ex) {
+                        logger.warn("NFE while trying to convert to double the value " + value.getValue(), ex);
+                    }
+                }
+                break;
+            case NOMINAL:
+                Integer index = column.nominalIndices.get(value.getValue().toString());
+                vals[column.index] = index != null ? index : -1;
+                break;
+            case UNKNOWN:
+                vals[column.index] = -1;
+                break;
+            default:
+                break;
+        }
+    }
+
+    private void applySequential(FeatureValue featureValue, double[] vals) {
+        Column column = columns.get(featureValue.getFeature());
+        LiteralValue value = featureValue.getValue();
+        Attribute attribute = data.attribute(column.index);
+        switch (column.encoding) {
+            case STRING:
+                vals[column.index] = attribute.addStringValue((String) value.getValue().toString());
+                break;
+            case STRING_INDEX:
+                vals[column.index] = attribute.indexOfValue(value.getValue().toString());
+                break;
+            case DATE:
+                try {
+                    vals[column.index] = attribute.parseDate((String) value.getValue());
+                } catch (ParseException ex) {
+                    logger.error("Parsing Exception for Date in Dataset", ex);
+                }
+                break;
+            default:
+                applyValue(column, value, vals);
+        }
+    }
+}
@@ -109,6 +109,7 @@ public class Model extends OTOnlineResource<Model>
     private String localCode;
     private IActualModel actualModel;
     private byte[] modelBytes;
+    private transient IActualModelLoader actualModelLoader;
     private User createdBy;
     private static final long serialVersionUID = 184328712643L;
     private transient org.slf4j.Logger logger = org.slf4j.LoggerFactory.getLogger(Model.class);
@@ -153,12 +154,78 @@ public class Model extends OTOnlineResource<Model>
      * encapsulate potentially a Weka model file and a PMML representation of
      * the model.
      *
+     * The actual model is deserialized lazily: if it was provided as a blob
+     * (see {@link #setBlob(java.sql.Blob) }) or through an
+     * {@link IActualModelLoader}, deserialization takes place upon the first
+     * invocation of this method.
+     *
      * @return Model object with which predictions can be done.
      */
     public IActualModel getActualModel() {
+        if (actualModel == null) {
+            if (modelBytes != null) {
+                actualModel = (IActualModel) toObject(modelBytes);
+            } else if (actualModelLoader != null) {
+                actualModel = loadActualModel();
+            }
+        }
         return actualModel;
     }
 
+    /**
+     * Whether the actual model has already been deserialized. Can be used to
+     * check whether an invocation of {@link #getActualModel() } will be costly.
+     *
+     * @return <code>true</code> if the actual model is in memory.
+     */
+    public boolean isActualModelLoaded() {
+        return actualModel != null;
+    }
+
+    /**
+     * Sets a loader that is used to fetch the actual model on demand, i.e. the
+     * first time {@link #getActualModel() } is invoked. Any actual model (or
+     * blob) previously set is discarded. Note that the loader is not serialized
+     * along with the model.
+     *
+     * @param actualModelLoader
+     *      Loader of the actual model.
+     * @return The current updated instance of the model.
+     */
+    public Model setActualModelLoader(IActualModelLoader actualModelLoader) {
+        this.actualModelLoader = actualModelLoader;
+        this.actualModel = null;
+        this.modelBytes = null;
+        return this;
+    }
+
+    private IActualModel loadActualModel() {
+        java.io.ObjectInputStream ois = null;
+        IActualModelLoader loader = actualModelLoader;
+        actualModelLoader = null;// the loader is used only once
+        try {
+            InputStream is = loader.openActualModel(this);
+            if (is == null) {
+                return null;
+            }
+            ois = new java.io.ObjectInputStream(new java.io.BufferedInputStream(is, BAOS_SIZE));
+            return (IActualModel) ois.readObject();
+        } catch (final IOException ex) {
+            logger.warn("Actual model could not be loaded", ex);
+        } catch (final ClassNotFoundException ex) {
+            logger.warn("Actual model could not be deserialized", ex);
+        } finally {
+            if (ois != null) {
+                try {
+                    ois.close();
+                } catch (final IOException ex) {
+                    logger.warn("Stream over the actual model could not be closed", ex);
+                }
+            }
+        }
+        return null;
+    }
+
     /**
      * Set the actual model. This object is converted into an array of bytes
      * using a <code>ByteArrayOutputStream</code> and an
@@ -180,6 +247,7 @@ public class Model extends OTOnlineResource<Model>
         try {
             this.actualModel = actualModel;
             this.modelBytes = getBytes(actualModel);
+            this.actualModelLoader = null;
             return this;
         } catch (IOException ex) {
             logger.error("Could not serialize actual model", ex);
@@ -540,9 +608,25 @@ public class Model extends OTOnlineResource<Model>
         return hash;
     }
 
+    /**
+     * Sets the actual model in its serialized form. The bytes of the blob are
+     * copied, but deserialization is deferred until the actual model is first
+     * requested.
+     *
+     * @param modelBlob Blob containing the serialized actual model.
+     */
     public void setBlob(Blob modelBlob) {
         this.modelBytes = toByteArray(modelBlob);
-        this.actualModel = (IActualModel) toObject(modelBytes);
+        this.actualModel = null;
+        this.actualModelLoader = null;
+    }
+
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        /* The loader is transient: fetch the actual model before it is lost */
+        if (modelBytes == null && actualModelLoader != null) {
+            getActualModel();
+        }
+        out.defaultWriteObject();
     }
 
     public Object toObject(byte[] bytes) {
@@ -556,6 +640,14 @@ public class Model extends OTOnlineResource<Model>
     }
 
     public Blob getBlob() throws SerialException, SQLException {
+        if (this.modelBytes == null && getActualModel() != null) {
+            try {
+                this.modelBytes = getBytes(actualModel);
+            } catch (final IOException ex) {
+                logger.warn("Could not serialize actual model", ex);
+                throw new SerialException("Could not serialize actual model");
+            }
+        }
         if (this.modelBytes == null) {
             return null;
         }
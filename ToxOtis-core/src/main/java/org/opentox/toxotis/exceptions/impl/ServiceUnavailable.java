@@ -0,0 +1,81 @@
+/*
+ *
+ * ToxOtis
+ *
+ * ToxOtis is the Greek word for Sagittarius, that actually means ‘archer’. ToxOtis
+ * is a Java interface to the predictive toxicology services of OpenTox. ToxOtis is
+ * being developed to help both those who need a painless way to consume OpenTox
+ * services and for ambitious service providers that don’t want to spend half of
+ * their time in RDF parsing and creation.
+ *
+ * Copyright (C) 2009-2010 Pantelis Sopasakis & Charalampos Chomenides
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Contact:
+ * Pantelis Sopasakis
+ * chvng@mail.ntua.gr
+ * Address: Iroon Politechniou St. 9, Zografou, Athens Greece
+ * tel. +30 210 7723236
+ *
+ */
+package org.opentox.toxotis.exceptions.impl;
+
+import org.opentox.toxotis.exceptions.IOverload;
+
+/**
+ * Thrown when a remote service responds with status 503, possibly suggesting
+ * through the <code>Retry-After</code> header when the request may be repeated.
+ *
+ * @author Pantelis Sopasakis
+ * @author Charalampos Chomenides
+ */
+public class ServiceUnavailable extends RemoteServiceException implements IOverload {
+
+    private static final int HTTP_STATUS = 503;
+    private long retryAfter = -1;
+
+    public ServiceUnavailable(String message, Throwable cause) {
+        super(message, cause);
+        setHttpStatus(HTTP_STATUS);
+    }
+
+    public ServiceUnavailable(Throwable cause) {
+        super(cause);
+        setHttpStatus(HTTP_STATUS);
+    }
+
+    public ServiceUnavailable(String msg) {
+        super(msg);
+        setHttpStatus(HTTP_STATUS);
+    }
+
+    public ServiceUnavailable() {
+        super();
+        setHttpStatus(HTTP_STATUS);
+    }
+
+    /**
+     * The delay suggested by the remote service before the request is repeated.
+     * @return
+     *      Delay in milliseconds or <code>-1</code> if not specified.
+     */
+    public long getRetryAfter() {
+        return retryAfter;
+    }
+
+    public void setRetryAfter(long retryAfter) {
+        this.retryAfter = retryAfter;
+    }
+}
@@ -32,9 +32,7 @@
  */
 package org.opentox.toxotis.ontology;
 
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
-import java.io.ObjectOutputStream;
 import java.sql.Blob;
 import java.sql.SQLException;
 import javax.sql.rowset.serial.SerialBlob;
@@ -69,9 +67,7 @@ public class MetaInfoBlobber {
      *  If the Blob passed to this to this constructor is a <code>null</code>
      *  (thrown by the constructor of SerialBlob).
      * @throws IOException 
-     *  If the serializable object cannot be written into bytes because an
-     *  ObjectOutputStream cannot write to a ByteArrayOutputStream, or, because
-     *  the ObjectOutputStream object cannot flush or close properly.
+     *  If the meta-information cannot be encoded (see {@link MetaInfoCodec}).
      */
     public Blob toBlob() throws SerialException, SQLException, IOException {
         if (meta == null) {
@@ -82,16 +78,6 @@ public class MetaInfoBlobber {
     }
 
     private byte[] getBytes() throws IOException {
-        Object obj = meta;
-        if (obj == null) {
-            return null;
-        }
-        ByteArrayOutputStream bos = new ByteArrayOutputStream();
-        ObjectOutputStream oos = new ObjectOutputStream(bos);
-        oos.writeObject(obj);
-        oos.flush();
-        oos.close();
-        bos.close();
-        return bos.toByteArray();
+        return MetaInfoCodec.encode(meta);
     }
 }
\ No newline at end of file
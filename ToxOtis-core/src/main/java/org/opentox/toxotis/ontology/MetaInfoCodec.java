@@ -0,0 +1,620 @@
+/*
+ *
+ * ToxOtis
+ *
+ * ToxOtis is the Greek word for Sagittarius, that actually means ‘archer’. ToxOtis
+ * is a Java interface to the predictive toxicology services of OpenTox. ToxOtis is
+ * being developed to help both those who need a painless way to consume OpenTox
+ * services and for ambitious service providers that don’t want to spend half of
+ * their time in RDF parsing and creation.
+ *
+ * Copyright (C) 2009-2010 Pantelis Sopasakis & Charalampos Chomenides
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Contact:
+ * Pantelis Sopasakis
+ * chvng@mail.ntua.gr
+ * Address: Iroon Politechniou St. 9, Zografou, Athens Greece
+ * tel. +30 210 7723236
+ *
+ */
+package org.opentox.toxotis.ontology;
+
+import com.hp.hpl.jena.datatypes.RDFDatatype;
+import com.hp.hpl.jena.datatypes.TypeMapper;
+import com.hp.hpl.jena.datatypes.xsd.XSDDatatype;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.net.URISyntaxException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import org.opentox.toxotis.client.VRI;
+import org.opentox.toxotis.ontology.collection.OTClasses;
+import org.opentox.toxotis.ontology.impl.MetaInfoImpl;
+import org.opentox.toxotis.ontology.impl.OntologicalClassImpl;
+
+/**
+ * Compact binary representation of meta-information as it is stored in the
+ * database. Instances of {@link MetaInfoImpl} are written as a short header
+ * (the bytes <code>MI</code> followed by the format version) and their literal
+ * and resource sets in a fixed order. The elements of each set are written
+ * sorted, so that equal meta-information is always encoded into the same bytes
+ * and the encoding can be used as a content key. Every string is written once; repeated
+ * strings (datatype URIs, namespaces, class names, URIs) are written as
+ * references to their first occurrence. Meta-information of any other class,
+ * or with literals of types the format does not know of, is written with Java
+ * serialization which is the format used by earlier versions (and is not
+ * canonical). Both formats are recognized on reading.
+ *
+ * <p>The HTML presentation settings of a {@link MetaInfoImpl} (style and CSS
+ * class) are not stored.</p>
+ *
+ * @author Pantelis Sopasakis
+ * @author Charalampos Chomenides
+ */
+public final class MetaInfoCodec {
+
+    /**
+     * Version of the binary format written by {@link #encode(org.opentox.toxotis.ontology.MetaInfo) }.
+     */
+    public static final int VERSION = 1;
+    private static final byte MAGIC_0 = 'M', MAGIC_1 = 'I';
+    private static final byte SERIAL_0 = (byte) 0xAC, SERIAL_1 = (byte) 0xED;
+    private static final int KIND_NULL = 0, KIND_STRING = 1, KIND_INTEGER = 2, KIND_LONG = 3,
+            KIND_DOUBLE = 4, KIND_FLOAT = 5, KIND_BOOLEAN = 6, KIND_DATE = 7;
+    /*
+     * String references: 0 stands for null, 1 for a new string that follows
+     * inline and n>1 for the (n-2)-th string written so far.
+     */
+    private static final int STRING_NULL = 0, STRING_INLINE = 1, STRING_OFFSET = 2;
+    private static final Map<String, XSDDatatype> datatypes = new ConcurrentHashMap<String, XSDDatatype>();
+    private static final Map<String, OntologicalClass> otClasses = new ConcurrentHashMap<String, OntologicalClass>();
+
+    private MetaInfoCodec() {
+    }
+
+    /**
+     * Encodes a meta-information object.
+     * @param meta
+     *      Meta-information to be encoded.
+     * @return
+     *      The encoded bytes or <code>null</code> if the argument is <code>null</code>.
+     * @throws IOException
+     *      If the meta-information cannot be serialized.
+     */
+    public static byte[] encode(MetaInfo meta) throws IOException {
+        if (meta == null) {
+            return null;
+        }
+        if (!isEncodable(meta)) {
+            return encodeLegacy(meta);
+        }
+        ByteArrayOutputStream bos = new ByteArrayOutputStream(256);
+        Writer writer = new Writer(new DataOutputStream(bos));
+        writer.out.writeByte(MAGIC_0);
+        writer.out.writeByte(MAGIC_1);
+        writer.out.writeByte(VERSION);
+        writer.writeLiterals(meta.getIdentifiers());
+        writer.writeLiterals(meta.getComments());
+        writer.writeLiterals(meta.getDescriptions());
+        writer.writeLiterals(meta.getTitles());
+        writer.writeLiterals(meta.getSubjects());
+        writer.writeLiterals(meta.getPublishers());
+        writer.writeLiterals(meta.getCreators());
+        writer.writeLiterals(meta.getContributors());
+        writer.writeLiterals(meta.getAudiences());
+        writer.writeLiterals(meta.getRights());
+        if (meta.getDate() == null) {
+            writer.out.writeBoolean(false);
+        } else {
+            writer.out.writeBoolean(true);
+            writer.writeLiteral(meta.getDate());
+        }
+        writer.writeResources(meta.getSameAs());
+        writer.writeResources(meta.getSeeAlso());
+        writer.writeResources(meta.getHasSources());
+        writer.out.flush();
+        return bos.toByteArray();
+    }
+
+    /**
+     * Encodes a meta-information object using Java serialization, i.e. the format
+     * that was used before the introduction of the binary format.
+     * @param meta
+     *      Meta-information to be encoded.
+     * @return
+     *      The serialized object.
+     * @throws IOException
+     *      If the meta-information cannot be serialized.
+     */
+    public static byte[] encodeLegacy(MetaInfo meta) throws IOException {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        ObjectOutputStream oos = new ObjectOutputStream(bos);
+        oos.writeObject(meta);
+        oos.close();
+        return bos.toByteArray();
+    }
+
+    /**
+     * Decodes meta-information from either the binary or the legacy (Java
+     * serialization) format.
+     * @param bytes
+     *      Encoded meta-information.
+     * @return
+     *      The decoded meta-information or <code>null</code> if the argument is
+     *      <code>null</code>.
+     * @throws IOException
+     *      If the bytes are not in any known format or they are corrupt.
+     */
+    public static MetaInfo decode(byte[] bytes) throws IOException {
+        if (bytes == null) {
+            return null;
+        }
+        if (bytes.length >= 2 && bytes[0] == SERIAL_0 && bytes[1] == SERIAL_1) {
+            return decodeLegacy(bytes);
+        }
+        if (bytes.length < 3 || bytes[0] != MAGIC_0 || bytes[1] != MAGIC_1) {
+            throw new IOException("Unknown meta-information format");
+        }
+        if (bytes[2] != VERSION) {
+            throw new IOException("Unsupported meta-information format version : " + bytes[2]);
+        }
+        Reader reader = new Reader(new DataInputStream(new ByteArrayInputStream(bytes, 3, bytes.length - 3)));
+        MetaInfoImpl meta = new MetaInfoImpl();
+        /*
+         * The setters copy their argument and do not accept null; sets that were
+         * not present are left null.
+         */
+        Set<LiteralValue> literals;
+        Set<ResourceValue> resources;
+        if ((literals = reader.readLiterals()) != null) {
+            meta.setIdentifiers(literals);
+        }
+        if ((literals = reader.readLiterals()) != null) {
+            meta.setComments(literals);
+        }
+        if ((literals = reader.readLiterals()) != null) {
+            meta.setDescriptions(literals);
+        }
+        if ((literals = reader.readLiterals()) != null) {
+            meta.setTitles(literals);
+        }
+        if ((literals = reader.readLiterals()) != null) {
+            meta.setSubjects(literals);
+        }
+        if ((literals = reader.readLiterals()) != null) {
+            meta.setPublishers(literals);
+        }
+        if ((literals = reader.readLiterals()) != null) {
+            meta.setCreators(literals);
+        }
+        if ((literals = reader.readLiterals()) != null) {
+            meta.setContributors(literals);
+        }
+        if ((literals = reader.readLiterals()) != null) {
+            meta.setAudiences(literals);
+        }
+        if ((literals = reader.readLiterals()) != null) {
+            meta.setRights(literals);
+        }
+        meta.setDate(reader.in.readBoolean() ? reader.readLiteral() : null);
+        if ((resources = reader.readResources()) != null) {
+            meta.setSameAs(resources);
+        }
+        if ((resources = reader.readResources()) != null) {
+            meta.setSeeAlso(resources);
+        }
+        if ((resources = reader.readResources()) != null) {
+            meta.setHasSources(resources);
+        }
+        return meta;
+    }
+
+    private static MetaInfo decodeLegacy(byte[] bytes) throws IOException {
+        ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(bytes));
+        try {
+            return (MetaInfo) ois.readObject();
+        } catch (final ClassNotFoundException ex) {
+            throw new IOException("Serialized meta-information refers to an unknown class", ex);
+        } catch (final ClassCastException ex) {
+            throw new IOException("Serialized object is not meta-information", ex);
+        } finally {
+            ois.close();
+        }
+    }
+
+    private static boolean isEncodable(MetaInfo meta) {
+        if (meta.getClass() != MetaInfoImpl.class) {
+            return false;
+        }
+        if (meta.getDate() != null && kindOf(meta.getDate().getValue()) < 0) {
+            return false;
+        }
+        return areEncodableLiterals(meta.getIdentifiers())
+                && areEncodableLiterals(meta.getComments())
+                && areEncodableLiterals(meta.getDescriptions())
+                && areEncodableLiterals(meta.getTitles())
+                && areEncodableLiterals(meta.getSubjects())
+                && areEncodableLiterals(meta.getPublishers())
+                && areEncodableLiterals(meta.getCreators())
+                && areEncodableLiterals(meta.getContributors())
+                && areEncodableLiterals(meta.getAudiences())
+                && areEncodableLiterals(meta.getRights())
+                && areEncodableResources(meta.getSameAs())
+                && areEncodableResources(meta.getSeeAlso())
+                && areEncodableResources(meta.getHasSources());
+    }
+
+    private static boolean areEncodableLiterals(Set<LiteralValue> literals) {
+        if (literals != null) {
+            for (LiteralValue literal : literals) {
+                if (literal == null || kindOf(literal.getValue()) < 0) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    private static boolean areEncodableResources(Set<ResourceValue> resources) {
+        if (resources != null) {
+            for (ResourceValue resource : resources) {
+                if (resource == null || !isEncodable(resource.getOntologicalClass())) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /*
+     * Only the URI of an ontological class is written, so classes carrying any
+     * more information than that are left to Java serialization.
+     */
+    private static boolean isEncodable(OntologicalClass clazz) {
+        if (clazz == null) {
+            return true;
+        }
+        if (!(clazz instanceof OntologicalClassImpl)) {
+            return false;
+        }
+        if (OTClasses.NS.equals(clazz.getNameSpace()) && otClass(clazz.getName()) != null) {
+            return true;
+        }
+        return (clazz.getMetaInfo() == null || clazz.getMetaInfo().isEmpty())
+                && (clazz.getSuperClasses() == null || clazz.getSuperClasses().isEmpty())
+                && (clazz.getDisjointWith() == null || clazz.getDisjointWith().isEmpty());
+    }
+
+    private static int kindOf(Object value) {
+        if (value == null) {
+            return KIND_NULL;
+        } else if (value instanceof String) {
+            return KIND_STRING;
+        } else if (value instanceof Integer) {
+            return KIND_INTEGER;
+        } else if (value instanceof Long) {
+            return KIND_LONG;
+        } else if (value instanceof Double) {
+            return KIND_DOUBLE;
+        } else if (value instanceof Float) {
+            return KIND_FLOAT;
+        } else if (value instanceof Boolean) {
+            return KIND_BOOLEAN;
+        } else if (value.getClass() == Date.class) {
+            return KIND_DATE;
+        }
+        return -1;
+    }
+
+    private static XSDDatatype datatype(String uri) {
+        XSDDatatype type = datatypes.get(uri);
+        if (type == null) {
+            RDFDatatype found = TypeMapper.getInstance().getTypeByName(uri);
+            if (!(found instanceof XSDDatatype)) {
+                return null;
+            }
+            type = (XSDDatatype) found;
+            datatypes.put(uri, type);
+        }
+        return type;
+    }
+
+    private static OntologicalClass otClass(String name) {
+        if (name == null) {
+            return null;
+        }
+        OntologicalClass clazz = otClasses.get(name);
+        if (clazz == null) {
+            clazz = OTClasses.forName(name);
+            if (clazz != null) {
+                otClasses.put(name, clazz);
+            }
+        }
+        return clazz;
+    }
+
+    private static int compare(String s1, String s2) {
+        if (s1 == null) {
+            return s2 == null ? 0 : -1;
+        }
+        return s2 == null ? 1 : s1.compareTo(s2);
+    }
+    private static final Comparator<LiteralValue> LITERAL_ORDER = new Comparator<LiteralValue>() {
+
+        @Override
+        public int compare(LiteralValue l1, LiteralValue l2) {
+            int result = kindOf(l1.getValue()) - kindOf(l2.getValue());
+            if (result == 0) {
+                result = MetaInfoCodec.compare(l1.getValueAsString(), l2.getValueAsString());
+            }
+            if (result == 0) {
+                result = MetaInfoCodec.compare(
+                        l1.getType() != null ? l1.getType().getURI() : null,
+                        l2.getType() != null ? l2.getType().getURI() : null);
+            }
+            return result;
+        }
+    };
+    private static final Comparator<ResourceValue> RESOURCE_ORDER = new Comparator<ResourceValue>() {
+
+        @Override
+        public int compare(ResourceValue r1, ResourceValue r2) {
+            int result = MetaInfoCodec.compare(
+                    r1.getUri() != null ? r1.getUri().toString() : null,
+                    r2.getUri() != null ? r2.getUri().toString() : null);
+            OntologicalClass c1 = r1.getOntologicalClass(), c2 = r2.getOntologicalClass();
+            if (result == 0) {
+                result = MetaInfoCodec.compare(c1 != null ? c1.getUri() : null, c2 != null ? c2.getUri() : null);
+            }
+            return result;
+        }
+    };
+
+    private static class Writer {
+
+        private final DataOutputStream out;
+        private final Map<String, Integer> strings = new HashMap<String, Integer>();
+
+        Writer(DataOutputStream out) {
+            this.out = out;
+        }
+
+        void writeVarInt(int value) throws IOException {
+            while ((value & ~0x7F) != 0) {
+                out.writeByte((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            out.writeByte(value);
+        }
+
+        void writeString(String value) throws IOException {
+            if (value == null) {
+                writeVarInt(STRING_NULL);
+                return;
+            }
+            Integer index = strings.get(value);
+            if (index != null) {
+                writeVarInt(STRING_OFFSET + index);
+                return;
+            }
+            strings.put(value, strings.size());
+            writeVarInt(STRING_INLINE);
+            byte[] utf8 = value.getBytes("UTF-8");
+            writeVarInt(utf8.length);
+            out.write(utf8);
+        }
+
+        void writeLiterals(Set<LiteralValue> literals) throws IOException {
+            if (literals == null) {
+                writeVarInt(0);
+                return;
+            }
+            writeVarInt(literals.size() + 1);
+            List<LiteralValue> sorted = new ArrayList<LiteralValue>(literals);
+            Collections.sort(sorted, LITERAL_ORDER);
+            for (LiteralValue literal : sorted) {
+                writeLiteral(literal);
+            }
+        }
+
+        void writeLiteral(LiteralValue literal) throws IOException {
+            Object value = literal.getValue();
+            int kind = kindOf(value);
+            out.writeByte(kind);
+            switch (kind) {
+                case KIND_STRING:
+                    writeString((String) value);
+                    break;
+                case KIND_INTEGER:
+                    out.writeInt((Integer) value);
+                    break;
+                case KIND_LONG:
+                    out.writeLong((Long) value);
+                    break;
+                case KIND_DOUBLE:
+                    out.writeDouble((Double) value);
+                    break;
+                case KIND_FLOAT:
+                    out.writeFloat((Float) value);
+                    break;
+                case KIND_BOOLEAN:
+                    out.writeBoolean((Boolean) value);
+                    break;
+                case KIND_DATE:
+                    out.writeLong(((Date) value).getTime());
+                    break;
+                default:
+                    break;
+            }
+            XSDDatatype type = literal.getType();
+            writeString(type != null ? type.getURI() : null);
+        }
+
+        void writeResources(Set<ResourceValue> resources) throws IOException {
+            if (resources == null) {
+                writeVarInt(0);
+                return;
+            }
+            writeVarInt(resources.size() + 1);
+            List<ResourceValue> sorted = new ArrayList<ResourceValue>(resources);
+            Collections.sort(sorted, RESOURCE_ORDER);
+            for (ResourceValue resource : sorted) {
+                writeString(resource.getUri() != null ? resource.getUri().toString() : null);
+                OntologicalClass clazz = resource.getOntologicalClass();
+                out.writeBoolean(clazz != null);
+                if (clazz != null) {
+                    writeString(clazz.getNameSpace());
+                    writeString(clazz.getName());
+                }
+            }
+        }
+    }
+
+    private static class Reader {
+
+        private final DataInputStream in;
+        private final List<String> strings = new ArrayList<String>();
+
+        Reader(DataInputStream in) {
+            this.in = in;
+        }
+
+        int readVarInt() throws IOException {
+            int value = 0;
+            for (int shift = 0; shift < 32; shift += 7) {
+                int b = in.readUnsignedByte();
+                value |= (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return value;
+                }
+            }
+            throw new IOException("Malformed meta-information: variable-length integer too long");
+        }
+
+        String readString() throws IOException {
+            int reference = readVarInt();
+            if (reference == STRING_NULL) {
+                return null;
+            }
+            if (reference == STRING_INLINE) {
+                byte[] utf8 = new byte[readVarInt()];
+                in.readFully(utf8);
+                String value = new String(utf8, "UTF-8");
+                strings.add(value);
+                return value;
+            }
+            int index = reference - STRING_OFFSET;
+            if (index >= strings.size()) {
+                throw new IOException("Malformed meta-information: dangling string reference " + index);
+            }
+            return strings.get(index);
+        }
+
+        Set<LiteralValue> readLiterals() throws IOException {
+            int size = readVarInt() - 1;
+            if (size < 0) {
+                return null;
+            }
+            Set<LiteralValue> literals = new HashSet<LiteralValue>();
+            for (int i = 0; i < size; i++) {
+                literals.add(readLiteral());
+            }
+            return literals;
+        }
+
+        LiteralValue readLiteral() throws IOException {
+            int kind = in.readUnsignedByte();
+            Object value;
+            switch (kind) {
+                case KIND_NULL:
+                    value = null;
+                    break;
+                case KIND_STRING:
+                    value = readString();
+                    break;
+                case KIND_INTEGER:
+                    value = in.readInt();
+                    break;
+                case KIND_LONG:
+                    value = in.readLong();
+                    break;
+                case KIND_DOUBLE:
+                    value = in.readDouble();
+                    break;
+                case KIND_FLOAT:
+                    value = in.readFloat();
+                    break;
+                case KIND_BOOLEAN:
+                    value = in.readBoolean();
+                    break;
+                case KIND_DATE:
+                    value = new Date(in.readLong());
+                    break;
+                default:
+                    throw new IOException("Malformed meta-information: unknown literal kind " + kind);
+            }
+            String typeUri = readString();
+            XSDDatatype type = typeUri != null ? datatype(typeUri) : null;
+            if (value == null) {
+                LiteralValue literal = new LiteralValue();
+                literal.setType(type);
+                return literal;
+            }
+            return new LiteralValue(value, type);
+        }
+
+        Set<ResourceValue> readResources() throws IOException {
+            int size = readVarInt() - 1;
+            if (size < 0) {
+                return null;
+            }
+            Set<ResourceValue> resources = new HashSet<ResourceValue>();
+            for (int i = 0; i < size; i++) {
+                String uri = readString();
+                OntologicalClass clazz = null;
+                if (in.readBoolean()) {
+                    String ns = readString();
+                    String name = readString();
+                    if (OTClasses.NS.equals(ns)) {
+                        clazz = otClass(name);
+                    }
+                    if (clazz == null) {
+                        clazz = new OntologicalClassImpl(name, ns);
+                    }
+                }
+                try {
+                    resources.add(new ResourceValue(uri != null ? new VRI(uri) : null, clazz));
+                } catch (final URISyntaxException ex) {
+                    throw new IOException("Malformed meta-information: invalid URI " + uri, ex);
+                }
+            }
+            return resources;
+        }
+    }
+}
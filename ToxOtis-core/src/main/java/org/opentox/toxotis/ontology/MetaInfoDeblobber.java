@@ -34,9 +34,7 @@
 
 package org.opentox.toxotis.ontology;
 
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
-import java.io.InputStream;
 import java.sql.Blob;
 import java.sql.SQLException;
 
@@ -48,6 +46,7 @@ import java.sql.SQLException;
 public class MetaInfoDeblobber {
 
     private final Blob blob;
+    private org.slf4j.Logger logger = org.slf4j.LoggerFactory.getLogger(MetaInfoDeblobber.class);
 
     public MetaInfoDeblobber(final Blob blob) {
         this.blob = blob;
@@ -57,36 +56,24 @@ public class MetaInfoDeblobber {
         return blob;
     }
 
+    /**
+     * Reads the meta-information stored in the BLOB, either in the binary format
+     * of {@link MetaInfoCodec} or Java-serialized.
+     * @return
+     *      The meta-information or <code>null</code> if it cannot be read; the
+     *      reason is logged.
+     */
     public MetaInfo toMetaInfo() {
-        return (MetaInfo) toObject(toByteArray(blob));
-    }
-
-    private byte[] toByteArray(Blob fromModelBlob) {
-        ByteArrayOutputStream baos = new ByteArrayOutputStream();
         try {
-            return toByteArrayImpl(fromModelBlob, baos);
-        } catch (Exception e) {
+            return MetaInfoCodec.decode(blob.getBytes(1, (int) blob.length()));
+        } catch (final SQLException ex) {
+            logger.warn("Meta-information BLOB cannot be read", ex);
+        } catch (final IOException ex) {
+            logger.warn("Meta-information BLOB cannot be decoded", ex);
         }
         return null;
     }
 
-    private byte[] toByteArrayImpl(Blob fromModelBlob,
-            ByteArrayOutputStream baos) throws SQLException, IOException {
-        byte buf[] = new byte[4000];
-        int dataSize;
-        InputStream is = fromModelBlob.getBinaryStream();
-        try {
-            while ((dataSize = is.read(buf)) != -1) {
-                baos.write(buf, 0, dataSize);
-            }
-        } finally {
-            if (is != null) {
-                is.close();
-            }
-        }
-        return baos.toByteArray();
-    }
-
     public Object toObject(byte[] bytes) {
         Object object = null;
         try {
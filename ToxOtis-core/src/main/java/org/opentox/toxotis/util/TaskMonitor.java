@@ -0,0 +1,470 @@
+/*
+ *
+ * ToxOtis
+ *
+ * ToxOtis is the Greek word for Sagittarius, that actually means ‘archer’. ToxOtis
+ * is a Java interface to the predictive toxicology services of OpenTox. ToxOtis is
+ * being developed to help both those who need a painless way to consume OpenTox
+ * services and for ambitious service providers that don’t want to spend half of
+ * their time in RDF parsing and creation.
+ *
+ * Copyright (C) 2009-2010 Pantelis Sopasakis & Charalampos Chomenides
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Contact:
+ * Pantelis Sopasakis
+ * chvng@mail.ntua.gr
+ * Address: Iroon Politechniou St. 9, Zografou, Athens Greece
+ * tel. +30 210 7723236
+ *
+ */
+package org.opentox.toxotis.util;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.SocketTimeoutException;
+import java.net.URL;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import org.opentox.toxotis.client.ClientFactory;
+import org.opentox.toxotis.client.HttpStatusCodes;
+import org.opentox.toxotis.client.VRI;
+import org.opentox.toxotis.client.transport.IHttpTransport;
+import org.opentox.toxotis.core.component.Task;
+import org.opentox.toxotis.core.component.Task.Status;
+import org.opentox.toxotis.exceptions.impl.ServiceInvocationException;
+import org.opentox.toxotis.exceptions.impl.ServiceUnavailable;
+import org.opentox.toxotis.util.aa.AuthenticationToken;
+import org.opentox.toxotis.util.spiders.TaskSpider;
+
+/**
+ * Monitors remote tasks until they are no longer {@link Status#RUNNING running} or
+ * {@link Status#QUEUED queued}. All outstanding tasks are polled from a single
+ * scheduled executor with a handful of threads, so a large number of concurrent
+ * tasks does not require a thread each.
+ * 
+ * <p>The delay between successive polls of a task grows exponentially, starting
+ * from the initial delay and up to the maximum delay, and is randomized (jitter)
+ * so that tasks submitted together are not polled in lockstep. If the task service
+ * suggests a delay with the <code>Retry-After</code> header, that delay is used
+ * instead. Requests to monitor the same task URI (with the same token) while it
+ * is being monitored share the same {@link Future}; note that cancelling such a
+ * future stops the monitoring for every holder of it.</p>
+ * 
+ * <p>The future completes with the last version of the task that was downloaded,
+ * i.e. when the task has completed, failed or was cancelled or rejected. As with
+ * {@link TaskRunner}, <b>no exception</b> is thrown if the task itself fails;
+ * check the status of the returned task. If the task cannot be downloaded,
+ * {@link Future#get() } throws an {@link java.util.concurrent.ExecutionException}
+ * wrapping the corresponding {@link ServiceInvocationException}.</p>
+ *
+ * @author Pantelis Sopasakis
+ * @author Charalampos Chomenides
+ * @see Task
+ */
+public class TaskMonitor {
+
+    /** Default delay before the second poll of a task (in ms) */
+    public static final long DEFAULT_INITIAL_DELAY = 100;
+    /** Default upper bound for the delay between polls (in ms) */
+    public static final long DEFAULT_MAX_DELAY = 30000;
+    /** Default factor by which the delay grows after every poll */
+    public static final double DEFAULT_MULTIPLIER = 1.5;
+    /** Default number of polling threads */
+    public static final int DEFAULT_THREADS = 2;
+    /** Default timeout for connecting to a task service (in ms) */
+    public static final int DEFAULT_CONNECT_TIMEOUT = 10000;
+    /** Default timeout for reading the response of a task service (in ms) */
+    public static final int DEFAULT_READ_TIMEOUT = 30000;
+    /**
+     * Number of consecutive 503 responses (or polls which timed out) after which
+     * monitoring of a task is abandoned.
+     */
+    public static final int MAX_UNAVAILABLE_RESPONSES = 10;
+    private static volatile TaskMonitor instance;
+    private final ScheduledThreadPoolExecutor scheduler;
+    private final ConcurrentMap<String, Poll> polls = new ConcurrentHashMap<String, Poll>();
+    private final long initialDelay;
+    private final long maxDelay;
+    private final double multiplier;
+    private final Random random = new Random();
+    private final AtomicLong pollCount = new AtomicLong();
+    private final AtomicLong coalescedCount = new AtomicLong();
+    private volatile int connectTimeout = DEFAULT_CONNECT_TIMEOUT;
+    private volatile int readTimeout = DEFAULT_READ_TIMEOUT;
+    private org.slf4j.Logger logger = org.slf4j.LoggerFactory.getLogger(TaskMonitor.class);
+
+    /**
+     * The monitor shared by all tasks of the application which runs with the
+     * default settings. Its threads are daemon threads.
+     * @return
+     *      The shared task monitor.
+     */
+    public static TaskMonitor getInstance() {
+        TaskMonitor monitor = instance;
+        if (monitor == null) {
+            synchronized (TaskMonitor.class) {
+                monitor = instance;
+                if (monitor == null) {
+                    instance = monitor = new TaskMonitor();
+                }
+            }
+        }
+        return monitor;
+    }
+
+    /**
+     * Create a new task monitor with the default settings.
+     */
+    public TaskMonitor() {
+        this(DEFAULT_THREADS, DEFAULT_INITIAL_DELAY, DEFAULT_MAX_DELAY, DEFAULT_MULTIPLIER);
+    }
+
+    /**
+     * Create a new task monitor.
+     * @param threads
+     *      Number of threads polling the task services.
+     * @param initialDelay
+     *      Delay before the second poll of a task in milliseconds.
+     * @param maxDelay
+     *      Upper bound for the delay between polls in milliseconds.
+     * @param multiplier
+     *      Factor by which the delay grows after every poll (at least 1).
+     * @throws IllegalArgumentException
+     *      If any of the arguments is out of range.
+     */
+    public TaskMonitor(int threads, long initialDelay, long maxDelay, double multiplier) {
+        if (threads < 1 || initialDelay < 0 || maxDelay < initialDelay || multiplier < 1) {
+            throw new IllegalArgumentException("Invalid task monitor settings");
+        }
+        this.initialDelay = initialDelay;
+        this.maxDelay = maxDelay;
+        this.multiplier = multiplier;
+        this.scheduler = new ScheduledThreadPoolExecutor(threads, new MonitorThreadFactory());
+    }
+
+    /**
+     * Monitor a task until it is no longer running or queued. If the status of the
+     * given task is already known to be final, the returned future is completed
+     * right away.
+     * @param task
+     *      The task to be monitored.
+     * @param token
+     *      Token used to access the task (may be <code>null</code>).
+     * @return
+     *      Future for the completed (or failed) task.
+     */
+    public Future<Task> monitor(Task task, AuthenticationToken token) {
+        Status status = task.getStatus();
+        if (status != null && !Status.RUNNING.equals(status) && !Status.QUEUED.equals(status)
+                && task.getHttpStatus() != HttpStatusCodes.Created.getStatus()) {
+            TaskFuture done = new TaskFuture();
+            done.complete(task);
+            return done;
+        }
+        return monitor(task.getUri(), token);
+    }
+
+    /**
+     * Monitor the task with the given URI until it is no longer running or queued.
+     * @param taskUri
+     *      URI of the task to be monitored.
+     * @param token
+     *      Token used to access the task (may be <code>null</code>).
+     * @return
+     *      Future for the completed (or failed) task.
+     * @throws NullPointerException
+     *      If the URI is <code>null</code>.
+     */
+    public Future<Task> monitor(VRI taskUri, AuthenticationToken token) {
+        if (taskUri == null) {
+            throw new NullPointerException("The URI of the task to be monitored is null");
+        }
+        String key = token != null ? taskUri.toString() + " " + token.stringValue() : taskUri.toString();
+        while (true) {
+            Poll existing = polls.get(key);
+            if (existing != null && !existing.future.isDone()) {
+                coalescedCount.incrementAndGet();
+                return existing.future;
+            }
+            Poll poll = new Poll(key, taskUri, token);
+            boolean registered = existing == null
+                    ? polls.putIfAbsent(key, poll) == null
+                    : polls.replace(key, existing, poll);
+            if (registered) {
+                poll.schedule(0);
+                return poll.future;
+            }
+        }
+    }
+
+    /**
+     * Stops monitoring all tasks. Pending futures fail with a
+     * {@link ServiceInvocationException}.
+     */
+    public void shutdown() {
+        scheduler.shutdownNow();
+        for (Poll poll : polls.values()) {
+            poll.fail(new ServiceInvocationException("Task monitor was shut down while monitoring "
+                    + poll.uri));
+        }
+    }
+
+    public int getConnectTimeout() {
+        return connectTimeout;
+    }
+
+    /**
+     * Timeout for connecting to a task service, applied to polls unless the
+     * {@link ClientFactory#getTransport() transport} sets one of its own.
+     * @param connectTimeout
+     *      Timeout in milliseconds; <code>0</code> for no timeout.
+     */
+    public void setConnectTimeout(int connectTimeout) {
+        this.connectTimeout = connectTimeout;
+    }
+
+    public int getReadTimeout() {
+        return readTimeout;
+    }
+
+    /**
+     * Timeout for reading the response of a task service, applied to polls
+     * unless the {@link ClientFactory#getTransport() transport} sets one of its
+     * own. Polls run on the few threads of the monitor, so a service which
+     * stops answering would otherwise hold up the monitoring of all other tasks.
+     * A poll that times out is retried like one that found the service
+     * unavailable.
+     * @param readTimeout
+     *      Timeout in milliseconds; <code>0</code> for no timeout.
+     */
+    public void setReadTimeout(int readTimeout) {
+        this.readTimeout = readTimeout;
+    }
+
+    /**
+     * Number of tasks currently being monitored.
+     * @return
+     *      Number of outstanding tasks.
+     */
+    public int getPendingCount() {
+        return polls.size();
+    }
+
+    /**
+     * Total number of requests sent to task services.
+     * @return
+     *      Number of polls.
+     */
+    public long getPollCount() {
+        return pollCount.get();
+    }
+
+    /**
+     * Number of monitoring requests which were served by a task already being
+     * monitored.
+     * @return
+     *      Number of coalesced requests.
+     */
+    public long getCoalescedCount() {
+        return coalescedCount.get();
+    }
+
+    private long nextDelay(int attempt, long retryAfter) {
+        if (retryAfter >= 0) {
+            return retryAfter;
+        }
+        long delay = (long) Math.min(maxDelay, initialDelay * Math.pow(multiplier, attempt));
+        long half = delay / 2;
+        return half + (long) (random.nextDouble() * (delay - half + 1));
+    }
+
+    private static boolean isPending(Task task) {
+        Status status = task.getStatus();
+        if (status != null) {
+            return Status.RUNNING.equals(status) || Status.QUEUED.equals(status);
+        }
+        return task.getHttpStatus() == HttpStatusCodes.Accepted.getStatus();
+    }
+
+    private static boolean isTimeout(Throwable ex) {
+        for (Throwable cause = ex; cause != null; cause = cause.getCause()) {
+            if (cause instanceof SocketTimeoutException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Polls a task until completion rescheduling itself on the scheduler.
+     */
+    private class Poll implements Runnable {
+
+        private final String key;
+        private final AuthenticationToken token;
+        private final TaskFuture future = new TaskFuture();
+        private VRI uri;
+        private int attempt = 0;
+        private int unavailable = 0;
+
+        Poll(String key, VRI uri, AuthenticationToken token) {
+            this.key = key;
+            this.uri = uri;
+            this.token = token;
+        }
+
+        @Override
+        public void run() {
+            if (future.isDone()) { // cancelled
+                polls.remove(key, this);
+                return;
+            }
+            pollCount.incrementAndGet();
+            try {
+                TaskSpider spider = new TaskSpider(uri, token, new PollTransport(ClientFactory.getTransport()));
+                Task task = spider.parse();
+                unavailable = 0;
+                if (task.getHttpStatus() == HttpStatusCodes.Created.getStatus() && task.getResultUri() != null) {
+                    // Redirected to another task
+                    uri = task.getResultUri();
+                    attempt = 0;
+                    schedule(0);
+                } else if (isPending(task)) {
+                    schedule(nextDelay(attempt++, spider.getRetryAfter()));
+                } else {
+                    complete(task);
+                }
+            } catch (ServiceUnavailable ex) {
+                if (++unavailable >= MAX_UNAVAILABLE_RESPONSES) {
+                    fail(ex);
+                } else {
+                    logger.debug("Task service unavailable; will retry : " + uri, ex);
+                    schedule(nextDelay(attempt++, ex.getRetryAfter()));
+                }
+            } catch (ServiceInvocationException ex) {
+                if (isTimeout(ex) && ++unavailable < MAX_UNAVAILABLE_RESPONSES) {
+                    logger.debug("Task service timed out; will retry : " + uri, ex);
+                    schedule(nextDelay(attempt++, -1));
+                } else {
+                    fail(ex);
+                }
+            } catch (RuntimeException ex) {
+                logger.warn("Unexpected error while monitoring task " + uri, ex);
+                fail(ex);
+            }
+        }
+
+        void schedule(long delay) {
+            try {
+                scheduler.schedule(this, delay, TimeUnit.MILLISECONDS);
+            } catch (RejectedExecutionException ex) {
+                fail(new ServiceInvocationException("Task monitor was shut down while monitoring " + uri, ex));
+            }
+        }
+
+        void complete(Task task) {
+            polls.remove(key, this);
+            future.complete(task);
+        }
+
+        void fail(Throwable cause) {
+            polls.remove(key, this);
+            future.fail(cause);
+        }
+    }
+
+    /**
+     * Applies the timeouts of the monitor to the connections of another
+     * transport which does not set timeouts of its own.
+     */
+    private class PollTransport implements IHttpTransport {
+
+        private final IHttpTransport delegate;
+
+        PollTransport(IHttpTransport delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public HttpURLConnection openConnection(URL url) throws IOException {
+            HttpURLConnection connection = delegate.openConnection(url);
+            if (connection.getConnectTimeout() == 0) {
+                connection.setConnectTimeout(connectTimeout);
+            }
+            if (connection.getReadTimeout() == 0) {
+                connection.setReadTimeout(readTimeout);
+            }
+            return connection;
+        }
+
+        @Override
+        public InputStream getInputStream(HttpURLConnection connection, boolean error) throws IOException {
+            return delegate.getInputStream(connection, error);
+        }
+
+        @Override
+        public void release(HttpURLConnection connection) {
+            delegate.release(connection);
+        }
+    }
+
+    /**
+     * A future which is completed explicitly rather than by running a callable.
+     */
+    private static class TaskFuture extends FutureTask<Task> {
+
+        TaskFuture() {
+            super(new Callable<Task>() {
+
+                @Override
+                public Task call() {
+                    throw new IllegalStateException("TaskFuture is completed by the TaskMonitor");
+                }
+            });
+        }
+
+        void complete(Task task) {
+            set(task);
+        }
+
+        void fail(Throwable cause) {
+            setException(cause);
+        }
+    }
+
+    private static class MonitorThreadFactory implements ThreadFactory {
+
+        private final AtomicInteger count = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "toxotis-task-monitor-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
@@ -33,7 +33,7 @@
 package org.opentox.toxotis.util;
 
 import java.util.concurrent.Callable;
-import org.opentox.toxotis.client.HttpStatusCodes;
+import java.util.concurrent.ExecutionException;
 import org.opentox.toxotis.core.component.Task;
 import org.opentox.toxotis.core.component.Task.Status;
 import org.opentox.toxotis.exceptions.impl.ServiceInvocationException;
@@ -87,38 +87,19 @@ public class TaskRunner implements Callable<Task> {
      *
      * @param delay
      *      Delay in milliseconds.
+     * @deprecated
+     *      Tasks are polled by the shared {@link TaskMonitor} which backs off
+     *      exponentially; this setting is ignored.
      */
+    @Deprecated
     public void setDelay(long delay) {
         this.delay = delay;
     }
 
-    private Task updateTask(Task old) throws ServiceInvocationException {
-        task.loadFromRemote(getToken());
-        float taskHttpStatus = old.getHttpStatus();
-        if (taskHttpStatus == HttpStatusCodes.Created.getStatus()) { // Created new task
-            Task created = new Task(task.getResultUri());
-            task = created;
-            return updateTask(created);
-        } else if (taskHttpStatus == HttpStatusCodes.Success.getStatus()) {// Done!
-            return task;
-        } else if (taskHttpStatus == HttpStatusCodes.Accepted.getStatus()) {// Waiting for completion!
-            try {
-                // Waiting for completion!
-                Thread.sleep(delay);
-                return updateTask(old);
-            } catch (InterruptedException ex) {
-                throw new RuntimeException("Interruption!", ex);
-            }
-        } else {
-            // This block is reached when the status code is some error code
-            return old;
-        }
-    }
-
     /**
      * Runs a remote task until it completes. As long as the task returns a 202 or
-     * 201 status code, the client keeps monitoring the progress of the task every
-     * a certain time period which is specified by the method {@link #setDelay(long) setDelay}.
+     * 201 status code, the task is monitored by the shared {@link TaskMonitor#getInstance()
+     * task monitor} and this method blocks until the task is over.
      * When the task is over ({@link Status#COMPLETED completed}), this method returns
      * the updated task which points to the result (see {@link Task#getResultUri() }.
      * If the task fails to complete, i.e. it has some status different from
@@ -135,7 +116,17 @@ public class TaskRunner implements Callable<Task> {
      */
     @Override
     public Task call() throws ServiceInvocationException {
-        task.loadFromRemote();
-        return updateTask(task);
+        try {
+            task = TaskMonitor.getInstance().monitor(task.getUri(), getToken()).get();
+            return task;
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interruption!", ex);
+        } catch (ExecutionException ex) {
+            if (ex.getCause() instanceof ServiceInvocationException) {
+                throw (ServiceInvocationException) ex.getCause();
+            }
+            throw new ServiceInvocationException("Unexpected error while monitoring task " + task.getUri(), ex.getCause());
+        }
     }
 }
@@ -41,7 +41,15 @@ import java.io.InputStreamReader;
 import java.io.UnsupportedEncodingException;
 import java.net.URISyntaxException;
 import java.net.URLEncoder;
+import java.util.Collection;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 import org.opentox.toxotis.client.ClientFactory;
 import org.opentox.toxotis.client.HttpStatusCodes;
 import org.opentox.toxotis.client.IPostClient;
@@ -379,6 +387,7 @@ public class AuthenticationToken {
         if (token == null || (token != null && token.isEmpty())) {
             return; // Nothing to invalidate!
         }
+        AuthorizationCache.getInstance().evict(token);
         IPostClient poster = null;
         try {
             poster = new PostHttpsClient(Services.SingleSignOn.ssoInvalidate());
@@ -560,6 +569,91 @@ public class AuthenticationToken {
         if (!this.getStatus().equals(TokenStatus.ACTIVE)) {
             throw new ForbiddenRequest("This token is not active: " + getStatus());
         }
+        Boolean cached = AuthorizationCache.getInstance().lookup(stringValue(), httpMethod, target);
+        if (cached != null) {
+            return cached;
+        }
+        return authorizeRemotely(httpMethod, target);
+    }
+
+    /**
+     * Ask the SSO server whether the user with the given token is allowed to
+     * perform an HTTP operation on each one of a collection of URIs. Decisions
+     * which are not found in the {@link AuthorizationCache local cache} are
+     * requested from the SSO server concurrently.
+     *
+     * @param httpMethod
+     *      The HTTP for which permission is asked.
+     * @param targets
+     *      The action URIs on which the HTTP method will be applied once
+     *      permission is granted to the client.
+     * @return
+     *      Map from every target URI to <code>true</code> if the user is allowed to
+     *      perform the operation on it and <code>false</code> otherwise, in the
+     *      order of the given collection.
+     * @throws ServiceInvocationException
+     *      If a connection problem occurs with the remote or the communication is
+     *      corrupted, or if the token the user uses is not active.
+     */
+    public Map<VRI, Boolean> authorizeAll(final String httpMethod, Collection<VRI> targets) throws ServiceInvocationException {
+        if (!this.getStatus().equals(TokenStatus.ACTIVE)) {
+            throw new ForbiddenRequest("This token is not active: " + getStatus());
+        }
+        AuthorizationCache cache = AuthorizationCache.getInstance();
+        ExecutorService executor = ClientFactory.getAsyncExecutor();
+        Map<VRI, Boolean> cached = new HashMap<VRI, Boolean>();
+        Map<VRI, Future<Boolean>> pending = new HashMap<VRI, Future<Boolean>>();
+        for (final VRI target : targets) {
+            if (cached.containsKey(target) || pending.containsKey(target)) {
+                continue;
+            }
+            Boolean decision = cache.lookup(stringValue(), httpMethod, target);
+            if (decision != null) {
+                cached.put(target, decision);
+            } else {
+                pending.put(target, executor.submit(new Callable<Boolean>() {
+
+                    @Override
+                    public Boolean call() throws ServiceInvocationException {
+                        return authorizeRemotely(httpMethod, target);
+                    }
+                }));
+            }
+        }
+        Map<VRI, Boolean> decisions = new LinkedHashMap<VRI, Boolean>();
+        ServiceInvocationException failure = null;
+        for (VRI target : targets) {
+            if (decisions.containsKey(target)) {
+                continue;
+            }
+            Boolean decision = cached.get(target);
+            if (decision == null) {
+                try {
+                    decision = pending.get(target).get();
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                    for (Future<Boolean> future : pending.values()) {
+                        future.cancel(true);
+                    }
+                    throw new ServiceInvocationException("Interrupted while waiting for authorization decisions", ex);
+                } catch (ExecutionException ex) {
+                    if (failure == null) {
+                        failure = ex.getCause() instanceof ServiceInvocationException
+                                ? (ServiceInvocationException) ex.getCause()
+                                : new ServiceInvocationException(ex.getCause());
+                    }
+                    continue;
+                }
+            }
+            decisions.put(target, decision);
+        }
+        if (failure != null) {
+            throw failure;
+        }
+        return decisions;
+    }
+
+    private boolean authorizeRemotely(String httpMethod, VRI target) throws ServiceInvocationException {
         IPostClient client = null;
 
         client = ClientFactory.createPostClient(Services.SingleSignOn.ssoAuthorize());
@@ -581,10 +675,15 @@ public class AuthenticationToken {
                 }
             }
         }
-        if (httpResponseStatus == HttpStatusCodes.Success.getStatus() && textResponse.equals("boolean=true")) {
-            return true;
+        boolean allowed = httpResponseStatus == HttpStatusCodes.Success.getStatus() && textResponse.equals("boolean=true");
+        if (httpResponseStatus == HttpStatusCodes.Success.getStatus()
+                || httpResponseStatus == HttpStatusCodes.Unauthorized.getStatus()
+                || httpResponseStatus == HttpStatusCodes.Forbidden.getStatus()) {
+            // Only actual decisions are cached; other errors are not
+            AuthorizationCache.getInstance().store(stringValue(), httpMethod, target, allowed,
+                    tokenCreationTimestamp + TOKEN_LOCAL_LIFESPAN);
         }
-        return false;
+        return allowed;
     }
 
     /**
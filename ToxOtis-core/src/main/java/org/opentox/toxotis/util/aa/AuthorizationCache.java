@@ -0,0 +1,275 @@
+/*
+ *
+ * ToxOtis
+ *
+ * ToxOtis is the Greek word for Sagittarius, that actually means ‘archer’. ToxOtis
+ * is a Java interface to the predictive toxicology services of OpenTox. ToxOtis is
+ * being developed to help both those who need a painless way to consume OpenTox
+ * services and for ambitious service providers that don’t want to spend half of
+ * their time in RDF parsing and creation.
+ *
+ * Copyright (C) 2009-2010 Pantelis Sopasakis & Charalampos Chomenides
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Contact:
+ * Pantelis Sopasakis
+ * chvng@mail.ntua.gr
+ * Address: Iroon Politechniou St. 9, Zografou, Athens Greece
+ * tel. +30 210 7723236
+ *
+ */
+package org.opentox.toxotis.util.aa;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import org.opentox.toxotis.client.Pair;
+import org.opentox.toxotis.client.VRI;
+
+/**
+ * Local cache of authorization decisions of the SSO server, used by
+ * {@link AuthenticationToken#authorize(java.lang.String, org.opentox.toxotis.client.VRI) }
+ * so that repeated checks for the same token, HTTP method and URI do not reach the
+ * SSO server. Decisions are kept for a limited time (positive and negative
+ * decisions have separate lifetimes) and never beyond the local lifetime of the
+ * token; when the cache is full the least recently used decision is evicted.
+ * Decisions for a token are also evicted when the token is {@link AuthenticationToken#invalidate()
+ * invalidated}.
+ * 
+ * <p>URIs are normalized before lookup: the trailing slash and the token parameters
+ * (<code>tokenid</code> and <code>subjectid</code>) are ignored and the remaining
+ * URL parameters are sorted.</p>
+ *
+ * @author Pantelis Sopasakis
+ * @author Charalampos Chomenides
+ */
+public class AuthorizationCache {
+
+    /** Default maximum number of cached decisions */
+    public static final int DEFAULT_MAX_ENTRIES = 10000;
+    /** Default lifetime of positive decisions (5 minutes) */
+    public static final long DEFAULT_POSITIVE_TTL = 5 * 60 * 1000L;
+    /** Default lifetime of negative decisions; negative decisions are not cached by default */
+    public static final long DEFAULT_NEGATIVE_TTL = 0L;
+    private static final String[] TOKEN_PARAMETERS = {"tokenid", "subjectid"};
+    private static final AuthorizationCache INSTANCE = new AuthorizationCache();
+    private final Map<String, Decision> decisions;
+    private volatile int maxEntries;
+    private volatile long positiveTtl;
+    private volatile long negativeTtl;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    /**
+     * A cached authorization decision.
+     */
+    private static class Decision {
+
+        private final String token;
+        private final boolean allowed;
+        private final long expires;
+
+        Decision(String token, boolean allowed, long expires) {
+            this.token = token;
+            this.allowed = allowed;
+            this.expires = expires;
+        }
+    }
+
+    /**
+     * The cache used by all authentication tokens.
+     * @return
+     *      The shared authorization cache.
+     */
+    public static AuthorizationCache getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Create a new authorization cache with the default settings.
+     */
+    public AuthorizationCache() {
+        this(DEFAULT_MAX_ENTRIES, DEFAULT_POSITIVE_TTL, DEFAULT_NEGATIVE_TTL);
+    }
+
+    /**
+     * Create a new authorization cache.
+     * @param maxEntries
+     *      Maximum number of cached decisions.
+     * @param positiveTtl
+     *      Lifetime of positive decisions in milliseconds; <code>0</code> disables
+     *      caching of positive decisions.
+     * @param negativeTtl
+     *      Lifetime of negative decisions in milliseconds; <code>0</code> disables
+     *      caching of negative decisions.
+     */
+    public AuthorizationCache(int maxEntries, long positiveTtl, long negativeTtl) {
+        this.maxEntries = maxEntries;
+        this.positiveTtl = positiveTtl;
+        this.negativeTtl = negativeTtl;
+        this.decisions = new LinkedHashMap<String, Decision>(16, 0.75f, true) {
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Decision> eldest) {
+                return size() > AuthorizationCache.this.maxEntries;
+            }
+        };
+    }
+
+    public int getMaxEntries() {
+        return maxEntries;
+    }
+
+    public void setMaxEntries(int maxEntries) {
+        this.maxEntries = maxEntries;
+    }
+
+    public long getPositiveTtl() {
+        return positiveTtl;
+    }
+
+    public void setPositiveTtl(long positiveTtl) {
+        this.positiveTtl = positiveTtl;
+    }
+
+    public long getNegativeTtl() {
+        return negativeTtl;
+    }
+
+    public void setNegativeTtl(long negativeTtl) {
+        this.negativeTtl = negativeTtl;
+    }
+
+    /**
+     * Number of lookups that were answered by the cache.
+     * @return
+     *      Number of cache hits.
+     */
+    public long getHits() {
+        return hits.get();
+    }
+
+    /**
+     * Number of lookups that were not answered by the cache.
+     * @return
+     *      Number of cache misses.
+     */
+    public long getMisses() {
+        return misses.get();
+    }
+
+    /**
+     * Number of decisions currently in the cache (including expired decisions
+     * which have not been evicted yet).
+     * @return
+     *      Size of the cache.
+     */
+    public synchronized int size() {
+        return decisions.size();
+    }
+
+    /**
+     * Removes all decisions from the cache.
+     */
+    public synchronized void clear() {
+        decisions.clear();
+    }
+
+    /**
+     * Removes all decisions concerning a token.
+     * @param token
+     *      The token as a String.
+     */
+    public synchronized void evict(String token) {
+        Iterator<Decision> iterator = decisions.values().iterator();
+        while (iterator.hasNext()) {
+            if (iterator.next().token.equals(token)) {
+                iterator.remove();
+            }
+        }
+    }
+
+    /**
+     * Look up a decision.
+     * @return
+     *      The cached decision or <code>null</code> if no valid decision is
+     *      cached.
+     */
+    Boolean lookup(String token, String httpMethod, VRI target) {
+        String key = key(token, httpMethod, target);
+        synchronized (this) {
+            Decision decision = decisions.get(key);
+            if (decision != null) {
+                if (decision.expires > System.currentTimeMillis()) {
+                    hits.incrementAndGet();
+                    return decision.allowed;
+                }
+                decisions.remove(key);
+            }
+        }
+        misses.incrementAndGet();
+        return null;
+    }
+
+    /**
+     * Store a decision.
+     * @param notAfter
+     *      Timestamp after which the decision must not be used, i.e. the
+     *      expiration of the token.
+     */
+    void store(String token, String httpMethod, VRI target, boolean allowed, long notAfter) {
+        long ttl = allowed ? positiveTtl : negativeTtl;
+        if (ttl <= 0 || maxEntries <= 0) {
+            return;
+        }
+        long expires = Math.min(notAfter, System.currentTimeMillis() + ttl);
+        String key = key(token, httpMethod, target);
+        synchronized (this) {
+            decisions.put(key, new Decision(token, allowed, expires));
+        }
+    }
+
+    static String key(String token, String httpMethod, VRI target) {
+        StringBuilder key = new StringBuilder();
+        key.append(token).append(' ').append(httpMethod.toUpperCase()).append(' ');
+        key.append(target.getStringNoQuery());
+        List<String> params = new ArrayList<String>();
+        for (Pair<String, String> param : target.getUrlParams()) {
+            if (!isTokenParameter(param.getKey())) {
+                params.add(param.getKey() + "=" + param.getValue());
+            }
+        }
+        Collections.sort(params);
+        char separator = '?';
+        for (String param : params) {
+            key.append(separator).append(param);
+            separator = '&';
+        }
+        return key.toString();
+    }
+
+    private static boolean isTokenParameter(String name) {
+        for (String tokenParameter : TOKEN_PARAMETERS) {
+            if (tokenParameter.equals(name)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -46,6 +46,7 @@ import org.opentox.toxotis.client.VRI;
 import org.opentox.toxotis.client.collection.Media;
 import org.opentox.toxotis.core.component.DataEntry;
 import org.opentox.toxotis.core.component.Dataset;
+import org.opentox.toxotis.core.component.IDataEntryConsumer;
 import org.opentox.toxotis.exceptions.impl.ConnectionException;
 import org.opentox.toxotis.exceptions.impl.ServiceInvocationException;
 import org.opentox.toxotis.ontology.collection.OTClasses;
@@ -60,6 +61,8 @@ import org.opentox.toxotis.util.aa.AuthenticationToken;
 public class DatasetSpider extends Tarantula<Dataset> {
 
     private VRI datasetUri;
+    private AuthenticationToken token;
+    private boolean streaming = false;
     private org.slf4j.Logger logger = org.slf4j.LoggerFactory.getLogger(DatasetSpider.class);
 
     public DatasetSpider(VRI uri) throws ServiceInvocationException {
@@ -67,27 +70,37 @@ public class DatasetSpider extends Tarantula<Dataset> {
     }
 
     public DatasetSpider(VRI uri, AuthenticationToken token) throws ServiceInvocationException {
+        this(uri, token, false);
+    }
+
+    /**
+     * Creates a spider for a remote dataset. In <em>streaming</em> mode the
+     * dataset is not downloaded into an ontological model; instead the remote
+     * RDF/XML document is read by a {@link DatasetStreamReader} when {@link #parse() }
+     * or {@link #stream(IDataEntryConsumer) } is invoked, which is considerably faster and lighter for large datasets.
+     * Documents which do not follow the layout of ToxOtis datasets are then
+     * downloaded anew and parsed using the ontological model.
+     *
+     * @param uri
+     *      URI of the remote dataset.
+     * @param token
+     *      Authentication token (may be <code>null</code>).
+     * @param streaming
+     *      Whether the document should be read in streaming mode. In that case
+     *      the remote resource is accessed upon parsing.
+     * @throws ServiceInvocationException
+     *      In case the remote dataset cannot be downloaded (only when not in
+     *      streaming mode).
+     */
+    public DatasetSpider(VRI uri, AuthenticationToken token, boolean streaming) throws ServiceInvocationException {
         super();
-        long timeFlag = System.currentTimeMillis();
         this.datasetUri = uri;
-        IGetClient client = ClientFactory.createGetClient(uri);
-        client.setMediaType(Media.APPLICATION_RDF_XML);
-        client.authorize(token); // << OpenTox API 1.2. 
-        try {
-            int status = client.getResponseCode();
-            assessHttpStatus(status, uri);
-            setOntModel(client.getResponseOntModel());
-            setResource(getOntModel().getResource(uri.getStringNoQuery()));
+        this.token = token;
+        this.streaming = streaming;
+        if (!streaming) {
+            long timeFlag = System.currentTimeMillis();
+            readRemoteModel();
             setReadRemoteTime(System.currentTimeMillis() - timeFlag);
-        } finally {
-            if (client != null) {
-                try {
-                    client.close();
-                } catch (IOException ex) {
-                    throw new ConnectionException("Error while trying to close the stream "
-                            + "with the remote location at :'" + ((uri != null) ? uri.toString() : null) + "'", ex);
-                }
-            }
         }
     }
 
@@ -115,8 +128,154 @@ public class DatasetSpider extends Tarantula<Dataset> {
         setResource(model.getResource(uri));
     }
 
+    private IGetClient openRemote() throws ServiceInvocationException {
+        IGetClient client = ClientFactory.createGetClient(datasetUri);
+        client.setMediaType(Media.APPLICATION_RDF_XML);
+        client.authorize(token); // << OpenTox API 1.2. 
+        try {
+            assessHttpStatus(client.getResponseCode(), datasetUri);
+        } catch (ServiceInvocationException ex) {
+            closeRemote(client);
+            throw ex;
+        }
+        return client;
+    }
+
+    private void closeRemote(IGetClient client) throws ConnectionException {
+        try {
+            client.close();
+        } catch (IOException ex) {
+            throw new ConnectionException("Error while trying to close the stream "
+                    + "with the remote location at :'" + ((datasetUri != null) ? datasetUri.toString() : null) + "'", ex);
+        }
+    }
+
+    private void readRemoteModel() throws ServiceInvocationException {
+        IGetClient client = openRemote();
+        try {
+            setOntModel(client.getResponseOntModel());
+            setResource(getOntModel().getResource(datasetUri.getStringNoQuery()));
+        } finally {
+            closeRemote(client);
+        }
+    }
+
+    /**
+     * Whether this spider reads the remote dataset in streaming mode.
+     * @return
+     *      <code>true</code> if in streaming mode.
+     */
+    public boolean isStreaming() {
+        return streaming;
+    }
+
     @Override
-    public Dataset parse() throws ServiceInvocationException  {
+    public Dataset parse() throws ServiceInvocationException {
+        if (streaming) {
+            final ArrayList<DataEntry> dataEntries = new ArrayList<DataEntry>();
+            final Dataset[] result = new Dataset[1];
+            boolean streamed = streamRemote(new IDataEntryConsumer() {
+
+                @Override
+                public void consume(DataEntry dataEntry) {
+                    dataEntries.add(dataEntry);
+                }
+
+                @Override
+                public void finish(Dataset dataset) {
+                    result[0] = dataset;
+                }
+            }, true);
+            if (streamed) {
+                result[0].setDataEntries(dataEntries);
+                return result[0];
+            }
+            fallBackToOntModel();
+        }
+        return parseOntModel();
+    }
+
+    /**
+     * Parses the dataset and passes its data entries to the given consumer one
+     * at a time, without building a {@link Dataset} object. In streaming mode
+     * the data entries are handed to the consumer while the remote document is
+     * being read so the memory needed does not depend on the size of the dataset.
+     * The parse time reported for this spider includes the time spent by the
+     * consumer. A document that cannot be streamed is parsed using the ontological
+     * model provided that no data entries have been consumed yet; otherwise a
+     * {@link DatasetStreamReader.NonCanonicalRdfException} is thrown.
+     *
+     * @param consumer
+     *      Consumer of the data entries of the dataset.
+     * @throws ServiceInvocationException
+     *      In case the dataset cannot be downloaded or parsed or if thrown by
+     *      the consumer.
+     */
+    public void stream(IDataEntryConsumer consumer) throws ServiceInvocationException {
+        if (streaming && streamRemote(consumer, false)) {
+            return;
+        }
+        if (streaming) {
+            fallBackToOntModel();
+        }
+        Dataset dataset = parseOntModel();
+        for (DataEntry dataEntry : dataset.getDataEntries()) {
+            consumer.consume(dataEntry);
+        }
+        dataset.setDataEntries(new ArrayList<DataEntry>());
+        consumer.finish(dataset);
+    }
+
+    /**
+     * Streams the remote document to the consumer.
+     * @return
+     *      <code>false</code> if the document is not in canonical form and has to
+     *      be parsed using the ontological model.
+     */
+    private boolean streamRemote(IDataEntryConsumer consumer, boolean restartable) throws ServiceInvocationException {
+        long timeFlag = System.currentTimeMillis();
+        IGetClient client = openRemote();
+        setReadRemoteTime(System.currentTimeMillis() - timeFlag);
+        timeFlag = System.currentTimeMillis();
+        DatasetStreamReader reader = null;
+        try {
+            reader = new DatasetStreamReader(client.getRemoteStream());
+            DataEntry entry = null;
+            while ((entry = reader.nextEntry()) != null) {
+                consumer.consume(entry);
+            }
+            Dataset dataset = new Dataset();
+            dataset.setUri(datasetUri);
+            dataset.setMeta(reader.getMeta());
+            setParseTime(System.currentTimeMillis() - timeFlag);
+            consumer.finish(dataset);
+            return true;
+        } catch (DatasetStreamReader.NonCanonicalRdfException ex) {
+            if (!restartable && reader != null && reader.getEntriesRead() > 0) {
+                throw ex;
+            }
+            logger.debug("Dataset at '" + datasetUri + "' cannot be streamed; falling back to the ontological model", ex);
+            return false;
+        } finally {
+            if (reader != null) {
+                try {
+                    reader.close();
+                } catch (IOException ex) {
+                    logger.debug(null, ex);
+                }
+            }
+            closeRemote(client);
+        }
+    }
+
+    private void fallBackToOntModel() throws ServiceInvocationException {
+        long readRemoteTime = getReadRemoteTime();
+        long timeFlag = System.currentTimeMillis();
+        readRemoteModel();
+        setReadRemoteTime(readRemoteTime + System.currentTimeMillis() - timeFlag);
+    }
+
+    private Dataset parseOntModel() throws ServiceInvocationException {
         long timeFlag = System.currentTimeMillis();
         Dataset dataset = new Dataset();
         dataset.setUri(datasetUri);
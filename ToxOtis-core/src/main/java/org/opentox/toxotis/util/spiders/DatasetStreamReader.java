@@ -0,0 +1,704 @@
+/*
+ *
+ * ToxOtis
+ *
+ * ToxOtis is the Greek word for Sagittarius, that actually means ‘archer’. ToxOtis
+ * is a Java interface to the predictive toxicology services of OpenTox. ToxOtis is
+ * being developed to help both those who need a painless way to consume OpenTox
+ * services and for ambitious service providers that don’t want to spend half of
+ * their time in RDF parsing and creation.
+ *
+ * Copyright (C) 2009-2010 Pantelis Sopasakis & Charalampos Chomenides
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Contact:
+ * Pantelis Sopasakis
+ * chvng@mail.ntua.gr
+ * Address: Iroon Politechniou St. 9, Zografou, Athens Greece
+ * tel. +30 210 7723236
+ *
+ */
+package org.opentox.toxotis.util.spiders;
+
+import com.hp.hpl.jena.datatypes.RDFDatatype;
+import com.hp.hpl.jena.datatypes.TypeMapper;
+import com.hp.hpl.jena.datatypes.xsd.XSDDatatype;
+import com.hp.hpl.jena.vocabulary.DC;
+import com.hp.hpl.jena.vocabulary.OWL;
+import com.hp.hpl.jena.vocabulary.RDF;
+import com.hp.hpl.jena.vocabulary.RDFS;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URISyntaxException;
+import java.text.DateFormat;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import org.opentox.toxotis.client.VRI;
+import org.opentox.toxotis.core.component.Compound;
+import org.opentox.toxotis.core.component.DataEntry;
+import org.opentox.toxotis.core.component.Feature;
+import org.opentox.toxotis.core.component.FeatureValue;
+import org.opentox.toxotis.exceptions.impl.BadRequestException;
+import org.opentox.toxotis.exceptions.impl.ServiceInvocationException;
+import org.opentox.toxotis.exceptions.impl.ToxOtisException;
+import org.opentox.toxotis.ontology.LiteralValue;
+import org.opentox.toxotis.ontology.MetaInfo;
+import org.opentox.toxotis.ontology.OntologicalClass;
+import org.opentox.toxotis.ontology.ResourceValue;
+import org.opentox.toxotis.ontology.collection.OTClasses;
+import org.opentox.toxotis.ontology.impl.MetaInfoImpl;
+import org.opentox.toxotis.ontology.impl.OntologicalClassImpl;
+
+/**
+ * A streaming (StAX) reader for RDF/XML representations of OpenTox datasets.
+ * Unlike {@link DatasetSpider}, which first loads the whole document into a
+ * Jena ontological model, this reader walks the XML events of the document once
+ * and returns one {@link DataEntry} at a time through {@link #nextEntry() }, so
+ * the memory needed is proportional to the data entries the caller chooses to
+ * keep rather than to the size of the RDF graph.
+ *
+ * <p>The reader understands the layout produced by
+ * {@link org.opentox.toxotis.core.component.Dataset#writeRdf(javax.xml.stream.XMLStreamWriter) }:
+ * a single <code>ot:Dataset</code> node whose data entries, feature values and
+ * compounds are nested in it, and features that are referenced by URI and
+ * described as top-level nodes. Documents that deviate from this layout (for
+ * instance data entries given as references to nodes declared elsewhere) cannot
+ * be read in a single pass; in that case a {@link NonCanonicalRdfException} is
+ * thrown and the caller should fall back to the ontological model (see
+ * {@link #getEntriesRead() }).</p>
+ *
+ * <p>Features are shared among all feature values that refer to them. Since the
+ * feature declarations may follow the data entries, the features of the returned
+ * entries are completed (ontological classes, units, admissible values and meta
+ * information) only after the end of the document has been reached, i.e. once
+ * {@link #nextEntry() } has returned <code>null</code>.</p>
+ *
+ * @author Pantelis Sopasakis
+ * @author Charalampos Chomenides
+ */
+public class DatasetStreamReader implements Closeable {
+
+    private static final String RDF_NS = RDF.getURI();
+    private static final String RDFS_NS = RDFS.getURI();
+    private static final String OWL_NS = OWL.getURI();
+    private static final String DC_NS = DC.getURI();
+    private static final String OT_NS = OTClasses.NS;
+    private static final Set<String> DC_LITERALS = new HashSet<String>(Arrays.asList(
+            "title", "rights", "subject", "creator", "description", "publisher",
+            "contributor", "identifier", "audience", "date"));
+
+    private enum State {
+
+        PROLOG,
+        TOP_LEVEL,
+        IN_DATASET,
+        FINISHED;
+    }
+    private final XMLStreamReader reader;
+    private State state = State.PROLOG;
+    private String datasetUri;
+    private MetaInfo datasetMeta = new MetaInfoImpl();
+    private int entriesRead = 0;
+    /** Features referenced or declared in the document (by URI) */
+    private final Map<String, Feature> features = new LinkedHashMap<String, Feature>();
+    /** Declarations of features (by URI) that are applied once the document is read */
+    private final Map<String, FeatureDeclaration> declarations = new HashMap<String, FeatureDeclaration>();
+    /** Super-classes as declared in the document (<code>rdfs:subClassOf</code>) */
+    private final Map<String, Set<String>> superClasses = new HashMap<String, Set<String>>();
+    /** URIs of top-level nodes that were skipped by the reader */
+    private final Set<String> skippedNodes = new HashSet<String>();
+    private org.slf4j.Logger logger = org.slf4j.LoggerFactory.getLogger(DatasetStreamReader.class);
+
+    /**
+     * Thrown when the RDF/XML document cannot be read in a single pass because
+     * it does not follow the layout of ToxOtis datasets.
+     */
+    public static class NonCanonicalRdfException extends ServiceInvocationException {
+
+        public NonCanonicalRdfException(String msg) {
+            super(msg);
+        }
+
+        public NonCanonicalRdfException(String message, Throwable cause) {
+            super(message, cause);
+        }
+    }
+
+    private static class FeatureDeclaration {
+
+        private Set<String> types = new HashSet<String>();
+        private String units;
+        private Set<LiteralValue> acceptValues = new HashSet<LiteralValue>();
+        private MetaInfo meta = new MetaInfoImpl();
+    }
+
+    /**
+     * Creates a new reader over an RDF/XML representation of a dataset. The
+     * input stream is not closed by the reader.
+     *
+     * @param stream
+     *      Input stream with the RDF/XML document.
+     * @throws ServiceInvocationException
+     *      In case the underlying XML stream reader cannot be initialized.
+     */
+    public DatasetStreamReader(InputStream stream) throws ServiceInvocationException {
+        XMLInputFactory factory = org.codehaus.stax2.XMLInputFactory2.newInstance();
+        factory.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, Boolean.TRUE);
+        factory.setProperty(XMLInputFactory.IS_COALESCING, Boolean.TRUE);
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, Boolean.FALSE);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, Boolean.FALSE);
+        try {
+            reader = factory.createXMLStreamReader(stream);
+        } catch (XMLStreamException ex) {
+            throw new NonCanonicalRdfException("Cannot read the RDF/XML document", ex);
+        }
+    }
+
+    /**
+     * Reads the next data entry of the dataset.
+     *
+     * @return
+     *      The next data entry or <code>null</code> if there are no more entries
+     *      in the document.
+     * @throws NonCanonicalRdfException
+     *      If the document does not follow the layout of ToxOtis datasets or is
+     *      not a well formed XML document.
+     * @throws ServiceInvocationException
+     *      If some data entry is not valid (e.g. misses its feature or value or
+     *      refers to a compound with an invalid URI).
+     */
+    public DataEntry nextEntry() throws ServiceInvocationException {
+        try {
+            while (true) {
+                switch (state) {
+                    case PROLOG:
+                        if (reader.nextTag() != XMLStreamConstants.START_ELEMENT || !is(RDF_NS, "RDF")) {
+                            throw new NonCanonicalRdfException("Root element is not rdf:RDF");
+                        }
+                        state = State.TOP_LEVEL;
+                        break;
+                    case TOP_LEVEL:
+                        if (!nextChildElement()) {
+                            if (datasetUri == null) {
+                                throw new NonCanonicalRdfException("No ot:Dataset node was found in the document");
+                            }
+                            completeFeatures();
+                            state = State.FINISHED;
+                            return null;
+                        }
+                        readTopLevelNode();
+                        break;
+                    case IN_DATASET:
+                        if (!nextChildElement()) {
+                            state = State.TOP_LEVEL;
+                            break;
+                        }
+                        if (is(OT_NS, "dataEntry")) {
+                            DataEntry entry = readDataEntry();
+                            entriesRead++;
+                            return entry;
+                        }
+                        if (!readMetaDatum(datasetMeta)) {
+                            skipElement();
+                        }
+                        break;
+                    default:
+                        return null;
+                }
+            }
+        } catch (XMLStreamException ex) {
+            throw new NonCanonicalRdfException("Malformed RDF/XML document", ex);
+        }
+    }
+
+    /**
+     * The number of data entries that have been returned so far by {@link #nextEntry() }.
+     * When a {@link NonCanonicalRdfException} is thrown, a fallback to a different
+     * parser is transparent for the caller only as long as no entries have been
+     * handed out.
+     *
+     * @return
+     *      Number of data entries read.
+     */
+    public int getEntriesRead() {
+        return entriesRead;
+    }
+
+    /**
+     * The URI of the dataset as found in the <code>rdf:about</code> attribute of
+     * the <code>ot:Dataset</code> node.
+     *
+     * @return
+     *      URI of the dataset or <code>null</code> if not read yet.
+     */
+    public String getDatasetUri() {
+        return datasetUri;
+    }
+
+    /**
+     * Meta information of the dataset. Meta data that follow the data entries in
+     * the document are available only after all entries have been read.
+     *
+     * @return
+     *      Meta information of the dataset or <code>null</code> if none was found.
+     */
+    public MetaInfo getMeta() {
+        return datasetMeta.isEmpty() ? null : datasetMeta;
+    }
+
+    /**
+     * Closes the underlying XML stream reader. The input stream passed to the
+     * constructor is left open.
+     *
+     * @throws IOException
+     *      In case the XML stream reader cannot be closed.
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            reader.close();
+        } catch (XMLStreamException ex) {
+            throw new IOException("Cannot close the XML stream reader", ex);
+        }
+    }
+
+    private void readTopLevelNode() throws XMLStreamException, ServiceInvocationException {
+        String about = reader.getAttributeValue(RDF_NS, "about");
+        if (is(OT_NS, "Dataset")) {
+            if (datasetUri != null && !datasetUri.equals(about)) {
+                throw new NonCanonicalRdfException("More than one datasets found in the document");
+            }
+            if (about == null) {
+                throw new NonCanonicalRdfException("The dataset node has no URI");
+            }
+            datasetUri = about;
+            state = State.IN_DATASET;
+        } else if (about != null && (features.containsKey(about) || isFeatureClass(reader.getNamespaceURI(), reader.getLocalName()))) {
+            readFeature(about);
+        } else if (about != null && about.equals(datasetUri)) {
+            readDescription(datasetMeta);
+        } else if (about != null && (is(OWL_NS, "Class") || is(RDF_NS, "Description"))) {
+            skippedNodes.add(about);
+            readClass(about);
+        } else {
+            if (about != null) {
+                skippedNodes.add(about);
+            }
+            skipElement();
+        }
+    }
+
+    private DataEntry readDataEntry() throws XMLStreamException, ServiceInvocationException {
+        assertNested("ot:dataEntry");
+        if (!nextChildElement() || !is(OT_NS, "DataEntry")) {
+            throw new NonCanonicalRdfException("Expected an ot:DataEntry node in ot:dataEntry");
+        }
+        DataEntry dataEntry = new DataEntry();
+        List<FeatureValue> featureValues = new ArrayList<FeatureValue>();
+        while (nextChildElement()) {
+            if (is(OT_NS, "compound")) {
+                dataEntry.setConformer(readCompound());
+            } else if (is(OT_NS, "values")) {
+                featureValues.add(readFeatureValue());
+            } else {
+                skipElement();
+            }
+        }
+        dataEntry.setFeatureValues(featureValues);
+        closeParent();
+        return dataEntry;
+    }
+
+    private Compound readCompound() throws XMLStreamException, ServiceInvocationException {
+        String uri = reader.getAttributeValue(RDF_NS, "resource");
+        MetaInfo compoundMeta = new MetaInfoImpl();
+        if (uri != null) {
+            skipElement();
+        } else {
+            if (!nextChildElement() || (uri = reader.getAttributeValue(RDF_NS, "about")) == null) {
+                throw new NonCanonicalRdfException("The compound of a data entry is not identified by a URI");
+            }
+            readDescription(compoundMeta);
+            closeParent();
+        }
+        if (skippedNodes.contains(uri)) {
+            throw new NonCanonicalRdfException("Compound '" + uri + "' is described outside its data entry");
+        }
+        Compound compound = null;
+        try {
+            compound = new Compound(new VRI(uri));
+        } catch (URISyntaxException ex) {
+            throw new BadRequestException("Not a valid compound URI : '" + uri + "'", ex);
+        } catch (ToxOtisException ex) {
+            throw new BadRequestException("Not a valid compound URI : '" + uri + "'. "
+                    + "Parsing of remote resource won't continue!", ex);
+        }
+        compound.setMeta(compoundMeta.isEmpty() ? null : compoundMeta);
+        return compound;
+    }
+
+    private FeatureValue readFeatureValue() throws XMLStreamException, ServiceInvocationException {
+        assertNested("ot:values");
+        if (!nextChildElement() || !is(OT_NS, "FeatureValue")) {
+            throw new NonCanonicalRdfException("Expected an ot:FeatureValue node in ot:values");
+        }
+        Feature feature = null;
+        LiteralValue value = null;
+        while (nextChildElement()) {
+            if (is(OT_NS, "feature")) {
+                String featureUri = reader.getAttributeValue(RDF_NS, "resource");
+                if (featureUri != null) {
+                    skipElement();
+                } else {
+                    if (!nextChildElement() || (featureUri = reader.getAttributeValue(RDF_NS, "about")) == null) {
+                        throw new NonCanonicalRdfException("The feature of a feature value is not identified by a URI");
+                    }
+                    readFeature(featureUri);
+                    closeParent();
+                }
+                if (skippedNodes.contains(featureUri)) {
+                    throw new NonCanonicalRdfException("Feature '" + featureUri + "' is described before it is referenced");
+                }
+                feature = feature(featureUri);
+            } else if (is(OT_NS, "value")) {
+                value = readValue();
+            } else {
+                skipElement();
+            }
+        }
+        closeParent();
+        if (feature == null) {
+            throw new ServiceInvocationException("Error while parsing a feature value node: No features where assigned to the feature value node!");
+        }
+        if (value == null) {
+            throw new ServiceInvocationException("Error while parsing a feature value node: No value is assigned to the feature value node!");
+        }
+        return new FeatureValue(feature, value);
+    }
+
+    /*
+     * Typed the same way as in FeatureValueSpider
+     */
+    private LiteralValue readValue() throws XMLStreamException, ServiceInvocationException {
+        String datatype = reader.getAttributeValue(RDF_NS, "datatype");
+        String text = reader.getElementText();
+        try {
+            if (XSDDatatype.XSDdouble.getURI().equals(datatype)) {
+                return new LiteralValue<Double>(Double.parseDouble(text.trim()), XSDDatatype.XSDdouble);
+            } else if (XSDDatatype.XSDinteger.getURI().equals(datatype)) {
+                return new LiteralValue<Integer>(Integer.parseInt(text.trim()), XSDDatatype.XSDinteger);
+            } else if (XSDDatatype.XSDfloat.getURI().equals(datatype)) {
+                return new LiteralValue<Float>(Float.parseFloat(text.trim()), XSDDatatype.XSDfloat);
+            }
+        } catch (NumberFormatException ex) {
+            throw new BadRequestException("Value '" + text + "' is not a valid " + datatype, ex);
+        }
+        return new LiteralValue<String>(text, XSDDatatype.XSDstring);
+    }
+
+    private void readFeature(String uri) throws XMLStreamException {
+        feature(uri);
+        FeatureDeclaration declaration = declarations.get(uri);
+        if (declaration == null) {
+            declaration = new FeatureDeclaration();
+            declarations.put(uri, declaration);
+        }
+        if (!is(RDF_NS, "Description")) {
+            declaration.types.add(reader.getNamespaceURI() + reader.getLocalName());
+        }
+        while (nextChildElement()) {
+            if (is(RDF_NS, "type")) {
+                String type = reader.getAttributeValue(RDF_NS, "resource");
+                if (type != null) {
+                    declaration.types.add(type);
+                }
+                skipElement();
+            } else if (is(OT_NS, "units")) {
+                declaration.units = reader.getElementText();
+            } else if (is(OT_NS, "acceptValue")) {
+                XSDDatatype datatype = datatype(reader.getAttributeValue(RDF_NS, "datatype"));
+                declaration.acceptValues.add(new LiteralValue(reader.getElementText(), datatype));
+            } else if (!readMetaDatum(declaration.meta)) {
+                skipElement();
+            }
+        }
+    }
+
+    private void readClass(String uri) throws XMLStreamException {
+        while (nextChildElement()) {
+            String superClass = null;
+            if (is(RDFS_NS, "subClassOf")) {
+                superClass = reader.getAttributeValue(RDF_NS, "resource");
+            }
+            if (superClass != null) {
+                Set<String> supers = superClasses.get(uri);
+                if (supers == null) {
+                    supers = new HashSet<String>();
+                    superClasses.put(uri, supers);
+                }
+                supers.add(superClass);
+            }
+            skipElement();
+        }
+    }
+
+    private void readDescription(MetaInfo meta) throws XMLStreamException {
+        while (nextChildElement()) {
+            if (!readMetaDatum(meta)) {
+                skipElement();
+            }
+        }
+    }
+
+    /*
+     * The same meta data as in MetaInfoSpider are read.
+     */
+    private boolean readMetaDatum(MetaInfo meta) throws XMLStreamException {
+        String ns = reader.getNamespaceURI();
+        String name = reader.getLocalName();
+        if ((DC_NS.equals(ns) && DC_LITERALS.contains(name)) || (RDFS_NS.equals(ns) && "comment".equals(name))) {
+            LiteralValue literal = readLiteral();
+            if (literal == null) {
+                return true;
+            }
+            if ("comment".equals(name)) {
+                meta.addComment(literal);
+            } else if ("title".equals(name)) {
+                meta.addTitle(literal);
+            } else if ("rights".equals(name)) {
+                meta.addRights(literal);
+            } else if ("subject".equals(name)) {
+                meta.addSubject(literal);
+            } else if ("creator".equals(name)) {
+                meta.addCreator(literal);
+            } else if ("description".equals(name)) {
+                meta.addDescription(literal);
+            } else if ("publisher".equals(name)) {
+                meta.addPublisher(literal);
+            } else if ("contributor".equals(name)) {
+                meta.addContributor(literal);
+            } else if ("identifier".equals(name)) {
+                meta.addIdentifier(literal);
+            } else if ("audience".equals(name)) {
+                meta.addAudience(literal);
+            } else {
+                meta.setDate(literal);
+            }
+            return true;
+        } else if (RDFS_NS.equals(ns) && "seeAlso".equals(name)) {
+            ResourceValue seeAlso = readResource();
+            if (seeAlso != null) {
+                meta.addSeeAlso(seeAlso);
+            }
+            return true;
+        } else if (OWL_NS.equals(ns) && "sameAs".equals(name)) {
+            ResourceValue sameAs = readResource();
+            if (sameAs != null) {
+                meta.addSameAs(sameAs);
+            }
+            return true;
+        } else if (OT_NS.equals(ns) && "hasSource".equals(name)) {
+            ResourceValue hasSource = readResource();
+            if (hasSource != null) {
+                meta.addHasSource(hasSource);
+            }
+            return true;
+        }
+        return false;
+    }
+
+    /*
+     * Same as Tarantula#retrievePropertyLiterals
+     */
+    private LiteralValue readLiteral() throws XMLStreamException {
+        XSDDatatype datatype = datatype(reader.getAttributeValue(RDF_NS, "datatype"));
+        String stringVal = reader.getElementText();
+        if (datatype != null && datatype.equals(XSDDatatype.XSDdateTime)) {
+            DateFormat formatter = new SimpleDateFormat("E MMM dd HH:mm:ss Z yyyy", Locale.ENGLISH);
+            try {
+                try {
+                    return new LiteralValue<Date>(formatter.parse(stringVal), datatype);
+                } catch (ParseException ex) {
+                    return new LiteralValue<Date>(new Date(Long.parseLong(stringVal)), datatype);
+                }
+            } catch (NumberFormatException nfe) {
+                logger.warn("Date format not supported.");
+                return null;
+            }
+        }
+        return new LiteralValue(stringVal, datatype);
+    }
+
+    private ResourceValue readResource() throws XMLStreamException {
+        String uri = reader.getAttributeValue(RDF_NS, "resource");
+        if (uri == null) {
+            uri = reader.getAttributeValue(RDF_NS, "about");
+        }
+        skipElement();
+        if (uri == null) {
+            return null;
+        }
+        try {
+            return new ResourceValue(new VRI(uri), OTClasses.forName(localName(uri)));
+        } catch (URISyntaxException ex) {
+            logger.debug(null, ex);
+            throw new IllegalArgumentException(ex);
+        }
+    }
+
+    private Feature feature(String uri) {
+        Feature feature = features.get(uri);
+        if (feature == null) {
+            feature = new Feature();
+            try {
+                feature.setUri(new VRI(uri));
+            } catch (URISyntaxException ex) {
+                logger.debug(null, ex);
+                throw new IllegalArgumentException(ex);
+            }
+            features.put(uri, feature);
+        }
+        return feature;
+    }
+
+    /*
+     * Applies the collected declarations on the (shared) features the same way
+     * FeatureSpider does.
+     */
+    private void completeFeatures() {
+        for (Map.Entry<String, Feature> entry : features.entrySet()) {
+            Feature feature = entry.getValue();
+            FeatureDeclaration declaration = declarations.get(entry.getKey());
+            if (declaration == null) {
+                declaration = new FeatureDeclaration();
+            }
+            Set<OntologicalClass> ontClasses = new HashSet<OntologicalClass>();
+            Set<String> visited = new HashSet<String>();
+            for (String type : declaration.types) {
+                if (type.startsWith(OT_NS)) {
+                    collectTypes(type, ontClasses, visited);
+                }
+            }
+            feature.setOntologicalClasses(ontClasses);
+            feature.setUnits(declaration.units);
+            if (ontClasses.contains(OTClasses.nominalFeature())) {
+                feature.setAdmissibleValues(declaration.acceptValues);
+            }
+            feature.setMeta(declaration.meta.isEmpty() ? null : declaration.meta);
+        }
+    }
+
+    private void collectTypes(String type, Set<OntologicalClass> ontClasses, Set<String> visited) {
+        if (!visited.add(type)) {
+            return;
+        }
+        String name = localName(type);
+        OntologicalClass oc = OTClasses.forName(name);
+        ontClasses.add(oc != null ? oc : new OntologicalClassImpl(name, type.substring(0, type.length() - name.length())));
+        Set<String> supers = superClasses.get(type);
+        if (supers != null) {
+            for (String superClass : supers) {
+                collectTypes(superClass, ontClasses, visited);
+            }
+        }
+    }
+
+    private boolean isFeatureClass(String ns, String name) {
+        return OT_NS.equals(ns) && ("Feature".equals(name) || "NumericFeature".equals(name)
+                || "NominalFeature".equals(name) || "StringFeature".equals(name));
+    }
+
+    private static XSDDatatype datatype(String uri) {
+        if (uri == null) {
+            return null;
+        }
+        RDFDatatype datatype = TypeMapper.getInstance().getTypeByName(uri);
+        return datatype instanceof XSDDatatype ? (XSDDatatype) datatype : null;
+    }
+
+    private static String localName(String uri) {
+        int index = Math.max(uri.lastIndexOf('#'), uri.lastIndexOf('/'));
+        return uri.substring(index + 1);
+    }
+
+    private boolean is(String ns, String name) {
+        return name.equals(reader.getLocalName()) && ns.equals(reader.getNamespaceURI());
+    }
+
+    /*
+     * Properties whose value is a reference to a node described elsewhere cannot
+     * be resolved in a single pass.
+     */
+    private void assertNested(String property) throws NonCanonicalRdfException {
+        if (reader.getAttributeValue(RDF_NS, "resource") != null || reader.getAttributeValue(RDF_NS, "nodeID") != null) {
+            throw new NonCanonicalRdfException("The object of " + property + " is not nested in the document");
+        }
+    }
+
+    /**
+     * Moves to the next child of the current element.
+     * @return
+     *      <code>true</code> if the cursor is on the start of a child element or
+     *      <code>false</code> if it has reached the end of the current element.
+     */
+    private boolean nextChildElement() throws XMLStreamException {
+        while (reader.hasNext()) {
+            int event = reader.next();
+            if (event == XMLStreamConstants.START_ELEMENT) {
+                return true;
+            } else if (event == XMLStreamConstants.END_ELEMENT || event == XMLStreamConstants.END_DOCUMENT) {
+                return false;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Having read a nested node, consumes the remainder of the property element
+     * that contains it; a second nested node is not expected.
+     */
+    private void closeParent() throws XMLStreamException, NonCanonicalRdfException {
+        if (nextChildElement()) {
+            throw new NonCanonicalRdfException("Property element with more than one nested nodes");
+        }
+    }
+
+    private void skipElement() throws XMLStreamException {
+        int depth = 1;
+        while (depth > 0 && reader.hasNext()) {
+            int event = reader.next();
+            if (event == XMLStreamConstants.START_ELEMENT) {
+                depth++;
+            } else if (event == XMLStreamConstants.END_ELEMENT) {
+                depth--;
+            }
+        }
+    }
+}
@@ -38,10 +38,17 @@ import com.hp.hpl.jena.rdf.model.Resource;
 import com.hp.hpl.jena.rdf.model.Statement;
 import java.io.IOException;
 import java.net.URISyntaxException;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.Locale;
+import org.opentox.toxotis.client.AbstractClient;
 import org.opentox.toxotis.client.ClientFactory;
+import org.opentox.toxotis.client.HttpStatusCodes;
 import org.opentox.toxotis.client.IGetClient;
+import org.opentox.toxotis.client.RequestHeaders;
 import org.opentox.toxotis.client.VRI;
 import org.opentox.toxotis.client.collection.Media;
+import org.opentox.toxotis.client.transport.IHttpTransport;
 import org.opentox.toxotis.core.component.Task;
 import org.opentox.toxotis.exceptions.impl.ToxOtisException;
 import org.opentox.toxotis.ontology.collection.OTDatatypeProperties;
@@ -51,6 +58,7 @@ import org.opentox.toxotis.core.component.User;
 import org.opentox.toxotis.exceptions.impl.ConnectionException;
 import org.opentox.toxotis.exceptions.impl.RemoteServiceException;
 import org.opentox.toxotis.exceptions.impl.ServiceInvocationException;
+import org.opentox.toxotis.exceptions.impl.ServiceUnavailable;
 
 /**
  *
@@ -62,6 +70,7 @@ public class TaskSpider extends Tarantula<Task> {
     private VRI vri;
     private AuthenticationToken token;
     private int httpStatus = -1;
+    private long retryAfter = -1;
     private org.slf4j.Logger logger = org.slf4j.LoggerFactory.getLogger(TaskSpider.class);
 
     public TaskSpider() {
@@ -72,13 +81,38 @@ public class TaskSpider extends Tarantula<Task> {
     }
 
     public TaskSpider(VRI vri, AuthenticationToken token) throws ServiceInvocationException {
+        this(vri, token, null);
+    }
+
+    /**
+     * Downloads a task using the given transport instead of the default one of
+     * the {@link ClientFactory}, e.g. to apply timeouts.
+     * @param vri
+     *      URI of the task.
+     * @param token
+     *      Token used to access the task (may be <code>null</code>).
+     * @param transport
+     *      Transport of the request or <code>null</code> for the default one.
+     * @throws ServiceInvocationException
+     *      In case the task cannot be downloaded.
+     */
+    public TaskSpider(VRI vri, AuthenticationToken token, IHttpTransport transport) throws ServiceInvocationException {
         this.vri = vri;
         this.token = token;
         IGetClient client = ClientFactory.createGetClient(vri);
+        if (transport != null && client instanceof AbstractClient) {
+            ((AbstractClient) client).setTransport(transport);
+        }
         client.authorize(token);
         client.setMediaType(Media.APPLICATION_RDF_XML);
         try {
             final int status = client.getResponseCode();
+            retryAfter = parseRetryAfter(client.getResponseHeader(RequestHeaders.RETRY_AFTER));
+            if (status == HttpStatusCodes.ServiceUnavailable.getStatus()) {
+                ServiceUnavailable unavailable = new ServiceUnavailable("Task service unavailable : '" + vri + "' (status 503)");
+                unavailable.setRetryAfter(retryAfter);
+                throw unavailable;
+            }
             assessHttpStatus(status, vri);
             httpStatus = status;
             setOntModel(client.getResponseOntModel());
@@ -101,6 +135,36 @@ public class TaskSpider extends Tarantula<Task> {
         super(resource, model);
     }
 
+    /**
+     * The delay suggested by the task service through the <code>Retry-After</code>
+     * header of its response.
+     * @return
+     *      Delay in milliseconds or <code>-1</code> if the service did not
+     *      specify one.
+     */
+    public long getRetryAfter() {
+        return retryAfter;
+    }
+
+    private long parseRetryAfter(String value) {
+        if (value == null) {
+            return -1;
+        }
+        value = value.trim();
+        try {
+            return Math.max(0, Long.parseLong(value) * 1000L);
+        } catch (NumberFormatException ex) {
+            // Not in seconds; try HTTP-date
+        }
+        try {
+            SimpleDateFormat httpDate = new SimpleDateFormat("EEE, dd MMM yyyy HH:mm:ss zzz", Locale.US);
+            return Math.max(0, httpDate.parse(value).getTime() - System.currentTimeMillis());
+        } catch (ParseException ex) {
+            logger.debug("Unparseable Retry-After header : " + value, ex);
+            return -1;
+        }
+    }
+
     @Override
     public Task parse() throws ServiceInvocationException {
         Task task = new Task(vri);
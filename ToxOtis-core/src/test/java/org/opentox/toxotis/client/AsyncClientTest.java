@@ -0,0 +1,143 @@
+/*
+ *
+ * ToxOtis
+ *
+ * ToxOtis is the Greek word for Sagittarius, that actually means ‘archer’. ToxOtis
+ * is a Java interface to the predictive toxicology services of OpenTox. ToxOtis is
+ * being developed to help both those who need a painless way to consume OpenTox
+ * services and for ambitious service providers that don’t want to spend half of
+ * their time in RDF parsing and creation.
+ *
+ * Copyright (C) 2009-2010 Pantelis Sopasakis & Charalampos Chomenides
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Contact:
+ * Pantelis Sopasakis
+ * chvng@mail.ntua.gr
+ * Address: Iroon Politechniou St. 9, Zografou, Athens Greece
+ * tel. +30 210 7723236
+ *
+ */
+package org.opentox.toxotis.client;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.opentox.toxotis.client.transport.PooledHttpTransport;
+import org.opentox.toxotis.exceptions.impl.ServiceInvocationException;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author chung
+ */
+public class AsyncClientTest {
+
+    private HttpServer server;
+    private String baseUri;
+
+    public AsyncClientTest() {
+    }
+
+    @Before
+    public void setUp() throws Exception {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/", new HttpHandler() {
+
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                String path = exchange.getRequestURI().getPath();
+                int status = path.startsWith("/missing") ? 404 : 200;
+                byte[] body = ("http://127.0.0.1/resource" + path + "\n").getBytes("UTF-8");
+                exchange.sendResponseHeaders(status, body.length);
+                OutputStream os = exchange.getResponseBody();
+                os.write(body);
+                os.close();
+            }
+        });
+        server.start();
+        baseUri = "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    @After
+    public void tearDown() {
+        server.stop(0);
+    }
+
+    @Test
+    public void testFanOut() throws Exception {
+        List<Future<Set<VRI>>> futures = new ArrayList<Future<Set<VRI>>>();
+        for (int i = 0; i < 20; i++) {
+            IAsyncClient client = ClientFactory.createAsyncClient(
+                    ClientFactory.createGetClient(new VRI(baseUri + "/" + i)));
+            futures.add(client.getResponseUriList());
+        }
+        for (int i = 0; i < futures.size(); i++) {
+            Set<VRI> uris = futures.get(i).get();
+            assertEquals(1, uris.size());
+            assertEquals(new VRI("http://127.0.0.1/resource/" + i), uris.iterator().next());
+        }
+    }
+
+    @Test
+    public void testResponseCode() throws Exception {
+        IAsyncClient client = ClientFactory.createAsyncClient(
+                ClientFactory.createGetClient(new VRI(baseUri + "/missing")));
+        assertEquals(Integer.valueOf(404), client.getResponseCode().get());
+        client.close();
+    }
+
+    @Test
+    public void testFailure() throws Exception {
+        HttpServer stopped = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        int port = stopped.getAddress().getPort();
+        stopped.stop(0);
+        IAsyncClient client = ClientFactory.createAsyncClient(
+                ClientFactory.createGetClient(new VRI("http://127.0.0.1:" + port + "/")));
+        try {
+            client.getResponseText().get();
+            fail("Connection should have been refused");
+        } catch (ExecutionException ex) {
+            assertTrue(ex.getCause() instanceof ServiceInvocationException);
+        }
+    }
+
+    @Test
+    public void testPostReleasesConnection() throws Exception {
+        PooledHttpTransport transport = new PooledHttpTransport();
+        IPostClient postClient = ClientFactory.createPostClient(new VRI(baseUri + "/post"));
+        ((AbstractClient) postClient).setTransport(transport);
+        postClient.addPostParameter("a", "b");
+        IAsyncClient client = ClientFactory.createAsyncClient(postClient);
+        assertEquals(Integer.valueOf(200), client.post().get());
+        assertEquals(0, transport.getActiveConnections());
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void testPostOnGetClient() throws Exception {
+        ClientFactory.createAsyncClient(ClientFactory.createGetClient(new VRI(baseUri))).post();
+    }
+}
@@ -0,0 +1,158 @@
+/*
+ *
+ * ToxOtis
+ *
+ * ToxOtis is the Greek word for Sagittarius, that actually means ‘archer’. ToxOtis
+ * is a Java interface to the predictive toxicology services of OpenTox. ToxOtis is
+ * being developed to help both those who need a painless way to consume OpenTox
+ * services and for ambitious service providers that don’t want to spend half of
+ * their time in RDF parsing and creation.
+ *
+ * Copyright (C) 2009-2010 Pantelis Sopasakis & Charalampos Chomenides
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Contact:
+ * Pantelis Sopasakis
+ * chvng@mail.ntua.gr
+ * Address: Iroon Politechniou St. 9, Zografou, Athens Greece
+ * tel. +30 210 7723236
+ *
+ */
+package org.opentox.toxotis.client.transport;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.InetSocketAddress;
+import java.net.SocketTimeoutException;
+import java.net.URL;
+import java.util.zip.GZIPOutputStream;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author chung
+ */
+public class PooledHttpTransportTest {
+
+    private static final String BODY = "Hello ToxOtis!";
+    private HttpServer server;
+    private URL plainUrl;
+    private URL gzipUrl;
+
+    public PooledHttpTransportTest() {
+    }
+
+    @Before
+    public void setUp() throws Exception {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/plain", new HttpHandler() {
+
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                byte[] body = BODY.getBytes("UTF-8");
+                exchange.sendResponseHeaders(200, body.length);
+                OutputStream os = exchange.getResponseBody();
+                os.write(body);
+                os.close();
+            }
+        });
+        server.createContext("/gzip", new HttpHandler() {
+
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+                GZIPOutputStream gzip = new GZIPOutputStream(bytes);
+                gzip.write(BODY.getBytes("UTF-8"));
+                gzip.close();
+                exchange.getResponseHeaders().add("Content-Encoding", "gzip");
+                exchange.sendResponseHeaders(200, bytes.size());
+                OutputStream os = exchange.getResponseBody();
+                os.write(bytes.toByteArray());
+                os.close();
+            }
+        });
+        server.start();
+        int port = server.getAddress().getPort();
+        plainUrl = new URL("http://127.0.0.1:" + port + "/plain");
+        gzipUrl = new URL("http://127.0.0.1:" + port + "/gzip");
+    }
+
+    @After
+    public void tearDown() {
+        server.stop(0);
+    }
+
+    private static String read(InputStream is) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        byte[] buffer = new byte[256];
+        int read;
+        while ((read = is.read(buffer)) != -1) {
+            bytes.write(buffer, 0, read);
+        }
+        is.close();
+        return new String(bytes.toByteArray(), "UTF-8");
+    }
+
+    @Test
+    public void testKeepAliveAndMetrics() throws Exception {
+        PooledHttpTransport transport = new PooledHttpTransport();
+        for (int i = 0; i < 3; i++) {
+            HttpURLConnection con = transport.openConnection(plainUrl);
+            assertEquals(1, transport.getActiveConnections());
+            assertEquals(BODY, read(transport.getInputStream(con, false)));
+            assertEquals(0, transport.getActiveConnections());
+            transport.release(con); // second release is a no-op
+        }
+        assertEquals(3, transport.getRequestCount());
+        assertEquals(3, transport.getKeptAliveCount());
+        assertEquals(0, transport.getDisconnectedCount());
+        assertEquals(1, transport.getPeakActiveConnections());
+    }
+
+    @Test
+    public void testGzipDecoding() throws Exception {
+        PooledHttpTransport transport = new PooledHttpTransport();
+        HttpURLConnection con = transport.openConnection(gzipUrl);
+        assertEquals(BODY, read(transport.getInputStream(con, false)));
+        assertEquals(1, transport.getCompressedResponseCount());
+    }
+
+    @Test
+    public void testPerHostLimit() throws Exception {
+        PooledHttpTransport transport = new PooledHttpTransport(1, 5000, 5000, 100, true);
+        HttpURLConnection first = transport.openConnection(plainUrl);
+        try {
+            transport.openConnection(plainUrl);
+            fail("A second connection to the same host should not be granted");
+        } catch (SocketTimeoutException ex) {
+            // expected
+        }
+        assertEquals(1, transport.getAcquireTimeoutCount());
+        assertEquals(1, transport.getWaitCount());
+        transport.release(first);
+        HttpURLConnection second = transport.openConnection(plainUrl);
+        transport.release(second);
+        assertEquals(0, transport.getActiveConnections());
+    }
+}
@@ -0,0 +1,111 @@
+/*
+ *
+ * ToxOtis
+ *
+ * ToxOtis is the Greek word for Sagittarius, that actually means ‘archer’. ToxOtis
+ * is a Java interface to the predictive toxicology services of OpenTox. ToxOtis is
+ * being developed to help both those who need a painless way to consume OpenTox
+ * services and for ambitious service providers that don’t want to spend half of
+ * their time in RDF parsing and creation.
+ *
+ * Copyright (C) 2009-2010 Pantelis Sopasakis & Charalampos Chomenides
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Contact:
+ * Pantelis Sopasakis
+ * chvng@mail.ntua.gr
+ * Address: Iroon Politechniou St. 9, Zografou, Athens Greece
+ * tel. +30 210 7723236
+ *
+ */
+package org.opentox.toxotis.core.component;
+
+import com.hp.hpl.jena.datatypes.xsd.XSDDatatype;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Test;
+import org.opentox.toxotis.client.collection.Services;
+import org.opentox.toxotis.ontology.LiteralValue;
+import org.opentox.toxotis.ontology.collection.OTClasses;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author chung
+ */
+public class ColumnarDatasetTest {
+
+    public ColumnarDatasetTest() {
+    }
+
+    @Test
+    public void testColumnarDataset() throws Exception {
+        Dataset ds = new Dataset(Services.anonymous().augment("dataset", "1"));
+        Feature numeric = new Feature(Services.anonymous().augment("feature", "1"));
+        numeric.getOntologicalClasses().add(OTClasses.numericFeature());
+        Feature nominal = new Feature(Services.anonymous().augment("feature", "2"));
+        nominal.getOntologicalClasses().add(OTClasses.nominalFeature());
+        nominal.getAdmissibleValues().add(new LiteralValue<String>("yes", XSDDatatype.XSDstring));
+        nominal.getAdmissibleValues().add(new LiteralValue<String>("no", XSDDatatype.XSDstring));
+        List<DataEntry> dataEntries = new ArrayList<DataEntry>();
+        for (int i = 0; i < 100; i++) {
+            DataEntry de = new DataEntry();
+            de.setConformer(new Compound(Services.anonymous().augment("compound", Integer.toString(i))));
+            if (i % 10 != 0) {
+                de.addFeatureValue(new FeatureValue(numeric, new LiteralValue<Double>(i * 1.5, XSDDatatype.XSDdouble)));
+            }
+            de.addFeatureValue(new FeatureValue(nominal, new LiteralValue<String>(i % 3 == 0 ? "yes" : "no", XSDDatatype.XSDstring)));
+            dataEntries.add(de);
+        }
+        ds.setDataEntries(dataEntries);
+
+        ColumnarDataset columnar = new ColumnarDataset(ds);
+        assertEquals(100, columnar.size());
+        assertEquals(2, columnar.getFeatures().size());
+        int numericColumn = columnar.indexOf(numeric);
+        int nominalColumn = columnar.indexOf(nominal);
+        assertTrue(columnar.isNumeric(numericColumn));
+        assertFalse(columnar.isNumeric(nominalColumn));
+        assertTrue(columnar.isMissing(10, numericColumn));
+        assertEquals(7.5, columnar.getDouble(5, numericColumn), 1e-12);
+        assertEquals("yes", columnar.getString(3, nominalColumn));
+        assertEquals("no", columnar.getString(4, nominalColumn));
+
+        DataEntry view = columnar.getDataEntries().get(10);
+        assertEquals(dataEntries.get(10).getConformer().getUri(), view.getConformer().getUri());
+        assertEquals(1, view.getFeatureValues().size());
+        assertSame(nominal, view.getFeatureValue(0).getFeature());
+
+        Dataset asDataset = columnar.asDataset();
+        assertEquals(ds.getUri(), asDataset.getUri());
+        assertEquals(ds.getInstances().toString(), asDataset.getInstances().toString());
+    }
+
+    @Test
+    public void testColumnTypeResolvedOnFinish() throws Exception {
+        Feature feature = new Feature(Services.anonymous().augment("feature", "1"));
+        ColumnarDataset columnar = new ColumnarDataset();
+        DataEntry de = new DataEntry();
+        de.setConformer(new Compound(Services.anonymous().augment("compound", "1")));
+        de.addFeatureValue(new FeatureValue(feature, new LiteralValue<Double>(2.0, XSDDatatype.XSDdouble)));
+        columnar.consume(de);
+        assertTrue(columnar.isNumeric(0));
+        // the type of the feature becomes known after the data entries have been read
+        feature.getOntologicalClasses().add(OTClasses.stringFeature());
+        columnar.finish(new Dataset(Services.anonymous().augment("dataset", "1")));
+        assertFalse(columnar.isNumeric(0));
+        assertEquals("2.0", columnar.getString(0, 0));
+    }
+}
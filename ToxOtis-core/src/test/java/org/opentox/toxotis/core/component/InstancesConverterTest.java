@@ -0,0 +1,190 @@
+/*
+ *
+ * ToxOtis
+ *
+ * ToxOtis is the Greek word for Sagittarius, that actually means ‘archer’. ToxOtis
+ * is a Java interface to the predictive toxicology services of OpenTox. ToxOtis is
+ * being developed to help both those who need a painless way to consume OpenTox
+ * services and for ambitious service providers that don’t want to spend half of
+ * their time in RDF parsing and creation.
+ *
+ * Copyright (C) 2009-2010 Pantelis Sopasakis & Charalampos Chomenides
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Contact:
+ * Pantelis Sopasakis
+ * chvng@mail.ntua.gr
+ * Address: Iroon Politechniou St. 9, Zografou, Athens Greece
+ * tel. +30 210 7723236
+ *
+ */
+package org.opentox.toxotis.core.component;
+
+import com.hp.hpl.jena.datatypes.xsd.XSDDatatype;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import org.junit.Test;
+import org.opentox.toxotis.client.collection.Services;
+import org.opentox.toxotis.ontology.LiteralValue;
+import org.opentox.toxotis.ontology.collection.OTClasses;
+import weka.core.Attribute;
+import weka.core.FastVector;
+import weka.core.Instance;
+import weka.core.Instances;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author chung
+ */
+public class InstancesConverterTest {
+
+    private static final String[] NOMINAL_VALUES = {"active", "inactive", "unknown"};
+
+    public InstancesConverterTest() {
+    }
+
+    private Dataset createDataset(int nCompounds, int nNumeric) throws Exception {
+        Random rng = new Random(12345);
+        Dataset ds = new Dataset(Services.anonymous().augment("dataset", "1"));
+        List<Feature> features = new ArrayList<Feature>();
+        for (int i = 0; i < nNumeric; i++) {
+            Feature numeric = new Feature(Services.anonymous().augment("feature", Integer.toString(i)));
+            numeric.getOntologicalClasses().add(OTClasses.numericFeature());
+            features.add(numeric);
+        }
+        Feature string = new Feature(Services.anonymous().augment("feature", "string"));
+        string.getOntologicalClasses().add(OTClasses.stringFeature());
+        Feature untyped = new Feature(Services.anonymous().augment("feature", "untyped"));
+        Feature nominal = new Feature(Services.anonymous().augment("feature", "nominal"));
+        nominal.getOntologicalClasses().add(OTClasses.nominalFeature());
+        nominal.getAdmissibleValues().add(new LiteralValue<String>(NOMINAL_VALUES[0], XSDDatatype.XSDstring));
+        nominal.getAdmissibleValues().add(new LiteralValue<String>(NOMINAL_VALUES[1], XSDDatatype.XSDstring));
+        List<DataEntry> dataEntries = new ArrayList<DataEntry>();
+        for (int i = 0; i < nCompounds; i++) {
+            DataEntry de = new DataEntry();
+            de.setConformer(new Compound(Services.anonymous().augment("compound", Integer.toString(i))));
+            for (Feature numeric : features) {
+                if (rng.nextInt(10) == 0) {
+                    continue; // missing value
+                }
+                switch (rng.nextInt(4)) {
+                    case 0:
+                        de.addFeatureValue(new FeatureValue(numeric, new LiteralValue<Float>(rng.nextFloat(), XSDDatatype.XSDfloat)));
+                        break;
+                    case 1:
+                        de.addFeatureValue(new FeatureValue(numeric, new LiteralValue<Integer>(rng.nextInt(), XSDDatatype.XSDinteger)));
+                        break;
+                    case 2:
+                        de.addFeatureValue(new FeatureValue(numeric, new LiteralValue<String>("n/a", XSDDatatype.XSDstring)));
+                        break;
+                    default:
+                        de.addFeatureValue(new FeatureValue(numeric, new LiteralValue<Double>(rng.nextGaussian(), XSDDatatype.XSDdouble)));
+                }
+            }
+            de.addFeatureValue(new FeatureValue(string, new LiteralValue<String>("s" + rng.nextInt(50), XSDDatatype.XSDstring)));
+            de.addFeatureValue(new FeatureValue(untyped, new LiteralValue<String>("u" + rng.nextInt(5), XSDDatatype.XSDstring)));
+            de.addFeatureValue(new FeatureValue(nominal,
+                    new LiteralValue<String>(NOMINAL_VALUES[rng.nextInt(NOMINAL_VALUES.length)], XSDDatatype.XSDstring)));
+            dataEntries.add(de);
+        }
+        ds.setDataEntries(dataEntries);
+        return ds;
+    }
+
+    @Test
+    public void testSmallDataset() throws Exception {
+        Dataset ds = createDataset(50, 10);
+        assertEquals(legacyInstances(ds).toString(), ds.getInstances().toString());
+        assertTrue(ds.getTimeInstancesConversion() >= 0);
+        assertTrue(ds.getTimeInstancesValues() >= 0);
+    }
+
+    @Test
+    public void testLargeDataset() throws Exception {
+        Dataset ds = createDataset(2000, 40);
+        Instances expected = legacyInstances(ds);
+        Instances actual = ds.getInstances();
+        assertEquals(expected.numInstances(), actual.numInstances());
+        assertEquals(expected.toString(), actual.toString());
+    }
+
+    private static boolean is(Feature feature, org.opentox.toxotis.ontology.OntologicalClass oc) {
+        return feature.getOntologicalClasses().contains(oc);
+    }
+
+    /*
+     * The conversion as implemented before InstancesConverter
+     */
+    private static Instances legacyInstances(Dataset ds) {
+        FastVector attributes = new FastVector();
+        Set<Feature> features = new LinkedHashSet<Feature>();
+        for (DataEntry dataEntry : ds.getDataEntries()) {
+            for (FeatureValue featureValue : dataEntry.getFeatureValues()) {
+                features.add(featureValue.getFeature());
+            }
+        }
+        attributes.addElement(new Attribute(Dataset.COMPOUND_URI, (FastVector) null));
+        for (Feature feature : features) {
+            if (is(feature, OTClasses.nominalFeature())) {
+                FastVector nominalFVec = new FastVector(feature.getAdmissibleValues().size());
+                for (LiteralValue value : feature.getAdmissibleValues()) {
+                    nominalFVec.addElement(value.getValue());
+                }
+                attributes.addElement(new Attribute(feature.getUri().getStringNoQuery(), nominalFVec));
+            } else if (!is(feature, OTClasses.stringFeature()) && is(feature, OTClasses.numericFeature())) {
+                attributes.addElement(new Attribute(feature.getUri().getStringNoQuery()));
+            } else {
+                attributes.addElement(new Attribute(feature.getUri().getStringNoQuery(), (FastVector) null));
+            }
+        }
+        Instances data = new Instances(ds.getUri().getStringNoQuery(), attributes, 0);
+        for (DataEntry dataEntry : ds.getDataEntries()) {
+            double[] vals = new double[data.numAttributes()];
+            for (int i = 0; i < data.numAttributes(); i++) {
+                vals[i] = Instance.missingValue();
+            }
+            vals[data.attribute(Dataset.COMPOUND_URI).index()] =
+                    data.attribute(Dataset.COMPOUND_URI).addStringValue(dataEntry.getConformer().getUri().getStringNoQuery());
+            for (FeatureValue featureValue : dataEntry.getFeatureValues()) {
+                Feature feature = featureValue.getFeature();
+                String featureName = feature.getUri().getStringNoQuery();
+                LiteralValue value = featureValue.getValue();
+                boolean nominal = is(feature, OTClasses.nominalFeature());
+                if (!nominal && !is(feature, OTClasses.stringFeature()) && is(feature, OTClasses.numericFeature())) {
+                    try {
+                        vals[data.attribute(featureName).index()] = Double.parseDouble(value.getValue().toString());
+                    } catch (NumberFormatException ex) {
+                        // missing value
+                    }
+                } else if (!nominal) {
+                    vals[data.attribute(featureName).index()] =
+                            data.attribute(featureName).addStringValue(value.getValue().toString());
+                } else {
+                    vals[data.attribute(featureName).index()] =
+                            data.attribute(featureName).indexOfValue(value.getValue().toString());
+                }
+            }
+            Instance valuesInstance = new Instance(1.0, vals);
+            if (data.checkInstance(valuesInstance)) {
+                data.add(valuesInstance);
+            }
+        }
+        return data;
+    }
+}
@@ -0,0 +1,91 @@
+/*
+ *
+ * ToxOtis
+ *
+ * ToxOtis is the Greek word for Sagittarius, that actually means ‘archer’. ToxOtis
+ * is a Java interface to the predictive toxicology services of OpenTox. ToxOtis is
+ * being developed to help both those who need a painless way to consume OpenTox
+ * services and for ambitious service providers that don’t want to spend half of
+ * their time in RDF parsing and creation.
+ *
+ * Copyright (C) 2009-2010 Pantelis Sopasakis & Charalampos Chomenides
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Contact:
+ * Pantelis Sopasakis
+ * chvng@mail.ntua.gr
+ * Address: Iroon Politechniou St. 9, Zografou, Athens Greece
+ * tel. +30 210 7723236
+ *
+ */
+package org.opentox.toxotis.ontology;
+
+import java.io.IOException;
+import org.junit.Ignore;
+import org.junit.Test;
+
+/**
+ * Compares the binary format of {@link MetaInfoCodec} with Java serialization
+ * and prints the timings. Not part of the unit tests; remove the
+ * <code>@Ignore</code> annotation to run it.
+ *
+ * @author chung
+ */
+@Ignore("Benchmark; run manually")
+public class MetaInfoCodecBenchmark {
+
+    private static final int ITERATIONS = 5000;
+
+    public MetaInfoCodecBenchmark() {
+    }
+
+    @Test
+    public void benchmark() throws IOException {
+        MetaInfo mi = MetaInfoCodecTest.sampleMeta();
+        byte[] binary = MetaInfoCodec.encode(mi);
+        byte[] legacy = MetaInfoCodec.encodeLegacy(mi);
+        for (int i = 0; i < ITERATIONS; i++) { // warm-up
+            MetaInfoCodec.decode(MetaInfoCodec.encode(mi));
+            MetaInfoCodec.decode(MetaInfoCodec.encodeLegacy(mi));
+        }
+
+        long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            MetaInfoCodec.encode(mi);
+        }
+        long binaryEncode = System.nanoTime() - start;
+        start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            MetaInfoCodec.encodeLegacy(mi);
+        }
+        long legacyEncode = System.nanoTime() - start;
+        start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            MetaInfoCodec.decode(binary);
+        }
+        long binaryDecode = System.nanoTime() - start;
+        start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            MetaInfoCodec.decode(legacy);
+        }
+        long legacyDecode = System.nanoTime() - start;
+
+        System.out.println(String.format("MetaInfo size    : binary %d bytes, serialized %d bytes", binary.length, legacy.length));
+        System.out.println(String.format("MetaInfo encoding: binary %d us, serialized %d us (x%.1f)",
+                binaryEncode / 1000, legacyEncode / 1000, (double) legacyEncode / binaryEncode));
+        System.out.println(String.format("MetaInfo decoding: binary %d us, serialized %d us (x%.1f)",
+                binaryDecode / 1000, legacyDecode / 1000, (double) legacyDecode / binaryDecode));
+    }
+}
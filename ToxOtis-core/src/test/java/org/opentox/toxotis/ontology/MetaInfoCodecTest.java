@@ -0,0 +1,137 @@
+/*
+ *
+ * ToxOtis
+ *
+ * ToxOtis is the Greek word for Sagittarius, that actually means ‘archer’. ToxOtis
+ * is a Java interface to the predictive toxicology services of OpenTox. ToxOtis is
+ * being developed to help both those who need a painless way to consume OpenTox
+ * services and for ambitious service providers that don’t want to spend half of
+ * their time in RDF parsing and creation.
+ *
+ * Copyright (C) 2009-2010 Pantelis Sopasakis & Charalampos Chomenides
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Contact:
+ * Pantelis Sopasakis
+ * chvng@mail.ntua.gr
+ * Address: Iroon Politechniou St. 9, Zografou, Athens Greece
+ * tel. +30 210 7723236
+ *
+ */
+package org.opentox.toxotis.ontology;
+
+import java.io.IOException;
+import java.util.Date;
+import org.junit.Test;
+import org.opentox.toxotis.client.collection.Services;
+import org.opentox.toxotis.ontology.collection.OTClasses;
+import org.opentox.toxotis.ontology.impl.MetaInfoImpl;
+import org.opentox.toxotis.ontology.impl.OntologicalClassImpl;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author chung
+ */
+public class MetaInfoCodecTest {
+
+    public MetaInfoCodecTest() {
+    }
+
+    static MetaInfo sampleMeta() {
+        MetaInfo mi = new MetaInfoImpl();
+        mi.addTitle("any title").addTitle("other title").addDescription("abc").
+                addHasSource(new ResourceValue(Services.anonymous(), OTClasses.model())).
+                addContributor("me").addContributor("you").addCreator("me").
+                addComment("a comment with non-ASCII characters: \u03b1\u03b2\u03b3").
+                addAudience("some audience").
+                addSeeAlso(new ResourceValue(Services.ideaconsult().augment("feature", "100"), OTClasses.feature())).
+                addSameAs(new ResourceValue(Services.ideaconsult().augment("feature", "101"), new OntologicalClassImpl("Custom", "http://example.org#"))).
+                addIdentifier(new LiteralValue<Integer>(15)).
+                addSubject(new LiteralValue<Double>(1.5));
+        mi.setDate(new LiteralValue<Date>(new Date(1300000000000L)));
+        return mi;
+    }
+
+    @Test
+    public void testRoundTrip() throws IOException {
+        MetaInfo mi = sampleMeta();
+        byte[] bytes = MetaInfoCodec.encode(mi);
+        assertEquals('M', bytes[0]);
+        assertEquals('I', bytes[1]);
+        assertEquals(MetaInfoCodec.VERSION, bytes[2]);
+        MetaInfo decoded = MetaInfoCodec.decode(bytes);
+        assertEquals(mi, decoded);
+        assertEquals(mi.getDate().getValue(), decoded.getDate().getValue());
+        assertEquals(Integer.valueOf(15), decoded.getIdentifiers().iterator().next().getValue());
+        assertSame(OTClasses.model(), decoded.getHasSources().iterator().next().getOntologicalClass());
+        assertEquals("http://example.org#Custom", decoded.getSameAs().iterator().next().getOntologicalClass().getUri());
+        assertNull(decoded.getPublishers());
+    }
+
+    @Test
+    public void testEmptyAndNull() throws IOException {
+        assertNull(MetaInfoCodec.encode(null));
+        assertNull(MetaInfoCodec.decode(null));
+        MetaInfo empty = new MetaInfoImpl();
+        MetaInfo decoded = MetaInfoCodec.decode(MetaInfoCodec.encode(empty));
+        assertTrue(decoded.isEmpty());
+        assertEquals(empty, decoded);
+    }
+
+    @Test
+    public void testReadsLegacyFormat() throws IOException {
+        MetaInfo mi = sampleMeta();
+        MetaInfo decoded = MetaInfoCodec.decode(MetaInfoCodec.encodeLegacy(mi));
+        assertEquals(mi, decoded);
+    }
+
+    @Test
+    public void testFallsBackToLegacyForUnknownValues() throws IOException {
+        MetaInfo mi = new MetaInfoImpl().addComment(new LiteralValue<java.math.BigInteger>(java.math.BigInteger.TEN));
+        byte[] bytes = MetaInfoCodec.encode(mi);
+        assertEquals((byte) 0xAC, bytes[0]);
+        assertEquals(mi, MetaInfoCodec.decode(bytes));
+    }
+
+    @Test
+    public void testCorruptBytes() {
+        byte[] bytes;
+        try {
+            bytes = MetaInfoCodec.encode(sampleMeta());
+        } catch (final IOException ex) {
+            throw new AssertionError(ex);
+        }
+        byte[][] corrupt = new byte[][]{
+            new byte[]{1, 2, 3},
+            new byte[]{'M', 'I', (byte) (MetaInfoCodec.VERSION + 1)},
+            java.util.Arrays.copyOf(bytes, bytes.length / 2)
+        };
+        for (byte[] c : corrupt) {
+            try {
+                MetaInfoCodec.decode(c);
+                fail("Corrupt meta-information decoded");
+            } catch (final IOException ex) {
+                // expected
+            }
+        }
+    }
+
+    @Test
+    public void testSmallerThanSerialization() throws IOException {
+        MetaInfo mi = sampleMeta();
+        assertTrue(MetaInfoCodec.encode(mi).length < MetaInfoCodec.encodeLegacy(mi).length);
+    }
+}
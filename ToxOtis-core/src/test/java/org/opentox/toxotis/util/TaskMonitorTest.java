@@ -0,0 +1,141 @@
+/*
+ *
+ * ToxOtis
+ *
+ * ToxOtis is the Greek word for Sagittarius, that actually means ‘archer’. ToxOtis
+ * is a Java interface to the predictive toxicology services of OpenTox. ToxOtis is
+ * being developed to help both those who need a painless way to consume OpenTox
+ * services and for ambitious service providers that don’t want to spend half of
+ * their time in RDF parsing and creation.
+ *
+ * Copyright (C) 2009-2010 Pantelis Sopasakis & Charalampos Chomenides
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Contact:
+ * Pantelis Sopasakis
+ * chvng@mail.ntua.gr
+ * Address: Iroon Politechniou St. 9, Zografou, Athens Greece
+ * tel. +30 210 7723236
+ *
+ */
+package org.opentox.toxotis.util;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.opentox.toxotis.client.VRI;
+import org.opentox.toxotis.core.component.Task;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author chung
+ */
+public class TaskMonitorTest {
+
+    private static final String RESULT = "http://127.0.0.1/model/1";
+    private HttpServer server;
+    private String baseUri;
+    private final AtomicInteger hits = new AtomicInteger();
+    private TaskMonitor monitor;
+
+    public TaskMonitorTest() {
+    }
+
+    @Before
+    public void setUp() throws Exception {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/task", new HttpHandler() {
+
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                int hit = hits.incrementAndGet();
+                String uri = baseUri + exchange.getRequestURI().getPath();
+                int status;
+                String taskStatus;
+                if (hit <= 2) {
+                    status = 202;
+                    taskStatus = "RUNNING";
+                } else if (hit == 3) {
+                    status = 503;
+                    taskStatus = null;
+                    exchange.getResponseHeaders().add("Retry-After", "0");
+                } else {
+                    status = 200;
+                    taskStatus = "COMPLETED";
+                }
+                byte[] body = (taskStatus == null ? "Busy" : rdf(uri, taskStatus)).getBytes("UTF-8");
+                exchange.getResponseHeaders().add("Content-Type", "application/rdf+xml");
+                exchange.sendResponseHeaders(status, body.length);
+                OutputStream os = exchange.getResponseBody();
+                os.write(body);
+                os.close();
+            }
+        });
+        server.start();
+        baseUri = "http://127.0.0.1:" + server.getAddress().getPort();
+        monitor = new TaskMonitor(1, 10, 50, 2.0);
+    }
+
+    @After
+    public void tearDown() {
+        monitor.shutdown();
+        server.stop(0);
+    }
+
+    private static String rdf(String uri, String status) {
+        return "<?xml version=\"1.0\"?>\n"
+                + "<rdf:RDF xmlns:rdf=\"http://www.w3.org/1999/02/22-rdf-syntax-ns#\" "
+                + "xmlns:ot=\"http://www.opentox.org/api/1.1#\">\n"
+                + "  <ot:Task rdf:about=\"" + uri + "\">\n"
+                + "    <ot:hasStatus>" + status + "</ot:hasStatus>\n"
+                + ("COMPLETED".equals(status) ? "    <ot:resultURI>" + RESULT + "</ot:resultURI>\n" : "")
+                + "  </ot:Task>\n"
+                + "</rdf:RDF>\n";
+    }
+
+    @Test
+    public void testMonitorUntilCompletion() throws Exception {
+        VRI taskUri = new VRI(baseUri + "/task/1");
+        Future<Task> first = monitor.monitor(taskUri, null);
+        Future<Task> second = monitor.monitor(taskUri, null);
+        assertSame(first, second);
+        assertEquals(1, monitor.getCoalescedCount());
+
+        Task task = first.get(10, TimeUnit.SECONDS);
+        assertEquals(Task.Status.COMPLETED, task.getStatus());
+        assertEquals(new VRI(RESULT), task.getResultUri());
+        assertEquals(4, hits.get());
+        assertEquals(4, monitor.getPollCount());
+        assertEquals(0, monitor.getPendingCount());
+    }
+
+    @Test
+    public void testCompletedTaskIsNotPolled() throws Exception {
+        Task task = new Task(new VRI(baseUri + "/task/2"));
+        task.setStatus(Task.Status.COMPLETED);
+        assertSame(task, monitor.monitor(task, null).get());
+        assertEquals(0, hits.get());
+    }
+}
@@ -0,0 +1,103 @@
+/*
+ *
+ * ToxOtis
+ *
+ * ToxOtis is the Greek word for Sagittarius, that actually means ‘archer’. ToxOtis
+ * is a Java interface to the predictive toxicology services of OpenTox. ToxOtis is
+ * being developed to help both those who need a painless way to consume OpenTox
+ * services and for ambitious service providers that don’t want to spend half of
+ * their time in RDF parsing and creation.
+ *
+ * Copyright (C) 2009-2010 Pantelis Sopasakis & Charalampos Chomenides
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Contact:
+ * Pantelis Sopasakis
+ * chvng@mail.ntua.gr
+ * Address: Iroon Politechniou St. 9, Zografou, Athens Greece
+ * tel. +30 210 7723236
+ *
+ */
+package org.opentox.toxotis.util.aa;
+
+import org.junit.Test;
+import org.opentox.toxotis.client.VRI;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author chung
+ */
+public class AuthorizationCacheTest {
+
+    private static final long FAR_FUTURE = Long.MAX_VALUE;
+
+    public AuthorizationCacheTest() {
+    }
+
+    @Test
+    public void testNormalizedKey() throws Exception {
+        VRI a = new VRI("http://opentox.ntua.gr:8080/model/1/?b=2&a=1&tokenid=xyz");
+        VRI b = new VRI("http://opentox.ntua.gr:8080/model/1?a=1&b=2");
+        assertEquals(AuthorizationCache.key("tok", "get", a), AuthorizationCache.key("tok", "GET", b));
+        assertFalse(AuthorizationCache.key("tok", "GET", a).equals(AuthorizationCache.key("tok", "POST", a)));
+        assertFalse(AuthorizationCache.key("tok", "GET", a).equals(AuthorizationCache.key("other", "GET", a)));
+    }
+
+    @Test
+    public void testPositiveAndNegativeTtl() throws Exception {
+        AuthorizationCache cache = new AuthorizationCache(100, 60000, 0);
+        VRI target = new VRI("http://opentox.ntua.gr:8080/model/1");
+        assertNull(cache.lookup("tok", "GET", target));
+        cache.store("tok", "GET", target, true, FAR_FUTURE);
+        cache.store("tok", "POST", target, false, FAR_FUTURE); // negative caching disabled
+        assertEquals(Boolean.TRUE, cache.lookup("tok", "GET", target));
+        assertNull(cache.lookup("tok", "POST", target));
+        assertEquals(1, cache.getHits());
+        assertEquals(2, cache.getMisses());
+
+        cache.setNegativeTtl(60000);
+        cache.store("tok", "POST", target, false, FAR_FUTURE);
+        assertEquals(Boolean.FALSE, cache.lookup("tok", "POST", target));
+    }
+
+    @Test
+    public void testTokenExpiry() throws Exception {
+        AuthorizationCache cache = new AuthorizationCache(100, 60000, 60000);
+        VRI target = new VRI("http://opentox.ntua.gr:8080/model/1");
+        cache.store("tok", "GET", target, true, System.currentTimeMillis() - 1);
+        assertNull(cache.lookup("tok", "GET", target));
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void testEviction() throws Exception {
+        AuthorizationCache cache = new AuthorizationCache(2, 60000, 60000);
+        VRI first = new VRI("http://opentox.ntua.gr:8080/model/1");
+        VRI second = new VRI("http://opentox.ntua.gr:8080/model/2");
+        VRI third = new VRI("http://opentox.ntua.gr:8080/model/3");
+        cache.store("tok", "GET", first, true, FAR_FUTURE);
+        cache.store("tok", "GET", second, true, FAR_FUTURE);
+        cache.lookup("tok", "GET", first); // first is now the most recently used
+        cache.store("other", "GET", third, true, FAR_FUTURE);
+        assertEquals(2, cache.size());
+        assertNull(cache.lookup("tok", "GET", second));
+        assertNotNull(cache.lookup("tok", "GET", first));
+
+        cache.evict("tok");
+        assertEquals(1, cache.size());
+        assertNotNull(cache.lookup("other", "GET", third));
+    }
+}
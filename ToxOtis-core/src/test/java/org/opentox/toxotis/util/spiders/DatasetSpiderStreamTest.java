@@ -0,0 +1,191 @@
+/*
+ *
+ * ToxOtis
+ *
+ * ToxOtis is the Greek word for Sagittarius, that actually means ‘archer’. ToxOtis
+ * is a Java interface to the predictive toxicology services of OpenTox. ToxOtis is
+ * being developed to help both those who need a painless way to consume OpenTox
+ * services and for ambitious service providers that don’t want to spend half of
+ * their time in RDF parsing and creation.
+ *
+ * Copyright (C) 2009-2010 Pantelis Sopasakis & Charalampos Chomenides
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Contact:
+ * Pantelis Sopasakis
+ * chvng@mail.ntua.gr
+ * Address: Iroon Politechniou St. 9, Zografou, Athens Greece
+ * tel. +30 210 7723236
+ *
+ */
+package org.opentox.toxotis.util.spiders;
+
+import com.hp.hpl.jena.datatypes.xsd.XSDDatatype;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.opentox.toxotis.client.VRI;
+import org.opentox.toxotis.client.collection.Services;
+import org.opentox.toxotis.core.component.Compound;
+import org.opentox.toxotis.core.component.DataEntry;
+import org.opentox.toxotis.core.component.Dataset;
+import org.opentox.toxotis.core.component.Feature;
+import org.opentox.toxotis.core.component.FeatureValue;
+import org.opentox.toxotis.core.component.IDataEntryConsumer;
+import org.opentox.toxotis.ontology.LiteralValue;
+import org.opentox.toxotis.ontology.collection.OTClasses;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author chung
+ */
+public class DatasetSpiderStreamTest {
+
+    private static final int SIZE = 10;
+    private HttpServer server;
+    private VRI datasetUri;
+    private Dataset fixture;
+
+    public DatasetSpiderStreamTest() {
+    }
+
+    @Before
+    public void setUp() throws Exception {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        datasetUri = new VRI("http://127.0.0.1:" + server.getAddress().getPort() + "/dataset/1");
+        fixture = createDataset(datasetUri);
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        fixture.writeRdf(baos);
+        final byte[] rdf = baos.toByteArray();
+        server.createContext("/dataset/1", new HttpHandler() {
+
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                exchange.getResponseHeaders().set("Content-Type", "application/rdf+xml");
+                exchange.sendResponseHeaders(200, rdf.length);
+                OutputStream os = exchange.getResponseBody();
+                os.write(rdf);
+                os.close();
+            }
+        });
+        server.start();
+    }
+
+    @After
+    public void tearDown() {
+        server.stop(0);
+    }
+
+    private Dataset createDataset(VRI uri) throws Exception {
+        Dataset ds = new Dataset(uri);
+        ds.getMeta().addTitle("Streaming spider test");
+        Feature numeric = new Feature(Services.anonymous().augment("feature", "1"));
+        numeric.getOntologicalClasses().add(OTClasses.numericFeature());
+        Feature nominal = new Feature(Services.anonymous().augment("feature", "2"));
+        nominal.getOntologicalClasses().add(OTClasses.nominalFeature());
+        List<DataEntry> dataEntries = new ArrayList<DataEntry>();
+        for (int i = 0; i < SIZE; i++) {
+            DataEntry de = new DataEntry();
+            de.setConformer(new Compound(Services.anonymous().augment("compound", Integer.toString(i))));
+            de.addFeatureValue(new FeatureValue(numeric, new LiteralValue<Double>(i * 1.5, XSDDatatype.XSDdouble)));
+            de.addFeatureValue(new FeatureValue(nominal, new LiteralValue<String>(i % 2 == 0 ? "active" : "inactive", XSDDatatype.XSDstring)));
+            dataEntries.add(de);
+        }
+        ds.setDataEntries(dataEntries);
+        return ds;
+    }
+
+    private FeatureValue findValue(DataEntry entry, Feature feature) {
+        for (FeatureValue candidate : entry.getFeatureValues()) {
+            if (candidate.getFeature().equals(feature)) {
+                return candidate;
+            }
+        }
+        return null;
+    }
+
+    @Test
+    public void testStreamAgreesWithOntModel() throws Exception {
+        final List<DataEntry> streamed = new ArrayList<DataEntry>();
+        final List<Dataset> finished = new ArrayList<Dataset>();
+        new DatasetSpider(datasetUri, null, true).stream(new IDataEntryConsumer() {
+
+            @Override
+            public void consume(DataEntry dataEntry) {
+                assertTrue("Entry consumed after completion", finished.isEmpty());
+                streamed.add(dataEntry);
+            }
+
+            @Override
+            public void finish(Dataset dataset) {
+                finished.add(dataset);
+            }
+        });
+
+        /* The completion callback fires exactly once, after the last entry */
+        assertEquals(1, finished.size());
+        Dataset completed = finished.get(0);
+        assertEquals(datasetUri, completed.getUri());
+        assertEquals(fixture.getMeta().getTitles(), completed.getMeta().getTitles());
+        assertTrue(completed.getDataEntries() == null || completed.getDataEntries().isEmpty());
+
+        /* Entries are streamed in document order */
+        assertEquals(SIZE, streamed.size());
+        for (int i = 0; i < SIZE; i++) {
+            assertEquals(fixture.getDataEntries().get(i).getConformer().getUri(), streamed.get(i).getConformer().getUri());
+        }
+
+        /* ...and carry the same values as the ones parsed from the ontological model */
+        Dataset parsed = new DatasetSpider(datasetUri, null, false).parse();
+        assertEquals(parsed.getDataEntries().size(), streamed.size());
+        for (DataEntry expected : parsed.getDataEntries()) {
+            DataEntry actual = null;
+            for (DataEntry candidate : streamed) {
+                if (candidate.getConformer().getUri().equals(expected.getConformer().getUri())) {
+                    actual = candidate;
+                }
+            }
+            assertNotNull("Compound " + expected.getConformer().getUri() + " not streamed", actual);
+            assertEquals(expected.getFeatureValues().size(), actual.getFeatureValues().size());
+            for (FeatureValue expectedValue : expected.getFeatureValues()) {
+                FeatureValue actualValue = findValue(actual, expectedValue.getFeature());
+                assertNotNull(actualValue);
+                assertEquals(expectedValue.getValue().getValue(), actualValue.getValue().getValue());
+                assertEquals(expectedValue.getValue().getType(), actualValue.getValue().getType());
+            }
+        }
+    }
+
+    @Test
+    public void testStreamingParse() throws Exception {
+        Dataset streamed = new DatasetSpider(datasetUri, null, true).parse();
+        assertEquals(datasetUri, streamed.getUri());
+        assertEquals(SIZE, streamed.getDataEntries().size());
+        for (int i = 0; i < SIZE; i++) {
+            assertEquals(fixture.getDataEntries().get(i).getConformer().getUri(),
+                    streamed.getDataEntries().get(i).getConformer().getUri());
+        }
+    }
+}
@@ -0,0 +1,147 @@
+/*
+ *
+ * ToxOtis
+ *
+ * ToxOtis is the Greek word for Sagittarius, that actually means ‘archer’. ToxOtis
+ * is a Java interface to the predictive toxicology services of OpenTox. ToxOtis is
+ * being developed to help both those who need a painless way to consume OpenTox
+ * services and for ambitious service providers that don’t want to spend half of
+ * their time in RDF parsing and creation.
+ *
+ * Copyright (C) 2009-2010 Pantelis Sopasakis & Charalampos Chomenides
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Contact:
+ * Pantelis Sopasakis
+ * chvng@mail.ntua.gr
+ * Address: Iroon Politechniou St. 9, Zografou, Athens Greece
+ * tel. +30 210 7723236
+ *
+ */
+package org.opentox.toxotis.util.spiders;
+
+import com.hp.hpl.jena.datatypes.xsd.XSDDatatype;
+import com.hp.hpl.jena.ontology.OntModel;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Test;
+import org.opentox.toxotis.client.collection.Services;
+import org.opentox.toxotis.core.component.Compound;
+import org.opentox.toxotis.core.component.DataEntry;
+import org.opentox.toxotis.core.component.Dataset;
+import org.opentox.toxotis.core.component.Feature;
+import org.opentox.toxotis.core.component.FeatureValue;
+import org.opentox.toxotis.ontology.LiteralValue;
+import org.opentox.toxotis.ontology.collection.OTClasses;
+import org.opentox.toxotis.ontology.impl.SimpleOntModelImpl;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author chung
+ */
+public class DatasetStreamReaderTest {
+
+    public DatasetStreamReaderTest() {
+    }
+
+    private Dataset createDataset() throws Exception {
+        Dataset ds = new Dataset(Services.anonymous().augment("dataset", "1"));
+        ds.getMeta().addTitle("Streaming test").addDescription("A dataset used to test the streaming reader");
+        Feature numeric = new Feature(Services.anonymous().augment("feature", "1"));
+        numeric.getOntologicalClasses().add(OTClasses.numericFeature());
+        numeric.setUnits("mg");
+        Feature nominal = new Feature(Services.anonymous().augment("feature", "2"));
+        nominal.getOntologicalClasses().add(OTClasses.nominalFeature());
+        nominal.getAdmissibleValues().add(new LiteralValue<String>("active", XSDDatatype.XSDstring));
+        nominal.getAdmissibleValues().add(new LiteralValue<String>("inactive", XSDDatatype.XSDstring));
+        List<DataEntry> dataEntries = new ArrayList<DataEntry>();
+        for (int i = 0; i < 20; i++) {
+            DataEntry de = new DataEntry();
+            de.setConformer(new Compound(Services.anonymous().augment("compound", Integer.toString(i))));
+            de.addFeatureValue(new FeatureValue(numeric, new LiteralValue<Double>(i * 0.5, XSDDatatype.XSDdouble)));
+            de.addFeatureValue(new FeatureValue(nominal, new LiteralValue<String>(i % 2 == 0 ? "active" : "inactive", XSDDatatype.XSDstring)));
+            dataEntries.add(de);
+        }
+        ds.setDataEntries(dataEntries);
+        return ds;
+    }
+
+    @Test
+    public void testStreamingAgreesWithOntModel() throws Exception {
+        Dataset ds = createDataset();
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        ds.writeRdf(baos);
+        byte[] rdf = baos.toByteArray();
+
+        DatasetStreamReader reader = new DatasetStreamReader(new ByteArrayInputStream(rdf));
+        List<DataEntry> streamed = new ArrayList<DataEntry>();
+        DataEntry entry = null;
+        while ((entry = reader.nextEntry()) != null) {
+            streamed.add(entry);
+        }
+        reader.close();
+        assertEquals(ds.getUri().toString(), reader.getDatasetUri());
+        assertNotNull(reader.getMeta());
+        assertEquals(20, reader.getEntriesRead());
+
+        OntModel model = new SimpleOntModelImpl();
+        model.read(new ByteArrayInputStream(rdf), null, "RDF/XML");
+        Dataset parsed = new DatasetSpider(model, ds.getUri().toString()).parse();
+
+        assertEquals(parsed.getDataEntries().size(), streamed.size());
+        assertEquals(parsed.getMeta().getTitles(), reader.getMeta().getTitles());
+        for (DataEntry expected : parsed.getDataEntries()) {
+            DataEntry actual = null;
+            for (DataEntry candidate : streamed) {
+                if (candidate.getConformer().getUri().equals(expected.getConformer().getUri())) {
+                    actual = candidate;
+                }
+            }
+            assertNotNull("Compound " + expected.getConformer().getUri() + " not streamed", actual);
+            assertEquals(expected.getFeatureValues().size(), actual.getFeatureValues().size());
+            for (FeatureValue expectedValue : expected.getFeatureValues()) {
+                FeatureValue actualValue = null;
+                for (FeatureValue candidate : actual.getFeatureValues()) {
+                    if (candidate.getFeature().equals(expectedValue.getFeature())) {
+                        actualValue = candidate;
+                    }
+                }
+                assertNotNull(actualValue);
+                assertEquals(expectedValue.getValue().getValue(), actualValue.getValue().getValue());
+                assertEquals(expectedValue.getValue().getType(), actualValue.getValue().getType());
+                Feature expectedFeature = expectedValue.getFeature();
+                Feature actualFeature = actualValue.getFeature();
+                assertEquals(expectedFeature.getOntologicalClasses(), actualFeature.getOntologicalClasses());
+                assertEquals(expectedFeature.getUnits(), actualFeature.getUnits());
+                assertEquals(expectedFeature.getAdmissibleValues(), actualFeature.getAdmissibleValues());
+            }
+        }
+    }
+
+    @Test(expected = DatasetStreamReader.NonCanonicalRdfException.class)
+    public void testNonCanonicalDocument() throws Exception {
+        String rdf = "<?xml version=\"1.0\"?>"
+                + "<rdf:RDF xmlns:rdf=\"http://www.w3.org/1999/02/22-rdf-syntax-ns#\" xmlns:ot=\"http://www.opentox.org/api/1.1#\">"
+                + "<ot:Dataset rdf:about=\"http://example.org/dataset/1\">"
+                + "<ot:dataEntry rdf:nodeID=\"A0\"/>"
+                + "</ot:Dataset>"
+                + "</rdf:RDF>";
+        DatasetStreamReader reader = new DatasetStreamReader(new ByteArrayInputStream(rdf.getBytes("UTF-8")));
+        reader.nextEntry();
+    }
+}
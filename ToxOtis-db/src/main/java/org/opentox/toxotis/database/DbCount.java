@@ -34,9 +34,20 @@
 
 package org.opentox.toxotis.database;
 
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.opentox.toxotis.database.engine.counter.ComponentCounters;
 import org.opentox.toxotis.database.exception.DbException;
 
 /**
+ * Counts the components of some table. Plain counts of enabled components,
+ * optionally restricted to those of a {@link #setCreatedBy(java.lang.String) user},
+ * are read from the maintained {@link ComponentCounters counters} when these
+ * are enabled; any other where clause falls back to <code>COUNT(*)</code>.
  *
  * @author Pantelis Sopasakis
  */
@@ -45,8 +56,12 @@ public abstract class DbCount extends DbOperation {
     protected String table;
     protected String innerJoin;
     protected String where;
+    private final List<Object> whereParameters = new ArrayList<Object>();
     protected String countableColumn = "*";
     protected boolean includeDisabled = false;
+    private String createdBy;
+    private static final String SQL_COUNTER = "SELECT owner, enabled FROM ComponentCount WHERE type=? AND owner IN (?,?)";
+    private org.slf4j.Logger logger = org.slf4j.LoggerFactory.getLogger(DbCount.class);
 
     public boolean isIncludeDisabled() {
         return includeDisabled;
@@ -68,8 +83,49 @@ public abstract class DbCount extends DbOperation {
         this.table = table;
     }
 
+    public String getCreatedBy() {
+        return createdBy;
+    }
+
+    /**
+     * Count only the components created by the given user. Unlike an equivalent
+     * where clause, this restriction can be served by the maintained counters.
+     *
+     * @param createdBy
+     *      User identifier or <code>null</code> to count the components of all users.
+     */
+    public void setCreatedBy(String createdBy) {
+        this.createdBy = createdBy;
+    }
+
     public void setWhere(String where) {
+        setWhere(where, new Object[0]);
+    }
+
+    /**
+     * Set a where clause with <code>?</code> placeholders and the values that
+     * will be bound to them when the statement is prepared.
+     * 
+     * @param where
+     *      Where clause with placeholders.
+     * @param parameters
+     *      Values bound to the placeholders in order of appearance.
+     */
+    public void setWhere(String where, Object... parameters) {
         this.where = where;
+        this.whereParameters.clear();
+        this.whereParameters.addAll(Arrays.asList(parameters));
+    }
+
+    /**
+     * Append a condition to the current where clause (joined with <code>AND</code>)
+     * retaining any parameters already bound to it.
+     * 
+     * @param condition
+     *      Condition without placeholders.
+     */
+    protected void addWhere(String condition) {
+        this.where = where == null ? condition : "(" + where + ") AND " + condition;
     }
 
     @Override
@@ -86,15 +142,107 @@ public abstract class DbCount extends DbOperation {
             innerJoinClause.append(" ");
         }
 
+        String condition = where;
+        if (createdBy != null) {
+            String owner = table + ".createdBy=?";
+            condition = condition == null ? owner : "(" + condition + ") AND " + owner;
+        }
         StringBuilder whereClause = new StringBuilder("");
-        if (where != null) {
+        if (condition != null) {
             whereClause.append("WHERE ");
-            whereClause.append(where);
+            whereClause.append(condition);
             whereClause.append(" ");
         }
 
         return String.format(getSqlTemplate(), countableColumn, table, innerJoinClause, whereClause);
     }
 
+    /**
+     * Prepares the statement returned by {@link #getSql() } and binds the
+     * parameters of the where clause.
+     * @return
+     *      Prepared statement ready for execution. The caller is responsible for
+     *      closing it.
+     * @throws DbException
+     *      In case no connection can be obtained from the pool.
+     * @throws SQLException
+     *      In case the statement cannot be prepared.
+     */
+    protected PreparedStatement prepareStatement() throws DbException, SQLException {
+        List<Object> parameters = new ArrayList<Object>(whereParameters);
+        if (createdBy != null) {
+            parameters.add(createdBy);
+        }
+        return prepare(getSql(), parameters.toArray());
+    }
+
+    /**
+     * Type of the counted components in terms of {@link ComponentCounters}.
+     * @return
+     *      Counter type or <code>null</code> if there are no maintained counters
+     *      for the counted components.
+     */
+    protected String getCounterType() {
+        return null;
+    }
+
+    /**
+     * Reads the count from the maintained counters if they are enabled and
+     * can answer this count, i.e. disabled components are excluded and there
+     * is no where clause other than the {@link #setCreatedBy(java.lang.String) creator}.
+     * Subclasses try this before counting the rows.
+     * @return
+     *      The count or <code>null</code> if it has to be computed.
+     * @throws DbException
+     *      In case the counters cannot be read.
+     */
+    protected Integer countFromCounters() throws DbException {
+        String type = getCounterType();
+        if (!ComponentCounters.isEnabled() || type == null || includeDisabled || where != null
+                || (createdBy != null && !ComponentCounters.isCountedPerUser(type))) {
+            return null;
+        }
+        String owner = createdBy != null ? createdBy : ComponentCounters.ALL_USERS;
+        PreparedStatement statement = null;
+        ResultSet rs = null;
+        try {
+            statement = prepare(SQL_COUNTER, type, ComponentCounters.ALL_USERS, owner);
+            rs = statement.executeQuery();
+            boolean reconciled = false;
+            long count = 0;
+            while (rs.next()) {
+                /* without a counter for all users the counters have never been reconciled */
+                reconciled |= ComponentCounters.ALL_USERS.equals(rs.getString(1));
+                if (owner.equals(rs.getString(1))) {
+                    count = rs.getLong(2);
+                }
+            }
+            if (!reconciled) {
+                return null;
+            }
+            return (int) count;
+        } catch (final SQLException ex) {
+            final String msg = "Counter of " + type + " cannot be read";
+            logger.debug(msg, ex);
+            throw new DbException(msg, ex);
+        } finally {
+            try {
+                if (rs != null) {
+                    rs.close();
+                }
+                if (statement != null) {
+                    statement.close();
+                }
+            } catch (final SQLException ex) {
+                logger.debug("Statement for reading a counter uncloseable", ex);
+            }
+        }
+    }
+
     public abstract int count() throws DbException;
+
+    @Override
+    protected boolean isReadOnly() {
+        return true;
+    }
 }
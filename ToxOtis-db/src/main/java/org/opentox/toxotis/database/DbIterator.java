@@ -44,6 +44,8 @@ import org.opentox.toxotis.database.exception.DbException;
 public abstract class DbIterator<T> implements IDbIterator<T> {
 
     protected final ResultSet rs;
+    private DbSession inherited;
+    private DbSession session;
 
     public DbIterator(final ResultSet rs) {
         if (rs == null) {
@@ -57,18 +59,79 @@ public abstract class DbIterator<T> implements IDbIterator<T> {
     @Override
     public boolean hasNext() throws DbException {
         try {
-            return rs.next();
+            boolean hasNext = rs.next();
+            if (!hasNext) {
+                releaseSession();
+            }
+            return hasNext;
         } catch (SQLException ex) {
             throw new DbException(ex);
         }
     }
 
+    /**
+     * Sets the session of the reader that created this iterator, which is then
+     * also used by the {@link #nested(org.opentox.toxotis.database.DbOperation) nested}
+     * operations of the iterator (e.g. when an iterator looks up entities of
+     * the same kind recursively).
+     * @param inherited
+     *      Session of the reader.
+     */
+    void inheritSession(DbSession inherited) {
+        this.inherited = inherited;
+    }
+
+    /**
+     * Prepares an operation which is executed while iterating (e.g. to load some
+     * related entity of the current row) to use a connection that is shared by all
+     * such operations of this iterator, instead of taking a connection of its own
+     * from the pool each time. The operation uses the session bound to the current
+     * thread or else the session of the reader that created this iterator, if any;
+     * otherwise the iterator opens a read-only session when first needed and
+     * releases it as soon as the iteration is exhausted or the iterator is closed.
+     *
+     * @param operation
+     *      A read-only operation.
+     * @return
+     *      The same operation.
+     */
+    protected <O extends DbOperation> O nested(O operation) {
+        if (DbSession.current() == null) {
+            if (inherited != null) {
+                operation.setSession(inherited);
+            } else {
+                if (session == null) {
+                    session = DbSession.openReadOnly();
+                }
+                operation.setSession(session);
+            }
+        }
+        return operation;
+    }
+
+    /**
+     * Returns the connection of the session opened by this iterator for its
+     * nested operations (if any) to the pool. To be invoked by subclasses which
+     * override {@link #hasNext() } once there are no more elements.
+     * @throws DbException
+     *      In case the connection cannot be closed.
+     */
+    protected void releaseSession() throws DbException {
+        if (session != null) {
+            DbSession own = session;
+            session = null;
+            own.close();
+        }
+    }
+
     @Override
     public void close() throws DbException {
         try {
             rs.close();
         } catch (SQLException ex) {
             throw new DbException(ex);
+        } finally {
+            releaseSession();
         }
     }
 
@@ -33,8 +33,16 @@
 package org.opentox.toxotis.database;
 
 import java.sql.Connection;
+import java.sql.PreparedStatement;
 import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.Collection;
+import java.util.Collections;
+import javax.sql.DataSource;
+import org.opentox.toxotis.database.engine.metainfo.MetaInfoStore;
 import org.opentox.toxotis.database.exception.DbException;
+import org.opentox.toxotis.database.metrics.DbMetrics;
 import org.opentox.toxotis.database.pool.DataSourceFactory;
 
 /**
@@ -44,21 +52,106 @@ import org.opentox.toxotis.database.pool.DataSourceFactory;
  */
 public abstract class DbOperation implements ISql {
 
+    /* MySQL error: Cannot add or update a child row: a foreign key constraint fails */
+    private static final int ER_NO_REFERENCED_ROW_2 = 1452;
+
     private volatile Connection connection;
+    private volatile boolean pooled = false;
+    private volatile DbSession session;
+    private volatile DbSession joined;
     private org.slf4j.Logger logger = org.slf4j.LoggerFactory.getLogger(DbOperation.class);
 
     public DbOperation() {
     }
 
+    /**
+     * An operation which uses the connection of the given session.
+     * @param session
+     *      Session whose connection is used by this operation.
+     */
+    public DbOperation(DbSession session) {
+        this.session = session;
+    }
+
+    /**
+     * An operation which uses the given connection. Closing the operation does
+     * not close the connection.
+     * @param connection
+     *      Connection provided by the caller.
+     */
     public DbOperation(Connection connection) {
-        this.connection = connection;
+        this(new DbSession(connection));
+    }
+
+    /**
+     * The session explicitly set on this operation.
+     * @return
+     *      The session or <code>null</code> if the operation uses the session
+     *      bound to the current thread (if any).
+     */
+    public DbSession getSession() {
+        return session;
+    }
+
+    /**
+     * Sets the session whose connection is used by this operation, overriding
+     * the session bound to the current thread. Has no effect once the operation
+     * has obtained its connection.
+     * @param session
+     *      The session.
+     */
+    public void setSession(DbSession session) {
+        this.session = session;
+    }
+
+    /**
+     * Whether this operation can execute on the connection of a {@link DbSession session}.
+     * @return
+     *      <code>true</code> unless the operation needs a connection of its own.
+     */
+    protected boolean isShareable() {
+        return true;
+    }
+
+    /**
+     * Whether this operation only reads from the database. Read-only operations
+     * which do not share the connection of another operation are served by a
+     * {@link DataSourceFactory#getReadDataSource() replica} when one is
+     * available; all other operations use the primary and, once closed, pin the
+     * reads of the current thread to the primary for a while so that they see
+     * what was just written.
+     *
+     * @return
+     *      <code>true</code> if the operation does not modify the database.
+     */
+    protected boolean isReadOnly() {
+        return false;
     }
 
     protected Connection getConnection() throws DbException {
         if (connection == null) {
+            DbSession shared = isShareable() ? (session != null ? session : DbSession.current()) : null;
+            if (shared != null) {
+                if (shared.isReadOnly() && !isReadOnly()) {
+                    throw new DbException(getClass().getSimpleName() + " cannot be executed in a read-only session");
+                }
+                connection = DbMetrics.getInstance().instrument(shared.getConnection(), getClass());
+                joined = shared;
+                return connection;
+            }
             DataSourceFactory factory = DataSourceFactory.getInstance();
+            DbMetrics metrics = DbMetrics.getInstance();
             try {
-                connection = factory.getDataSource().getConnection();
+                DataSource source = isReadOnly() ? factory.getReadDataSource() : factory.getDataSource();
+                if (metrics.isEnabled()) {
+                    long start = System.nanoTime();
+                    Connection acquired = source.getConnection();
+                    metrics.recordConnectionWait(System.nanoTime() - start);
+                    connection = metrics.instrument(acquired, getClass());
+                } else {
+                    connection = source.getConnection();
+                }
+                pooled = true;
             } catch (final SQLException ex) {
                 final String msg = "Cannot get connection from the connection pool";
                 logger.warn(msg, ex);
@@ -68,7 +161,162 @@ public abstract class DbOperation implements ISql {
         return connection;
     }
 
+    /**
+     * Remembers that the meta-information of some entries is stored, once the
+     * operation has committed their insertion. If the operation takes part in
+     * the transaction of a {@link DbSession session}, the entries are remembered
+     * when (and if) that transaction is committed.
+     *
+     * @param entries
+     *      Entries returned by {@link MetaInfoStore#lookup(org.opentox.toxotis.ontology.MetaInfo) }.
+     */
+    protected void remember(Collection<MetaInfoStore.Entry> entries) {
+        DbSession transactional = joined;
+        if (transactional != null && transactional.isTransactionActive()) {
+            transactional.remember(entries);
+        } else {
+            MetaInfoStore.getInstance().remember(entries);
+        }
+    }
+
+    /**
+     * Remembers that the meta-information of an entry is stored.
+     * @param entry
+     *      Entry returned by {@link MetaInfoStore#lookup(org.opentox.toxotis.ontology.MetaInfo) }
+     *      or <code>null</code>.
+     * @see #remember(java.util.Collection)
+     */
+    protected void remember(MetaInfoStore.Entry entry) {
+        if (entry != null) {
+            remember(Collections.singletonList(entry));
+        }
+    }
+
+    /**
+     * Whether a write failed because it referenced meta-information which is
+     * not in the database, i.e. violated the foreign key of <code>OTComponent.meta</code>.
+     * This happens if some remembered meta-information was garbage-collected
+     * in the meantime.
+     *
+     * @param failure
+     *      The exception thrown by the write.
+     * @return
+     *      <code>true</code> if the failure is due to missing meta-information.
+     */
+    protected static boolean isMissingMetaInfo(Throwable failure) {
+        for (Throwable cause = failure; cause != null; cause = cause.getCause()) {
+            if (cause instanceof SQLException) {
+                for (SQLException ex = (SQLException) cause; ex != null; ex = ex.getNextException()) {
+                    if (ex.getErrorCode() == ER_NO_REFERENCED_ROW_2
+                            && ex.getMessage() != null && ex.getMessage().contains("`MetaInfo`")) {
+                        return true;
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Handles a failed write: if it failed because some of the meta-information
+     * it referenced is missing from the database, the entries of the write are
+     * {@link MetaInfoStore#forget(java.util.Collection) forgotten} so that
+     * the meta-information is inserted again by the next attempt.
+     *
+     * @param failure
+     *      The exception thrown by the write.
+     * @param entries
+     *      Entries of meta-information looked up by the write.
+     * @return
+     *      <code>true</code> if the write should be rolled back and attempted
+     *      once more. A write which takes part in the transaction of a
+     *      {@link DbSession session} is not retried since the transaction can
+     *      then only be rolled back.
+     */
+    protected boolean forgetMissingMetaInfo(Throwable failure, Collection<MetaInfoStore.Entry> entries) {
+        if (!isMissingMetaInfo(failure)) {
+            return false;
+        }
+        logger.info(getClass().getSimpleName() + " referenced meta-information missing from the database; "
+                + "its entries are forgotten");
+        MetaInfoStore.getInstance().forget(entries);
+        DbSession transactional = joined;
+        return transactional == null || !transactional.isTransactionActive();
+    }
+
+    /**
+     * Prepares a statement on the connection of this operation and binds the
+     * given values to its placeholders in order. Values are always bound and never
+     * spliced into the SQL, so that the statement text stays the same for any
+     * values and the prepared statement can be reused from the statement cache of
+     * the connection pool.
+     * 
+     * @param sql
+     *      SQL statement with a <code>?</code> placeholder for every parameter.
+     * @param parameters
+     *      Values to be bound to the placeholders.
+     * @return
+     *      The prepared statement. The caller is responsible for closing it.
+     * @throws DbException
+     *      In case no connection can be obtained from the pool.
+     * @throws SQLException
+     *      In case the statement cannot be prepared or some parameter cannot be
+     *      bound.
+     */
+    protected PreparedStatement prepare(String sql, Object... parameters) throws DbException, SQLException {
+        PreparedStatement statement = getConnection().prepareStatement(sql);
+        try {
+            for (int i = 0; i < parameters.length; i++) {
+                bind(statement, i + 1, parameters[i]);
+            }
+        } catch (final SQLException ex) {
+            statement.close();
+            throw ex;
+        }
+        return statement;
+    }
+
+    /**
+     * Binds a value to a placeholder of a prepared statement using the setter
+     * that corresponds to its type.
+     * 
+     * @param statement
+     *      The prepared statement.
+     * @param index
+     *      Index of the placeholder (starting from 1).
+     * @param value
+     *      The value to be bound, possibly <code>null</code>.
+     * @throws SQLException
+     *      In case the value cannot be bound.
+     */
+    public static void bind(PreparedStatement statement, int index, Object value) throws SQLException {
+        if (value == null) {
+            statement.setNull(index, Types.NULL);
+        } else if (value instanceof String) {
+            statement.setString(index, (String) value);
+        } else if (value instanceof Integer) {
+            statement.setInt(index, (Integer) value);
+        } else if (value instanceof Long) {
+            statement.setLong(index, (Long) value);
+        } else if (value instanceof Boolean) {
+            statement.setBoolean(index, (Boolean) value);
+        } else if (value instanceof Double) {
+            statement.setDouble(index, (Double) value);
+        } else if (value instanceof Timestamp) {
+            statement.setTimestamp(index, (Timestamp) value);
+        } else if (value instanceof byte[]) {
+            statement.setBytes(index, (byte[]) value);
+        } else if (value instanceof Enum) {
+            statement.setString(index, ((Enum<?>) value).name());
+        } else {
+            statement.setString(index, value.toString());
+        }
+    }
+
     public void close() throws DbException {
+        if (pooled && !isReadOnly()) {
+            DataSourceFactory.getInstance().pin();
+        }
         if (connection != null) {
             try {
                 if (!connection.isClosed()) {
@@ -30,13 +30,32 @@
  * tel. +30 210 7723236
  *
  */
-
-
 package org.opentox.toxotis.database;
 
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import org.opentox.toxotis.database.exception.DbException;
+import org.opentox.toxotis.util.aa.Base64;
 
 /**
+ * Base class for database operations that read a list of rows. Results can be
+ * paginated in two ways: by page number (see {@link #setPage(int) }), where the
+ * database has to skip all rows of the previous pages, or by a continuation
+ * cursor (see {@link #setKeysetPagination(boolean) }), where every page starts
+ * right after the last row of the previous one so that all pages cost the same.
+ * 
+ * <p>By default the driver reads the whole result set in memory when the query
+ * is executed. For large result sets (e.g. exports or scans over whole tables)
+ * enable {@link #setStreaming(boolean) streaming}, so that rows are fetched from
+ * the server as the iterator advances. The iterator returned by {@link #list() }
+ * can also take over the resources of the reader (see {@link #setAutoClose(boolean) })
+ * so that closing the iterator (or iterating over all elements) is enough.</p>
  *
  * @author Pantelis Sopasakis
  * @author Charalampos Chomenides
@@ -47,8 +66,18 @@ public abstract class DbReader<T> extends DbOperation {
     protected String table;
     protected String innerJoin;
     protected String where;
+    private final List<Object> whereParameters = new ArrayList<Object>();
     protected int page = 0;
     protected int pageSize = 0;
+    private boolean keysetPagination = false;
+    private String timestampColumn;
+    private String keyColumn;
+    private String cursor;
+    private Timestamp cursorTimestamp;
+    private String cursorKey;
+    private volatile String nextCursor;
+    private boolean streaming = false;
+    private boolean autoClose = false;
 
     public String getInnerJoin() {
         return innerJoin;
@@ -74,6 +103,148 @@ public abstract class DbReader<T> extends DbOperation {
         this.pageSize = pageSize;
     }
 
+    public boolean isKeysetPagination() {
+        return keysetPagination;
+    }
+
+    /**
+     * Enable or disable keyset pagination. When enabled, the page number is
+     * ignored; instead the reader returns the page that follows the
+     * {@link #setCursor(java.lang.String) cursor} (or the first page if no cursor
+     * is set) and, once the page has been iterated, the cursor of the next page is
+     * available through {@link #getNextCursor() }. Keyset pagination is only
+     * supported by readers which declare their key columns.
+     * 
+     * @param keysetPagination
+     *      Whether keyset pagination should be used.
+     */
+    public void setKeysetPagination(boolean keysetPagination) {
+        this.keysetPagination = keysetPagination;
+    }
+
+    public boolean isStreaming() {
+        return streaming;
+    }
+
+    /**
+     * Enable or disable streaming of the results. In streaming mode the
+     * statement is forward-only and read-only and the rows are fetched from the
+     * server one at a time as the iterator advances, instead of being buffered
+     * in memory when the query is executed. While a streaming iterator is open,
+     * no other statement can be executed on the connection of this reader.
+     * Streaming implies {@link #setAutoClose(boolean) auto-close}.
+     * 
+     * @param streaming
+     *      Whether the results should be streamed.
+     */
+    public void setStreaming(boolean streaming) {
+        this.streaming = streaming;
+    }
+
+    public boolean isAutoClose() {
+        return autoClose || streaming;
+    }
+
+    @Override
+    protected boolean isReadOnly() {
+        return true;
+    }
+
+    /**
+     * A streaming reader occupies its connection until its iterator is closed,
+     * so it never uses the connection of a {@link DbSession session}.
+     */
+    @Override
+    protected boolean isShareable() {
+        return !streaming;
+    }
+
+    /**
+     * When enabled, the iterator returned by {@link #list() } owns the statement
+     * and the connection of this reader and closes them (by closing the reader)
+     * as soon as it is exhausted or closed, so that the caller does not need to
+     * close the reader.
+     * 
+     * @param autoClose
+     *      Whether the iterator should close the reader.
+     */
+    public void setAutoClose(boolean autoClose) {
+        this.autoClose = autoClose;
+    }
+
+    public String getCursor() {
+        return cursor;
+    }
+
+    /**
+     * Set the continuation cursor for keyset pagination, as it was returned by
+     * {@link #getNextCursor() } for the previous page. Setting a cursor enables
+     * keyset pagination.
+     * 
+     * @param cursor
+     *      Opaque continuation cursor, or <code>null</code> for the first page.
+     * @throws IllegalArgumentException
+     *      If the cursor is malformed.
+     */
+    public void setCursor(String cursor) {
+        this.cursorTimestamp = null;
+        this.cursorKey = null;
+        this.cursor = cursor;
+        if (cursor != null) {
+            keysetPagination = true;
+            String decoded;
+            try {
+                decoded = Base64.decodeString(cursor);
+            } catch (IllegalArgumentException ex) {
+                throw new IllegalArgumentException("Malformed cursor : " + cursor, ex);
+            }
+            int separator = decoded.indexOf(':');
+            if (separator < 0) {
+                throw new IllegalArgumentException("Malformed cursor : " + cursor);
+            }
+            if (separator > 0) {
+                try {
+                    cursorTimestamp = new Timestamp(Long.parseLong(decoded.substring(0, separator)));
+                } catch (NumberFormatException ex) {
+                    throw new IllegalArgumentException("Malformed cursor : " + cursor, ex);
+                }
+            }
+            cursorKey = decoded.substring(separator + 1);
+        }
+    }
+
+    /**
+     * The cursor pointing to the page after the one that was last read in keyset
+     * pagination mode. It becomes available once all rows of the page have been
+     * iterated.
+     * 
+     * @return
+     *      Opaque continuation cursor or <code>null</code> if there are no more
+     *      rows (or the page has not been iterated yet).
+     */
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    /**
+     * Declare the columns which identify a row uniquely and in a stable order
+     * for the needs of keyset pagination.
+     * 
+     * @param timestampColumn
+     *      Creation timestamp column by which rows are ordered primarily; may be
+     *      <code>null</code> in which case rows are ordered by the key only.
+     * @param keyColumn
+     *      Primary key column.
+     */
+    protected void setKeyColumns(String timestampColumn, String keyColumn) {
+        this.timestampColumn = timestampColumn;
+        this.keyColumn = keyColumn;
+    }
+
+    private boolean isKeysetActive() {
+        return keysetPagination && keyColumn != null && pageSize != 0;
+    }
+
     protected void setTableColumns(String... columns) {
         int length = columns.length;
         tableColumns = new String[length];
@@ -85,7 +256,35 @@ public abstract class DbReader<T> extends DbOperation {
     }
 
     public void setWhere(String where) {
+        setWhere(where, new Object[0]);
+    }
+
+    /**
+     * Set a where clause with <code>?</code> placeholders and the values that
+     * will be bound to them when the statement is prepared (see
+     * {@link #prepareStatement() }). Values should always be passed this way
+     * instead of being formatted into the clause.
+     * 
+     * @param where
+     *      Where clause with placeholders.
+     * @param parameters
+     *      Values bound to the placeholders in order of appearance.
+     */
+    public void setWhere(String where, Object... parameters) {
         this.where = where;
+        this.whereParameters.clear();
+        this.whereParameters.addAll(Arrays.asList(parameters));
+    }
+
+    /**
+     * Append a condition to the current where clause (joined with <code>AND</code>)
+     * retaining any parameters already bound to it.
+     * 
+     * @param condition
+     *      Condition without placeholders.
+     */
+    protected void addWhere(String condition) {
+        this.where = where == null ? condition : "(" + where + ") AND " + condition;
     }
 
     @Override
@@ -110,6 +309,7 @@ public abstract class DbReader<T> extends DbOperation {
     }
 
     protected String getSql() {
+        boolean keyset = isKeysetActive();
         StringBuilder tableColumnsString = new StringBuilder();
         for (int i = 0; i < tableColumns.length; i++) {
             tableColumnsString.append(tableColumns[i]);
@@ -117,6 +317,13 @@ public abstract class DbReader<T> extends DbOperation {
                 tableColumnsString.append(",");
             }
         }
+        if (keyset) {
+            // The keys of the last row are read from the last two columns
+            tableColumnsString.append(",");
+            tableColumnsString.append(timestampColumn != null ? timestampColumn : "NULL");
+            tableColumnsString.append(",");
+            tableColumnsString.append(keyColumn);
+        }
 
         StringBuilder innerJoinClause = new StringBuilder("");
         if (innerJoin != null) {
@@ -126,17 +333,43 @@ public abstract class DbReader<T> extends DbOperation {
         }
 
         StringBuilder whereClause = new StringBuilder("");
-        if (where != null) {
+        String seekCondition = null;
+        if (keyset && cursorKey != null) {
+            if (timestampColumn != null && cursorTimestamp != null) {
+                seekCondition = String.format("(%1$s>? OR (%1$s=? AND %2$s>?))", timestampColumn, keyColumn);
+            } else {
+                seekCondition = keyColumn + ">?";
+            }
+        }
+        if (where != null || seekCondition != null) {
             whereClause.append("WHERE ");
-            whereClause.append(where);
-            whereClause.append(" ");
+            if (where != null) {
+                whereClause.append(seekCondition != null ? "(" + where + ")" : where);
+                whereClause.append(" ");
+            }
+            if (seekCondition != null) {
+                if (where != null) {
+                    whereClause.append("AND ");
+                }
+                whereClause.append(seekCondition);
+                whereClause.append(" ");
+            }
         }
 
         StringBuilder limitClause = new StringBuilder("");
-        if (pageSize != 0) {
+        if (keyset) {
+            limitClause.append("ORDER BY ");
+            if (timestampColumn != null) {
+                limitClause.append(timestampColumn);
+                limitClause.append(",");
+            }
+            limitClause.append(keyColumn);
+            limitClause.append(" LIMIT ");
+            limitClause.append(pageSize);
+        } else if (pageSize != 0) {
             limitClause.append("LIMIT ");
             if (page != 0) {
-                limitClause.append(page * pageSize - 1);
+                limitClause.append(page * pageSize);
                 limitClause.append(",");
                 limitClause.append(pageSize);
             } else {
@@ -147,7 +380,199 @@ public abstract class DbReader<T> extends DbOperation {
         return String.format(getSqlTemplate(), tableColumnsString.toString(), table, innerJoinClause, whereClause, limitClause);
     }
 
+    /**
+     * Prepares the statement returned by {@link #getSql() } and binds the
+     * parameters of the where clause and, if keyset pagination is active, the
+     * keys of the cursor. In {@link #setStreaming(boolean) streaming} mode the
+     * statement is forward-only, read-only and streams its results.
+     * @return
+     *      Prepared statement ready for execution. The caller is responsible for
+     *      closing it.
+     * @throws DbException
+     *      In case no connection can be obtained from the pool.
+     * @throws SQLException
+     *      In case the statement cannot be prepared.
+     */
+    protected PreparedStatement prepareStatement() throws DbException, SQLException {
+        List<Object> parameters = new ArrayList<Object>(whereParameters);
+        if (isKeysetActive() && cursorKey != null) {
+            if (timestampColumn != null && cursorTimestamp != null) {
+                parameters.add(cursorTimestamp);
+                parameters.add(cursorTimestamp);
+            }
+            parameters.add(cursorKey);
+        }
+        if (!streaming) {
+            return prepare(getSql(), parameters.toArray());
+        }
+        Connection connection = getConnection();
+        PreparedStatement statement = connection.prepareStatement(getSql(),
+                ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+        try {
+            /*
+             * MySQL Connector/J streams the rows of forward-only, read-only
+             * result sets when the fetch size is Integer.MIN_VALUE.
+             */
+            statement.setFetchSize(Integer.MIN_VALUE);
+            for (int i = 0; i < parameters.size(); i++) {
+                bind(statement, i + 1, parameters.get(i));
+            }
+        } catch (final SQLException ex) {
+            statement.close();
+            throw ex;
+        }
+        return statement;
+    }
+
+    /**
+     * Wraps the iterator over the results of a query so that the cursor of the
+     * next page is recorded while iterating (if keyset pagination is active)
+     * and, if {@link #isAutoClose() auto-close} is enabled, the reader is closed
+     * together with the iterator. If a session has been set on this reader, the
+     * nested operations of the iterator use it too.
+     * @param iterator
+     *      Iterator over the result set.
+     * @param rs
+     *      The result set of the query produced by {@link #getSql() }.
+     * @return
+     *      An iterator over the same elements.
+     */
+    protected <E> IDbIterator<E> iterate(IDbIterator<E> iterator, ResultSet rs) {
+        if (getSession() != null && iterator instanceof DbIterator) {
+            ((DbIterator<?>) iterator).inheritSession(getSession());
+        }
+        IDbIterator<E> tracking = trackCursor(iterator, rs);
+        return isAutoClose() ? new OwningIterator<E>(tracking) : tracking;
+    }
+
+    /**
+     * Wraps the iterator over the results of a query so that the cursor of the
+     * next page is recorded while iterating, if keyset pagination is active.
+     * @param iterator
+     *      Iterator over the result set.
+     * @param rs
+     *      The result set of the query produced by {@link #getSql() }.
+     * @return
+     *      An iterator over the same elements.
+     */
+    private <E> IDbIterator<E> trackCursor(IDbIterator<E> iterator, ResultSet rs) {
+        nextCursor = null;
+        if (!isKeysetActive()) {
+            return iterator;
+        }
+        return new CursorTrackingIterator<E>(iterator, rs, tableColumns.length + 1);
+    }
+
+    /**
+     * Executes the query and iterates over its results. The caller must close
+     * the returned iterator (unless it is exhausted) as well as this reader.
+     * @return
+     *      Iterator over the results.
+     * @throws DbException
+     *      In case the query cannot be executed.
+     */
     public abstract IDbIterator<T> list() throws DbException;
 
-    
+    /**
+     * Records the keys of every row it passes over and publishes the cursor of
+     * the next page when the page has been exhausted.
+     */
+    private class CursorTrackingIterator<E> implements IDbIterator<E> {
+
+        private final IDbIterator<E> delegate;
+        private final ResultSet rs;
+        private final int timestampIndex;
+        private int rows = 0;
+        private Timestamp lastTimestamp;
+        private String lastKey;
+
+        CursorTrackingIterator(IDbIterator<E> delegate, ResultSet rs, int timestampIndex) {
+            this.delegate = delegate;
+            this.rs = rs;
+            this.timestampIndex = timestampIndex;
+        }
+
+        @Override
+        public boolean hasNext() throws DbException {
+            boolean hasNext = delegate.hasNext();
+            if (hasNext) {
+                try {
+                    lastTimestamp = timestampColumn != null ? rs.getTimestamp(timestampIndex) : null;
+                    lastKey = rs.getString(timestampIndex + 1);
+                } catch (final SQLException ex) {
+                    final String msg = "Cannot read the keys of the current row";
+                    throw new DbException(msg, ex);
+                }
+                rows++;
+            } else if (rows == pageSize && lastKey != null) {
+                String decoded = (lastTimestamp != null ? Long.toString(lastTimestamp.getTime()) : "") + ":" + lastKey;
+                nextCursor = Base64.encodeString(decoded);
+            }
+            return hasNext;
+        }
+
+        @Override
+        public E next() throws DbException {
+            return delegate.next();
+        }
+
+        @Override
+        public void remove() throws DbException {
+            delegate.remove();
+        }
+
+        @Override
+        public void close() throws DbException {
+            delegate.close();
+        }
+    }
+
+    /**
+     * Closes the reader (i.e. its statement and connection) when the iteration
+     * is over or the iterator is closed.
+     */
+    private class OwningIterator<E> implements IDbIterator<E> {
+
+        private final IDbIterator<E> delegate;
+        private boolean closed = false;
+
+        OwningIterator(IDbIterator<E> delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public boolean hasNext() throws DbException {
+            if (closed) {
+                return false;
+            }
+            boolean hasNext = delegate.hasNext();
+            if (!hasNext) {
+                close();
+            }
+            return hasNext;
+        }
+
+        @Override
+        public E next() throws DbException {
+            return delegate.next();
+        }
+
+        @Override
+        public void remove() throws DbException {
+            delegate.remove();
+        }
+
+        @Override
+        public void close() throws DbException {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            try {
+                delegate.close();
+            } finally {
+                DbReader.this.close();
+            }
+        }
+    }
 }
@@ -0,0 +1,428 @@
+/*
+ *
+ * ToxOtis
+ *
+ * ToxOtis is the Greek word for Sagittarius, that actually means ‘archer’. ToxOtis
+ * is a Java interface to the predictive toxicology services of OpenTox. ToxOtis is
+ * being developed to help both those who need a painless way to consume OpenTox
+ * services and for ambitious service providers that don’t want to spend half of
+ * their time in RDF parsing and creation.
+ *
+ * Copyright (C) 2009-2010 Pantelis Sopasakis & Charalampos Chomenides
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Contact:
+ * Pantelis Sopasakis
+ * chvng@mail.ntua.gr
+ * Address: Iroon Politechniou St. 9, Zografou, Athens Greece
+ * tel. +30 210 7723236
+ *
+ */
+package org.opentox.toxotis.database;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import javax.sql.DataSource;
+import org.opentox.toxotis.database.engine.metainfo.MetaInfoStore;
+import org.opentox.toxotis.database.exception.DbException;
+import org.opentox.toxotis.database.metrics.DbMetrics;
+import org.opentox.toxotis.database.pool.DataSourceFactory;
+
+/**
+ * A unit of work whose operations share a single connection. Operations use
+ * the session that has been {@link DbOperation#setSession(org.opentox.toxotis.database.DbSession) set}
+ * on them or, failing that, the session {@link #bind() bound} to the current
+ * thread; otherwise they take a connection of their own from the pool as
+ * usual. The connection is taken from the pool when first needed and returned
+ * when the session is {@link #close() closed}; closing an operation of the
+ * session only releases the connection back to the session.
+ *
+ * <p>By default every operation commits its own work as usual. Once a
+ * transaction is {@link #begin() begun}, the operations of the session
+ * participate in it: their own <code>commit()</code> and <code>setAutoCommit()</code>
+ * calls are ignored and a <code>rollback()</code> marks the transaction as
+ * rollback-only, so that it is committed or rolled back as a whole by
+ * {@link #commit() } or {@link #rollback() }. A transaction that is still active
+ * when the session is closed is rolled back. Meta-information written in the
+ * transaction is remembered by the {@link MetaInfoStore store of meta-information}
+ * only once the transaction has been committed.</p>
+ *
+ * <p>Streaming {@link DbReader readers} never use a session, since no other
+ * statement can be executed on a connection while rows are streamed from it.
+ * A session is not thread-safe; it is meant to be used by one thread at a time.</p>
+ *
+ * <pre>
+ * DbSession session = DbSession.open().bind();
+ * try {
+ *     session.begin();
+ *     new AddTask(task).write();
+ *     new DisableComponent(oldTaskId).disable();
+ *     session.commit();
+ * } finally {
+ *     session.close();
+ * }
+ * </pre>
+ *
+ * @author Pantelis Sopasakis
+ * @author Charalampos Chomenides
+ */
+public class DbSession {
+
+    private static final ThreadLocal<DbSession> CURRENT = new ThreadLocal<DbSession>();
+    private final boolean readOnly;
+    private final boolean owned;
+    private Connection connection;
+    private Connection shared;
+    private DbSession previous;
+    private boolean bound = false;
+    private boolean transaction = false;
+    private boolean rollbackOnly = false;
+    private boolean closed = false;
+    private final List<MetaInfoStore.Entry> remembered = new ArrayList<MetaInfoStore.Entry>();
+    private org.slf4j.Logger logger = org.slf4j.LoggerFactory.getLogger(DbSession.class);
+
+    private DbSession(boolean readOnly) {
+        this.readOnly = readOnly;
+        this.owned = true;
+    }
+
+    /**
+     * A session over a connection provided by the caller, who remains
+     * responsible for closing it; closing the session does not close the
+     * connection.
+     * @param connection
+     *      Connection to be shared by the operations of the session.
+     */
+    public DbSession(Connection connection) {
+        if (connection == null) {
+            throw new NullPointerException("A session needs a connection");
+        }
+        this.readOnly = false;
+        this.owned = false;
+        this.connection = connection;
+    }
+
+    /**
+     * Opens a session on the primary database.
+     * @return
+     *      A new session.
+     */
+    public static DbSession open() {
+        return new DbSession(false);
+    }
+
+    /**
+     * Opens a session for operations that only read, which is served by a
+     * {@link DataSourceFactory#getReadDataSource() replica} when one is
+     * available. Operations that modify the database fail in such a session.
+     * @return
+     *      A new read-only session.
+     */
+    public static DbSession openReadOnly() {
+        return new DbSession(true);
+    }
+
+    /**
+     * The session bound to the current thread.
+     * @return
+     *      The session or <code>null</code> if none is bound.
+     */
+    public static DbSession current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * Binds this session to the current thread so that operations created and
+     * executed by this thread use it without being told. The session that was
+     * bound before is restored when this one is {@link #unbind() unbound} or closed.
+     * @return
+     *      This session.
+     * @throws IllegalStateException
+     *      If the session is closed or already bound.
+     */
+    public DbSession bind() {
+        if (closed) {
+            throw new IllegalStateException("Session is closed");
+        }
+        if (bound) {
+            throw new IllegalStateException("Session is already bound to a thread");
+        }
+        previous = CURRENT.get();
+        CURRENT.set(this);
+        bound = true;
+        return this;
+    }
+
+    /**
+     * Unbinds this session from the current thread. Does nothing if this session
+     * is not bound to the current thread.
+     */
+    public void unbind() {
+        if (bound && CURRENT.get() == this) {
+            if (previous != null) {
+                CURRENT.set(previous);
+            } else {
+                CURRENT.remove();
+            }
+            previous = null;
+            bound = false;
+        }
+    }
+
+    public boolean isReadOnly() {
+        return readOnly;
+    }
+
+    public boolean isClosed() {
+        return closed;
+    }
+
+    public boolean isTransactionActive() {
+        return transaction;
+    }
+
+    /**
+     * Whether some operation has rolled back its work while the transaction is
+     * active, in which case the transaction cannot be committed.
+     * @return
+     *      <code>true</code> if the transaction can only be rolled back.
+     */
+    public boolean isRollbackOnly() {
+        return rollbackOnly;
+    }
+
+    /**
+     * The connection of the session, as used by its operations. Closing it, as
+     * operations do, releases it to the session instead of closing it.
+     * @return
+     *      Connection of the session.
+     * @throws DbException
+     *      In case the session is closed or no connection can be obtained from
+     *      the pool.
+     */
+    public Connection getConnection() throws DbException {
+        if (closed) {
+            throw new DbException("Session is closed");
+        }
+        if (connection == null) {
+            DataSourceFactory factory = DataSourceFactory.getInstance();
+            DbMetrics metrics = DbMetrics.getInstance();
+            try {
+                DataSource source = readOnly ? factory.getReadDataSource() : factory.getDataSource();
+                if (metrics.isEnabled()) {
+                    long start = System.nanoTime();
+                    connection = source.getConnection();
+                    metrics.recordConnectionWait(System.nanoTime() - start);
+                } else {
+                    connection = source.getConnection();
+                }
+            } catch (final SQLException ex) {
+                final String msg = "Cannot get connection from the connection pool";
+                logger.warn(msg, ex);
+                throw new DbException(msg, ex);
+            }
+        }
+        if (shared == null) {
+            shared = (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                    new Class<?>[]{Connection.class}, new SharedConnection());
+        }
+        return shared;
+    }
+
+    /**
+     * Begins a transaction in which all subsequent operations of the session
+     * participate.
+     * @throws DbException
+     *      In case a transaction is already active or cannot be started.
+     */
+    public void begin() throws DbException {
+        if (transaction) {
+            throw new DbException("A transaction is already active in this session");
+        }
+        getConnection();
+        try {
+            connection.setAutoCommit(false);
+        } catch (final SQLException ex) {
+            final String msg = "Transaction cannot be started";
+            logger.warn(msg, ex);
+            throw new DbException(msg, ex);
+        }
+        transaction = true;
+        rollbackOnly = false;
+    }
+
+    /**
+     * Commits the active transaction.
+     * @throws DbException
+     *      In case no transaction is active, the transaction has been marked
+     *      rollback-only (it is then rolled back) or the commit fails (it is
+     *      then rolled back as far as possible).
+     */
+    public void commit() throws DbException {
+        if (!transaction) {
+            throw new DbException("No active transaction to commit");
+        }
+        if (rollbackOnly) {
+            rollback();
+            throw new DbException("Transaction rolled back as some operation of the session failed");
+        }
+        try {
+            connection.commit();
+            MetaInfoStore.getInstance().remember(remembered);
+        } catch (final SQLException ex) {
+            final String msg = "Transaction cannot be committed";
+            logger.warn(msg, ex);
+            try {
+                connection.rollback();
+            } catch (final SQLException ex1) {
+                logger.warn("Transaction cannot be rolled back after a failed commit", ex1);
+            }
+            throw new DbException(msg, ex);
+        } finally {
+            end();
+        }
+    }
+
+    /**
+     * Rolls back the active transaction; does nothing if there is none. The
+     * meta-information written in the transaction is not remembered.
+     * @throws DbException
+     *      In case the transaction cannot be rolled back.
+     */
+    public void rollback() throws DbException {
+        if (!transaction) {
+            return;
+        }
+        try {
+            connection.rollback();
+        } catch (final SQLException ex) {
+            final String msg = "Transaction cannot be rolled back";
+            logger.warn(msg, ex);
+            throw new DbException(msg, ex);
+        } finally {
+            end();
+        }
+    }
+
+    /*
+     * Entries of meta-information written by an operation of the active
+     * transaction, to be remembered once the transaction is committed.
+     */
+    void remember(Collection<MetaInfoStore.Entry> entries) {
+        remembered.addAll(entries);
+    }
+
+    private void end() {
+        remembered.clear();
+        transaction = false;
+        rollbackOnly = false;
+        try {
+            connection.setAutoCommit(true);
+        } catch (final SQLException ex) {
+            logger.warn("Auto-commit cannot be restored on the connection of the session", ex);
+        }
+    }
+
+    /**
+     * Closes the session: rolls back the active transaction (if any), unbinds
+     * the session from the thread and returns its connection to the pool.
+     * Reads of the current thread are pinned to the primary for a while if the
+     * session was not read-only, as it is after any operation that writes.
+     * @throws DbException
+     *      In case the connection cannot be closed.
+     */
+    public void close() throws DbException {
+        if (closed) {
+            return;
+        }
+        try {
+            if (transaction) {
+                logger.warn("Session closed while a transaction was active; rolling back");
+                rollback();
+            }
+        } finally {
+            unbind();
+            closed = true;
+            if (owned && connection != null) {
+                if (!readOnly) {
+                    DataSourceFactory.getInstance().pin();
+                }
+                try {
+                    connection.close();
+                } catch (final SQLException ex) {
+                    final String msg = "Connection of the session cannot be closed";
+                    logger.warn(msg, ex);
+                    throw new DbException(msg, ex);
+                }
+            }
+        }
+    }
+
+    /*
+     * Release of the connection by an operation outside a transaction: work it
+     * left uncommitted is discarded (as it would be when returning a connection
+     * to the pool) and auto-commit is restored for the next operation. A
+     * connection provided by the caller is left as it is.
+     */
+    private void release() throws SQLException {
+        if (!connection.getAutoCommit()) {
+            connection.rollback();
+            connection.setAutoCommit(true);
+        }
+    }
+
+    /**
+     * The connection of the session as seen by its operations.
+     */
+    private class SharedConnection implements InvocationHandler {
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            if ("close".equals(name)) {
+                if (owned && !transaction && !closed) {
+                    release();
+                }
+                return null;
+            } else if ("isClosed".equals(name)) {
+                return closed || connection.isClosed();
+            } else if (transaction && "setAutoCommit".equals(name)) {
+                return null;
+            } else if (transaction && "commit".equals(name)) {
+                return null;
+            } else if (transaction && "rollback".equals(name)) {
+                logger.debug("Operation rolled back in a session; the transaction can only be rolled back");
+                rollbackOnly = true;
+                return null;
+            } else if ("equals".equals(name)) {
+                return proxy == args[0];
+            } else if ("hashCode".equals(name)) {
+                return System.identityHashCode(proxy);
+            }
+            try {
+                return method.invoke(connection, args);
+            } catch (final InvocationTargetException ex) {
+                throw ex.getCause();
+            }
+        }
+    }
+}
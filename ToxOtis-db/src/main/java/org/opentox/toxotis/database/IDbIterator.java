@@ -13,7 +13,10 @@ public interface IDbIterator<T> {
     /**
      * Closes this stream and releases any system resources associated
      * with it. If the stream is already closed then invoking this
-     * method has no effect.
+     * method has no effect. Iterators which are not exhausted must always
+     * be closed, even if the reader that created them is closed as well:
+     * iterators that resolve related entities hold a pooled connection of
+     * their own until they are exhausted or closed.
      *
      * @throws org.opentox.toxotis.database.exception.DbException
      */
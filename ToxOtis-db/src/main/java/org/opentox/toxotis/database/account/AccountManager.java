@@ -32,22 +32,34 @@
  */
 package org.opentox.toxotis.database.account;
 
-import java.sql.Connection;
+import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
-import java.sql.Statement;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import org.opentox.toxotis.core.component.Task;
 import org.opentox.toxotis.core.component.User;
+import org.opentox.toxotis.database.DbSession;
 import org.opentox.toxotis.database.engine.model.CountModel;
 import org.opentox.toxotis.database.engine.task.CountTasks;
 import org.opentox.toxotis.database.engine.user.FindUser;
 import org.opentox.toxotis.database.exception.DbException;
-import org.opentox.toxotis.database.pool.DataSourceFactory;
 import org.opentox.toxotis.factory.DatasetFactory;
 
 /**
+ * Account information of a user. Every method takes a connection from the pool
+ * for its query; a caller that needs several of them at once can bind a
+ * {@link DbSession} to the current thread so that they all share its connection:
+ * <pre>
+ * DbSession session = DbSession.openReadOnly().bind();
+ * try {
+ *     if (manager.userExists() &amp;&amp; manager.countActiveTasks() &lt; quota) {
+ *         ...
+ *     }
+ * } finally {
+ *     session.close();
+ * }
+ * </pre>
  *
  * @author Pantelis Sopasakis
  * @author Charalampos Chomenides
@@ -55,41 +67,9 @@ import org.opentox.toxotis.factory.DatasetFactory;
 public class AccountManager {
 
     private User user;
-    private ThreadLocal<Connection> LOCAL = new ThreadLocal<Connection>();
     private org.slf4j.Logger logger = org.slf4j.LoggerFactory.getLogger(AccountManager.class);
 
-    private Connection getConnection() throws DbException {
-        Connection connection = LOCAL.get();// take the connection in the LOCAL
-        if (connection == null) {// If LOCAL has no connections, create a new one
-            DataSourceFactory factory = DataSourceFactory.getInstance();
-            try {
-                connection = factory.getConnection();
-            } catch (DbException ex) {
-                final String msg = "Cannot get connection from the connection pool";
-                logger.warn(msg, ex);
-                throw new DbException(msg, ex);
-            }
-            LOCAL.set(connection); // Update the connection in the LOCAL
-        }
-        return connection;
-    }
-
-    private void closeConnection() throws DbException {
-        Connection connection = LOCAL.get();
-        if (connection != null) {// if any connection in the LOCAL, close it!
-            try {
-                connection.close();
-            } catch (SQLException ex) {
-                String message = "Cannot close connection";
-                logger.warn(message, ex);
-                throw new DbException(message, ex);
-            }
-        }
-        LOCAL.set(null);
-    }
-
     private AccountManager() {
-        LOCAL.set(null);
     }
 
     public AccountManager(User user) {
@@ -103,16 +83,18 @@ public class AccountManager {
 
     public boolean userExists() throws DbException {
         String uid = user.getUid();
-        StringBuilder sql = new StringBuilder();
-        sql.append("SELECT COUNT(uid) FROM User WHERE uid='");
-        sql.append(uid);
-        sql.append("'");
+        DbSession session = DbSession.current();
+        final boolean ownSession = session == null;
+        if (ownSession) {
+            session = DbSession.openReadOnly();
+        }
         ResultSet rs = null;
-        Statement statement = null;
+        PreparedStatement statement = null;
 
         try {
-            statement = getConnection().createStatement();
-            rs = statement.executeQuery(sql.toString());
+            statement = session.getConnection().prepareStatement("SELECT COUNT(uid) FROM User WHERE uid=?");
+            statement.setString(1, uid);
+            rs = statement.executeQuery();
             rs.first();
             int count = rs.getInt(1);
             if (count > 0) {
@@ -129,13 +111,17 @@ public class AccountManager {
                 } catch (SQLException ex) {
                     logger.error("Exception while closing result set :(", ex);
                 }
+            }
+            if (statement != null) {
                 try {
                     statement.close();
                 } catch (SQLException ex) {
                     logger.error("statement is uncloseable :(", ex);
                 }
+            }
+            if (ownSession) {
                 try {
-                    closeConnection();
+                    session.close();
                 } catch (DbException ex) {
                     logger.error("connection cannot uncloseable - Please run in circles (around "
                             + "yourself) while screaming, pulling your hair, and accusing other people "
@@ -148,7 +134,7 @@ public class AccountManager {
 
     public int countModels() throws DbException {
         CountModel counter = new CountModel();
-        counter.setWhere("createdBy='" + user.getUid() + "'");
+        counter.setCreatedBy(user.getUid());
         int count = -1;
         try {
             count = counter.count();
@@ -163,7 +149,7 @@ public class AccountManager {
 
     public int countActiveTasks() throws DbException {
         CountTasks taskCounter = new CountTasks();
-        taskCounter.setWhere("Task.`createdBy`='" + user.getUid() + "' AND Task.`status` IN ('QUEUED','RUNNING')");
+        taskCounter.setWhere("Task.`createdBy`=? AND Task.`status` IN ('QUEUED','RUNNING')", user.getUid());
         int count = -1;
         try {
             count = taskCounter.count();
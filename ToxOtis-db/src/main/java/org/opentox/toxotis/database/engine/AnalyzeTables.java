@@ -0,0 +1,123 @@
+/*
+ *
+ * ToxOtis
+ *
+ * ToxOtis is the Greek word for Sagittarius, that actually means ‘archer’. ToxOtis
+ * is a Java interface to the predictive toxicology services of OpenTox. ToxOtis is
+ * being developed to help both those who need a painless way to consume OpenTox
+ * services and for ambitious service providers that don’t want to spend half of
+ * their time in RDF parsing and creation.
+ *
+ * Copyright (C) 2009-2010 Pantelis Sopasakis & Charalampos Chomenides
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Contact:
+ * Pantelis Sopasakis
+ * chvng@mail.ntua.gr
+ * Address: Iroon Politechniou St. 9, Zografou, Athens Greece
+ * tel. +30 210 7723236
+ *
+ */
+package org.opentox.toxotis.database.engine;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.regex.Pattern;
+import org.opentox.toxotis.database.DbOperation;
+import org.opentox.toxotis.database.exception.DbException;
+
+/**
+ * Refreshes the key distribution statistics of tables (<code>ANALYZE TABLE</code>)
+ * so that the optimizer keeps choosing the right indexes as the tables grow
+ * and shrink.
+ *
+ * @author Pantelis Sopasakis
+ * @author Charalampos Chomenides
+ */
+public class AnalyzeTables extends DbOperation {
+
+    private static final Pattern TABLE_NAME = Pattern.compile("[A-Za-z0-9_]+");
+    private static final String OK = "OK";
+    private final String[] tables;
+    private org.slf4j.Logger logger = org.slf4j.LoggerFactory.getLogger(AnalyzeTables.class);
+
+    public AnalyzeTables(String... tables) {
+        if (tables == null || tables.length == 0) {
+            throw new IllegalArgumentException("No tables were provided");
+        }
+        for (String table : tables) {
+            if (table == null || !TABLE_NAME.matcher(table).matches()) {
+                throw new IllegalArgumentException("Invalid table name : " + table);
+            }
+        }
+        this.tables = tables.clone();
+    }
+
+    @Override
+    public String getSqlTemplate() {
+        return "ANALYZE TABLE %s";
+    }
+
+    /**
+     * Analyzes the tables.
+     * @return
+     *      Number of tables whose statistics were refreshed successfully.
+     * @throws DbException
+     *      In case the statement fails.
+     */
+    public int analyze() throws DbException {
+        StringBuilder list = new StringBuilder();
+        for (int i = 0; i < tables.length; i++) {
+            if (i > 0) {
+                list.append(", ");
+            }
+            list.append(tables[i]);
+        }
+        Statement statement = null;
+        try {
+            statement = getConnection().createStatement();
+            ResultSet rs = statement.executeQuery(String.format(getSqlTemplate(), list));
+            int analyzed = 0;
+            while (rs.next()) {
+                /* Columns: Table, Op, Msg_type, Msg_text */
+                String messageType = rs.getString(3);
+                String message = rs.getString(4);
+                if ("status".equalsIgnoreCase(messageType) && (OK.equalsIgnoreCase(message)
+                        || "Table is already up to date".equalsIgnoreCase(message))) {
+                    analyzed++;
+                } else {
+                    logger.warn("ANALYZE TABLE " + rs.getString(1) + " : " + messageType + " - " + message);
+                }
+            }
+            rs.close();
+            return analyzed;
+        } catch (final SQLException ex) {
+            final String msg = "Table statistics cannot be refreshed";
+            logger.warn(msg, ex);
+            throw new DbException(msg, ex);
+        } finally {
+            try {
+                if (statement != null) {
+                    statement.close();
+                }
+            } catch (final SQLException ex) {
+                logger.warn("Statement cannot close", ex);
+            } finally {
+                close();
+            }
+        }
+    }
+}
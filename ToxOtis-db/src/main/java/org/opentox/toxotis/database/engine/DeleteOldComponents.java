@@ -1,19 +1,67 @@
 package org.opentox.toxotis.database.engine;
 
 import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
 import java.sql.SQLException;
-import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import org.opentox.toxotis.database.DbOperation;
 import org.opentox.toxotis.database.exception.DbException;
 
 /**
+ * Purges disabled components which were created more than a given number of
+ * days ago. Candidates are found through the index on the creation date and
+ * are deleted in chunks of bounded size, each in a short transaction of its
+ * own, so that the purge can run alongside regular traffic without locking
+ * <code>OTComponent</code> for long. An optional pause between chunks further
+ * limits the load on the server.
+ *
+ * <p>The number of rows removed is reported per table for the tables which
+ * extend <code>OTComponent</code> (rows in other tables are removed by
+ * cascading). Components which cannot be deleted because they are still
+ * referenced (e.g. an error report which is the cause of another one) are
+ * skipped.</p>
  *
  * @author Pantelis Sopasakis
  * @author Charalampos Chomenides
  */
 public class DeleteOldComponents extends DbOperation {
 
+    /**
+     * Default number of components deleted per transaction.
+     */
+    public static final int DEFAULT_CHUNK_SIZE = 500;
+    /**
+     * Tables whose rows are components, i.e. their primary key references
+     * <code>OTComponent</code>.
+     */
+    private static final String[] COMPONENT_TABLES = {"Task", "ErrorReport", "Parameter", "Model",
+        "BibTeX", "FeatureValues", "JFeature", "Compound", "Conformer", "Dataset"};
+    private static final String COMPONENT_TABLE = "OTComponent";
+    private static final String SQL_FIRST_CHUNK = "SELECT id, created FROM OTComponent FORCE INDEX (index_created) "
+            + "WHERE created < ? AND enabled=false ORDER BY created, id LIMIT ?";
+    private static final String SQL_NEXT_CHUNK = "SELECT id, created FROM OTComponent FORCE INDEX (index_created) "
+            + "WHERE created < ? AND (created > ? OR (created = ? AND id > ?)) AND enabled=false "
+            + "ORDER BY created, id LIMIT ?";
+    private static final String SQL_LOCK = "SELECT id FROM OTComponent WHERE enabled=false AND id IN (%s) FOR UPDATE";
+    private static final String SQL_COUNT = "SELECT '%s', COUNT(*) FROM %s WHERE id IN (%s)";
+    private static final String SQL_DELETE = "DELETE FROM OTComponent WHERE id IN (%s)";
     private int days = 15;
+    private int chunkSize = DEFAULT_CHUNK_SIZE;
+    private long pauseMillis = 0;
+    private int limit = 0;
+    private Timestamp lastCreated;
+    private String lastId;
+    private int processed = 0;
+    private int chunks = 0;
+    private int skipped = 0;
+    private final Map<String, Integer> deleted = new LinkedHashMap<String, Integer>();
+    private org.slf4j.Logger logger = org.slf4j.LoggerFactory.getLogger(DeleteOldComponents.class);
 
     public int getDays() {
         return days;
@@ -23,29 +71,292 @@ public class DeleteOldComponents extends DbOperation {
         this.days = days;
     }
 
+    public int getChunkSize() {
+        return chunkSize;
+    }
+
+    /**
+     * Maximum number of components deleted in a single transaction.
+     * @param chunkSize
+     *      Chunk size (a positive number).
+     */
+    public void setChunkSize(int chunkSize) {
+        if (chunkSize <= 0) {
+            throw new IllegalArgumentException("Chunk size must be positive");
+        }
+        this.chunkSize = chunkSize;
+    }
+
+    public int getLimit() {
+        return limit;
+    }
+
+    /**
+     * Maximum number of components examined by a single invocation of
+     * {@link #delete() }, so that a purge can be spread over several runs
+     * (see {@link #setResumePoint(java.sql.Timestamp, java.lang.String) }).
+     * @param limit
+     *      Maximum number of components; <code>0</code> for no limit.
+     */
+    public void setLimit(int limit) {
+        this.limit = limit;
+    }
+
+    /**
+     * Resumes the purge after the last component examined by a previous
+     * invocation (possibly of another instance), instead of from the oldest
+     * component.
+     * @param lastCreated
+     *      Creation date of the last examined component (see {@link #getLastCreated() }).
+     * @param lastId
+     *      Identifier of the last examined component (see {@link #getLastId() }).
+     */
+    public void setResumePoint(Timestamp lastCreated, String lastId) {
+        this.lastCreated = lastCreated;
+        this.lastId = lastId;
+    }
+
+    /**
+     * Creation date of the last component examined by {@link #delete() }.
+     * @return
+     *      Creation date or <code>null</code> if no component was examined.
+     */
+    public Timestamp getLastCreated() {
+        return lastCreated;
+    }
+
+    /**
+     * Identifier of the last component examined by {@link #delete() }.
+     * @return
+     *      Identifier or <code>null</code> if no component was examined.
+     */
+    public String getLastId() {
+        return lastId;
+    }
+
+    /**
+     * Number of components examined by the last invocation of {@link #delete() },
+     * i.e. deleted, skipped or enabled again in the meantime.
+     * @return
+     *      Number of examined components.
+     */
+    public int getProcessed() {
+        return processed;
+    }
+
+    public long getPauseMillis() {
+        return pauseMillis;
+    }
+
+    /**
+     * Time to wait after each chunk before deleting the next one.
+     * @param pauseMillis
+     *      Pause in milliseconds; <code>0</code> for no pause.
+     */
+    public void setPauseMillis(long pauseMillis) {
+        this.pauseMillis = pauseMillis;
+    }
+
+    /**
+     * Number of chunks committed by the last invocation of {@link #delete() }.
+     * @return
+     *      Number of chunks.
+     */
+    public int getChunks() {
+        return chunks;
+    }
+
+    /**
+     * Number of old components which could not be deleted by the last
+     * invocation of {@link #delete() } because they are still referenced.
+     * @return
+     *      Number of skipped components.
+     */
+    public int getSkipped() {
+        return skipped;
+    }
+
+    /**
+     * Rows removed by the last invocation of {@link #delete() } per table:
+     * <code>OTComponent</code> and each table that extends it.
+     * @return
+     *      Unmodifiable map from table names to numbers of removed rows.
+     */
+    public Map<String, Integer> getDeleted() {
+        return Collections.unmodifiableMap(deleted);
+    }
+
+    /**
+     * Deletes all disabled components created before the cutoff.
+     * @return
+     *      Number of components deleted.
+     * @throws DbException
+     *      In case a chunk cannot be deleted. Chunks committed before the
+     *      failure remain deleted.
+     */
     public int delete() throws DbException {
-        Connection connection = null;
+        chunks = 0;
+        skipped = 0;
+        processed = 0;
+        deleted.clear();
+        deleted.put(COMPONENT_TABLE, 0);
+        for (String table : COMPONENT_TABLES) {
+            deleted.put(table, 0);
+        }
+        Timestamp cutoff = new Timestamp(System.currentTimeMillis() - days * 24L * 3600L * 1000L);
         try {
-            connection = getConnection();
-            Statement statement = connection.createStatement();
-            //TODO: Change this command using...
-            //  select timediff(deletionDate,created) from OTComponent where enabled=false;
-            // CHECK OUT http://dev.mysql.com/doc/refman/5.5/en/date-and-time-functions.html#function_timediff
-            return statement.executeUpdate("DELETE FROM OTComponent WHERE (month(current_date())*30+"
-                    + "day(current_date())-(month(OTComponent.created )*30+day(OTComponent.created ))) >= " + getDays()
-                    + " AND OTComponent.enabled=false");
-        } catch (SQLException ex) {
-            throw new DbException(ex);
-        } catch (DbException ex) {
-            throw ex;
+            Connection connection = getConnection();
+            connection.setAutoCommit(true);
+            while (true) {
+                int size = limit > 0 ? Math.min(chunkSize, limit - processed) : chunkSize;
+                if (size <= 0) {
+                    break;
+                }
+                List<String> ids = new ArrayList<String>(size);
+                PreparedStatement select = lastId == null
+                        ? prepare(SQL_FIRST_CHUNK, cutoff, size)
+                        : prepare(SQL_NEXT_CHUNK, cutoff, lastCreated, lastCreated, lastId, size);
+                ResultSet rs = null;
+                try {
+                    rs = select.executeQuery();
+                    while (rs.next()) {
+                        lastId = rs.getString(1);
+                        lastCreated = rs.getTimestamp(2);
+                        ids.add(lastId);
+                    }
+                } finally {
+                    if (rs != null) {
+                        rs.close();
+                    }
+                    select.close();
+                }
+                if (ids.isEmpty()) {
+                    break;
+                }
+                deleteChunk(connection, ids);
+                processed += ids.size();
+                chunks++;
+                logger.debug("Purged chunk " + chunks + " of old components; " + deleted.get(COMPONENT_TABLE)
+                        + " deleted so far");
+                if (ids.size() < size) {
+                    break;
+                }
+                if (pauseMillis > 0) {
+                    try {
+                        Thread.sleep(pauseMillis);
+                    } catch (final InterruptedException ex) {
+                        logger.info("Purge of old components interrupted after " + chunks + " chunks");
+                        Thread.currentThread().interrupt();
+                        break;
+                    }
+                }
+            }
+            logger.info("Purged old components " + deleted + " in " + chunks + " chunks, " + skipped + " skipped");
+            return deleted.get(COMPONENT_TABLE);
+        } catch (final SQLException ex) {
+            final String msg = "Purge of old components failed after " + chunks + " chunks ("
+                    + deleted.get(COMPONENT_TABLE) + " components deleted)";
+            logger.warn(msg, ex);
+            throw new DbException(msg, ex);
         } finally {
+            close();
+        }
+    }
+
+    /*
+     * Deletes a chunk in one transaction. If the chunk cannot be deleted as a
+     * whole (typically because some component is still referenced), its
+     * components are deleted one by one and those that fail are skipped.
+     */
+    private void deleteChunk(Connection connection, List<String> ids) throws DbException, SQLException {
+        try {
+            deleteComponents(connection, ids);
+        } catch (final SQLException ex) {
+            logger.debug("Chunk of old components cannot be deleted at once; deleting one by one", ex);
+            for (String id : ids) {
+                try {
+                    deleteComponents(connection, Collections.singletonList(id));
+                } catch (final SQLException ex1) {
+                    logger.debug("Old component " + id + " cannot be deleted", ex1);
+                    skipped++;
+                }
+            }
+        }
+    }
+
+    private void deleteComponents(Connection connection, List<String> ids) throws DbException, SQLException {
+        connection.setAutoCommit(false);
+        try {
+            /* Lock the components and skip those that have been enabled meanwhile */
+            List<String> locked = new ArrayList<String>(ids.size());
+            PreparedStatement lock = prepare(String.format(SQL_LOCK, placeholders(ids.size())), ids.toArray());
+            try {
+                ResultSet rs = lock.executeQuery();
+                while (rs.next()) {
+                    locked.add(rs.getString(1));
+                }
+                rs.close();
+            } finally {
+                lock.close();
+            }
+            if (locked.isEmpty()) {
+                connection.commit();
+                return;
+            }
+            Map<String, Integer> counts = count(locked);
+            PreparedStatement delete = prepare(String.format(SQL_DELETE, placeholders(locked.size())), locked.toArray());
             try {
-                connection.close();
-            } catch (SQLException ex) {
-                throw new DbException(ex);
+                counts.put(COMPONENT_TABLE, delete.executeUpdate());
+            } finally {
+                delete.close();
             }
+            connection.commit();
+            for (Map.Entry<String, Integer> count : counts.entrySet()) {
+                deleted.put(count.getKey(), deleted.get(count.getKey()) + count.getValue());
+            }
+        } catch (final SQLException ex) {
+            connection.rollback();
+            throw ex;
+        } finally {
+            connection.setAutoCommit(true);
+        }
+    }
+
+    private Map<String, Integer> count(List<String> ids) throws DbException, SQLException {
+        String in = placeholders(ids.size());
+        Object[] values = ids.toArray();
+        StringBuilder sql = new StringBuilder();
+        Object[] parameters = new Object[ids.size() * COMPONENT_TABLES.length];
+        for (int i = 0; i < COMPONENT_TABLES.length; i++) {
+            if (i > 0) {
+                sql.append(" UNION ALL ");
+            }
+            sql.append(String.format(SQL_COUNT, COMPONENT_TABLES[i], COMPONENT_TABLES[i], in));
+            System.arraycopy(values, 0, parameters, i * values.length, values.length);
         }
+        Map<String, Integer> counts = new LinkedHashMap<String, Integer>();
+        PreparedStatement statement = prepare(sql.toString(), parameters);
+        try {
+            ResultSet rs = statement.executeQuery();
+            while (rs.next()) {
+                counts.put(rs.getString(1), rs.getInt(2));
+            }
+            rs.close();
+        } finally {
+            statement.close();
+        }
+        return counts;
+    }
 
+    private static String placeholders(int n) {
+        StringBuilder marks = new StringBuilder(2 * n);
+        for (int i = 0; i < n; i++) {
+            if (i > 0) {
+                marks.append(",");
+            }
+            marks.append("?");
+        }
+        return marks.toString();
     }
 
     @Override
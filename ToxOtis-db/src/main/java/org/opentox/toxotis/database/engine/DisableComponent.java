@@ -1,10 +1,15 @@
 package org.opentox.toxotis.database.engine;
 
+import java.sql.Connection;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.util.Arrays;
 import java.util.Iterator;
+import java.util.List;
 import java.util.StringTokenizer;
 import org.opentox.toxotis.database.DbOperation;
+import org.opentox.toxotis.database.engine.counter.ComponentCounters;
+import org.opentox.toxotis.database.engine.counter.CounterDelta;
 import org.opentox.toxotis.database.exception.DbException;
 
 /**
@@ -58,19 +63,41 @@ public class DisableComponent extends DbOperation {
         }
         String sql = String.format(getSqlTemplate(), enable, updatedComponentsSql);
         Statement stmt = null;
+        Connection connection = getConnection();
+        boolean counted = ComponentCounters.isEnabled();
         try {
-            stmt = getConnection().createStatement();
+            CounterDelta counters = new CounterDelta();
+            if (counted) {
+                /* Only components whose state actually changes affect the counters */
+                connection.setAutoCommit(false);
+                List<String> changed = ComponentCounters.lock(connection, Arrays.asList(componentIds), !enable);
+                counters.addComponents(connection, changed, enable ? 1 : -1);
+            }
+            stmt = connection.createStatement();
             stmt.addBatch(sql);
-            return stmt.executeBatch()[0];
+            int updated = stmt.executeBatch()[0];
+            if (counted) {
+                counters.apply(connection);
+                connection.commit();
+            }
+            return updated;
         } catch (final SQLException ex) {
             final String msg = "SQL statement execution failed while trying to enable/disable a component in the database";
             logger.warn(msg, ex);
+            if (counted) {
+                try {
+                    connection.rollback();
+                } catch (final SQLException ex1) {
+                    logger.warn("Rollback failed", ex1);
+                }
+            }
             throw new DbException(msg, ex);
         } finally {
             try {
                 if (stmt != null) {
                     stmt.close();
                 }
+                connection.setAutoCommit(true);
             } catch (final SQLException ex) {
                 final String msg = "SQL statement execution failed while trying to enable/disable a component in the database";
                 logger.warn(msg, ex);
@@ -1,14 +1,17 @@
 package org.opentox.toxotis.database.engine.bibtex;
 
-import java.sql.Blob;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.SQLException;
 import java.sql.Types;
+import java.util.ArrayList;
+import java.util.List;
 import org.opentox.toxotis.core.component.BibTeX;
 import org.opentox.toxotis.database.DbWriter;
+import org.opentox.toxotis.database.engine.counter.ComponentCounters;
+import org.opentox.toxotis.database.engine.counter.CounterDelta;
+import org.opentox.toxotis.database.engine.metainfo.MetaInfoStore;
 import org.opentox.toxotis.database.exception.DbException;
-import org.opentox.toxotis.ontology.MetaInfoBlobber;
 
 /**
  * Assumes that the user is already there. No need to perform a batch update for
@@ -47,48 +50,22 @@ public class AddBibTeX extends DbWriter {
         Connection connection = getConnection();
 
         String insertBibTeXAsComponent = String.format(insertBibTeXAsComponentTemplate, bibtex.getUri().getId());
+        List<MetaInfoStore.Entry> metaEntries = new ArrayList<MetaInfoStore.Entry>(1);
         try {
             connection.setAutoCommit(false);
-
-            if (bibtex.getMeta() != null) {
-                writeMeta = connection.prepareStatement(insertMeta);
-                writeMeta.setInt(1, bibtex.getMeta().hashCode());
-                MetaInfoBlobber mib = new MetaInfoBlobber(bibtex.getMeta());
-                Blob miBlob = null;
-                try {
-                    miBlob = mib.toBlob();
-                    writeMeta.setBlob(2, miBlob);
-                } catch (Exception ex) {
-                    logger.error("Exception while creating and setting meta-info BLOB", ex);
+            try {
+                writeAsComponent(connection, insertBibTeXAsComponent, metaEntries);
+            } catch (final SQLException ex) {
+                if (!forgetMissingMetaInfo(ex, metaEntries)) {
+                    throw ex;
                 }
-                writeMeta.executeUpdate();
-            }
-
-
-            writeComponent = connection.prepareStatement(insertBibTeXAsComponent);
-            writeComponent.setBoolean(1, bibtex.isEnabled());
-            if (bibtex.getMeta() != null) {
-                writeComponent.setInt(2, bibtex.getMeta().hashCode());
-            } else {
-                writeComponent.setNull(2, Types.INTEGER);
+                connection.rollback();
+                metaEntries.clear();
+                writeAsComponent(connection, insertBibTeXAsComponent, metaEntries);
             }
-            writeComponent.executeUpdate();
-
-
         } catch (SQLException ex) {
             logger.error("", ex);
             throw new DbException("", ex);
-        } finally {
-            if (writeComponent != null) {
-                try {
-                    writeComponent.close();
-                } catch (SQLException ex) {
-                    final String msg = "SQL exception occured while closing the SQL statement for "
-                            + "adding a bibtex in the database : ".concat(insertBibTeXAsComponent != null ? insertBibTeXAsComponent : "N/A");
-                    logger.warn(msg, ex);
-
-                }
-            }
         }
 
         setTable("BibTeX");
@@ -143,11 +120,15 @@ public class AddBibTeX extends DbWriter {
             }
             ps.setString(25, bibtex.getCreatedBy().getUid());
             int update = ps.executeUpdate();
+            if (bibtex.isEnabled()) {
+                new CounterDelta().add(ComponentCounters.BIBTEX, bibtex.getCreatedBy().getUid(), 1).apply(connection);
+            }
 
             /*
              * COMMIT :)
              */
             connection.commit();
+            remember(metaEntries);
             return update;
         } catch (SQLException ex) {
             final String msg = "BibTeX could not be added in the database";
@@ -166,4 +147,58 @@ public class AddBibTeX extends DbWriter {
         }
 
     }
+
+    /*
+     * Writes the BibTeX as a component (along with its meta-information)
+     * without committing; the entry of its meta-information is added to the
+     * given list.
+     */
+    private void writeAsComponent(Connection connection, String insertBibTeXAsComponent,
+            List<MetaInfoStore.Entry> metaEntries) throws SQLException, DbException {
+        try {
+            MetaInfoStore.Entry metaEntry = null;
+            if (bibtex.getMeta() != null) {
+                metaEntry = MetaInfoStore.getInstance().lookup(bibtex.getMeta());
+                metaEntries.add(metaEntry);
+                if (!metaEntry.isStored()) {
+                    writeMeta = connection.prepareStatement(insertMeta);
+                    writeMeta.setBytes(1, metaEntry.getKey());
+                    writeMeta.setBytes(2, metaEntry.getEncoded());
+                    writeMeta.executeUpdate();
+                }
+            }
+
+
+            writeComponent = connection.prepareStatement(insertBibTeXAsComponent);
+            writeComponent.setBoolean(1, bibtex.isEnabled());
+            if (metaEntry != null) {
+                writeComponent.setBytes(2, metaEntry.getKey());
+            } else {
+                writeComponent.setNull(2, Types.BINARY);
+            }
+            writeComponent.executeUpdate();
+        } finally {
+            if (writeComponent != null) {
+                try {
+                    writeComponent.close();
+                } catch (SQLException ex) {
+                    final String msg = "SQL exception occured while closing the SQL statement for "
+                            + "adding a bibtex in the database : ".concat(insertBibTeXAsComponent != null ? insertBibTeXAsComponent : "N/A");
+                    logger.warn(msg, ex);
+
+                }
+                writeComponent = null;
+            }
+            if (writeMeta != null) {
+                try {
+                    writeMeta.close();
+                } catch (SQLException ex) {
+                    final String msg = "SQL exception occured while closing the SQL statement for "
+                            + "adding a bibtex in the database : ".concat(insertMeta);
+                    logger.warn(msg, ex);
+                }
+                writeMeta = null;
+            }
+        }
+    }
 }
@@ -10,6 +10,7 @@ import org.opentox.toxotis.database.DbIterator;
 import org.opentox.toxotis.database.IDbIterator;
 import org.opentox.toxotis.database.engine.cache.Cache;
 import org.opentox.toxotis.database.engine.cache.ICache;
+import org.opentox.toxotis.database.engine.cache.SharedCaches;
 import org.opentox.toxotis.database.engine.user.FindUser;
 import org.opentox.toxotis.database.exception.DbException;
 import org.opentox.toxotis.ontology.MetaInfo;
@@ -128,15 +129,22 @@ public class BibTeXIterator extends DbIterator<BibTeX> {
 
             if (createdBy != null) {
                 User user = usersCache.get(createdBy);//try to get the user from the cache.
+                if (user == null && resolveUser) {
+                    user = SharedCaches.users().get(createdBy);
+                    if (user != null) {
+                        usersCache.put(createdBy, user);
+                    }
+                }
                 if (user == null) {// if user is not found in cache, create it and put it there!
                     user = new User();
                     user.setUid(createdBy);
                     if (resolveUser) {
-                        FindUser fu = new FindUser();
-                        fu.setWhere("uid='" + createdBy + "'");
+                        FindUser fu = nested(new FindUser());
+                        fu.setWhere("uid=?", createdBy);
                         IDbIterator<User> users = fu.list();
                         if (users.hasNext()) {
                             user = users.next();
+                            SharedCaches.users().put(createdBy, user);
                         }
                         users.close();
                         fu.close();
@@ -34,10 +34,9 @@
 
 package org.opentox.toxotis.database.engine.bibtex;
 
-import java.sql.Connection;
+import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
-import java.sql.Statement;
 import org.opentox.toxotis.client.VRI;
 import org.opentox.toxotis.core.component.BibTeX;
 import org.opentox.toxotis.database.IDbIterator;
@@ -52,7 +51,7 @@ import org.opentox.toxotis.database.exception.DbException;
 public class FindBibTeX extends DbReader<BibTeX> {
 
     private final VRI baseUri;
-    private Statement statement = null;
+    private PreparedStatement statement = null;
     private org.slf4j.Logger logger = org.slf4j.LoggerFactory.getLogger(FindBibTeX.class);
     private boolean includeDisabled = false;
     private boolean resolveUsers;
@@ -78,8 +77,7 @@ public class FindBibTeX extends DbReader<BibTeX> {
     }
 
     public void setSearchById(String id) {
-        String whereTemplate = "BibTeX.id='%s'";
-        setWhere(String.format(whereTemplate, id));
+        setWhere("BibTeX.id=?", id);
     }
 
 //    CREATE TABLE `BibTeX` (
@@ -150,22 +148,16 @@ public class FindBibTeX extends DbReader<BibTeX> {
         setInnerJoin("OTComponent ON BibTeX.id=OTComponent.id "
                 + "LEFT JOIN MetaInfo ON OTComponent.meta=MetaInfo.id" );
         if (!includeDisabled) {
-            if (where == null) {
-                setWhere("OTComponent.enabled=true");
-            } else {
-                setWhere(where + " AND OTComponent.enabled=true");
-            }
+            addWhere("OTComponent.enabled=true");
         }
 
-        Connection connection = null;
-        connection = getConnection();
 
         try {
-            statement = connection.createStatement();
-            ResultSet rs = statement.executeQuery(getSql());
+            statement = prepareStatement();
+            ResultSet rs = statement.executeQuery();
             BibTeXIterator it = new BibTeXIterator(rs, baseUri);
             it.setResolveUser(resolveUsers);
-            return it;
+            return iterate(it, rs);
         } catch (SQLException ex) {
             throw new DbException(ex);
         } 
@@ -58,11 +58,11 @@ public class ListBibTeX extends DbReader<String> {
     public IDbIterator<String> list() throws DbException {
         setTable("BibTeX");
         setTableColumns("BibTeX.id");
+        setKeyColumns(null, "BibTeX.id");
         try {
-            statement = getConnection().prepareStatement(getSql());
+            statement = prepareStatement();
             ResultSet results = statement.executeQuery();
-            ResultSetIterator it = new ResultSetIterator(results);
-            return it;
+            return iterate(new ResultSetIterator(results), results);
         } catch (final SQLException ex) {
             final String msg = "Error reading bibtex id from the database";
             logger.warn(msg, ex);
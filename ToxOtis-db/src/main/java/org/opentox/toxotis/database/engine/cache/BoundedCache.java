@@ -0,0 +1,315 @@
+/*
+ *
+ * ToxOtis
+ *
+ * ToxOtis is the Greek word for Sagittarius, that actually means ‘archer’. ToxOtis
+ * is a Java interface to the predictive toxicology services of OpenTox. ToxOtis is
+ * being developed to help both those who need a painless way to consume OpenTox
+ * services and for ambitious service providers that don’t want to spend half of
+ * their time in RDF parsing and creation.
+ *
+ * Copyright (C) 2009-2010 Pantelis Sopasakis & Charalampos Chomenides
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Contact:
+ * Pantelis Sopasakis
+ * chvng@mail.ntua.gr
+ * Address: Iroon Politechniou St. 9, Zografou, Athens Greece
+ * tel. +30 210 7723236
+ *
+ */
+package org.opentox.toxotis.database.engine.cache;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded, concurrent cache with time-based expiration. The cache is split in
+ * a number of segments, each one guarded by its own lock, so that threads
+ * accessing different keys rarely contend. Every segment holds an equal share
+ * of the total capacity and, when it is full, evicts its least recently used
+ * entries. The capacity is expressed in terms of a {@link Weigher weight}; by
+ * default every entry weighs 1, so the capacity is the maximum number of
+ * entries. Entries expire a fixed time after they were put in the cache.
+ * 
+ * <p>Objects in a cache that is shared among requests are returned as they are
+ * to every caller and should be treated as read-only.</p>
+ *
+ * @author Pantelis Sopasakis
+ * @author Charalampos Chomenides
+ * @see SharedCaches
+ */
+public class BoundedCache<K, T> implements ICache<K, T> {
+
+    /** Default number of segments */
+    public static final int DEFAULT_CONCURRENCY_LEVEL = 16;
+    private final Segment<K, T>[] segments;
+    private final long maxWeight;
+    private final long expireAfterWrite;
+    private final Weigher<? super K, ? super T> weigher;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private final AtomicLong expirations = new AtomicLong();
+
+    /**
+     * Computes the weight of the entries of a cache.
+     * @param <K> Type of the keys.
+     * @param <T> Type of the cached objects.
+     */
+    public interface Weigher<K, T> {
+
+        /**
+         * The weight of an entry.
+         * @param key
+         *      Key of the entry.
+         * @param object
+         *      Cached object.
+         * @return
+         *      Non-negative weight of the entry.
+         */
+        long weigh(K key, T object);
+    }
+
+    private static class Entry<T> {
+
+        private final T object;
+        private final long weight;
+        private final long expires;
+
+        Entry(T object, long weight, long expires) {
+            this.object = object;
+            this.weight = weight;
+            this.expires = expires;
+        }
+    }
+
+    private static class Segment<K, T> {
+
+        private final Map<K, Entry<T>> entries = new LinkedHashMap<K, Entry<T>>(16, 0.75f, true);
+        private final long maxWeight;
+        private long weight = 0;
+
+        Segment(long maxWeight) {
+            this.maxWeight = maxWeight;
+        }
+    }
+
+    /**
+     * Create a new cache whose entries weigh 1 each.
+     * @param maxEntries
+     *      Maximum number of entries.
+     * @param expireAfterWrite
+     *      Time in milliseconds after which an entry expires; <code>0</code>
+     *      means that entries never expire.
+     */
+    public BoundedCache(long maxEntries, long expireAfterWrite) {
+        this(maxEntries, expireAfterWrite, DEFAULT_CONCURRENCY_LEVEL, null);
+    }
+
+    /**
+     * Create a new cache.
+     * @param maxWeight
+     *      Maximum total weight of the entries. The capacity is divided equally
+     *      among the segments.
+     * @param expireAfterWrite
+     *      Time in milliseconds after which an entry expires; <code>0</code>
+     *      means that entries never expire.
+     * @param concurrencyLevel
+     *      Number of segments (at most <code>maxWeight</code>).
+     * @param weigher
+     *      Computes the weight of the entries; if <code>null</code>, every
+     *      entry weighs 1.
+     * @throws IllegalArgumentException
+     *      If any of the arguments is out of range.
+     */
+    @SuppressWarnings("unchecked")
+    public BoundedCache(long maxWeight, long expireAfterWrite, int concurrencyLevel,
+            Weigher<? super K, ? super T> weigher) {
+        if (maxWeight < 1 || expireAfterWrite < 0 || concurrencyLevel < 1) {
+            throw new IllegalArgumentException("Invalid cache settings");
+        }
+        this.maxWeight = maxWeight;
+        this.expireAfterWrite = expireAfterWrite;
+        this.weigher = weigher;
+        int n = (int) Math.min(concurrencyLevel, maxWeight);
+        long segmentWeight = (maxWeight + n - 1) / n;
+        segments = new Segment[n];
+        for (int i = 0; i < n; i++) {
+            segments[i] = new Segment<K, T>(segmentWeight);
+        }
+    }
+
+    private Segment<K, T> segmentFor(K key) {
+        int h = key != null ? key.hashCode() : 0;
+        h ^= (h >>> 16);
+        return segments[(h & 0x7fffffff) % segments.length];
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <R extends T> R get(K id) {
+        Segment<K, T> segment = segmentFor(id);
+        synchronized (segment) {
+            Entry<T> entry = segment.entries.get(id);
+            if (entry == null) {
+                misses.incrementAndGet();
+                return null;
+            }
+            if (entry.expires > 0 && entry.expires <= System.currentTimeMillis()) {
+                segment.entries.remove(id);
+                segment.weight -= entry.weight;
+                expirations.incrementAndGet();
+                misses.incrementAndGet();
+                return null;
+            }
+            hits.incrementAndGet();
+            return (R) entry.object;
+        }
+    }
+
+    @Override
+    public void put(K id, T object) {
+        long weight = weigher != null ? weigher.weigh(id, object) : 1;
+        Segment<K, T> segment = segmentFor(id);
+        synchronized (segment) {
+            if (weight > segment.maxWeight) {
+                /* Would evict everything else; not cached at all */
+                Entry<T> old = segment.entries.remove(id);
+                if (old != null) {
+                    segment.weight -= old.weight;
+                }
+                return;
+            }
+            long expires = expireAfterWrite > 0 ? System.currentTimeMillis() + expireAfterWrite : 0;
+            Entry<T> old = segment.entries.put(id, new Entry<T>(object, weight, expires));
+            if (old != null) {
+                segment.weight -= old.weight;
+            }
+            segment.weight += weight;
+            Iterator<Entry<T>> eldest = segment.entries.values().iterator();
+            while (segment.weight > segment.maxWeight && eldest.hasNext()) {
+                Entry<T> evicted = eldest.next();
+                eldest.remove();
+                segment.weight -= evicted.weight;
+                evictions.incrementAndGet();
+            }
+        }
+    }
+
+    @Override
+    public void remove(K id) {
+        Segment<K, T> segment = segmentFor(id);
+        synchronized (segment) {
+            Entry<T> old = segment.entries.remove(id);
+            if (old != null) {
+                segment.weight -= old.weight;
+            }
+        }
+    }
+
+    @Override
+    public void clear() {
+        for (Segment<K, T> segment : segments) {
+            synchronized (segment) {
+                segment.entries.clear();
+                segment.weight = 0;
+            }
+        }
+    }
+
+    /**
+     * Number of entries in the cache, including expired entries that have not
+     * been looked up since they expired.
+     * @return
+     *      The size of the cache.
+     */
+    @Override
+    public int size() {
+        int size = 0;
+        for (Segment<K, T> segment : segments) {
+            synchronized (segment) {
+                size += segment.entries.size();
+            }
+        }
+        return size;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    /**
+     * Total weight of the entries in the cache.
+     * @return
+     *      The weight of the cache.
+     */
+    public long getWeight() {
+        long weight = 0;
+        for (Segment<K, T> segment : segments) {
+            synchronized (segment) {
+                weight += segment.weight;
+            }
+        }
+        return weight;
+    }
+
+    public long getMaxWeight() {
+        return maxWeight;
+    }
+
+    public long getExpireAfterWrite() {
+        return expireAfterWrite;
+    }
+
+    /**
+     * Number of lookups that found a (non-expired) entry.
+     * @return
+     *      Number of hits.
+     */
+    public long getHits() {
+        return hits.get();
+    }
+
+    /**
+     * Number of lookups that found no entry or an expired one.
+     * @return
+     *      Number of misses.
+     */
+    public long getMisses() {
+        return misses.get();
+    }
+
+    /**
+     * Number of entries removed to keep the cache within its capacity.
+     * @return
+     *      Number of evictions.
+     */
+    public long getEvictions() {
+        return evictions.get();
+    }
+
+    /**
+     * Number of entries removed because they had expired.
+     * @return
+     *      Number of expirations.
+     */
+    public long getExpirations() {
+        return expirations.get();
+    }
+}
@@ -5,6 +5,9 @@ import java.util.HashMap;
 import java.util.Map;
 
 /**
+ * Plain unbounded cache, meant to be used within the scope of a single
+ * request (e.g. by an iterator). For caches shared by the whole application
+ * see {@link BoundedCache} and {@link SharedCaches}.
  *
  * @author Pantelis Sopasakis
  * @author Charalampos Chomenides
@@ -19,16 +22,27 @@ public class Cache<K, T> implements ICache<K, T> {
 
     @Override
     public void put(K id, T object) throws ClassCastException, IllegalArgumentException, NullPointerException {
-        synchronized (objects) {
-            this.objects.put(id, object);
-        }
+        this.objects.put(id, object);
     }
 
     @Override
     public <R extends T> R get(K id) throws NullPointerException, ClassCastException {
-        synchronized (objects) {
-            return (R) this.objects.get(id);
-        }
+        return (R) this.objects.get(id);
+    }
+
+    @Override
+    public void remove(K id) {
+        this.objects.remove(id);
+    }
+
+    @Override
+    public void clear() {
+        this.objects.clear();
+    }
+
+    @Override
+    public int size() {
+        return objects.size();
     }
 
     @Override
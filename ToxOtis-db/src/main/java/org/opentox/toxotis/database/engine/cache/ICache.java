@@ -11,5 +11,24 @@ public interface ICache<K, T> {
 
     void put(K id, T object);
 
+    /**
+     * Removes an object from the cache (if present).
+     * @param id
+     *      Key of the object.
+     */
+    void remove(K id);
+
+    /**
+     * Removes all objects from the cache.
+     */
+    void clear();
+
+    /**
+     * Number of objects in the cache.
+     * @return
+     *      The size of the cache.
+     */
+    int size();
+
     boolean isEmpty();
 }
@@ -0,0 +1,88 @@
+/*
+ *
+ * ToxOtis
+ *
+ * ToxOtis is the Greek word for Sagittarius, that actually means ‘archer’. ToxOtis
+ * is a Java interface to the predictive toxicology services of OpenTox. ToxOtis is
+ * being developed to help both those who need a painless way to consume OpenTox
+ * services and for ambitious service providers that don’t want to spend half of
+ * their time in RDF parsing and creation.
+ *
+ * Copyright (C) 2009-2010 Pantelis Sopasakis & Charalampos Chomenides
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Contact:
+ * Pantelis Sopasakis
+ * chvng@mail.ntua.gr
+ * Address: Iroon Politechniou St. 9, Zografou, Athens Greece
+ * tel. +30 210 7723236
+ *
+ */
+package org.opentox.toxotis.database.engine.cache;
+
+import org.opentox.toxotis.core.component.ErrorReport;
+import org.opentox.toxotis.core.component.User;
+
+/**
+ * Caches shared by all database operations of the application, for entities
+ * that are looked up over and over again by different requests. Only entities
+ * that were actually found in the database are put in these caches. Cached
+ * objects are shared among threads and should not be modified.
+ *
+ * @author Pantelis Sopasakis
+ * @author Charalampos Chomenides
+ */
+public final class SharedCaches {
+
+    /** Default lifetime of the cached entities (5 minutes) */
+    public static final long DEFAULT_TTL = 5 * 60 * 1000L;
+    /** Default maximum number of cached users */
+    public static final int DEFAULT_MAX_USERS = 10000;
+    /** Default maximum number of cached error reports */
+    public static final int DEFAULT_MAX_ERROR_REPORTS = 10000;
+    private static final BoundedCache<String, User> USERS =
+            new BoundedCache<String, User>(DEFAULT_MAX_USERS, DEFAULT_TTL);
+    private static final BoundedCache<String, ErrorReport> ERROR_REPORTS =
+            new BoundedCache<String, ErrorReport>(DEFAULT_MAX_ERROR_REPORTS, DEFAULT_TTL);
+
+    private SharedCaches() {
+    }
+
+    /**
+     * Users by their UID.
+     * @return
+     *      The shared cache of users.
+     */
+    public static BoundedCache<String, User> users() {
+        return USERS;
+    }
+
+    /**
+     * Error reports by their ID.
+     * @return
+     *      The shared cache of error reports.
+     */
+    public static BoundedCache<String, ErrorReport> errorReports() {
+        return ERROR_REPORTS;
+    }
+
+    /**
+     * Empties all shared caches.
+     */
+    public static void clear() {
+        USERS.clear();
+        ERROR_REPORTS.clear();
+    }
+}
@@ -0,0 +1,241 @@
+/*
+ *
+ * ToxOtis
+ *
+ * ToxOtis is the Greek word for Sagittarius, that actually means ‘archer’. ToxOtis
+ * is a Java interface to the predictive toxicology services of OpenTox. ToxOtis is
+ * being developed to help both those who need a painless way to consume OpenTox
+ * services and for ambitious service providers that don’t want to spend half of
+ * their time in RDF parsing and creation.
+ *
+ * Copyright (C) 2009-2010 Pantelis Sopasakis & Charalampos Chomenides
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Contact:
+ * Pantelis Sopasakis
+ * chvng@mail.ntua.gr
+ * Address: Iroon Politechniou St. 9, Zografou, Athens Greece
+ * tel. +30 210 7723236
+ *
+ */
+package org.opentox.toxotis.database.engine.counter;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.opentox.toxotis.database.DbOperation;
+
+/**
+ * Counters of enabled components maintained in the table <code>ComponentCount</code>
+ * so that counting models, tasks, BibTeX entries or error reports does not
+ * need a <code>COUNT(*)</code> over the component table and its join with
+ * <code>OTComponent</code>. There is one row per type of component for all
+ * users (with the owner {@link #ALL_USERS}) and one per type and user for the
+ * types that record their creator.
+ *
+ * <p>Counters are disabled by default and are enabled either by setting the
+ * system property <code>toxotis.db.counters</code> to <code>true</code> or by
+ * {@link #setEnabled(boolean)}. While enabled, every operation that adds,
+ * enables, disables or deletes such components updates the counters in its
+ * own transaction (see {@link CounterDelta}) and {@link org.opentox.toxotis.database.DbCount}
+ * reads plain counts from them. Counters may drift when the components are
+ * modified by other means (e.g. manually or while counters were disabled);
+ * {@link ReconcileCounters} recomputes them and should run before counters are
+ * enabled and periodically thereafter.</p>
+ *
+ * @author Pantelis Sopasakis
+ * @author Charalampos Chomenides
+ */
+public final class ComponentCounters {
+
+    public static final String MODEL = "Model";
+    public static final String TASK = "Task";
+    public static final String BIBTEX = "BibTeX";
+    public static final String ERROR_REPORT = "ErrorReport";
+    /**
+     * Owner of the counters for all users.
+     */
+    public static final String ALL_USERS = "";
+    /**
+     * Counted types mapped to the column holding the creator of the component
+     * (<code>null</code> for types that do not record their creator).
+     */
+    private static final Map<String, String> TYPES;
+    private static final String SQL_LOCK = "SELECT id FROM OTComponent WHERE enabled=? AND id IN (%s) FOR UPDATE";
+    private static final String SQL_CLASSIFY = "SELECT '%s', %s FROM %s WHERE id IN (%s)";
+    private static final String SQL_SUBTRACT_USER = "UPDATE ComponentCount AS total INNER JOIN ComponentCount AS mine "
+            + "ON total.type=mine.type SET total.enabled=total.enabled-mine.enabled "
+            + "WHERE total.owner='' AND mine.owner=?";
+    private static final String SQL_REMOVE_USER = "DELETE FROM ComponentCount WHERE owner=?";
+    private static volatile boolean enabled = Boolean.getBoolean("toxotis.db.counters");
+
+    static {
+        Map<String, String> types = new LinkedHashMap<String, String>();
+        types.put(MODEL, "createdBy");
+        types.put(TASK, "createdBy");
+        types.put(BIBTEX, "createdBy");
+        types.put(ERROR_REPORT, null);
+        TYPES = Collections.unmodifiableMap(types);
+    }
+
+    private ComponentCounters() {
+    }
+
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    public static void setEnabled(boolean enabled) {
+        ComponentCounters.enabled = enabled;
+    }
+
+    /**
+     * The types of components that are counted.
+     * @return
+     *      Set of type names (which are also the names of their tables).
+     */
+    public static Set<String> getTypes() {
+        return TYPES.keySet();
+    }
+
+    /**
+     * Whether counters are also maintained per user for the given type.
+     * @param type
+     *      Type of components.
+     * @return
+     *      <code>true</code> if components of this type record their creator.
+     */
+    public static boolean isCountedPerUser(String type) {
+        return TYPES.get(type) != null;
+    }
+
+    /**
+     * Name of the column that holds the creator of a type of components.
+     * @param type
+     *      Type of components.
+     * @return
+     *      Column name or <code>null</code> if the type is not counted per user.
+     */
+    static String getOwnerColumn(String type) {
+        return TYPES.get(type);
+    }
+
+    /**
+     * Locks the components among the given ones that are currently enabled (or
+     * disabled) so that their state cannot change until the transaction of the
+     * connection ends. Operations that enable, disable or delete components
+     * lock them before classifying them with {@link CounterDelta#addComponents(java.sql.Connection, java.util.Collection, int) }.
+     *
+     * @param connection
+     *      Connection in a transaction (auto-commit disabled).
+     * @param ids
+     *      Identifiers of components.
+     * @param enabled
+     *      State of the components to be locked.
+     * @return
+     *      Identifiers of the locked components.
+     * @throws SQLException
+     *      In case the components cannot be locked.
+     */
+    public static List<String> lock(Connection connection, Collection<String> ids, boolean enabled) throws SQLException {
+        List<String> locked = new ArrayList<String>(ids.size());
+        if (ids.isEmpty()) {
+            return locked;
+        }
+        PreparedStatement statement = connection.prepareStatement(String.format(SQL_LOCK, placeholders(ids.size())));
+        try {
+            statement.setBoolean(1, enabled);
+            int index = 2;
+            for (String id : ids) {
+                DbOperation.bind(statement, index++, id);
+            }
+            ResultSet rs = statement.executeQuery();
+            while (rs.next()) {
+                locked.add(rs.getString(1));
+            }
+            rs.close();
+        } finally {
+            statement.close();
+        }
+        return locked;
+    }
+
+    /**
+     * Removes the counters of a user and subtracts them from the counters for
+     * all users, as the components of a user are deleted by cascading when the
+     * user is deleted. Does nothing while counters are disabled.
+     *
+     * @param connection
+     *      Connection in the transaction that deletes the user.
+     * @param owner
+     *      Identifier of the user.
+     * @throws SQLException
+     *      In case the counters cannot be updated.
+     */
+    public static void removeUser(Connection connection, String owner) throws SQLException {
+        if (!enabled || ALL_USERS.equals(owner)) {
+            return;
+        }
+        PreparedStatement statement = connection.prepareStatement(SQL_SUBTRACT_USER);
+        try {
+            statement.setString(1, owner);
+            statement.executeUpdate();
+        } finally {
+            statement.close();
+        }
+        statement = connection.prepareStatement(SQL_REMOVE_USER);
+        try {
+            statement.setString(1, owner);
+            statement.executeUpdate();
+        } finally {
+            statement.close();
+        }
+    }
+
+    /*
+     * Query returning the type and owner of each of n components that is counted
+     */
+    static String classifyQuery(int n) {
+        String in = placeholders(n);
+        StringBuilder sql = new StringBuilder();
+        for (Map.Entry<String, String> type : TYPES.entrySet()) {
+            if (sql.length() > 0) {
+                sql.append(" UNION ALL ");
+            }
+            sql.append(String.format(SQL_CLASSIFY, type.getKey(),
+                    type.getValue() != null ? type.getValue() : "NULL", type.getKey(), in));
+        }
+        return sql.toString();
+    }
+
+    static String placeholders(int n) {
+        StringBuilder marks = new StringBuilder(2 * n);
+        for (int i = 0; i < n; i++) {
+            if (i > 0) {
+                marks.append(",");
+            }
+            marks.append("?");
+        }
+        return marks.toString();
+    }
+}
@@ -0,0 +1,186 @@
+/*
+ *
+ * ToxOtis
+ *
+ * ToxOtis is the Greek word for Sagittarius, that actually means ‘archer’. ToxOtis
+ * is a Java interface to the predictive toxicology services of OpenTox. ToxOtis is
+ * being developed to help both those who need a painless way to consume OpenTox
+ * services and for ambitious service providers that don’t want to spend half of
+ * their time in RDF parsing and creation.
+ *
+ * Copyright (C) 2009-2010 Pantelis Sopasakis & Charalampos Chomenides
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Contact:
+ * Pantelis Sopasakis
+ * chvng@mail.ntua.gr
+ * Address: Iroon Politechniou St. 9, Zografou, Athens Greece
+ * tel. +30 210 7723236
+ *
+ */
+package org.opentox.toxotis.database.engine.counter;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Collection;
+import java.util.Map;
+import java.util.TreeMap;
+import org.opentox.toxotis.database.DbOperation;
+
+/**
+ * Changes of the {@link ComponentCounters component counters} accumulated by an
+ * operation and applied in its transaction just before it commits, so that the
+ * counters are updated if and only if the components are. Counter rows are
+ * updated in a fixed order (by type and owner) to avoid deadlocks between
+ * concurrent transactions; the rows of frequently counted types are hot, so
+ * they should be updated as late in the transaction as possible.
+ *
+ * <p>All methods are no-ops while counters are disabled.</p>
+ *
+ * @author Pantelis Sopasakis
+ * @author Charalampos Chomenides
+ */
+public class CounterDelta {
+
+    private static final String SQL_UPDATE = "INSERT INTO ComponentCount (type, owner, enabled) VALUES (?,?,?) "
+            + "ON DUPLICATE KEY UPDATE enabled=enabled+VALUES(enabled)";
+    private final Map<String, Map<String, Long>> deltas = new TreeMap<String, Map<String, Long>>();
+
+    /**
+     * Adds a change to the number of enabled components of some type, for all
+     * users and, if the type is counted per user, for the creator.
+     * @param type
+     *      Type of components (one of the types of {@link ComponentCounters}).
+     * @param owner
+     *      Creator of the components or <code>null</code> if unknown.
+     * @param delta
+     *      Change of the number of enabled components.
+     * @return
+     *      This object.
+     */
+    public CounterDelta add(String type, String owner, long delta) {
+        if (!ComponentCounters.isEnabled() || delta == 0) {
+            return this;
+        }
+        if (!ComponentCounters.getTypes().contains(type)) {
+            throw new IllegalArgumentException("Components of type " + type + " are not counted");
+        }
+        add(type, ComponentCounters.ALL_USERS, delta, deltas);
+        if (owner != null && ComponentCounters.isCountedPerUser(type)) {
+            add(type, owner, delta, deltas);
+        }
+        return this;
+    }
+
+    /**
+     * Adds the same change for each of the given components according to their
+     * type and creator; components of types that are not counted are ignored.
+     * The components should have been {@link ComponentCounters#lock(java.sql.Connection, java.util.Collection, boolean) locked}
+     * in the transaction of the connection.
+     * @param connection
+     *      Connection of the transaction.
+     * @param ids
+     *      Identifiers of the components.
+     * @param delta
+     *      Change per component (e.g. <code>-1</code> when they are disabled).
+     * @return
+     *      This object.
+     * @throws SQLException
+     *      In case the components cannot be looked up.
+     */
+    public CounterDelta addComponents(Connection connection, Collection<String> ids, int delta) throws SQLException {
+        if (!ComponentCounters.isEnabled() || ids.isEmpty() || delta == 0) {
+            return this;
+        }
+        PreparedStatement statement = connection.prepareStatement(ComponentCounters.classifyQuery(ids.size()));
+        try {
+            int index = 1;
+            for (int i = 0; i < ComponentCounters.getTypes().size(); i++) {
+                for (String id : ids) {
+                    DbOperation.bind(statement, index++, id);
+                }
+            }
+            ResultSet rs = statement.executeQuery();
+            while (rs.next()) {
+                add(rs.getString(1), rs.getString(2), delta);
+            }
+            rs.close();
+        } finally {
+            statement.close();
+        }
+        return this;
+    }
+
+    public boolean isEmpty() {
+        return deltas.isEmpty();
+    }
+
+    /**
+     * Updates the counters in the transaction of the given connection and
+     * clears the accumulated changes.
+     * @param connection
+     *      Connection of the transaction that modified the components.
+     * @return
+     *      Number of counters updated.
+     * @throws SQLException
+     *      In case the counters cannot be updated; the transaction should then
+     *      be rolled back.
+     */
+    public int apply(Connection connection) throws SQLException {
+        if (!ComponentCounters.isEnabled() || deltas.isEmpty()) {
+            deltas.clear();
+            return 0;
+        }
+        PreparedStatement statement = connection.prepareStatement(SQL_UPDATE);
+        int updated = 0;
+        try {
+            for (Map.Entry<String, Map<String, Long>> type : deltas.entrySet()) {
+                for (Map.Entry<String, Long> owner : type.getValue().entrySet()) {
+                    if (owner.getValue() != 0) {
+                        statement.setString(1, type.getKey());
+                        statement.setString(2, owner.getKey());
+                        statement.setLong(3, owner.getValue());
+                        statement.addBatch();
+                        updated++;
+                    }
+                }
+            }
+            if (updated > 0) {
+                statement.executeBatch();
+            }
+        } finally {
+            statement.close();
+        }
+        deltas.clear();
+        return updated;
+    }
+
+    private static void add(String type, String owner, long delta, Map<String, Map<String, Long>> deltas) {
+        Map<String, Long> owners = deltas.get(type);
+        if (owners == null) {
+            owners = new TreeMap<String, Long>();
+            deltas.put(type, owners);
+        }
+        Long current = owners.get(owner);
+        owners.put(owner, current == null ? delta : current + delta);
+    }
+
+    @Override
+    public String toString() {
+        return deltas.toString();
+    }
+}
@@ -0,0 +1,189 @@
+/*
+ *
+ * ToxOtis
+ *
+ * ToxOtis is the Greek word for Sagittarius, that actually means ‘archer’. ToxOtis
+ * is a Java interface to the predictive toxicology services of OpenTox. ToxOtis is
+ * being developed to help both those who need a painless way to consume OpenTox
+ * services and for ambitious service providers that don’t want to spend half of
+ * their time in RDF parsing and creation.
+ *
+ * Copyright (C) 2009-2010 Pantelis Sopasakis & Charalampos Chomenides
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Contact:
+ * Pantelis Sopasakis
+ * chvng@mail.ntua.gr
+ * Address: Iroon Politechniou St. 9, Zografou, Athens Greece
+ * tel. +30 210 7723236
+ *
+ */
+package org.opentox.toxotis.database.engine.counter;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.Map;
+import org.opentox.toxotis.database.DbOperation;
+import org.opentox.toxotis.database.exception.DbException;
+
+/**
+ * Recomputes the {@link ComponentCounters component counters} from the
+ * component tables and corrects those that have drifted. Each type of
+ * components is reconciled in a transaction of its own which first locks the
+ * counters of that type (including the gaps between them, so that no counter
+ * for a new user can be added meanwhile) and then counts the components. Writers
+ * of that type therefore wait for the count to finish before they commit, but
+ * none of their changes is lost: changes committed before the counters were
+ * locked are seen by the count and changes committed afterwards are applied to
+ * the reconciled counters.
+ *
+ * <p>The counts scan the component tables, so reconciliation should run
+ * periodically at a quiet time rather than often.</p>
+ *
+ * @author Pantelis Sopasakis
+ * @author Charalampos Chomenides
+ */
+public class ReconcileCounters extends DbOperation {
+
+    private static final String SQL_LOCK = "SELECT owner, enabled FROM ComponentCount WHERE type=? FOR UPDATE";
+    private static final String SQL_COUNT = "SELECT COUNT(*) FROM %s INNER JOIN OTComponent "
+            + "ON OTComponent.id=%s.id WHERE OTComponent.enabled=true";
+    private static final String SQL_COUNT_PER_USER = "SELECT %s.%s, COUNT(*) FROM %s INNER JOIN OTComponent "
+            + "ON OTComponent.id=%s.id WHERE OTComponent.enabled=true AND %s.%s IS NOT NULL GROUP BY %s.%s";
+    private static final String SQL_SET = "INSERT INTO ComponentCount (type, owner, enabled) VALUES (?,?,?) "
+            + "ON DUPLICATE KEY UPDATE enabled=VALUES(enabled)";
+    private static final String SQL_REMOVE = "DELETE FROM ComponentCount WHERE type=? AND owner=?";
+    private int corrected = 0;
+    private org.slf4j.Logger logger = org.slf4j.LoggerFactory.getLogger(ReconcileCounters.class);
+
+    /**
+     * Number of counters corrected (added, updated or removed) by the last
+     * invocation of {@link #reconcile() }.
+     * @return
+     *      Number of corrected counters.
+     */
+    public int getCorrected() {
+        return corrected;
+    }
+
+    /**
+     * Reconciles the counters of all types. Counters are reconciled even if they
+     * are currently disabled, so that they are accurate when enabled.
+     * @return
+     *      Number of counters corrected.
+     * @throws DbException
+     *      In case the counters of some type cannot be reconciled. Types
+     *      reconciled before the failure remain reconciled.
+     */
+    public int reconcile() throws DbException {
+        corrected = 0;
+        String current = null;
+        try {
+            Connection connection = getConnection();
+            for (String type : ComponentCounters.getTypes()) {
+                current = type;
+                connection.setAutoCommit(false);
+                try {
+                    corrected += reconcile(type);
+                    connection.commit();
+                } catch (final SQLException ex) {
+                    connection.rollback();
+                    throw ex;
+                } finally {
+                    connection.setAutoCommit(true);
+                }
+            }
+            logger.info("Component counters reconciled; " + corrected + " corrected");
+            return corrected;
+        } catch (final SQLException ex) {
+            final String msg = "Reconciliation of the counters of type " + current + " failed";
+            logger.warn(msg, ex);
+            throw new DbException(msg, ex);
+        } finally {
+            close();
+        }
+    }
+
+    private int reconcile(String type) throws DbException, SQLException {
+        Map<String, Long> stored = new HashMap<String, Long>();
+        PreparedStatement statement = prepare(SQL_LOCK, type);
+        try {
+            ResultSet rs = statement.executeQuery();
+            while (rs.next()) {
+                stored.put(rs.getString(1), rs.getLong(2));
+            }
+            rs.close();
+        } finally {
+            statement.close();
+        }
+
+        Map<String, Long> actual = new HashMap<String, Long>();
+        statement = prepare(String.format(SQL_COUNT, type, type));
+        try {
+            ResultSet rs = statement.executeQuery();
+            rs.next();
+            actual.put(ComponentCounters.ALL_USERS, rs.getLong(1));
+            rs.close();
+        } finally {
+            statement.close();
+        }
+        String owner = ComponentCounters.getOwnerColumn(type);
+        if (owner != null) {
+            statement = prepare(String.format(SQL_COUNT_PER_USER, type, owner, type, type, type, owner, type, owner));
+            try {
+                ResultSet rs = statement.executeQuery();
+                while (rs.next()) {
+                    actual.put(rs.getString(1), rs.getLong(2));
+                }
+                rs.close();
+            } finally {
+                statement.close();
+            }
+        }
+
+        int changes = 0;
+        for (Map.Entry<String, Long> count : actual.entrySet()) {
+            Long previous = stored.remove(count.getKey());
+            if (previous == null || previous.longValue() != count.getValue().longValue()) {
+                logger.debug("Counter of " + type + " for '" + count.getKey() + "' corrected from "
+                        + previous + " to " + count.getValue());
+                execute(SQL_SET, type, count.getKey(), count.getValue());
+                changes++;
+            }
+        }
+        for (String stale : stored.keySet()) {
+            execute(SQL_REMOVE, type, stale);
+            changes++;
+        }
+        return changes;
+    }
+
+    private void execute(String sql, Object... parameters) throws DbException, SQLException {
+        PreparedStatement statement = prepare(sql, parameters);
+        try {
+            statement.executeUpdate();
+        } finally {
+            statement.close();
+        }
+    }
+
+    @Override
+    public String getSqlTemplate() {
+        return SQL_COUNT;
+    }
+}
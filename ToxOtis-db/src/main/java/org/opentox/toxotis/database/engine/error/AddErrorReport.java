@@ -3,6 +3,8 @@ package org.opentox.toxotis.database.engine.error;
 import java.sql.Connection;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.util.Collection;
+import java.util.Collections;
 import org.opentox.toxotis.core.component.ErrorReport;
 import org.opentox.toxotis.database.DbWriter;
 import org.opentox.toxotis.database.exception.DbException;
@@ -15,11 +17,21 @@ import org.opentox.toxotis.database.pool.DataSourceFactory;
  */
 public class AddErrorReport extends DbWriter {
 
-    private final ErrorReport error;
+    private final Collection<ErrorReport> errors;
     private org.slf4j.Logger logger = org.slf4j.LoggerFactory.getLogger(AddErrorReport.class);
 
     public AddErrorReport(final ErrorReport error) {
-        this.error = error;
+        this.errors = Collections.singletonList(error);
+    }
+
+    /**
+     * Registers several error reports (and their causes) in a single
+     * transaction, writing the rows of each table in one batch.
+     * @param errors
+     *      Error reports to be registered.
+     */
+    public AddErrorReport(final Collection<ErrorReport> errors) {
+        this.errors = errors;
     }
 
     @Override
@@ -35,9 +47,20 @@ public class AddErrorReport extends DbWriter {
         try {
             connection.setAutoCommit(false);
             stmt = connection.createStatement();
-            ErrorReportBatchWriter writer = new ErrorReportBatchWriter(connection, error);
-            int result = writer.batchStatement();
-            connection.commit();          
+            ErrorReportBatchWriter writer = new ErrorReportBatchWriter(connection, errors);
+            int result;
+            try {
+                result = writer.batchStatement();
+            } catch (final DbException ex) {
+                if (!forgetMissingMetaInfo(ex, writer.getMetaEntries())) {
+                    throw ex;
+                }
+                connection.rollback();
+                writer = new ErrorReportBatchWriter(connection, errors);
+                result = writer.batchStatement();
+            }
+            connection.commit();
+            remember(writer.getMetaEntries());
             return result;
         } catch (final SQLException ex) {
             final String msg = "failed to execute statement";
@@ -4,11 +4,11 @@
  */
 package org.opentox.toxotis.database.engine.error;
 
-import java.sql.Connection;
+import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
-import java.sql.Statement;
 import org.opentox.toxotis.database.DbCount;
+import org.opentox.toxotis.database.engine.counter.ComponentCounters;
 import org.opentox.toxotis.database.exception.DbException;
 
 /**
@@ -17,27 +17,30 @@ import org.opentox.toxotis.database.exception.DbException;
  */
 public class CountError extends DbCount {
     
-    private Statement statement = null;
+    private PreparedStatement statement = null;
     private org.slf4j.Logger logger = org.slf4j.LoggerFactory.getLogger(CountError.class);
 
+    @Override
+    protected String getCounterType() {
+        return ComponentCounters.ERROR_REPORT;
+    }
+
     @Override
     public int count() throws DbException {
+        Integer maintained = countFromCounters();
+        if (maintained != null) {
+            return maintained;
+        }
         setTable("ErrorReport");
         setCountableColumn("ErrorReport.id");
         setInnerJoin("OTComponent ON ErrorReport.id=OTComponent.id");
         if (!includeDisabled) {
-            if (where != null) {
-                setWhere(where + " AND OTComponent.enabled=true");
-            } else {
-                setWhere("OTComponent.enabled=true");
-            }
+            addWhere("OTComponent.enabled=true");
         }
-        Connection connection = null;
-        connection = getConnection();
         ResultSet rs = null;
         try {
-            statement = connection.createStatement();
-            rs = statement.executeQuery(getSql());
+            statement = prepareStatement();
+            rs = statement.executeQuery();
             rs.first();
             return rs.getInt(1);
         } catch (SQLException ex) {
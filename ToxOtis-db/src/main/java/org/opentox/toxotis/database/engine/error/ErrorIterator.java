@@ -51,14 +51,20 @@ public class ErrorIterator extends DbIterator<ErrorReport> {
                 if (!retrieveStackTrace) {
                     nextReport.setErrorCause(new ErrorReport(new VRI(baseUri).augment("error", errorCause)));
                 }else{
-                    FindError stackTraceFinder = new FindError(baseUri);
+                    FindError stackTraceFinder = nested(new FindError(baseUri));
                     stackTraceFinder.setSearchById(errorCause);
-                    IDbIterator<ErrorReport> stackTraceIterator = stackTraceFinder.list();
-                    if (stackTraceIterator.hasNext()){
-                        nextReport.setErrorCause(stackTraceIterator.next());
+                    try {
+                        IDbIterator<ErrorReport> stackTraceIterator = stackTraceFinder.list();
+                        try {
+                            if (stackTraceIterator.hasNext()) {
+                                nextReport.setErrorCause(stackTraceIterator.next());
+                            }
+                        } finally {
+                            stackTraceIterator.close();
+                        }
+                    } finally {
+                        stackTraceFinder.close();
                     }
-                    stackTraceIterator.close();
-                    stackTraceFinder.close();
                 }
             }
 
@@ -1,19 +1,35 @@
 package org.opentox.toxotis.database.engine.error;
 
-import java.sql.Blob;
+import java.nio.ByteBuffer;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.SQLException;
 import java.sql.Statement;
 import java.sql.Types;
-import java.util.Deque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import org.opentox.toxotis.core.component.ErrorReport;
 import org.opentox.toxotis.database.DbOperation;
+import org.opentox.toxotis.database.engine.counter.ComponentCounters;
+import org.opentox.toxotis.database.engine.counter.CounterDelta;
+import org.opentox.toxotis.database.engine.metainfo.MetaInfoStore;
 import org.opentox.toxotis.database.exception.DbException;
-import org.opentox.toxotis.ontology.MetaInfoBlobber;
 
 /**
+ * Writes one or more error reports, along with their whole chain of causes,
+ * in the transaction of a given connection. Every statement is prepared once
+ * and all rows of a table are sent as a single JDBC batch, so that (provided
+ * that <code>rewriteBatchedStatements</code> is enabled) each table costs one
+ * round-trip regardless of the number and depth of the reports. Causes are
+ * written before the reports that reference them and a cause shared by several
+ * reports is written once.
  *
  * @author Pantelis Sopasakis
  * @author Charalampos Chomenides
@@ -21,23 +37,47 @@ import org.opentox.toxotis.ontology.MetaInfoBlobber;
 public class ErrorReportBatchWriter extends DbOperation {
 
     private final Connection connection;
-    private final ErrorReport error;
+    private final Collection<ErrorReport> errors;
     private org.slf4j.Logger logger = org.slf4j.LoggerFactory.getLogger(ErrorReportBatchWriter.class);
     private static final String __INSERT_META = "INSERT IGNORE INTO MetaInfo (id, meta) VALUES (?,compress(?))";
     private static final String __INSERT_COMPONENT = "INSERT INTO OTComponent (id,enabled,meta) VALUES (?,?,?)";
     private static final String __INSERT_ERROR_REPORT = "INSERT INTO ErrorReport "
             + "(id, httpStatus, actor, message, details,errorCause,errorCode) VALUES (?,?,?,?,?,?,?)";
-    private PreparedStatement metaPS;
-    private PreparedStatement componentPS;
-    private PreparedStatement errorReportPS;
+    private final List<MetaInfoStore.Entry> metaEntries = new ArrayList<MetaInfoStore.Entry>();
 
     public ErrorReportBatchWriter(final Connection connection, final ErrorReport error) {
+        this(connection, Collections.singletonList(error));
+    }
+
+    /**
+     * Writer for several error reports at once.
+     * @param connection
+     *      Connection in the transaction of the caller.
+     * @param errors
+     *      Error reports to be written (with their causes).
+     */
+    public ErrorReportBatchWriter(final Connection connection, final Collection<ErrorReport> errors) {
         if (connection == null) {
             final String msg = "Programatic error: null connectio provided "
                     + "in the constructor of ErrorReportBatchWriter";
             final NullPointerException npe = new NullPointerException(msg);
             logger.error(msg, npe);
         }
+        if (errors == null) {
+            final String msg = "Programatic error: null collection of error reports "
+                    + "provided in the constructor of ErrorReportBatchWriter";
+            final NullPointerException npe = new NullPointerException(msg);
+            logger.error(msg, npe);
+            throw npe;
+        }
+        for (ErrorReport error : errors) {
+            check(error);
+        }
+        this.connection = connection;
+        this.errors = errors;
+    }
+
+    private void check(ErrorReport error) {
         if (error == null) {
             final String msg = "Programatic error: null error report "
                     + "provided in the constructor of ErrorReportBatchWriter. "
@@ -53,8 +93,6 @@ public class ErrorReportBatchWriter extends DbOperation {
             logger.warn(msg, iae);
             throw iae;
         }
-        this.connection = connection;
-        this.error = error;
     }
 
     @Override
@@ -64,55 +102,111 @@ public class ErrorReportBatchWriter extends DbOperation {
         throw aser;
     }
 
+    /**
+     * Meta-information referenced by the error reports written so far. The
+     * caller should {@link MetaInfoStore#remember(java.util.Collection) remember}
+     * them once the transaction is committed.
+     * @return
+     *      List of meta-information entries.
+     */
+    public List<MetaInfoStore.Entry> getMetaEntries() {
+        return metaEntries;
+    }
+
+    /**
+     * Writes the error reports and their causes. Nothing is committed; the
+     * caller is expected to commit (or roll back) the transaction.
+     * @return
+     *      Number of rows written.
+     * @throws DbException
+     *      In case some report cannot be written.
+     */
     public int batchStatement() throws DbException {
-        int count = 0;
-        Deque<ErrorReport> deque = new LinkedList<ErrorReport>();
-        ErrorReport currentER = error;
-        while (currentER != null) {
-            deque.addFirst(currentER);
-            currentER = currentER.getErrorCause();
-        }
-        for (ErrorReport er : deque) {
-            try {
-                count += batchStatement(er);
-            } catch (SQLException ex) {
-                final String msg = "Error report while writing data regarding error report in the database";
-                logger.warn(msg, ex);
-                throw new DbException(msg, ex);
+        Collection<ErrorReport> ordered = causesFirst();
+        PreparedStatement metaPS = null;
+        PreparedStatement componentPS = null;
+        PreparedStatement errorReportPS = null;
+        try {
+            MetaInfoStore metaStore = MetaInfoStore.getInstance();
+            Set<ByteBuffer> batchedMeta = new HashSet<ByteBuffer>();
+            CounterDelta counters = new CounterDelta();
+            componentPS = connection.prepareStatement(__INSERT_COMPONENT);
+            errorReportPS = connection.prepareStatement(__INSERT_ERROR_REPORT);
+            for (ErrorReport er : ordered) {
+                MetaInfoStore.Entry metaEntry = null;
+                if (er.getMeta() != null) {
+                    metaEntry = metaStore.lookup(er.getMeta());
+                    metaEntries.add(metaEntry);
+                    if (!metaEntry.isStored() && batchedMeta.add(ByteBuffer.wrap(metaEntry.getKey()))) {
+                        if (metaPS == null) {
+                            metaPS = connection.prepareStatement(__INSERT_META);
+                        }
+                        metaPS.setBytes(1, metaEntry.getKey());
+                        metaPS.setBytes(2, metaEntry.getEncoded());
+                        metaPS.addBatch();
+                    }
+                }
+                batchComponent(componentPS, er, metaEntry);
+                batchErrorReport(errorReportPS, er);
+                if (er.isEnabled()) {
+                    counters.add(ComponentCounters.ERROR_REPORT, null, 1);
+                }
+            }
+            int count = 0;
+            if (metaPS != null) {
+                count += sum(metaPS.executeBatch());
             }
+            count += sum(componentPS.executeBatch());
+            count += sum(errorReportPS.executeBatch());
+            counters.apply(connection);
+            logger.debug(ordered.size() + " error reports batched for " + errors.size() + " reports");
+            return count;
+        } catch (SQLException ex) {
+            final String msg = "Error report while writing data regarding error report in the database";
+            logger.warn(msg, ex);
+            throw new DbException(msg, ex);
+        } finally {
+            close(metaPS);
+            close(componentPS);
+            close(errorReportPS);
         }
-        return count;
     }
 
-    private int batchStatement(ErrorReport er) throws SQLException {
-        int count = 0;
-        if (er.getMeta() != null) {
-            metaPS = connection.prepareStatement(__INSERT_META);
-            metaPS.setInt(1, er.getMeta().hashCode());
-            MetaInfoBlobber mib = new MetaInfoBlobber(er.getMeta());
-            Blob miBlob = null;
-            try {
-                miBlob = mib.toBlob();
-                metaPS.setBlob(2, miBlob);
-            } catch (Exception ex) {
-                logger.error("Exception while creating and setting meta-info BLOB", ex);
+    /*
+     * All reports and their causes, each one once, ordered so that every cause
+     * precedes the reports that reference it (as required by the foreign key
+     * on ErrorReport.errorCause).
+     */
+    private Collection<ErrorReport> causesFirst() {
+        Map<String, ErrorReport> ordered = new LinkedHashMap<String, ErrorReport>();
+        for (ErrorReport error : errors) {
+            LinkedList<ErrorReport> chain = new LinkedList<ErrorReport>();
+            ErrorReport currentER = error;
+            while (currentER != null && !ordered.containsKey(currentER.getUri().getId())) {
+                chain.addFirst(currentER);
+                currentER = currentER.getErrorCause();
+            }
+            for (ErrorReport er : chain) {
+                ordered.put(er.getUri().getId(), er);
             }
-            count += metaPS.executeUpdate();
         }
+        return ordered.values();
+    }
 
-        componentPS = connection.prepareStatement(__INSERT_COMPONENT);
+    private static void batchComponent(PreparedStatement componentPS, ErrorReport er,
+            MetaInfoStore.Entry metaEntry) throws SQLException {
         componentPS.setString(1, er.getUri().getId());
         componentPS.setBoolean(2, er.isEnabled());
-        if (er.getMeta() != null) {
-            componentPS.setInt(3, er.getMeta().hashCode());
+        if (metaEntry != null) {
+            componentPS.setBytes(3, metaEntry.getKey());
         } else {
-            componentPS.setNull(3, Types.INTEGER);
+            componentPS.setNull(3, Types.BINARY);
         }
-        count += componentPS.executeUpdate();
+        componentPS.addBatch();
+    }
 
-        errorReportPS = connection.prepareStatement(__INSERT_ERROR_REPORT);
+    private static void batchErrorReport(PreparedStatement errorReportPS, ErrorReport er) throws SQLException {
         // (id, httpStatus, actor, message, details,errorCause,errorCode)
-
         errorReportPS.setString(1, er.getUri().getId());
         errorReportPS.setFloat(2, er.getHttpStatus());
 
@@ -139,8 +233,32 @@ public class ErrorReportBatchWriter extends DbOperation {
         }
 
         errorReportPS.setString(7, er.getErrorCode());
-        count += errorReportPS.executeUpdate();
+        errorReportPS.addBatch();
+    }
+
+    /*
+     * Rows affected by a batch; a rewritten batch may not report the count
+     * of each statement, in which case every statement counts as one row.
+     */
+    private static int sum(int[] updates) {
+        int count = 0;
+        for (int update : updates) {
+            if (update == Statement.SUCCESS_NO_INFO) {
+                count++;
+            } else if (update > 0) {
+                count += update;
+            }
+        }
         return count;
+    }
 
+    private void close(PreparedStatement statement) {
+        if (statement != null) {
+            try {
+                statement.close();
+            } catch (final SQLException ex) {
+                logger.warn("Statement for writing error reports uncloseable", ex);
+            }
+        }
     }
 }
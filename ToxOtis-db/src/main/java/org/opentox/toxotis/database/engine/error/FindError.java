@@ -1,9 +1,8 @@
 package org.opentox.toxotis.database.engine.error;
 
-import java.sql.Connection;
+import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
-import java.sql.Statement;
 import org.opentox.toxotis.client.VRI;
 import org.opentox.toxotis.core.component.ErrorReport;
 import org.opentox.toxotis.database.DbReader;
@@ -18,7 +17,7 @@ import org.opentox.toxotis.database.exception.DbException;
 public class FindError extends DbReader<ErrorReport> {
 
     private final VRI baseUri;
-    private Statement statement = null;
+    private PreparedStatement statement = null;
     private org.slf4j.Logger logger = org.slf4j.LoggerFactory.getLogger(FindError.class);
     private boolean retrieveStackTrace = true;
 
@@ -52,21 +51,18 @@ public class FindError extends DbReader<ErrorReport> {
     }
 
     public void setSearchById(String id) {
-        String whereTemplate = "ErrorReport.id='%s'";
-        setWhere(String.format(whereTemplate, id));
+        setWhere("ErrorReport.id=?", id);
     }
 
     @Override
     public IDbIterator<ErrorReport> list() throws DbException {        
         statement = null;
-        Connection connection = null;
         try {
-            connection = getConnection();
-            statement = connection.createStatement();
-            ResultSet rs = statement.executeQuery(getSql());
+            statement = prepareStatement();
+            ResultSet rs = statement.executeQuery();
             ErrorIterator it = new ErrorIterator(rs, baseUri);
             it.setRetrieveStackTrace(retrieveStackTrace);
-            return it;
+            return iterate(it, rs);
         } catch (SQLException ex) {
             final String msg = "Database exception while searching for error reports in the database.";
             logger.warn(msg, ex);
@@ -34,10 +34,9 @@
 
 package org.opentox.toxotis.database.engine.error;
 
-import java.sql.Connection;
+import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
-import java.sql.Statement;
 import org.opentox.toxotis.database.IDbIterator;
 import org.opentox.toxotis.database.DbReader;
 import org.opentox.toxotis.database.ResultSetIterator;
@@ -50,7 +49,7 @@ import org.opentox.toxotis.database.exception.DbException;
 public class ListError extends DbReader<String>{
 
     private boolean includeDisabled = false;
-    private Statement statement = null;
+    private PreparedStatement statement = null;
     private ResultSet results;
     private org.slf4j.Logger logger = org.slf4j.LoggerFactory.getLogger(ListError.class);
 
@@ -72,19 +71,15 @@ public class ListError extends DbReader<String>{
         setTableColumns("ErrorReport.id");
         if (!includeDisabled) {
             setInnerJoin("OTComponent ON ErrorReport.id=OTComponent.id");
-            if (where != null) {
-                setWhere(where + "AND enabled=true");
-            } else {
-                setWhere("enabled=true");
-            }
-
+            addWhere("enabled=true");
+            setKeyColumns("OTComponent.created", "ErrorReport.id");
+        } else {
+            setKeyColumns(null, "ErrorReport.id");
         }
-        Connection connection = null;
-        connection = getConnection();
         try {
-            statement = connection.createStatement();
-            results = statement.executeQuery(getSql());
-            return new ResultSetIterator(results);
+            statement = prepareStatement();
+            results = statement.executeQuery();
+            return iterate(new ResultSetIterator(results), results);
         } catch (final SQLException ex) {
             throw new DbException(ex);
         }
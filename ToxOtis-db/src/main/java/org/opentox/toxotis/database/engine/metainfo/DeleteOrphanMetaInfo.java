@@ -0,0 +1,222 @@
+/*
+ *
+ * ToxOtis
+ *
+ * ToxOtis is the Greek word for Sagittarius, that actually means ‘archer’. ToxOtis
+ * is a Java interface to the predictive toxicology services of OpenTox. ToxOtis is
+ * being developed to help both those who need a painless way to consume OpenTox
+ * services and for ambitious service providers that don’t want to spend half of
+ * their time in RDF parsing and creation.
+ *
+ * Copyright (C) 2009-2010 Pantelis Sopasakis & Charalampos Chomenides
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Contact:
+ * Pantelis Sopasakis
+ * chvng@mail.ntua.gr
+ * Address: Iroon Politechniou St. 9, Zografou, Athens Greece
+ * tel. +30 210 7723236
+ *
+ */
+package org.opentox.toxotis.database.engine.metainfo;
+
+import java.nio.ByteBuffer;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import org.opentox.toxotis.database.DbOperation;
+import org.opentox.toxotis.database.exception.DbException;
+
+/**
+ * Garbage collection of meta-information which is not referenced by any
+ * component. Since <code>OTComponent.meta</code> cascades on deletion, rows are
+ * never deleted blindly: the candidates are locked and checked again for
+ * references in the same transaction as their deletion, so a component which
+ * references a candidate concurrently is never affected.
+ *
+ * <p>Writers on any node may reuse a key they remember for up to
+ * {@link MetaInfoStore#getMaxAge() } milliseconds after it was stored without
+ * inserting the row again. Callers must therefore only {@link #delete(java.util.Collection) delete}
+ * rows that were found to be orphans at least that long ago.</p>
+ *
+ * <p>The operation keeps its connection open across calls; it should be
+ * {@link #close() closed} when no longer needed.</p>
+ *
+ * @author Pantelis Sopasakis
+ * @author Charalampos Chomenides
+ */
+public class DeleteOrphanMetaInfo extends DbOperation {
+
+    private static final String SQL_FIRST_ORPHANS = "SELECT m.id FROM MetaInfo m WHERE NOT EXISTS "
+            + "(SELECT 1 FROM OTComponent c WHERE c.meta = m.id) ORDER BY m.id LIMIT ?";
+    private static final String SQL_NEXT_ORPHANS = "SELECT m.id FROM MetaInfo m WHERE m.id > ? AND NOT EXISTS "
+            + "(SELECT 1 FROM OTComponent c WHERE c.meta = m.id) ORDER BY m.id LIMIT ?";
+    private static final String SQL_LOCK = "SELECT id FROM MetaInfo WHERE id IN (%s) FOR UPDATE";
+    private static final String SQL_REFERENCED = "SELECT DISTINCT meta FROM OTComponent WHERE meta IN (%s) LOCK IN SHARE MODE";
+    private static final String SQL_DELETE = "DELETE FROM MetaInfo WHERE id IN (%s)";
+    private org.slf4j.Logger logger = org.slf4j.LoggerFactory.getLogger(DeleteOrphanMetaInfo.class);
+
+    /**
+     * Finds meta-information that is not referenced by any component, in the
+     * order of their keys.
+     *
+     * @param after
+     *      Only keys greater than this one are returned; <code>null</code> to
+     *      start from the first key.
+     * @param limit
+     *      Maximum number of keys returned.
+     * @return
+     *      Keys of unreferenced meta-information.
+     * @throws DbException
+     *      In case the keys cannot be retrieved.
+     */
+    public List<byte[]> findOrphans(byte[] after, int limit) throws DbException {
+        List<byte[]> orphans = new ArrayList<byte[]>();
+        PreparedStatement statement = null;
+        ResultSet rs = null;
+        try {
+            statement = after == null
+                    ? prepare(SQL_FIRST_ORPHANS, limit)
+                    : prepare(SQL_NEXT_ORPHANS, after, limit);
+            rs = statement.executeQuery();
+            while (rs.next()) {
+                orphans.add(rs.getBytes(1));
+            }
+            return orphans;
+        } catch (final SQLException ex) {
+            final String msg = "Unreferenced meta-information cannot be retrieved";
+            logger.warn(msg, ex);
+            throw new DbException(msg, ex);
+        } finally {
+            closeQuietly(rs, statement);
+        }
+    }
+
+    /**
+     * Deletes the given meta-information unless it is referenced by some
+     * component by the time of the deletion.
+     *
+     * @param keys
+     *      Keys of meta-information previously found by {@link #findOrphans(byte[], int) }.
+     * @return
+     *      Number of rows deleted.
+     * @throws DbException
+     *      In case the deletion fails; nothing is deleted then.
+     */
+    public int delete(Collection<byte[]> keys) throws DbException {
+        if (keys.isEmpty()) {
+            return 0;
+        }
+        Connection connection = getConnection();
+        PreparedStatement statement = null;
+        ResultSet rs = null;
+        try {
+            connection.setAutoCommit(false);
+            String in = placeholders(keys.size());
+            List<byte[]> locked = new ArrayList<byte[]>(keys.size());
+            statement = prepare(String.format(SQL_LOCK, in), keys.toArray());
+            rs = statement.executeQuery();
+            while (rs.next()) {
+                locked.add(rs.getBytes(1));
+            }
+            closeQuietly(rs, statement);
+            rs = null;
+            statement = null;
+            if (locked.isEmpty()) {
+                connection.commit();
+                return 0;
+            }
+            Set<ByteBuffer> referenced = new HashSet<ByteBuffer>();
+            statement = prepare(String.format(SQL_REFERENCED, placeholders(locked.size())), locked.toArray());
+            rs = statement.executeQuery();
+            while (rs.next()) {
+                referenced.add(ByteBuffer.wrap(rs.getBytes(1)));
+            }
+            closeQuietly(rs, statement);
+            rs = null;
+            statement = null;
+            List<byte[]> orphans = new ArrayList<byte[]>(locked.size());
+            for (byte[] key : locked) {
+                if (!referenced.contains(ByteBuffer.wrap(key))) {
+                    orphans.add(key);
+                }
+            }
+            int deleted = 0;
+            if (!orphans.isEmpty()) {
+                statement = prepare(String.format(SQL_DELETE, placeholders(orphans.size())), orphans.toArray());
+                deleted = statement.executeUpdate();
+            }
+            connection.commit();
+            return deleted;
+        } catch (final SQLException ex) {
+            try {
+                connection.rollback();
+            } catch (final SQLException ex1) {
+                logger.warn("Rollback failed", ex1);
+            }
+            final String msg = "Unreferenced meta-information cannot be deleted";
+            logger.warn(msg, ex);
+            throw new DbException(msg, ex);
+        } finally {
+            closeQuietly(rs, statement);
+            try {
+                connection.setAutoCommit(true);
+            } catch (final SQLException ex) {
+                logger.warn("Auto-commit cannot be restored", ex);
+            }
+        }
+    }
+
+    private void closeQuietly(ResultSet rs, PreparedStatement statement) {
+        try {
+            if (rs != null) {
+                rs.close();
+            }
+            if (statement != null) {
+                statement.close();
+            }
+        } catch (final SQLException ex) {
+            logger.warn("Statement cannot close", ex);
+        }
+    }
+
+    private static String placeholders(int n) {
+        StringBuilder marks = new StringBuilder(2 * n);
+        for (int i = 0; i < n; i++) {
+            if (i > 0) {
+                marks.append(",");
+            }
+            marks.append("?");
+        }
+        return marks.toString();
+    }
+
+    /**
+     * Template of the statement that deletes a batch of orphans; the
+     * placeholder <code>%s</code> stands for the list of their keys.
+     * @return
+     *      SQL template.
+     */
+    @Override
+    public String getSqlTemplate() {
+        return SQL_DELETE;
+    }
+}
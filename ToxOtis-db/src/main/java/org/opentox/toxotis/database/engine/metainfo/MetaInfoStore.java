@@ -0,0 +1,344 @@
+/*
+ *
+ * ToxOtis
+ *
+ * ToxOtis is the Greek word for Sagittarius, that actually means ‘archer’. ToxOtis
+ * is a Java interface to the predictive toxicology services of OpenTox. ToxOtis is
+ * being developed to help both those who need a painless way to consume OpenTox
+ * services and for ambitious service providers that don’t want to spend half of
+ * their time in RDF parsing and creation.
+ *
+ * Copyright (C) 2009-2010 Pantelis Sopasakis & Charalampos Chomenides
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Contact:
+ * Pantelis Sopasakis
+ * chvng@mail.ntua.gr
+ * Address: Iroon Politechniou St. 9, Zografou, Athens Greece
+ * tel. +30 210 7723236
+ *
+ */
+package org.opentox.toxotis.database.engine.metainfo;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import org.opentox.toxotis.database.exception.DbException;
+import org.opentox.toxotis.ontology.MetaInfo;
+import org.opentox.toxotis.ontology.MetaInfoCodec;
+
+/**
+ * Content-addressed store of meta-information. Rows of the table
+ * <code>MetaInfo</code> are keyed by the first {@link #KEY_LENGTH} bytes of the
+ * SHA-256 digest of the {@link MetaInfoCodec canonical encoding} of the
+ * meta-information, so that equal meta-information is stored only once.
+ * 
+ * <p>Writers {@link #lookup(org.opentox.toxotis.ontology.MetaInfo) look up} the
+ * meta-information they are about to reference: if it is known to be in the
+ * database already, neither serialization nor an <code>INSERT</code> is needed;
+ * otherwise the returned entry carries the encoded bytes to be inserted. Once the
+ * insertion has been committed, writers {@link #remember(org.opentox.toxotis.database.engine.metainfo.MetaInfoStore.Entry)
+ * remember} the entry. At most {@link #getMaxEntries() } entries are remembered;
+ * the least recently used ones are forgotten first. Entries are also forgotten
+ * {@link #getMaxAge() } milliseconds after they were remembered, so that
+ * meta-information that was garbage-collected in the meantime (possibly by
+ * another node) is not assumed to be stored for longer than that. Writers that
+ * still find some remembered meta-information missing from the database
+ * {@link #forget(java.util.Collection) forget} it and insert it again.</p>
+ *
+ * @author Pantelis Sopasakis
+ * @author Charalampos Chomenides
+ */
+public class MetaInfoStore {
+
+    /** Length of the keys of meta-information in bytes */
+    public static final int KEY_LENGTH = 16;
+    /** Default maximum number of remembered entries */
+    public static final int DEFAULT_MAX_ENTRIES = 10000;
+    /** Default time in milliseconds after which remembered entries are forgotten */
+    public static final long DEFAULT_MAX_AGE = 3600000L;
+    private static final String DIGEST_ALGORITHM = "SHA-256";
+    private static final MetaInfoStore INSTANCE = new MetaInfoStore();
+    private final Map<MetaInfo, Known> known;
+    private volatile int maxEntries;
+    private volatile long maxAge = DEFAULT_MAX_AGE;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    /**
+     * Meta-information to be referenced by some component along with its key.
+     */
+    public static final class Entry {
+
+        private final byte[] key;
+        private final byte[] encoded;
+
+        private Entry(byte[] key, byte[] encoded) {
+            this.key = key;
+            this.encoded = encoded;
+        }
+
+        /**
+         * The key of the meta-information, i.e. the value of <code>MetaInfo.id</code>.
+         * @return
+         *      Key of {@link MetaInfoStore#KEY_LENGTH} bytes.
+         */
+        public byte[] getKey() {
+            return key;
+        }
+
+        /**
+         * The encoded meta-information to be stored in <code>MetaInfo.meta</code>.
+         * @return
+         *      The encoded bytes or <code>null</code> if the meta-information is
+         *      already stored.
+         */
+        public byte[] getEncoded() {
+            return encoded;
+        }
+
+        /**
+         * Whether the meta-information is known to be stored in the database.
+         * @return
+         *      <code>true</code> if there is no need to insert it.
+         */
+        public boolean isStored() {
+            return encoded == null;
+        }
+    }
+
+    private static final class Known {
+
+        private final byte[] key;
+        private final long rememberedAt;
+
+        private Known(byte[] key, long rememberedAt) {
+            this.key = key;
+            this.rememberedAt = rememberedAt;
+        }
+    }
+
+    /**
+     * The store used by all database writers.
+     * @return
+     *      The shared meta-information store.
+     */
+    public static MetaInfoStore getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Create a new store that remembers up to {@link #DEFAULT_MAX_ENTRIES} entries.
+     */
+    public MetaInfoStore() {
+        this(DEFAULT_MAX_ENTRIES);
+    }
+
+    /**
+     * Create a new store.
+     * @param maxEntries
+     *      Maximum number of remembered entries.
+     */
+    public MetaInfoStore(int maxEntries) {
+        this.maxEntries = maxEntries;
+        this.known = new LinkedHashMap<MetaInfo, Known>(16, 0.75f, true) {
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<MetaInfo, Known> eldest) {
+                return size() > MetaInfoStore.this.maxEntries;
+            }
+        };
+    }
+
+    public long getMaxAge() {
+        return maxAge;
+    }
+
+    /**
+     * Time after which a remembered entry is forgotten, no matter how often it
+     * is used. Garbage collection of meta-information must spare rows that have
+     * been unreferenced for less than this time.
+     * @param maxAge
+     *      Maximum age of entries in milliseconds.
+     */
+    public void setMaxAge(long maxAge) {
+        this.maxAge = maxAge;
+    }
+
+    public int getMaxEntries() {
+        return maxEntries;
+    }
+
+    public void setMaxEntries(int maxEntries) {
+        this.maxEntries = maxEntries;
+        synchronized (known) {
+            Iterator<MetaInfo> iterator = known.keySet().iterator();
+            while (known.size() > maxEntries && iterator.hasNext()) {
+                iterator.next();
+                iterator.remove();
+            }
+        }
+    }
+
+    /**
+     * Look up the key of some meta-information.
+     * @param meta
+     *      Meta-information to be referenced.
+     * @return
+     *      Entry with the key of the meta-information and, unless it is known to
+     *      be stored, its encoded bytes.
+     * @throws DbException
+     *      If the meta-information cannot be encoded.
+     */
+    public Entry lookup(MetaInfo meta) throws DbException {
+        byte[] key = null;
+        synchronized (known) {
+            Known entry = known.get(meta);
+            if (entry != null) {
+                if (System.currentTimeMillis() - entry.rememberedAt <= maxAge) {
+                    key = entry.key;
+                } else {
+                    known.remove(meta);
+                }
+            }
+        }
+        if (key != null) {
+            hits.incrementAndGet();
+            return new Entry(key, null);
+        }
+        misses.incrementAndGet();
+        byte[] encoded;
+        try {
+            encoded = MetaInfoCodec.encode(meta);
+        } catch (final IOException ex) {
+            final String msg = "Meta-information cannot be encoded";
+            throw new DbException(msg, ex);
+        }
+        return new Entry(key(encoded), encoded);
+    }
+
+    /**
+     * Remember that the meta-information of an entry is stored in the database.
+     * This should be invoked only after the insertion has been committed.
+     * @param entry
+     *      Entry returned by {@link #lookup(org.opentox.toxotis.ontology.MetaInfo) }.
+     */
+    public void remember(Entry entry) {
+        if (entry == null || entry.isStored() || maxEntries <= 0) {
+            return;
+        }
+        /*
+         * The key of the map is a copy of the meta-information, independent of
+         * the (mutable) object which was looked up.
+         */
+        MetaInfo copy;
+        try {
+            copy = MetaInfoCodec.decode(entry.getEncoded());
+        } catch (final IOException ex) {
+            throw new IllegalStateException("Encoded meta-information cannot be decoded", ex);
+        }
+        synchronized (known) {
+            known.put(copy, new Known(entry.getKey(), System.currentTimeMillis()));
+        }
+    }
+
+    /**
+     * Remember that the meta-information of some entries is stored in the
+     * database.
+     * @param entries
+     *      Entries returned by {@link #lookup(org.opentox.toxotis.ontology.MetaInfo) }.
+     * @see #remember(org.opentox.toxotis.database.engine.metainfo.MetaInfoStore.Entry)
+     */
+    public void remember(Collection<Entry> entries) {
+        for (Entry entry : entries) {
+            remember(entry);
+        }
+    }
+
+    /**
+     * Forget the meta-information of some entries, e.g. because a write that
+     * referenced it found it missing from the database.
+     * @param entries
+     *      Entries returned by {@link #lookup(org.opentox.toxotis.ontology.MetaInfo) }.
+     */
+    public void forget(Collection<Entry> entries) {
+        Set<ByteBuffer> keys = new HashSet<ByteBuffer>();
+        for (Entry entry : entries) {
+            if (entry != null) {
+                keys.add(ByteBuffer.wrap(entry.getKey()));
+            }
+        }
+        if (keys.isEmpty()) {
+            return;
+        }
+        synchronized (known) {
+            Iterator<Known> iterator = known.values().iterator();
+            while (iterator.hasNext()) {
+                if (keys.contains(ByteBuffer.wrap(iterator.next().key))) {
+                    iterator.remove();
+                }
+            }
+        }
+    }
+
+    /**
+     * The key of encoded meta-information.
+     * @param encoded
+     *      Canonical encoding of meta-information.
+     * @return
+     *      The first {@link #KEY_LENGTH} bytes of the SHA-256 digest of the
+     *      encoded bytes.
+     */
+    public static byte[] key(byte[] encoded) {
+        try {
+            return Arrays.copyOf(MessageDigest.getInstance(DIGEST_ALGORITHM).digest(encoded), KEY_LENGTH);
+        } catch (final NoSuchAlgorithmException ex) {
+            throw new IllegalStateException(DIGEST_ALGORITHM + " is not supported by the JVM", ex);
+        }
+    }
+
+    /**
+     * Forget all entries; to be used if rows of the table <code>MetaInfo</code>
+     * are deleted.
+     */
+    public void clear() {
+        synchronized (known) {
+            known.clear();
+        }
+    }
+
+    public int size() {
+        synchronized (known) {
+            return known.size();
+        }
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+}
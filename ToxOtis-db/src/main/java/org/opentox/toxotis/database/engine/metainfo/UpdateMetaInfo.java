@@ -32,14 +32,15 @@
  */
 package org.opentox.toxotis.database.engine.metainfo;
 
-import java.sql.Blob;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.SQLException;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.List;
 import org.opentox.toxotis.database.DbUpdater;
 import org.opentox.toxotis.database.exception.DbException;
 import org.opentox.toxotis.ontology.MetaInfo;
-import org.opentox.toxotis.ontology.MetaInfoBlobber;
 
 /**
  * Configurable Updater of MetaInfo entries. 
@@ -102,35 +103,58 @@ public class UpdateMetaInfo extends DbUpdater {
     @Override
     public int update() throws DbException {
         Connection connection = getConnection();
+        List<MetaInfoStore.Entry> metaEntries = new ArrayList<MetaInfoStore.Entry>(1);
         try {
             //TODO: Create a MetaInfo Writer
             connection.setAutoCommit(false);
-            addMetaStmt = connection.prepareStatement(SQL_ADD_METAINFO);
-            int metaHash = getMeta().hashCode();
-            addMetaStmt.setInt(1, metaHash);
-            MetaInfoBlobber mib = new MetaInfoBlobber(getMeta());
+            int status;
             try {
-                Blob blob = mib.toBlob();
-                addMetaStmt.setBlob(2, blob);
+                status = updateMeta(connection, metaEntries);
             } catch (final SQLException ex) {
-                logger.warn("Improper parametrization of prepared statement", ex);
-                throw ex;
-            } catch (final Exception ex) {
-                logger.warn("MetaInfo serialization exception", ex);
+                if (!forgetMissingMetaInfo(ex, metaEntries)) {
+                    throw ex;
+                }
+                connection.rollback();
+                metaEntries.clear();
+                status = updateMeta(connection, metaEntries);
             }
-            int status = addMetaStmt.executeUpdate();
-
-            updateComponentMetaStmt = connection.prepareStatement(SQL_UPDATE_COMPONENT_META);
-            updateComponentMetaStmt.setLong(1, metaHash);
-            updateComponentMetaStmt.setString(2, componentId);
-            status += updateComponentMetaStmt.executeUpdate();
             connection.commit();
+            remember(metaEntries);
             return status;
         } catch (final SQLException ex) {
             throw new DbException(ex);
         }
     }
 
+    private int updateMeta(Connection connection, List<MetaInfoStore.Entry> metaEntries) throws SQLException, DbException {
+        MetaInfoStore metaStore = MetaInfoStore.getInstance();
+        MetaInfoStore.Entry metaEntry = getMeta() != null ? metaStore.lookup(getMeta()) : null;
+        int status = 0;
+        if (metaEntry != null) {
+            metaEntries.add(metaEntry);
+        }
+        if (metaEntry != null && !metaEntry.isStored()) {
+            if (addMetaStmt == null) {
+                addMetaStmt = connection.prepareStatement(SQL_ADD_METAINFO);
+            }
+            addMetaStmt.setBytes(1, metaEntry.getKey());
+            addMetaStmt.setBytes(2, metaEntry.getEncoded());
+            status += addMetaStmt.executeUpdate();
+        }
+
+        if (updateComponentMetaStmt == null) {
+            updateComponentMetaStmt = connection.prepareStatement(SQL_UPDATE_COMPONENT_META);
+        }
+        if (metaEntry != null) {
+            updateComponentMetaStmt.setBytes(1, metaEntry.getKey());
+        } else {
+            updateComponentMetaStmt.setNull(1, Types.BINARY);
+        }
+        updateComponentMetaStmt.setString(2, componentId);
+        status += updateComponentMetaStmt.executeUpdate();
+        return status;
+    }
+
     @Override
     public void close() throws DbException {
         DbException exception = null;
@@ -32,12 +32,12 @@
  */
 package org.opentox.toxotis.database.engine.model;
 
-import java.sql.Blob;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.SQLException;
 import java.sql.Statement;
 import java.sql.Types;
+import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
@@ -47,9 +47,11 @@ import org.opentox.toxotis.core.component.Model;
 import org.opentox.toxotis.core.component.Parameter;
 import org.opentox.toxotis.core.component.User;
 import org.opentox.toxotis.database.DbWriter;
+import org.opentox.toxotis.database.engine.counter.ComponentCounters;
+import org.opentox.toxotis.database.engine.counter.CounterDelta;
+import org.opentox.toxotis.database.engine.metainfo.MetaInfoStore;
 import org.opentox.toxotis.database.exception.DbException;
 import org.opentox.toxotis.ontology.MetaInfo;
-import org.opentox.toxotis.ontology.MetaInfoBlobber;
 
 /**
  *
@@ -161,122 +163,22 @@ public class AddModel extends DbWriter {
         }
 
 
+        List<MetaInfoStore.Entry> metaEntries = new ArrayList<MetaInfoStore.Entry>();
         try {
-            /*
-             * Prepare statements
-             */
-            if (model.getMeta() != null) {
-                writeMeta = connection.prepareStatement(INSERT_META);
-            }
-            writeFeature = connection.prepareStatement(INSERT_FEATURE);
-            writeComponent = connection.prepareStatement(insertModelAsComponent);
-            writeModel = connection.prepareStatement(insertModelSql);
-
-
-            /*
-             * Write all features in the database!
-             */
             connection.setAutoCommit(false);
-            for (Feature f : featuresToBeWritten) {
-                writeFeature.setString(1, f.getUri().toString());
-                if (f.getUnits() != null) {
-                    writeFeature.setString(2, f.getUnits());
-                } else {
-                    writeFeature.setNull(2, Types.VARCHAR);
-                }
-                writeFeature.executeUpdate();
-                writeFeature.clearParameters();
-            }
-
-            /*
-             * Write MetaInfo
-             */
-            if (writeMeta != null) {
-                writeMeta.setInt(1, model.getMeta().hashCode());
-                MetaInfoBlobber mib = new MetaInfoBlobber(model.getMeta());
-                Blob miBlob = null;
-                try {
-                    miBlob = mib.toBlob();
-                    writeMeta.setBlob(2, miBlob);
-                } catch (final Exception ex) {
-                    logger.error("Not Serializable?!", ex);
+            try {
+                insertModel(connection, insertModelAsComponent, insertModelSql, featuresToBeWritten, metaEntries);
+            } catch (final SQLException ex) {
+                if (!forgetMissingMetaInfo(ex, metaEntries)) {
+                    throw ex;
                 }
-                writeMeta.executeUpdate();
-            }
-
-            /*
-             * Write model in the database
-             */
-            writeComponent.setBoolean(1, model.isEnabled());
-            if (model.getMeta() != null) {
-                writeComponent.setInt(2, model.getMeta().hashCode());
-            } else {
-                writeComponent.setNull(2, Types.INTEGER);
-            }
-            writeComponent.executeUpdate();
-            String modelCreator = User.GUEST.getUid();//default user is User.GUEST
-            if (model.getCreatedBy() != null) {
-                modelCreator = model.getCreatedBy().getUid();
-            }
-            writeModel.setString(1, modelCreator);
-            writeModel.setString(2, model.getAlgorithm().getUri().toString());
-            writeModel.setString(3, model.getLocalCode());
-            writeModel.setString(4, model.getDataset() != null ? model.getDataset().toString() : null);
-            writeModel.setBlob(5, model.getBlob());
-            writeModel.executeUpdate();
-
-            /*
-             * Before proceeding write Parameters as OTComponents
-             *  1. Write their metadata (if any)
-             *  2. Add params as components
-             */
-            if (model.getParameters() != null && !model.getParameters().isEmpty()) {
-                writeParamMeta = connection.prepareStatement(INSERT_META);
-                writeParamComponent = connection.prepareStatement(INSERT_COMPONENT_FS);
-                for (Parameter p : model.getParameters()) {
-                    MetaInfo prmMeta = p.getMeta();
-                    int prmHash = prmMeta.hashCode();
-                    writeParamMeta.setInt(1, prmHash);
-                    MetaInfoBlobber blobber = new MetaInfoBlobber(prmMeta);
-                    try {
-                        Blob blob = blobber.toBlob();
-                        writeParamMeta.setBlob(2, blob);
-                    } catch (final Exception ex) {
-                        logger.error("MetaInfo cannot be serialized!", ex);
-                        throw new DbException(ex);
-                    }
-                    writeParamMeta.addBatch();
-
-                    writeParamComponent.setString(1, p.getUri().getId());
-                    writeParamComponent.setInt(2, prmHash);
-                    writeParamComponent.addBatch();
-                }
-            writeParamMeta.executeBatch();
-            writeParamComponent.executeBatch();
-            }
-
-
-            /*
-             * Dependent, Independent, Predicted features
-             */
-            modelStatement = connection.createStatement();
-            if (model.getDependentFeatures() != null) {
-                String depFeatSQL = prepareQueryForFeatureRelations(INSERT_MODEL_DEPF, model.getDependentFeatures());
-                modelStatement.addBatch(depFeatSQL);
+                connection.rollback();
+                metaEntries.clear();
+                closeStatements(insertModelAsComponent, insertModelSql);
+                insertModel(connection, insertModelAsComponent, insertModelSql, featuresToBeWritten, metaEntries);
             }
-            if (model.getIndependentFeatures() != null) {
-                String indepFeatSQL = prepareQueryForFeatureRelations(INSERT_MODEL_IDEPF, model.getIndependentFeatures());
-                modelStatement.addBatch(indepFeatSQL);
-            }
-            if (model.getPredictedFeatures() != null) {
-                String predFeatSQL = prepareQueryForFeatureRelations(INSERT_MODEL_PREDF, model.getPredictedFeatures());
-                modelStatement.addBatch(predFeatSQL);
-            }
-            if (model.getParameters() != null && !model.getParameters().isEmpty()) {
-                modelStatement.addBatch(prepareQueryForParameters());
-            }
-            modelStatement.executeBatch();
             connection.commit();
+            remember(metaEntries);
         } catch (final SQLException ex) {
             if (connection != null) {
                 try {
@@ -287,85 +189,222 @@ public class AddModel extends DbWriter {
             }
             throw new DbException(ex);
         } finally {
-            SQLException sqlOnClose = null;
+            SQLException sqlOnClose = closeStatements(insertModelAsComponent, insertModelSql);
+            close();
+            if (sqlOnClose != null) {
+                logger.warn(null, sqlOnClose);
+                throw new DbException(sqlOnClose);
+            }
+        }
 
-            if (modelStatement != null) {
-                try {
-                    modelStatement.close();
-                } catch (SQLException ex) {
-                    final String msg = "SQL exception occured while closing the (main) SQL statement for "
-                            + "adding a model in the database consisting of particular batched statements";
-                    logger.warn(msg, ex);
-                    sqlOnClose = ex;
-                }
+        return -1;
+    }
+
+    /*
+     * Writes the model without committing; the entries of the meta-information
+     * it references are added to the given list.
+     */
+    private void insertModel(Connection connection, String insertModelAsComponent, String insertModelSql,
+            Set<Feature> featuresToBeWritten, List<MetaInfoStore.Entry> metaEntries) throws SQLException, DbException {
+        MetaInfoStore metaStore = MetaInfoStore.getInstance();
+        /*
+         * Prepare statements
+         */
+        MetaInfoStore.Entry modelMeta = null;
+        if (model.getMeta() != null) {
+            modelMeta = metaStore.lookup(model.getMeta());
+            metaEntries.add(modelMeta);
+            if (!modelMeta.isStored()) {
+                writeMeta = connection.prepareStatement(INSERT_META);
             }
-            if (writeComponent != null) {
-                try {
-                    writeComponent.close();
-                } catch (SQLException ex) {
-                    final String msg = "SQL exception occured while closing the SQL statement for "
-                            + "adding a model in the database : ".concat(insertModelAsComponent != null ? insertModelAsComponent : "N/A");
-                    logger.warn(msg, ex);
-                    sqlOnClose = ex;
-                }
+        }
+        writeFeature = connection.prepareStatement(INSERT_FEATURE);
+        writeComponent = connection.prepareStatement(insertModelAsComponent);
+        writeModel = connection.prepareStatement(insertModelSql);
+
+
+        /*
+         * Write all features in the database!
+         */
+        for (Feature f : featuresToBeWritten) {
+            writeFeature.setString(1, f.getUri().toString());
+            if (f.getUnits() != null) {
+                writeFeature.setString(2, f.getUnits());
+            } else {
+                writeFeature.setNull(2, Types.VARCHAR);
             }
-            if (writeFeature != null) {
-                try {
-                    writeFeature.close();
-                } catch (SQLException ex) {
-                    final String msg = "SQL exception occured while closing the SQL statement for "
-                            + "adding a model in the database : ".concat(INSERT_FEATURE);
-                    logger.warn(msg, ex);
-                    sqlOnClose = ex;
+            writeFeature.executeUpdate();
+            writeFeature.clearParameters();
+        }
+
+        /*
+         * Write MetaInfo
+         */
+        if (writeMeta != null) {
+            writeMeta.setBytes(1, modelMeta.getKey());
+            writeMeta.setBytes(2, modelMeta.getEncoded());
+            writeMeta.executeUpdate();
+        }
+
+        /*
+         * Write model in the database
+         */
+        writeComponent.setBoolean(1, model.isEnabled());
+        if (modelMeta != null) {
+            writeComponent.setBytes(2, modelMeta.getKey());
+        } else {
+            writeComponent.setNull(2, Types.BINARY);
+        }
+        writeComponent.executeUpdate();
+        String modelCreator = User.GUEST.getUid();//default user is User.GUEST
+        if (model.getCreatedBy() != null) {
+            modelCreator = model.getCreatedBy().getUid();
+        }
+        writeModel.setString(1, modelCreator);
+        writeModel.setString(2, model.getAlgorithm().getUri().toString());
+        writeModel.setString(3, model.getLocalCode());
+        writeModel.setString(4, model.getDataset() != null ? model.getDataset().toString() : null);
+        writeModel.setBlob(5, model.getBlob());
+        writeModel.executeUpdate();
+
+        /*
+         * Before proceeding write Parameters as OTComponents
+         *  1. Write their metadata (if any)
+         *  2. Add params as components
+         */
+        if (model.getParameters() != null && !model.getParameters().isEmpty()) {
+            writeParamMeta = connection.prepareStatement(INSERT_META);
+            writeParamComponent = connection.prepareStatement(INSERT_COMPONENT_FS);
+            for (Parameter p : model.getParameters()) {
+                MetaInfo prmMeta = p.getMeta();
+                writeParamComponent.setString(1, p.getUri().getId());
+                if (prmMeta != null) {
+                    MetaInfoStore.Entry prmEntry = metaStore.lookup(prmMeta);
+                    metaEntries.add(prmEntry);
+                    if (!prmEntry.isStored()) {
+                        writeParamMeta.setBytes(1, prmEntry.getKey());
+                        writeParamMeta.setBytes(2, prmEntry.getEncoded());
+                        writeParamMeta.addBatch();
+                    }
+                    writeParamComponent.setBytes(2, prmEntry.getKey());
+                } else {
+                    writeParamComponent.setNull(2, Types.BINARY);
                 }
+                writeParamComponent.addBatch();
             }
-            if (writeMeta != null) {
-                try {
-                    writeMeta.close();
-                } catch (SQLException ex) {
-                    final String msg = "SQL exception occured while closing the SQL statement for "
-                            + "adding a model in the database : ".concat(INSERT_META != null ? INSERT_META : "N/A");
-                    logger.warn(msg, ex);
-                    sqlOnClose = ex;
-                }
+            writeParamMeta.executeBatch();
+            writeParamComponent.executeBatch();
+        }
+
+
+        /*
+         * Dependent, Independent, Predicted features
+         */
+        modelStatement = connection.createStatement();
+        if (model.getDependentFeatures() != null) {
+            String depFeatSQL = prepareQueryForFeatureRelations(INSERT_MODEL_DEPF, model.getDependentFeatures());
+            modelStatement.addBatch(depFeatSQL);
+        }
+        if (model.getIndependentFeatures() != null) {
+            String indepFeatSQL = prepareQueryForFeatureRelations(INSERT_MODEL_IDEPF, model.getIndependentFeatures());
+            modelStatement.addBatch(indepFeatSQL);
+        }
+        if (model.getPredictedFeatures() != null) {
+            String predFeatSQL = prepareQueryForFeatureRelations(INSERT_MODEL_PREDF, model.getPredictedFeatures());
+            modelStatement.addBatch(predFeatSQL);
+        }
+        if (model.getParameters() != null && !model.getParameters().isEmpty()) {
+            modelStatement.addBatch(prepareQueryForParameters());
+        }
+        modelStatement.executeBatch();
+        if (model.isEnabled()) {
+            new CounterDelta().add(ComponentCounters.MODEL, modelCreator, 1).apply(connection);
+        }
+    }
+
+    /*
+     * Closes the statements of the operation; returns the last exception thrown
+     * while closing them (if any).
+     */
+    private SQLException closeStatements(String insertModelAsComponent, String insertModelSql) {
+        SQLException sqlOnClose = null;
+        if (modelStatement != null) {
+            try {
+                modelStatement.close();
+            } catch (SQLException ex) {
+                final String msg = "SQL exception occured while closing the (main) SQL statement for "
+                        + "adding a model in the database consisting of particular batched statements";
+                logger.warn(msg, ex);
+                sqlOnClose = ex;
             }
-            if (writeModel != null) {
-                try {
-                    writeModel.close();
-                } catch (SQLException ex) {
-                    final String msg = "SQL exception occured while closing the SQL statement for "
-                            + "adding a model in the database : ".concat(insertModelSql != null ? insertModelSql : "N/A");
-                    logger.warn(msg, ex);
-                    sqlOnClose = ex;
-                }
+            modelStatement = null;
+        }
+        if (writeComponent != null) {
+            try {
+                writeComponent.close();
+            } catch (SQLException ex) {
+                final String msg = "SQL exception occured while closing the SQL statement for "
+                        + "adding a model in the database : ".concat(insertModelAsComponent != null ? insertModelAsComponent : "N/A");
+                logger.warn(msg, ex);
+                sqlOnClose = ex;
             }
-            if (writeParamMeta != null) {
-                try {
-                    writeParamMeta.close();
-                } catch (SQLException ex) {
-                    final String msg = "SQL exception occured while closing the SQL statement for "
-                            + "adding a model in the database : ".concat(INSERT_META != null ? INSERT_META : "N/A");
-                    logger.warn(msg, ex);
-                    sqlOnClose = ex;
-                }
+            writeComponent = null;
+        }
+        if (writeFeature != null) {
+            try {
+                writeFeature.close();
+            } catch (SQLException ex) {
+                final String msg = "SQL exception occured while closing the SQL statement for "
+                        + "adding a model in the database : ".concat(INSERT_FEATURE);
+                logger.warn(msg, ex);
+                sqlOnClose = ex;
             }
-            if (writeParamComponent != null) {
-                try {
-                    writeParamComponent.close();
-                } catch (SQLException ex) {
-                    final String msg = "SQL exception occured while closing the SQL statement for "
-                            + "adding a model in the database : ".concat(INSERT_COMPONENT_FS != null ? INSERT_COMPONENT_FS : "N/A");
-                    logger.warn(msg, ex);
-                    sqlOnClose = ex;
-                }
+            writeFeature = null;
+        }
+        if (writeMeta != null) {
+            try {
+                writeMeta.close();
+            } catch (SQLException ex) {
+                final String msg = "SQL exception occured while closing the SQL statement for "
+                        + "adding a model in the database : ".concat(INSERT_META != null ? INSERT_META : "N/A");
+                logger.warn(msg, ex);
+                sqlOnClose = ex;
             }
-            close();
-            if (sqlOnClose != null) {
-                logger.warn(null, sqlOnClose);
-                throw new DbException(sqlOnClose);
+            writeMeta = null;
+        }
+        if (writeModel != null) {
+            try {
+                writeModel.close();
+            } catch (SQLException ex) {
+                final String msg = "SQL exception occured while closing the SQL statement for "
+                        + "adding a model in the database : ".concat(insertModelSql != null ? insertModelSql : "N/A");
+                logger.warn(msg, ex);
+                sqlOnClose = ex;
             }
+            writeModel = null;
         }
-
-        return -1;
+        if (writeParamMeta != null) {
+            try {
+                writeParamMeta.close();
+            } catch (SQLException ex) {
+                final String msg = "SQL exception occured while closing the SQL statement for "
+                        + "adding a model in the database : ".concat(INSERT_META != null ? INSERT_META : "N/A");
+                logger.warn(msg, ex);
+                sqlOnClose = ex;
+            }
+            writeParamMeta = null;
+        }
+        if (writeParamComponent != null) {
+            try {
+                writeParamComponent.close();
+            } catch (SQLException ex) {
+                final String msg = "SQL exception occured while closing the SQL statement for "
+                        + "adding a model in the database : ".concat(INSERT_COMPONENT_FS != null ? INSERT_COMPONENT_FS : "N/A");
+                logger.warn(msg, ex);
+                sqlOnClose = ex;
+            }
+            writeParamComponent = null;
+        }
+        return sqlOnClose;
     }
 }
@@ -0,0 +1,375 @@
+/*
+ *
+ * ToxOtis
+ *
+ * ToxOtis is the Greek word for Sagittarius, that actually means ‘archer’. ToxOtis
+ * is a Java interface to the predictive toxicology services of OpenTox. ToxOtis is
+ * being developed to help both those who need a painless way to consume OpenTox
+ * services and for ambitious service providers that don’t want to spend half of
+ * their time in RDF parsing and creation.
+ *
+ * Copyright (C) 2009-2010 Pantelis Sopasakis & Charalampos Chomenides
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Contact:
+ * Pantelis Sopasakis
+ * chvng@mail.ntua.gr
+ * Address: Iroon Politechniou St. 9, Zografou, Athens Greece
+ * tel. +30 210 7723236
+ *
+ */
+package org.opentox.toxotis.database.engine.model;
+
+import java.nio.ByteBuffer;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.opentox.toxotis.core.component.Feature;
+import org.opentox.toxotis.core.component.Model;
+import org.opentox.toxotis.core.component.Parameter;
+import org.opentox.toxotis.core.component.User;
+import org.opentox.toxotis.database.DbWriter;
+import org.opentox.toxotis.database.engine.counter.ComponentCounters;
+import org.opentox.toxotis.database.engine.counter.CounterDelta;
+import org.opentox.toxotis.database.engine.metainfo.MetaInfoStore;
+import org.opentox.toxotis.database.exception.DbException;
+
+/**
+ * Bulk writer for models. All rows of a kind (features, meta-information,
+ * components, models, feature relations and parameters) are added to a single
+ * JDBC batch per table which, provided that <code>rewriteBatchedStatements</code>
+ * is enabled for the MySQL driver, is sent to the server as a few multi-row
+ * <code>INSERT</code> statements. Features that are shared among the models
+ * of the collection are written only once. Models are committed in chunks of
+ * {@link #getChunkSize() chunkSize} models, so if the writing fails, the chunks
+ * that were committed before the failure remain in the database.
+ *
+ * @author Pantelis Sopasakis
+ * @author Charalampos Chomenides
+ * @see AddModel
+ */
+public class AddModels extends DbWriter {
+
+    /**
+     * Default number of models committed in a single transaction.
+     */
+    public static final int DEFAULT_CHUNK_SIZE = 100;
+    private final Collection<Model> models;
+    private int chunkSize = DEFAULT_CHUNK_SIZE;
+    private final org.slf4j.Logger logger = org.slf4j.LoggerFactory.getLogger(AddModels.class);
+    private static final String INSERT_FEATURE =
+            "INSERT IGNORE Feature (uri, units) VALUES (?,?)";
+    private static final String INSERT_META =
+            "INSERT IGNORE INTO MetaInfo (id, meta) VALUES (?,compress(?))";
+    private static final String INSERT_COMPONENT =
+            "INSERT INTO OTComponent (id,enabled,meta) VALUES (?,?,?)";
+    private static final String INSERT_COMPONENT_FS =
+            "INSERT IGNORE OTComponent (id,enabled,meta) VALUES (?,true,?)";
+    private static final String INSERT_MODEL =
+            "INSERT INTO Model (id, createdBy, algorithm, localCode, dataset, actualModel) VALUES (?,?,?,?,?,compress(?))";
+    private static final String INSERT_MODEL_DEPF =
+            "INSERT INTO ModelDepFeatures (modelId,featureUri,idx) VALUES (?,?,?)";
+    private static final String INSERT_MODEL_IDEPF =
+            "INSERT INTO ModelIndepFeatures (modelId,featureUri,idx) VALUES (?,?,?)";
+    private static final String INSERT_MODEL_PREDF =
+            "INSERT INTO ModelPredictedFeatures (modelId,featureUri,idx) VALUES (?,?,?)";
+    private static final String INSERT_PARAMETER =
+            "INSERT IGNORE Parameter (id,name,scope,value,valueType,modelId) VALUES (?,?,?,?,?,?)";
+    /*
+     * Statements in the order they have to be executed so that the foreign
+     * keys are satisfied.
+     */
+    private static final String[] STATEMENTS = {INSERT_FEATURE, INSERT_META, INSERT_COMPONENT,
+        INSERT_COMPONENT_FS, INSERT_MODEL, INSERT_MODEL_DEPF, INSERT_MODEL_IDEPF,
+        INSERT_MODEL_PREDF, INSERT_PARAMETER};
+
+    public AddModels(Collection<Model> models) throws NullPointerException {
+        if (models == null) {
+            throw new NullPointerException("You can't write a NULL collection of models in the database!");
+        }
+        this.models = models;
+    }
+
+    /**
+     * Number of models committed in a single transaction.
+     * @return
+     *      The chunk size.
+     */
+    public int getChunkSize() {
+        return chunkSize;
+    }
+
+    /**
+     * Set the number of models to be committed in a single transaction.
+     * @param chunkSize
+     *      The chunk size; must be positive.
+     */
+    public void setChunkSize(int chunkSize) {
+        if (chunkSize <= 0) {
+            throw new IllegalArgumentException("The chunk size must be positive");
+        }
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * Writes all models of the collection in the database.
+     * @return
+     *      The number of models written.
+     * @throws DbException
+     *      In case some model cannot be written. All models of the chunk that
+     *      failed are rolled back, while the chunks committed before are kept.
+     */
+    @Override
+    public int write() throws DbException {
+        for (Model model : models) {
+            if (model == null || model.getUri() == null) {
+                throw new DbException("Cannot register a model without an identifier");
+            }
+        }
+        if (models.isEmpty()) {
+            return 0;
+        }
+        Connection connection = getConnection();
+        MetaInfoStore metaStore = MetaInfoStore.getInstance();
+        Map<String, PreparedStatement> statements = new LinkedHashMap<String, PreparedStatement>();
+        Set<String> writtenFeatures = new HashSet<String>();
+        Set<ByteBuffer> writtenMeta = new HashSet<ByteBuffer>();
+        List<Model> chunk = new ArrayList<Model>(Math.min(chunkSize, models.size()));
+        int written = 0;
+        try {
+            connection.setAutoCommit(false);
+            for (String sql : STATEMENTS) {
+                statements.put(sql, connection.prepareStatement(sql));
+            }
+            for (Model model : models) {
+                chunk.add(model);
+                if (chunk.size() == chunkSize) {
+                    written += writeChunkRetrying(connection, statements, chunk, writtenFeatures, writtenMeta, metaStore);
+                    chunk.clear();
+                }
+            }
+            if (!chunk.isEmpty()) {
+                written += writeChunkRetrying(connection, statements, chunk, writtenFeatures, writtenMeta, metaStore);
+            }
+            return written;
+        } catch (final SQLException ex) {
+            try {
+                connection.rollback();
+            } catch (final SQLException ex1) {
+                logger.warn("Rollback failed", ex1);
+            }
+            final String msg = "Models could not be added in the database; "
+                    + written + " models were committed before the failure";
+            logger.warn(msg, ex);
+            throw new DbException(msg, ex);
+        } finally {
+            SQLException sqlOnClose = null;
+            for (Map.Entry<String, PreparedStatement> statement : statements.entrySet()) {
+                try {
+                    statement.getValue().close();
+                } catch (final SQLException ex) {
+                    final String msg = "SQL exception occured while closing the SQL statement for "
+                            + "adding models in the database : ".concat(statement.getKey());
+                    logger.warn(msg, ex);
+                    sqlOnClose = ex;
+                }
+            }
+            close();
+            if (sqlOnClose != null) {
+                throw new DbException(sqlOnClose);
+            }
+        }
+    }
+
+    /*
+     * Writes and commits a chunk; if some meta-information that it references
+     * turns out to be missing from the database, the chunk is written once more
+     * inserting all of its meta-information.
+     */
+    private int writeChunkRetrying(Connection connection, Map<String, PreparedStatement> statements,
+            List<Model> chunk, Set<String> writtenFeatures, Set<ByteBuffer> writtenMeta,
+            MetaInfoStore metaStore) throws SQLException, DbException {
+        List<MetaInfoStore.Entry> metaEntries = new ArrayList<MetaInfoStore.Entry>();
+        try {
+            return writeChunk(connection, statements, chunk, writtenFeatures, writtenMeta, metaStore, metaEntries);
+        } catch (final SQLException ex) {
+            if (!forgetMissingMetaInfo(ex, metaEntries)) {
+                throw ex;
+            }
+            connection.rollback();
+            for (PreparedStatement statement : statements.values()) {
+                statement.clearBatch();
+            }
+            metaEntries.clear();
+            return writeChunk(connection, statements, chunk, writtenFeatures, writtenMeta, metaStore, metaEntries);
+        }
+    }
+
+    private int writeChunk(Connection connection, Map<String, PreparedStatement> statements,
+            List<Model> chunk, Set<String> writtenFeatures, Set<ByteBuffer> writtenMeta,
+            MetaInfoStore metaStore, List<MetaInfoStore.Entry> metaEntries) throws SQLException, DbException {
+        PreparedStatement writeFeature = statements.get(INSERT_FEATURE);
+        PreparedStatement writeMeta = statements.get(INSERT_META);
+        PreparedStatement writeComponent = statements.get(INSERT_COMPONENT);
+        PreparedStatement writeParamComponent = statements.get(INSERT_COMPONENT_FS);
+        PreparedStatement writeModel = statements.get(INSERT_MODEL);
+        PreparedStatement writeParameter = statements.get(INSERT_PARAMETER);
+
+        Set<String> chunkFeatures = new HashSet<String>();
+        Set<ByteBuffer> chunkMeta = new HashSet<ByteBuffer>();
+        CounterDelta counters = new CounterDelta();
+
+        for (Model model : chunk) {
+            String modelId = model.getUri().getId();
+            /*
+             * Features (each one written once for the whole collection)
+             */
+            batchFeatures(writeFeature, model.getDependentFeatures(), writtenFeatures, chunkFeatures);
+            batchFeatures(writeFeature, model.getIndependentFeatures(), writtenFeatures, chunkFeatures);
+            batchFeatures(writeFeature, model.getPredictedFeatures(), writtenFeatures, chunkFeatures);
+
+            /*
+             * Model as OTComponent
+             */
+            MetaInfoStore.Entry modelMeta = batchMeta(writeMeta, model.getMeta() != null
+                    ? metaStore.lookup(model.getMeta()) : null, writtenMeta, chunkMeta, metaEntries);
+            writeComponent.setString(1, modelId);
+            writeComponent.setBoolean(2, model.isEnabled());
+            if (modelMeta != null) {
+                writeComponent.setBytes(3, modelMeta.getKey());
+            } else {
+                writeComponent.setNull(3, Types.BINARY);
+            }
+            writeComponent.addBatch();
+
+            /*
+             * Model
+             */
+            String creator = model.getCreatedBy() != null ? model.getCreatedBy().getUid() : User.GUEST.getUid();
+            writeModel.setString(1, modelId);
+            writeModel.setString(2, creator);
+            writeModel.setString(3, model.getAlgorithm() != null && model.getAlgorithm().getUri() != null
+                    ? model.getAlgorithm().getUri().toString() : null);
+            writeModel.setString(4, model.getLocalCode());
+            writeModel.setString(5, model.getDataset() != null ? model.getDataset().toString() : null);
+            writeModel.setBlob(6, model.getBlob());
+            writeModel.addBatch();
+            if (model.isEnabled()) {
+                counters.add(ComponentCounters.MODEL, creator, 1);
+            }
+
+            /*
+             * Dependent, Independent, Predicted features
+             */
+            batchRelations(statements.get(INSERT_MODEL_DEPF), modelId, model.getDependentFeatures());
+            batchRelations(statements.get(INSERT_MODEL_IDEPF), modelId, model.getIndependentFeatures());
+            batchRelations(statements.get(INSERT_MODEL_PREDF), modelId, model.getPredictedFeatures());
+
+            /*
+             * Parameters (as OTComponents and as Parameters)
+             */
+            if (model.getParameters() != null) {
+                for (Parameter p : model.getParameters()) {
+                    MetaInfoStore.Entry prmMeta = batchMeta(writeMeta, p.getMeta() != null
+                            ? metaStore.lookup(p.getMeta()) : null, writtenMeta, chunkMeta, metaEntries);
+                    writeParamComponent.setString(1, p.getUri().getId());
+                    if (prmMeta != null) {
+                        writeParamComponent.setBytes(2, prmMeta.getKey());
+                    } else {
+                        writeParamComponent.setNull(2, Types.BINARY);
+                    }
+                    writeParamComponent.addBatch();
+
+                    writeParameter.setString(1, p.getUri().getId());
+                    writeParameter.setString(2, p.getName() != null ? p.getName().getValueAsString() : null);
+                    writeParameter.setString(3, p.getScope() != null ? p.getScope().toString() : "OPTIONAL");
+                    writeParameter.setString(4, p.getTypedValue() != null ? p.getTypedValue().getValueAsString() : null);
+                    writeParameter.setString(5, p.getTypedValue() != null && p.getTypedValue().getType() != null
+                            ? p.getTypedValue().getType().getURI() : null);
+                    writeParameter.setString(6, modelId);
+                    writeParameter.addBatch();
+                }
+            }
+        }
+
+        for (String sql : STATEMENTS) {
+            statements.get(sql).executeBatch();
+        }
+        counters.apply(connection);
+        connection.commit();
+        writtenFeatures.addAll(chunkFeatures);
+        writtenMeta.addAll(chunkMeta);
+        remember(metaEntries);
+        return chunk.size();
+    }
+
+    private void batchFeatures(PreparedStatement writeFeature, List<Feature> features,
+            Set<String> writtenFeatures, Set<String> chunkFeatures) throws SQLException {
+        if (features == null) {
+            return;
+        }
+        for (Feature f : features) {
+            String uri = f.getUri().toString();
+            if (writtenFeatures.contains(uri) || !chunkFeatures.add(uri)) {
+                continue;
+            }
+            writeFeature.setString(1, uri);
+            if (f.getUnits() != null) {
+                writeFeature.setString(2, f.getUnits());
+            } else {
+                writeFeature.setNull(2, Types.VARCHAR);
+            }
+            writeFeature.addBatch();
+        }
+    }
+
+    private MetaInfoStore.Entry batchMeta(PreparedStatement writeMeta, MetaInfoStore.Entry entry,
+            Set<ByteBuffer> writtenMeta, Set<ByteBuffer> chunkMeta, List<MetaInfoStore.Entry> metaEntries)
+            throws SQLException {
+        if (entry == null) {
+            return null;
+        }
+        metaEntries.add(entry);
+        ByteBuffer key = ByteBuffer.wrap(entry.getKey());
+        if (!entry.isStored() && !writtenMeta.contains(key) && chunkMeta.add(key)) {
+            writeMeta.setBytes(1, entry.getKey());
+            writeMeta.setBytes(2, entry.getEncoded());
+            writeMeta.addBatch();
+        }
+        return entry;
+    }
+
+    private void batchRelations(PreparedStatement writeRelation, String modelId,
+            List<Feature> features) throws SQLException {
+        if (features == null) {
+            return;
+        }
+        int length = features.size();
+        for (int i = 0; i < length; i++) {
+            writeRelation.setString(1, modelId);
+            writeRelation.setString(2, features.get(i).getUri().toString());
+            writeRelation.setInt(3, i);
+            writeRelation.addBatch();
+        }
+    }
+}
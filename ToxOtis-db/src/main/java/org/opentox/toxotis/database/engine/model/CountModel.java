@@ -34,11 +34,11 @@
 
 package org.opentox.toxotis.database.engine.model;
 
-import java.sql.Connection;
+import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
-import java.sql.Statement;
 import org.opentox.toxotis.database.DbCount;
+import org.opentox.toxotis.database.engine.counter.ComponentCounters;
 import org.opentox.toxotis.database.exception.DbException;
 
 /**
@@ -48,27 +48,30 @@ import org.opentox.toxotis.database.exception.DbException;
  */
 public class CountModel extends DbCount {
 
-    private Statement statement = null;
+    private PreparedStatement statement = null;
     private org.slf4j.Logger logger = org.slf4j.LoggerFactory.getLogger(CountModel.class);
 
+    @Override
+    protected String getCounterType() {
+        return ComponentCounters.MODEL;
+    }
+
     @Override
     public int count() throws DbException {
+        Integer maintained = countFromCounters();
+        if (maintained != null) {
+            return maintained;
+        }
         setTable("Model");
         setCountableColumn("Model.id");
         setInnerJoin("OTComponent ON Model.id=OTComponent.id");
         if (!includeDisabled) {
-            if (where != null) {
-                setWhere(where + " AND OTComponent.enabled=true");
-            } else {
-                setWhere("OTComponent.enabled=true");
-            }
+            addWhere("OTComponent.enabled=true");
         }
-        Connection connection = null;
-        connection = getConnection();
         ResultSet rs = null;
         try {
-            statement = connection.createStatement();
-            rs = statement.executeQuery(getSql());
+            statement = prepareStatement();
+            rs = statement.executeQuery();
             rs.first();
             return rs.getInt(1);
         } catch (SQLException ex) {
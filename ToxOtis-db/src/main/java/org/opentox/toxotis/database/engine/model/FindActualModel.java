@@ -0,0 +1,156 @@
+/*
+ *
+ * ToxOtis
+ *
+ * ToxOtis is the Greek word for Sagittarius, that actually means ‘archer’. ToxOtis
+ * is a Java interface to the predictive toxicology services of OpenTox. ToxOtis is
+ * being developed to help both those who need a painless way to consume OpenTox
+ * services and for ambitious service providers that don’t want to spend half of
+ * their time in RDF parsing and creation.
+ *
+ * Copyright (C) 2009-2010 Pantelis Sopasakis & Charalampos Chomenides
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Contact:
+ * Pantelis Sopasakis
+ * chvng@mail.ntua.gr
+ * Address: Iroon Politechniou St. 9, Zografou, Athens Greece
+ * tel. +30 210 7723236
+ *
+ */
+package org.opentox.toxotis.database.engine.model;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.sql.Blob;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import org.opentox.toxotis.core.component.IActualModelLoader;
+import org.opentox.toxotis.core.component.Model;
+import org.opentox.toxotis.database.DbOperation;
+import org.opentox.toxotis.database.exception.DbException;
+
+/**
+ * Fetches the (uncompressed) actual model of a model from the database on
+ * demand. Instances of this class are attached to models retrieved by
+ * {@link FindModel} when the actual model is not part of the projection, so
+ * that the blob is only read and deserialized when
+ * {@link Model#getActualModel() } is first invoked. The database resources
+ * are released when the returned stream is closed.
+ *
+ * @author Pantelis Sopasakis
+ * @author Charalampos Chomenides
+ */
+public class FindActualModel extends DbOperation implements IActualModelLoader {
+
+    private PreparedStatement statement = null;
+    private ResultSet rs = null;
+    private org.slf4j.Logger logger = org.slf4j.LoggerFactory.getLogger(FindActualModel.class);
+
+    public FindActualModel() {
+        super();
+    }
+
+    @Override
+    public String getSqlTemplate() {
+        return "SELECT uncompress(actualModel) FROM Model WHERE id=?";
+    }
+
+    @Override
+    public InputStream openActualModel(Model model) throws IOException {
+        if (model == null || model.getUri() == null) {
+            return null;
+        }
+        try {
+            Connection connection = getConnection();
+            statement = connection.prepareStatement(getSqlTemplate());
+            statement.setString(1, model.getUri().getId());
+            rs = statement.executeQuery();
+            Blob blob = null;
+            if (rs.next()) {
+                blob = rs.getBlob(1);
+            }
+            if (blob == null) {
+                release();
+                return null;
+            }
+            return new FilterInputStream(blob.getBinaryStream()) {
+
+                @Override
+                public void close() throws IOException {
+                    try {
+                        super.close();
+                    } finally {
+                        release();
+                    }
+                }
+            };
+        } catch (final SQLException ex) {
+            final String msg = "SQL-related exception while loading the actual model of a model";
+            logger.warn(msg, ex);
+            releaseQuietly();
+            throw new IOException(msg, ex);
+        } catch (final DbException ex) {
+            final String msg = "Cannot connect to the database to load an actual model";
+            logger.warn(msg, ex);
+            releaseQuietly();
+            throw new IOException(msg, ex);
+        }
+    }
+
+    private void release() throws IOException {
+        try {
+            close();
+        } catch (final DbException ex) {
+            throw new IOException("Database resources held by the actual model loader cannot be released", ex);
+        }
+    }
+
+    private void releaseQuietly() {
+        try {
+            close();
+        } catch (final DbException ex) {
+            logger.warn("Database resources held by the actual model loader cannot be released", ex);
+        }
+    }
+
+    @Override
+    public void close() throws DbException {
+        try {
+            if (rs != null) {
+                rs.close();
+            }
+            rs = null;
+            if (statement != null) {
+                statement.close();
+            }
+            statement = null;
+        } catch (final SQLException ex) {
+            final String msg = "Result set or statement uncloseable";
+            logger.warn(msg, ex);
+            throw new DbException(msg, ex);
+        } finally {
+            super.close();
+        }
+    }
+
+    @Override
+    protected boolean isReadOnly() {
+        return true;
+    }
+}
@@ -34,10 +34,9 @@
 
 package org.opentox.toxotis.database.engine.model;
 
-import java.sql.Connection;
+import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
-import java.sql.Statement;
 import org.opentox.toxotis.client.VRI;
 import org.opentox.toxotis.core.component.Model;
 import org.opentox.toxotis.database.DbReader;
@@ -51,10 +50,35 @@ import org.opentox.toxotis.database.exception.DbException;
  */
 public class FindModel extends DbReader<Model> {
 
+    /**
+     * Which parts of a model are retrieved by {@link FindModel}.
+     */
+    public enum Projection {
+
+        /**
+         * The actual model is read along with the rest of the model (it is
+         * deserialized on first access).
+         */
+        FULL,
+        /**
+         * The actual model is not read; it is fetched by a follow-up query
+         * the first time {@link Model#getActualModel() } is invoked. This is
+         * the default.
+         */
+        LAZY_ACTUAL_MODEL,
+        /**
+         * Only metadata are retrieved: the actual model is neither read nor
+         * available on demand.
+         */
+        METADATA_ONLY;
+    }
+
     private final VRI baseUri;
     private boolean includeDisabled = false;
-    private Statement statement = null;
+    private PreparedStatement statement = null;
     private boolean resolveUsers;
+    private int batchSize = 0;
+    private Projection projection = Projection.LAZY_ACTUAL_MODEL;
     private org.slf4j.Logger logger = org.slf4j.LoggerFactory.getLogger(FindModel.class);
 
     public FindModel(final VRI baseUri) {
@@ -69,33 +93,63 @@ public class FindModel extends DbReader<Model> {
         this.resolveUsers = resolveUsers;
     }
 
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    /**
+     * Enables batched hydration of the models returned by {@link #list() }.
+     * Models are then read in batches of the given size and the parameters,
+     * features and references of every batch are loaded using one query per
+     * relation table. Use a non-positive value (default) to hydrate every model
+     * separately.
+     *
+     * @param batchSize
+     *      Number of models that are hydrated together.
+     * @see ModelIterator#setBatchSize(int)
+     */
+    public void setBatchSize(int batchSize) {
+        this.batchSize = batchSize;
+    }
+
+    public Projection getProjection() {
+        return projection;
+    }
+
+    /**
+     * Choose whether the (potentially large) actual model should be retrieved.
+     * By default, the actual model blob is not read; it is loaded on demand.
+     *
+     * @param projection
+     *      The projection to be used.
+     */
+    public void setProjection(Projection projection) {
+        this.projection = projection != null ? projection : Projection.LAZY_ACTUAL_MODEL;
+    }
 
     public void setSearchById(String id) {
-        String whereTemplate = "Model.id='%s'";
-        setWhere(String.format(whereTemplate, id));
+        setWhere("Model.id=?", id);
     }
 
     @Override
     public IDbIterator<Model> list() throws DbException {
         setTable("Model");
-        setTableColumns("Model.id", "Model.createdBy", "Model.algorithm", "Model.localcode", "Model.dataset", "uncompress(actualModel)", "uncompress(MetaInfo.meta)");
+        setTableColumns("Model.id", "Model.createdBy", "Model.algorithm", "Model.localcode", "Model.dataset",
+                Projection.FULL.equals(projection) ? "uncompress(actualModel)" : "NULL",
+                "uncompress(MetaInfo.meta)");
         setInnerJoin("OTComponent ON Model.id=OTComponent.id "
                 + "LEFT JOIN MetaInfo ON OTComponent.meta=MetaInfo.id");
         if (!includeDisabled) {
-            if (where == null) {
-                setWhere("OTComponent.enabled=true");
-            } else {
-                setWhere(where + " AND OTComponent.enabled=true");
-            }
+            addWhere("OTComponent.enabled=true");
         }
-        Connection connection = null;
-        connection = getConnection();
         try {
-            statement = connection.createStatement();
-            ResultSet rs = statement.executeQuery(getSql());
+            statement = prepareStatement();
+            ResultSet rs = statement.executeQuery();
             ModelIterator it = new ModelIterator(rs, baseUri);
             it.setResolveUser(resolveUsers);
-            return it;
+            it.setBatchSize(batchSize);
+            it.setLazyActualModel(Projection.LAZY_ACTUAL_MODEL.equals(projection));
+            return iterate(it, rs);
         } catch (SQLException ex) {
             throw new DbException(ex);
         } 
@@ -33,10 +33,9 @@
 package org.opentox.toxotis.database.engine.model;
 
 import java.net.URISyntaxException;
-import java.sql.Connection;
+import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
-import java.sql.Statement;
 import java.util.ArrayList;
 import java.util.List;
 import org.opentox.toxotis.client.VRI;
@@ -68,17 +67,15 @@ public class FindModelFeatures extends DbOperation {
     }
     private final SEARCH_MODE searchMode;
     private final String modelId;
-    private Statement statement = null;
+    private PreparedStatement statement = null;
     private org.slf4j.Logger logger = org.slf4j.LoggerFactory.getLogger(FindModelFeatures.class);
     
 
     public List<Feature> list() throws DbException {
-        Connection connection = null;
-        connection = getConnection();
         ResultSet rs = null;
         try {
-            statement = connection.createStatement();
-            rs = statement.executeQuery(getSql());
+            statement = prepare(getSql(), modelId);
+            rs = statement.executeQuery();
             List<Feature> list = new ArrayList<Feature>();
             while (rs.next()) {
                 try {
@@ -116,12 +113,12 @@ public class FindModelFeatures extends DbOperation {
     }
 
     private String getSql() {
-        return String.format(getSqlTemplate(), searchMode.getTableName(), modelId);
+        return String.format(getSqlTemplate(), searchMode.getTableName());
     }
 
     @Override
     public String getSqlTemplate() {
-        return "SELECT featureUri FROM %s WHERE modelId='%s' ORDER BY idx";
+        return "SELECT featureUri FROM %s WHERE modelId=? ORDER BY idx";
     }
 
     @Override
@@ -138,4 +135,9 @@ public class FindModelFeatures extends DbOperation {
             super.close();
         }
     }
+
+    @Override
+    protected boolean isReadOnly() {
+        return true;
+    }
 }
@@ -34,10 +34,9 @@ package org.opentox.toxotis.database.engine.model;
 
 import com.hp.hpl.jena.datatypes.TypeMapper;
 import com.hp.hpl.jena.datatypes.xsd.XSDDatatype;
-import java.sql.Connection;
+import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
-import java.sql.Statement;
 import java.util.HashSet;
 import java.util.Set;
 import org.opentox.toxotis.client.VRI;
@@ -57,7 +56,7 @@ public class FindModelParameters extends DbOperation {
 
     private final String modelId;
     private final VRI baseUri;
-    Statement statement = null;
+    PreparedStatement statement = null;
     private org.slf4j.Logger logger = org.slf4j.LoggerFactory.getLogger(FindModelParameters.class);
 
     public FindModelParameters(final String modelId, final VRI baseUri) {
@@ -68,15 +67,24 @@ public class FindModelParameters extends DbOperation {
 
     @Override
     public String getSqlTemplate() {
-        String SQL = "SELECT id,name,scope,value,valueType,modelId FROM Parameter WHERE modelId='%s'";
+        String SQL = "SELECT id,name,scope,value,valueType,modelId FROM Parameter WHERE modelId=?";
         return SQL;
     }
 
     private String getSql() {
-        return String.format(getSqlTemplate(), modelId);
+        return getSqlTemplate();
     }
 
     private Parameter resolveParameter(final ResultSet rs) throws SQLException {
+        return resolveParameter(rs, baseUri);
+    }
+
+    /**
+     * Creates a parameter out of the current row of a result set whose first six
+     * columns are <code>id, name, scope, value, valueType, modelId</code> (in this
+     * order). Shared with {@link FindModelRelations}.
+     */
+    static Parameter resolveParameter(final ResultSet rs, final VRI baseUri) throws SQLException {
         Parameter p = new Parameter(new VRI(baseUri).augment("parameter", rs.getString(1)));
         p.setName(rs.getString(2));
         p.setScope(Parameter.ParameterScope.valueOf(rs.getString(3)));
@@ -105,12 +113,10 @@ public class FindModelParameters extends DbOperation {
     }
 
     public Set<Parameter> listParameters() throws DbException {
-        Connection connection = null;
-        connection = getConnection();
         ResultSet rs = null;
         try {
-            statement = connection.createStatement();
-            rs = statement.executeQuery(getSql());
+            statement = prepare(getSql(), modelId);
+            rs = statement.executeQuery();
             Set<Parameter> set = new HashSet<Parameter>();
             while (rs.next()) {
                 set.add(resolveParameter(rs));
@@ -146,4 +152,9 @@ public class FindModelParameters extends DbOperation {
             super.close();
         }
     }
+
+    @Override
+    protected boolean isReadOnly() {
+        return true;
+    }
 }
@@ -0,0 +1,223 @@
+/*
+ *
+ * ToxOtis
+ *
+ * ToxOtis is the Greek word for Sagittarius, that actually means ‘archer’. ToxOtis
+ * is a Java interface to the predictive toxicology services of OpenTox. ToxOtis is
+ * being developed to help both those who need a painless way to consume OpenTox
+ * services and for ambitious service providers that don’t want to spend half of
+ * their time in RDF parsing and creation.
+ *
+ * Copyright (C) 2009-2010 Pantelis Sopasakis & Charalampos Chomenides
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Contact:
+ * Pantelis Sopasakis
+ * chvng@mail.ntua.gr
+ * Address: Iroon Politechniou St. 9, Zografou, Athens Greece
+ * tel. +30 210 7723236
+ *
+ */
+package org.opentox.toxotis.database.engine.model;
+
+import java.net.URISyntaxException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import org.opentox.toxotis.client.VRI;
+import org.opentox.toxotis.core.component.Feature;
+import org.opentox.toxotis.core.component.Model;
+import org.opentox.toxotis.core.component.Parameter;
+import org.opentox.toxotis.database.DbOperation;
+import org.opentox.toxotis.database.exception.DbException;
+
+/**
+ * Loads the parameters, the dependent, independent and predicted features and
+ * the BibTeX references of a whole page of models at once. Instead of firing
+ * a separate set of queries for every model (like {@link FindModelParameters},
+ * {@link FindModelFeatures} and {@link ModelReferencesFinder} do), one query
+ * is issued per relation table using an <code>IN</code> list of model IDs, so
+ * the number of queries per page does not depend on the number of models it
+ * holds.
+ *
+ * @author Pantelis Sopasakis
+ * @author Charalampos Chomenides
+ */
+public class FindModelRelations extends DbOperation {
+
+    private final VRI baseUri;
+    private PreparedStatement statement = null;
+    private org.slf4j.Logger logger = org.slf4j.LoggerFactory.getLogger(FindModelRelations.class);
+    private static final String PARAMETERS_SQL =
+            "SELECT id,name,scope,value,valueType,modelId FROM Parameter WHERE modelId IN (%s)";
+    private static final String FEATURES_SQL =
+            "SELECT modelId,featureUri FROM %s WHERE modelId IN (%s) ORDER BY modelId,idx";
+    private static final String REFERENCES_SQL =
+            "SELECT modelId,bibTeXUri FROM ModelBibTeX WHERE modelId IN (%s)";
+
+    public FindModelRelations(final VRI baseUri) {
+        super();
+        this.baseUri = baseUri;
+    }
+
+    @Override
+    public String getSqlTemplate() {
+        return FEATURES_SQL;
+    }
+
+    /**
+     * Populates the relations of the given models. Every model in the map gets
+     * non-null (possibly empty) collections of parameters, features and
+     * references, exactly like the one-model-at-a-time finders would produce.
+     *
+     * @param page
+     *      Models indexed by their ID (not URI) in the database.
+     * @throws DbException
+     *      In case some SQL-related error occurs.
+     */
+    public void hydrate(final Map<String, Model> page) throws DbException {
+        if (page == null || page.isEmpty()) {
+            return;
+        }
+        for (Model m : page.values()) {
+            m.setParameters(new HashSet<Parameter>());
+            m.setDependentFeatures(new ArrayList<Feature>());
+            m.setIndependentFeatures(new ArrayList<Feature>());
+            m.setPredictedFeatures(new ArrayList<Feature>());
+        }
+        String questionMarks = questionMarks(page.size());
+        ResultSet rs = null;
+        try {
+            rs = execute(String.format(PARAMETERS_SQL, questionMarks), page);
+            while (rs.next()) {
+                Model m = page.get(rs.getString(6));
+                if (m != null) {
+                    m.getParameters().add(FindModelParameters.resolveParameter(rs, baseUri));
+                }
+            }
+            closeCurrent(rs);
+            rs = null;
+
+            for (FindModelFeatures.SEARCH_MODE mode : FindModelFeatures.SEARCH_MODE.values()) {
+                rs = execute(String.format(FEATURES_SQL, mode.getTableName(), questionMarks), page);
+                while (rs.next()) {
+                    Model m = page.get(rs.getString(1));
+                    if (m != null) {
+                        featureList(m, mode).add(new Feature(new VRI(rs.getString(2))));
+                    }
+                }
+                closeCurrent(rs);
+                rs = null;
+            }
+
+            rs = execute(String.format(REFERENCES_SQL, questionMarks), page);
+            while (rs.next()) {
+                Model m = page.get(rs.getString(1));
+                if (m != null) {
+                    m.addBibTeXReferences(new VRI(rs.getString(2)));
+                }
+            }
+            closeCurrent(rs);
+            rs = null;
+        } catch (final URISyntaxException ex) {
+            final String msg = "Invalid URI found in the database for a model relation";
+            logger.error(msg, ex);
+            throw new DbException(msg, ex);
+        } catch (final SQLException ex) {
+            final String msg = "SQL-related exception while hydrating a page of models";
+            logger.warn(msg, ex);
+            throw new DbException(msg, ex);
+        } finally {
+            if (rs != null) {
+                try {
+                    closeCurrent(rs);
+                } catch (final SQLException ex) {
+                    logger.warn("Result set is uncloseable", ex);
+                }
+            }
+        }
+    }
+
+    private List<Feature> featureList(Model m, FindModelFeatures.SEARCH_MODE mode) {
+        switch (mode) {
+            case DEPENDENT:
+                return m.getDependentFeatures();
+            case INDEPENDENT:
+                return m.getIndependentFeatures();
+            default:
+                return m.getPredictedFeatures();
+        }
+    }
+
+    private ResultSet execute(String sql, Map<String, Model> page) throws DbException, SQLException {
+        Connection connection = getConnection();
+        statement = connection.prepareStatement(sql);
+        Iterator<String> ids = page.keySet().iterator();
+        int index = 1;
+        while (ids.hasNext()) {
+            statement.setString(index++, ids.next());
+        }
+        return statement.executeQuery();
+    }
+
+    private void closeCurrent(ResultSet rs) throws SQLException {
+        try {
+            rs.close();
+        } finally {
+            if (statement != null) {
+                statement.close();
+                statement = null;
+            }
+        }
+    }
+
+    static String questionMarks(int n) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < n; i++) {
+            sb.append("?");
+            if (i != n - 1) {
+                sb.append(",");
+            }
+        }
+        return sb.toString();
+    }
+
+    @Override
+    public void close() throws DbException {
+        try {
+            if (statement != null) {
+                statement.close();
+            }
+            statement = null;
+        } catch (final SQLException ex) {
+            final String msg = "statement uncloseable";
+            logger.warn(msg, ex);
+            throw new DbException(msg, ex);
+        } finally {
+            super.close();
+        }
+    }
+
+    @Override
+    protected boolean isReadOnly() {
+        return true;
+    }
+}
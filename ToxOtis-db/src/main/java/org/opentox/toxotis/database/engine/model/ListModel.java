@@ -32,11 +32,9 @@
  */
 package org.opentox.toxotis.database.engine.model;
 
-import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
-import java.sql.Statement;
 import org.opentox.toxotis.database.IDbIterator;
 import org.opentox.toxotis.database.DbReader;
 import org.opentox.toxotis.database.ResultSetIterator;
@@ -49,7 +47,7 @@ import org.opentox.toxotis.database.exception.DbException;
 public class ListModel extends DbReader<String> {
 
     private boolean includeDisabled = false;
-    private Statement statement = null;
+    private PreparedStatement statement = null;
     private ResultSet results;
     private org.slf4j.Logger logger = org.slf4j.LoggerFactory.getLogger(ListModel.class);
 
@@ -71,19 +69,15 @@ public class ListModel extends DbReader<String> {
         setTableColumns("Model.id");
         if (!includeDisabled) {
             setInnerJoin("OTComponent ON Model.id=OTComponent.id");
-            if (where != null) {
-                setWhere(where + "AND enabled=true");
-            } else {
-                setWhere("enabled=true");
-            }
-
+            addWhere("enabled=true");
+            setKeyColumns("OTComponent.created", "Model.id");
+        } else {
+            setKeyColumns(null, "Model.id");
         }        
-        Connection connection = null;
-        connection = getConnection();
         try {
-            statement = connection.createStatement();
-            results = statement.executeQuery(getSql());
-            return new ResultSetIterator(results);
+            statement = prepareStatement();
+            results = statement.executeQuery();
+            return iterate(new ResultSetIterator(results), results);
         } catch (final SQLException ex) {
             throw new DbException(ex);
         }
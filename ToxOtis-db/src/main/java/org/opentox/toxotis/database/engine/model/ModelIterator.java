@@ -36,6 +36,11 @@ import java.net.URISyntaxException;
 import java.sql.Blob;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.Map;
+import java.util.NoSuchElementException;
 import java.util.Set;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -47,6 +52,7 @@ import org.opentox.toxotis.database.DbIterator;
 import org.opentox.toxotis.database.IDbIterator;
 import org.opentox.toxotis.database.engine.cache.Cache;
 import org.opentox.toxotis.database.engine.cache.ICache;
+import org.opentox.toxotis.database.engine.cache.SharedCaches;
 import org.opentox.toxotis.database.engine.user.FindUser;
 import org.opentox.toxotis.database.exception.DbException;
 import org.opentox.toxotis.exceptions.impl.ToxOtisException;
@@ -64,6 +70,9 @@ public class ModelIterator extends DbIterator<Model> {
     private org.slf4j.Logger logger = org.slf4j.LoggerFactory.getLogger(ModelIterator.class);
     private boolean resolveUser = false;
     private ICache<String, User> usersCache = new Cache<String, User>();
+    private int batchSize = 0;
+    private boolean lazyActualModel = false;
+    private final LinkedList<Model> buffer = new LinkedList<Model>();
 
     public ModelIterator(final ResultSet rs, final VRI baseUri) {
         super(rs);
@@ -78,92 +87,95 @@ public class ModelIterator extends DbIterator<Model> {
         this.resolveUser = resolveUser;
     }
 
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    /**
+     * Enables batched hydration of models. When the batch size is positive, the
+     * iterator reads up to <code>batchSize</code> model rows at once and loads
+     * their parameters, features, BibTeX references and (if requested) their
+     * creators using a constant number of queries per batch (see
+     * {@link FindModelRelations}). A non-positive value (the default) retrieves
+     * the relations of every model separately as it is returned.
+     *
+     * @param batchSize
+     *      Number of models to be hydrated together.
+     */
+    public void setBatchSize(int batchSize) {
+        this.batchSize = batchSize;
+    }
+
+    public boolean isLazyActualModel() {
+        return lazyActualModel;
+    }
+
+    /**
+     * When set to <code>true</code>, models whose actual model is not found in
+     * the result set are equipped with a {@link FindActualModel loader} so that
+     * the actual model is retrieved upon request.
+     *
+     * @param lazyActualModel
+     *      Whether actual models should be loaded on demand.
+     */
+    public void setLazyActualModel(boolean lazyActualModel) {
+        this.lazyActualModel = lazyActualModel;
+    }
+
     @Override
-    public Model next() throws DbException {
-        Model nextModel = new Model();
-        try {
-            String modelId = rs.getString(1);
-            nextModel.setUri(new VRI(baseUri).augment("model", modelId));
-
-            String modelCreator = rs.getString(2);
-            if (modelCreator != null) {
-                User user = usersCache.get(modelCreator);//try to get the user from the cache.
-                if (user == null) {// if user is not found in cache, create it and put it there!
-                    user = new User();
-                    user.setUid(modelCreator);
-                    if (resolveUser) {
-                        FindUser fu = new FindUser();
-                        fu.setWhere("uid='" + modelCreator + "'");
-                        IDbIterator<User> users = fu.list();
-                        if (users.hasNext()) {
-                            user = users.next();
-                        }
-                        users.close();
-                        fu.close();
-                    }
-                    usersCache.put(modelCreator, user);
-                }
-                nextModel.setCreatedBy(user);
+    public boolean hasNext() throws DbException {
+        if (batchSize <= 0) {
+            return super.hasNext();
+        }
+        if (buffer.isEmpty()) {
+            fetchBatch();
+            if (buffer.isEmpty()) {
+                releaseSession();
             }
+        }
+        return !buffer.isEmpty();
+    }
 
-            try {
-                nextModel.setAlgorithm(new Algorithm(new VRI(rs.getString(3))));
-            } catch (final ToxOtisException ex) {
-                logger.warn("Invalid algorithm URI pointed by the model".concat(modelId), ex);
-                throw new RuntimeException(ex);
-            } catch (final URISyntaxException ex) {
-                logger.error("Illegal URI found for training algorithm for a model", ex);
-                throw new RuntimeException(ex);
-            }
-            nextModel.setLocalCode(rs.getString(4));
-            try {
-                String datasetFromDatabase = rs.getString(5);
-                if (datasetFromDatabase != null) {
-                    nextModel.setDataset(new VRI(datasetFromDatabase));
-                }
-            } catch (URISyntaxException ex) {
-                final String msg = "Illegal URI found for training dataset for a model";
-                logger.error(msg, ex);
-                throw new RuntimeException(msg, ex);
-            }
-            Blob actualModelBlob = rs.getBlob(6);
-            if (actualModelBlob != null) {
-                nextModel.setBlob(actualModelBlob);
-                try {
-                    actualModelBlob.free();
-                } catch (final SQLException ex) {
-                    logger.warn("An error occured releasing the (actual model) Blob's resources", ex);
-                    throw ex;
-                }
-            }
+    @Override
+    public void remove() throws DbException {
+        if (batchSize > 0) {
+            throw new UnsupportedOperationException("Models cannot be removed while iterating in batches");
+        }
+        super.remove();
+    }
 
-            Blob metaInfoBlob = rs.getBlob(7);
-            if (metaInfoBlob != null) {
-                MetaInfoDeblobber mid = new MetaInfoDeblobber(metaInfoBlob);
-                MetaInfo mi = mid.toMetaInfo();
-                nextModel.setMeta(mi);
-                metaInfoBlob.free();
-            }else{
-                nextModel.setMeta(null);
+    @Override
+    public Model next() throws DbException {
+        if (batchSize > 0) {
+            if (buffer.isEmpty()) {
+                throw new NoSuchElementException("No more models to iterate over");
+            }
+            return buffer.removeFirst();
+        }
+        try {
+            Model nextModel = readModel();
+            String modelId = nextModel.getUri().getId();
+            if (nextModel.getCreatedBy() != null) {
+                nextModel.setCreatedBy(resolveCreator(nextModel.getCreatedBy().getUid()));
             }
 
-            FindModelParameters paramFinder = new FindModelParameters(modelId, baseUri);
+            FindModelParameters paramFinder = nested(new FindModelParameters(modelId, baseUri));
             nextModel.setParameters(paramFinder.listParameters());
             paramFinder.close();
 
-            FindModelFeatures depFeaturesFinder = new FindModelFeatures(FindModelFeatures.SEARCH_MODE.DEPENDENT, modelId);
+            FindModelFeatures depFeaturesFinder = nested(new FindModelFeatures(FindModelFeatures.SEARCH_MODE.DEPENDENT, modelId));
             nextModel.setDependentFeatures(depFeaturesFinder.list());
             depFeaturesFinder.close();
 
-            FindModelFeatures indepFeaturesFinder = new FindModelFeatures(FindModelFeatures.SEARCH_MODE.INDEPENDENT, modelId);
+            FindModelFeatures indepFeaturesFinder = nested(new FindModelFeatures(FindModelFeatures.SEARCH_MODE.INDEPENDENT, modelId));
             nextModel.setIndependentFeatures(indepFeaturesFinder.list());
             indepFeaturesFinder.close();
 
-            FindModelFeatures predictedFeaturesFinder = new FindModelFeatures(FindModelFeatures.SEARCH_MODE.PREDICTED, modelId);
+            FindModelFeatures predictedFeaturesFinder = nested(new FindModelFeatures(FindModelFeatures.SEARCH_MODE.PREDICTED, modelId));
             nextModel.setPredictedFeatures(predictedFeaturesFinder.list());
             predictedFeaturesFinder.close();
 
-            ModelReferencesFinder modelReferences = new ModelReferencesFinder(modelId);
+            ModelReferencesFinder modelReferences = nested(new ModelReferencesFinder(modelId));
             Set<String> references = modelReferences.getReferences();
             for (String ref : references) {
                 try {
@@ -180,4 +192,177 @@ public class ModelIterator extends DbIterator<Model> {
             throw new DbException(msg, ex);
         }
     }
+
+    /**
+     * Reads the next batch of rows from the result set and hydrates all of them
+     * together.
+     */
+    private void fetchBatch() throws DbException {
+        Map<String, Model> page = new LinkedHashMap<String, Model>();
+        try {
+            while (page.size() < batchSize && rs.next()) {
+                Model m = readModel();
+                page.put(m.getUri().getId(), m);
+            }
+        } catch (final SQLException ex) {
+            final String msg = "SQL-related exception thrown while reading model data from the database";
+            logger.warn(msg, ex);
+            throw new DbException(msg, ex);
+        }
+        if (page.isEmpty()) {
+            return;
+        }
+        resolveCreators(page);
+        FindModelRelations relationsFinder = nested(new FindModelRelations(baseUri));
+        try {
+            relationsFinder.hydrate(page);
+        } finally {
+            relationsFinder.close();
+        }
+        buffer.addAll(page.values());
+    }
+
+    /**
+     * Creates a model out of the current row of the result set. Relations to other
+     * tables are not resolved and the creator of the model is a user which only
+     * holds its UID.
+     */
+    private Model readModel() throws SQLException, DbException {
+        Model nextModel = new Model();
+        String modelId = rs.getString(1);
+        nextModel.setUri(new VRI(baseUri).augment("model", modelId));
+
+        String modelCreator = rs.getString(2);
+        if (modelCreator != null) {
+            User user = new User();
+            user.setUid(modelCreator);
+            nextModel.setCreatedBy(user);
+        }
+
+        try {
+            nextModel.setAlgorithm(new Algorithm(new VRI(rs.getString(3))));
+        } catch (final ToxOtisException ex) {
+            logger.warn("Invalid algorithm URI pointed by the model".concat(modelId), ex);
+            throw new RuntimeException(ex);
+        } catch (final URISyntaxException ex) {
+            logger.error("Illegal URI found for training algorithm for a model", ex);
+            throw new RuntimeException(ex);
+        }
+        nextModel.setLocalCode(rs.getString(4));
+        try {
+            String datasetFromDatabase = rs.getString(5);
+            if (datasetFromDatabase != null) {
+                nextModel.setDataset(new VRI(datasetFromDatabase));
+            }
+        } catch (URISyntaxException ex) {
+            final String msg = "Illegal URI found for training dataset for a model";
+            logger.error(msg, ex);
+            throw new RuntimeException(msg, ex);
+        }
+        Blob actualModelBlob = rs.getBlob(6);
+        if (actualModelBlob != null) {
+            nextModel.setBlob(actualModelBlob);
+            try {
+                actualModelBlob.free();
+            } catch (final SQLException ex) {
+                logger.warn("An error occured releasing the (actual model) Blob's resources", ex);
+                throw ex;
+            }
+        } else if (lazyActualModel) {
+            nextModel.setActualModelLoader(new FindActualModel());
+        }
+
+        Blob metaInfoBlob = rs.getBlob(7);
+        if (metaInfoBlob != null) {
+            MetaInfoDeblobber mid = new MetaInfoDeblobber(metaInfoBlob);
+            MetaInfo mi = mid.toMetaInfo();
+            nextModel.setMeta(mi);
+            metaInfoBlob.free();
+        } else {
+            nextModel.setMeta(null);
+        }
+        return nextModel;
+    }
+
+    private User resolveCreator(String modelCreator) throws DbException {
+        User user = usersCache.get(modelCreator);//try to get the user from the cache.
+        if (user == null && resolveUser) {
+            user = SharedCaches.users().get(modelCreator);
+            if (user != null) {
+                usersCache.put(modelCreator, user);
+            }
+        }
+        if (user == null) {// if user is not found in cache, create it and put it there!
+            user = new User();
+            user.setUid(modelCreator);
+            if (resolveUser) {
+                FindUser fu = nested(new FindUser());
+                fu.setWhere("uid=?", modelCreator);
+                IDbIterator<User> users = fu.list();
+                if (users.hasNext()) {
+                    user = users.next();
+                    SharedCaches.users().put(modelCreator, user);
+                }
+                users.close();
+                fu.close();
+            }
+            usersCache.put(modelCreator, user);
+        }
+        return user;
+    }
+
+    /**
+     * Resolves the creators of a batch of models with a single query for all
+     * users that are not already cached.
+     */
+    private void resolveCreators(Map<String, Model> page) throws DbException {
+        Set<String> unresolved = new HashSet<String>();
+        for (Model m : page.values()) {
+            if (m.getCreatedBy() != null && usersCache.get(m.getCreatedBy().getUid()) == null) {
+                String uid = m.getCreatedBy().getUid();
+                User shared = resolveUser ? SharedCaches.users().get(uid) : null;
+                if (shared != null) {
+                    usersCache.put(uid, shared);
+                } else {
+                    unresolved.add(uid);
+                }
+            }
+        }
+        if (resolveUser && !unresolved.isEmpty()) {
+            StringBuilder inList = new StringBuilder();
+            for (int i = 0; i < unresolved.size(); i++) {
+                if (i > 0) {
+                    inList.append(",");
+                }
+                inList.append("?");
+            }
+            FindUser fu = nested(new FindUser());
+            IDbIterator<User> users = null;
+            try {
+                fu.setWhere("uid IN (" + inList + ")", unresolved.toArray());
+                users = fu.list();
+                while (users.hasNext()) {
+                    User found = users.next();
+                    usersCache.put(found.getUid(), found);
+                    SharedCaches.users().put(found.getUid(), found);
+                }
+            } finally {
+                if (users != null) {
+                    users.close();
+                }
+                fu.close();
+            }
+        }
+        for (Model m : page.values()) {
+            if (m.getCreatedBy() != null) {
+                String uid = m.getCreatedBy().getUid();
+                User user = usersCache.get(uid);
+                if (user == null) {
+                    user = m.getCreatedBy();
+                    usersCache.put(uid, user);
+                }
+                m.setCreatedBy(user);
+            }
+        }
+    }
 }
@@ -1,9 +1,8 @@
 package org.opentox.toxotis.database.engine.model;
 
-import java.sql.Connection;
+import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
-import java.sql.Statement;
 import java.util.HashSet;
 import java.util.Set;
 import java.util.logging.Level;
@@ -31,12 +30,11 @@ public class ModelReferencesFinder extends DbOperation {
 
     public Set<String> getReferences() throws DbException {
         Set<String> references = new HashSet<String>();
-        Connection connection = getConnection();
         ResultSet results = null;
-        Statement statement = null;
+        PreparedStatement statement = null;
         try {
-            statement = connection.createStatement();
-            results = statement.executeQuery(String.format("SELECT `bibTeXUri` FROM `ModelBibTeX` WHERE `modelId`='%s'", modelId));
+            statement = prepare("SELECT `bibTeXUri` FROM `ModelBibTeX` WHERE `modelId`=?", modelId);
+            results = statement.executeQuery();
             while (results.next()) {
                 references.add(results.getString(1));
             }
@@ -57,4 +55,9 @@ public class ModelReferencesFinder extends DbOperation {
         }
         return references;
     }
+
+    @Override
+    protected boolean isReadOnly() {
+        return true;
+    }
 }
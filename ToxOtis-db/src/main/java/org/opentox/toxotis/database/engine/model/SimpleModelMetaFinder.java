@@ -1,9 +1,8 @@
 package org.opentox.toxotis.database.engine.model;
 
-import java.sql.Connection;
+import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
-import java.sql.Statement;
 import org.opentox.toxotis.database.DbReader;
 import org.opentox.toxotis.database.IDbIterator;
 import org.opentox.toxotis.database.ResultSetIterator;
@@ -38,7 +37,7 @@ public class SimpleModelMetaFinder extends DbReader<String> {
     }
     private final SEARCH_MODE searchMode;
     private final String modelId;
-    private Statement statement = null;
+    private PreparedStatement statement = null;
     private org.slf4j.Logger logger = org.slf4j.LoggerFactory.getLogger(SimpleModelMetaFinder.class);
 
     public SimpleModelMetaFinder(SEARCH_MODE searchMode, String modelId) {
@@ -48,13 +47,11 @@ public class SimpleModelMetaFinder extends DbReader<String> {
 
     @Override
     public IDbIterator<String> list() throws DbException {
-        Connection connection = null;
-        connection = getConnection();
         ResultSet rs = null;
         try {
-            statement = connection.createStatement();
-            rs = statement.executeQuery(getSql());
-            return new ResultSetIterator(rs);
+            statement = prepare(getSql(), modelId);
+            rs = statement.executeQuery();
+            return iterate(new ResultSetIterator(rs), rs);
         } catch (final SQLException ex) {
             final String msg = "SQL-related exception while looking for features in the database";
             logger.warn(msg, ex);
@@ -67,18 +64,18 @@ public class SimpleModelMetaFinder extends DbReader<String> {
 
     @Override
     public String getSql() {
-        String internalSearchSql = "SELECT %s FROM Model WHERE id='%s'";
+        String internalSearchSql = "SELECT %s FROM Model WHERE id=?";
         if (SEARCH_MODE.DATASET.equals(searchMode)) {
-            return String.format(internalSearchSql,"dataset", modelId);
+            return String.format(internalSearchSql,"dataset");
         }
         if (SEARCH_MODE.ALGORITHM.equals(searchMode)) {
-            return String.format(internalSearchSql,"algorithm", modelId);
+            return String.format(internalSearchSql,"algorithm");
         }
-        return String.format(getSqlTemplate(), searchMode.getTableName(), modelId);
+        return String.format(getSqlTemplate(), searchMode.getTableName());
     }
 
     @Override
     public String getSqlTemplate() {
-        return "SELECT featureUri FROM %s WHERE modelId='%s' ORDER BY idx";
+        return "SELECT featureUri FROM %s WHERE modelId=? ORDER BY idx";
     }
 }
@@ -32,16 +32,17 @@
  */
 package org.opentox.toxotis.database.engine.parameter;
 
-import java.sql.Blob;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.SQLException;
 import java.sql.Types;
+import java.util.ArrayList;
+import java.util.List;
 import org.opentox.toxotis.client.VRI;
 import org.opentox.toxotis.core.component.Parameter;
 import org.opentox.toxotis.database.DbWriter;
+import org.opentox.toxotis.database.engine.metainfo.MetaInfoStore;
 import org.opentox.toxotis.database.exception.DbException;
-import org.opentox.toxotis.ontology.MetaInfoBlobber;
 
 /**
  *
@@ -75,48 +76,22 @@ public class AddParameter extends DbWriter {
             throw new DbException("Cannot register a parameter without an identifier");
         }
         Connection connection = getConnection();
+        List<MetaInfoStore.Entry> metaEntries = new ArrayList<MetaInfoStore.Entry>(1);
         try {
             connection.setAutoCommit(false);
-
-            if (parameter.getMeta() != null) {
-                writeMeta = connection.prepareStatement(insertMeta);
-                writeMeta.setInt(1, parameter.getMeta().hashCode());
-                MetaInfoBlobber mib = new MetaInfoBlobber(parameter.getMeta());
-                Blob miBlob = null;
-                try {
-                    miBlob = mib.toBlob();
-                    writeMeta.setBlob(2, miBlob);
-                } catch (Exception ex) {
-                    logger.error("Exception while creating and setting meta-info BLOB", ex);
+            try {
+                writeAsComponent(connection, metaEntries);
+            } catch (final SQLException ex) {
+                if (!forgetMissingMetaInfo(ex, metaEntries)) {
+                    throw ex;
                 }
-                writeMeta.executeUpdate();
-            }
-
-            writeComponent = connection.prepareStatement(insertComponent);
-            writeComponent.setString(1, parameter.getUri().getId());
-            writeComponent.setBoolean(2, parameter.isEnabled());
-            if (parameter.getMeta() != null) {
-                writeComponent.setInt(3, parameter.getMeta().hashCode());
-            } else {
-                writeComponent.setNull(3, Types.INTEGER);
+                connection.rollback();
+                metaEntries.clear();
+                writeAsComponent(connection, metaEntries);
             }
-            writeComponent.executeUpdate();
-
         } catch (SQLException ex) {
             logger.error("", ex);
             throw new DbException("", ex);
-        } finally {
-            if (writeComponent != null) {
-                try {
-                    writeComponent.close();
-                } catch (SQLException ex) {
-                    final String msg = "SQL exception occured while closing the SQL statement for "
-                            + "adding a parameter in the database : ".concat(insertParameter != null
-                            ? insertParameter : "N/A");
-                    logger.warn(msg, ex);
-
-                }
-            }
         }
 
         try {
@@ -135,6 +110,7 @@ public class AddParameter extends DbWriter {
              * COMMIT :)
              */
             connection.commit();
+            remember(metaEntries);
             return update;
         } catch (SQLException ex) {
             final String msg = "Parameter could not be added in the database";
@@ -154,4 +130,59 @@ public class AddParameter extends DbWriter {
         }
 
     }
+
+    /*
+     * Writes the parameter as a component (along with its meta-information)
+     * without committing; the entry of its meta-information is added to the
+     * given list.
+     */
+    private void writeAsComponent(Connection connection, List<MetaInfoStore.Entry> metaEntries)
+            throws SQLException, DbException {
+        MetaInfoStore.Entry metaEntry = null;
+        try {
+            if (parameter.getMeta() != null) {
+                metaEntry = MetaInfoStore.getInstance().lookup(parameter.getMeta());
+                metaEntries.add(metaEntry);
+                if (!metaEntry.isStored()) {
+                    writeMeta = connection.prepareStatement(insertMeta);
+                    writeMeta.setBytes(1, metaEntry.getKey());
+                    writeMeta.setBytes(2, metaEntry.getEncoded());
+                    writeMeta.executeUpdate();
+                }
+            }
+
+            writeComponent = connection.prepareStatement(insertComponent);
+            writeComponent.setString(1, parameter.getUri().getId());
+            writeComponent.setBoolean(2, parameter.isEnabled());
+            if (metaEntry != null) {
+                writeComponent.setBytes(3, metaEntry.getKey());
+            } else {
+                writeComponent.setNull(3, Types.BINARY);
+            }
+            writeComponent.executeUpdate();
+        } finally {
+            if (writeMeta != null) {
+                try {
+                    writeMeta.close();
+                } catch (SQLException ex) {
+                    final String msg = "SQL exception occured while closing the SQL statement for "
+                            + "adding meta-information in the database : ".concat(insertMeta);
+                    logger.warn(msg, ex);
+                }
+                writeMeta = null;
+            }
+            if (writeComponent != null) {
+                try {
+                    writeComponent.close();
+                } catch (SQLException ex) {
+                    final String msg = "SQL exception occured while closing the SQL statement for "
+                            + "adding a parameter in the database : ".concat(insertParameter != null
+                            ? insertParameter : "N/A");
+                    logger.warn(msg, ex);
+
+                }
+                writeComponent = null;
+            }
+        }
+    }
 }
@@ -1,9 +1,8 @@
 package org.opentox.toxotis.database.engine.parameter;
 
-import java.sql.Connection;
+import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
-import java.sql.Statement;
 import org.opentox.toxotis.client.VRI;
 import org.opentox.toxotis.core.component.Parameter;
 import org.opentox.toxotis.database.DbReader;
@@ -17,7 +16,7 @@ import org.opentox.toxotis.database.exception.DbException;
  */
 public class FindParameter extends DbReader<Parameter> {
 
-    private Statement statement = null;
+    private PreparedStatement statement = null;
     private final VRI baseUri;
     private org.slf4j.Logger logger = org.slf4j.LoggerFactory.getLogger(FindParameter.class);
 
@@ -38,8 +37,7 @@ public class FindParameter extends DbReader<Parameter> {
     }
 
     public void setSearchById(String id) {
-        String whereTemplate = "Parameter.id='%s'";
-        setWhere(String.format(whereTemplate, id));
+        setWhere("Parameter.id=?", id);
     }
 
     @Override
@@ -51,13 +49,11 @@ public class FindParameter extends DbReader<Parameter> {
                 + "LEFT JOIN MetaInfo ON OTComponent.meta=MetaInfo.id");
         
         statement = null;
-        Connection connection = null;
         try {
-            connection = getConnection();
-            statement = connection.createStatement();
-            ResultSet rs = statement.executeQuery(getSql());
+            statement = prepareStatement();
+            ResultSet rs = statement.executeQuery();
             ParameterIterator it = new ParameterIterator(rs, baseUri);
-            return it;
+            return iterate(it, rs);
         } catch (SQLException ex) {
             final String msg = "Database exception while searching for error reports in the database.";
             logger.warn(msg, ex);
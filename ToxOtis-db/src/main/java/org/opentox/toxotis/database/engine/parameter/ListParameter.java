@@ -1,9 +1,8 @@
 package org.opentox.toxotis.database.engine.parameter;
 
-import java.sql.Connection;
+import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
-import java.sql.Statement;
 import org.opentox.toxotis.database.DbReader;
 import org.opentox.toxotis.database.IDbIterator;
 import org.opentox.toxotis.database.ResultSetIterator;
@@ -16,19 +15,17 @@ import org.opentox.toxotis.database.exception.DbException;
  */
 public class ListParameter extends DbReader<String> {
 
-    private Statement statement = null;
+    private PreparedStatement statement = null;
     private ResultSet results;
 
     @Override
     public IDbIterator<String> list() throws DbException {
         setTable("Parameter");
         setTableColumns("Parameter.id");
-        Connection connection = null;
-        connection = getConnection();
         try {
-            statement = connection.createStatement();
-            results = statement.executeQuery(getSql());
-            return new ResultSetIterator(results);
+            statement = prepareStatement();
+            results = statement.executeQuery();
+            return iterate(new ResultSetIterator(results), results);
         } catch (final SQLException ex) {
             throw new DbException(ex);
         }
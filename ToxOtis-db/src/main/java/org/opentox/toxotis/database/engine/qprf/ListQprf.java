@@ -56,10 +56,9 @@ public class ListQprf extends DbReader<String>{
         setTable("QprfReport");
         setTableColumns("QprfReport.id");
         try {
-            statement = getConnection().prepareStatement(getSql());
+            statement = prepareStatement();
             ResultSet results = statement.executeQuery();
-            ResultSetIterator it = new ResultSetIterator(results);
-            return it;
+            return iterate(new ResultSetIterator(results), results);
         } catch (final SQLException ex) {
             final String msg = "Error reading Qprf Report id from the database";
             logger.warn(msg, ex);
@@ -32,16 +32,19 @@
  */
 package org.opentox.toxotis.database.engine.task;
 
-import java.sql.Blob;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.SQLException;
 import java.sql.Types;
+import java.util.ArrayList;
+import java.util.List;
 import org.opentox.toxotis.core.component.Task;
 import org.opentox.toxotis.database.DbWriter;
+import org.opentox.toxotis.database.engine.counter.ComponentCounters;
+import org.opentox.toxotis.database.engine.counter.CounterDelta;
 import org.opentox.toxotis.database.engine.error.ErrorReportBatchWriter;
+import org.opentox.toxotis.database.engine.metainfo.MetaInfoStore;
 import org.opentox.toxotis.database.exception.DbException;
-import org.opentox.toxotis.ontology.MetaInfoBlobber;
 
 /**
  * Creates a new Task record in the database. The task is assumed to be newly created.
@@ -73,39 +76,85 @@ public class AddTask extends DbWriter {
         setTableColumns("id", "httpStatus", "percentageCompleted", "status", "errorReport", "createdBy", "resultUri");
 
         Connection connection = getConnection();
+        List<MetaInfoStore.Entry> metaEntries = new ArrayList<MetaInfoStore.Entry>();
+        try {
+            connection.setAutoCommit(false);
+            int result;
+            try {
+                result = writeTask(connection, metaEntries);
+            } catch (final SQLException ex) {
+                if (!forgetMissingMetaInfo(ex, metaEntries)) {
+                    throw ex;
+                }
+                result = retryTask(connection, metaEntries);
+            } catch (final DbException ex) {
+                if (!forgetMissingMetaInfo(ex, metaEntries)) {
+                    throw ex;
+                }
+                result = retryTask(connection, metaEntries);
+            }
+            connection.commit();
+            remember(metaEntries);
+            return result;
+        } catch (final SQLException ex) {
+            logger.debug("SQLException caught while adding task in the database", ex);
+            try {
+                getConnection().rollback();
+            } catch (final SQLException ex1) {
+                logger.warn("SQLException such that connection cannot roll back", ex);
+                logger.warn("Rolling back not possible", ex1);
+                throw new DbException(ex1);
+            }
+            throw new DbException(ex);
+        } finally {
+            close();
+        }
+    }
+
+    private int retryTask(Connection connection, List<MetaInfoStore.Entry> metaEntries) throws SQLException, DbException {
+        connection.rollback();
+        metaEntries.clear();
+        return writeTask(connection, metaEntries);
+    }
+
+    /*
+     * Writes the task without committing; the entries of the meta-information
+     * it references are added to the given list.
+     */
+    private int writeTask(Connection connection, List<MetaInfoStore.Entry> metaEntries) throws SQLException, DbException {
         PreparedStatement stmtMeta = null;
         PreparedStatement stmt = null;
+        MetaInfoStore metaStore = MetaInfoStore.getInstance();
         try {
-            connection.setAutoCommit(false);
+            MetaInfoStore.Entry metaEntry = null;
             if (task.getMeta() != null) {
-                stmtMeta = connection.prepareStatement("INSERT IGNORE MetaInfo (id, meta)  VALUES (?, compress(?))");
-                stmtMeta.setInt(1, task.getMeta().hashCode());
-                MetaInfoBlobber mib = new MetaInfoBlobber(task.getMeta());
-                try {
-                    Blob blob = mib.toBlob();
-                    stmtMeta.setBlob(2, blob);
-                } catch (final SQLException ex) {
-                    logger.warn("Improper parametrization of prepared statement", ex);
-                    throw ex;
-                } catch (final Exception ex) {
-                    logger.warn("MetaInfo serialization exception", ex);
+                metaEntry = metaStore.lookup(task.getMeta());
+                metaEntries.add(metaEntry);
+                if (!metaEntry.isStored()) {
+                    stmtMeta = connection.prepareStatement("INSERT IGNORE MetaInfo (id, meta)  VALUES (?, compress(?))");
+                    stmtMeta.setBytes(1, metaEntry.getKey());
+                    stmtMeta.setBytes(2, metaEntry.getEncoded());
+                    stmtMeta.executeUpdate();
                 }
-                stmtMeta.executeUpdate();
             }
 
             stmt = connection.prepareStatement("INSERT INTO OTComponent (id,meta) VALUES (?, ?)");
             stmt.setString(1, task.getUri().getId());
-            if (task.getMeta() != null) {
-                stmt.setInt(2, task.getMeta().hashCode());
+            if (metaEntry != null) {
+                stmt.setBytes(2, metaEntry.getKey());
             } else {
-                stmt.setNull(2, Types.INTEGER);// no meta!
+                stmt.setNull(2, Types.BINARY);// no meta!
             }
             stmt.executeUpdate();
 
             if (task.getErrorReport() != null) {
-                ErrorReportBatchWriter errorReportWriter = new ErrorReportBatchWriter(getConnection(),
+                ErrorReportBatchWriter errorReportWriter = new ErrorReportBatchWriter(connection,
                         task.getErrorReport());
-                errorReportWriter.batchStatement();
+                try {
+                    errorReportWriter.batchStatement();
+                } finally {
+                    metaEntries.addAll(errorReportWriter.getMetaEntries());
+                }
             }
             String sqlTask = getSql().replaceAll("\\?", "%s");
             String taskStatus = null;
@@ -126,35 +175,27 @@ public class AddTask extends DbWriter {
             } else {
                 resultUri = "NULL";
             }
-            String taskCreator = null;
-            if (task.getCreatedBy() != null) {
-                taskCreator = "'" + task.getCreatedBy().getUid() + "'";
-            } else {
-                taskCreator = "'guest@opensso.in-silico.ch'";
-            }
+            String creator = task.getCreatedBy() != null ? task.getCreatedBy().getUid() : "guest@opensso.in-silico.ch";
+            String taskCreator = "'" + creator + "'";
             String taskWriteSql = String.format(sqlTask, "'" + task.getUri().getId() + "'",
                     task.getHttpStatus(), task.getPercentageCompleted(),
                     taskStatus, errorReportInTask, taskCreator, resultUri);
             stmt.addBatch(taskWriteSql);
             int[] updates = stmt.executeBatch();
-            connection.commit();
+            new CounterDelta().add(ComponentCounters.TASK, creator, 1).apply(connection);
             int result = 0;
             for (int i : updates) {
                 result += i;
             }
-
             return result;
-        } catch (final SQLException ex) {
-            logger.debug("SQLException caught while adding task in the database", ex);
-            try {
-                getConnection().rollback();
-            } catch (final SQLException ex1) {
-                logger.warn("SQLException such that connection cannot roll back", ex);
-                logger.warn("Rolling back not possible", ex1);
-                throw new DbException(ex1);
-            }
-            throw new DbException(ex);
         } finally {
+            if (stmtMeta != null) {
+                try {
+                    stmtMeta.close();
+                } catch (final SQLException ex) {
+                    logger.debug("statement uncloseable", ex);
+                }
+            }
             if (stmt != null) {
                 try {
                     stmt.close();
@@ -163,7 +204,6 @@ public class AddTask extends DbWriter {
                     throw new DbException(ex);
                 }
             }
-            close();
         }
     }
 }
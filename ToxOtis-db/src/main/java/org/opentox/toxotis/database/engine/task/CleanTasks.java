@@ -33,40 +33,123 @@
 
 package org.opentox.toxotis.database.engine.task;
 
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
 import org.opentox.toxotis.core.component.Task.Status;
-import org.opentox.toxotis.database.engine.DisableComponent;
+import org.opentox.toxotis.database.DbOperation;
+import org.opentox.toxotis.database.engine.counter.ComponentCounters;
+import org.opentox.toxotis.database.engine.counter.CounterDelta;
 import org.opentox.toxotis.database.exception.DbException;
-import static org.opentox.toxotis.core.component.Task.Status.*;
 
 /**
+ * Cleans up tasks with certain statuses which were created more than a given
+ * number of days ago, either by disabling them (so that they are purged later
+ * on along with other disabled components) or by deleting them. Tasks are
+ * processed in chunks of bounded size, each in a short transaction of its own.
  *
  * @author Pantelis Sopasakis
  * @author Charalampos Chomenides
  */
-public class CleanTasks {
+public class CleanTasks extends DbOperation {
 
-    private static final String deleteTemplate = "DELETE FROM Task WHERE status IN (%s)";
+    /**
+     * Default number of tasks processed per transaction.
+     */
+    public static final int DEFAULT_CHUNK_SIZE = 500;
+    private static final String selectTemplate = "SELECT Task.id FROM Task INNER JOIN OTComponent "
+            + "ON OTComponent.id=Task.id WHERE Task.status IN (%s) AND OTComponent.created < ?%s LIMIT ?";
+    private static final String enabledOnly = " AND OTComponent.enabled=true";
+    private static final String disableTemplate = "UPDATE OTComponent SET enabled=false, "
+            + "deletionDate=CURRENT_TIMESTAMP WHERE enabled=true AND id IN (%s)";
+    private static final String deleteTemplate = "DELETE FROM OTComponent WHERE id IN (%s)";
 
     public enum CleaningMode {
         Disable,
         Delete;
     }
     private final CleaningMode cleaningMode;
+    private int olderThanDays = 0;
+    private int chunkSize = DEFAULT_CHUNK_SIZE;
+    private int limit = 0;
+    private org.slf4j.Logger logger = org.slf4j.LoggerFactory.getLogger(CleanTasks.class);
 
     public CleanTasks(CleaningMode cleaningMode) {
         this.cleaningMode = cleaningMode;
     }
 
+    public CleaningMode getCleaningMode() {
+        return cleaningMode;
+    }
+
+    public int getOlderThanDays() {
+        return olderThanDays;
+    }
+
+    /**
+     * Only tasks created more than this number of days ago are cleaned.
+     * @param olderThanDays
+     *      Age in days; <code>0</code> for all tasks created up to now.
+     */
+    public void setOlderThanDays(int olderThanDays) {
+        this.olderThanDays = olderThanDays;
+    }
+
+    public int getChunkSize() {
+        return chunkSize;
+    }
+
+    /**
+     * Maximum number of tasks processed in a single transaction.
+     * @param chunkSize
+     *      Chunk size (a positive number).
+     */
+    public void setChunkSize(int chunkSize) {
+        if (chunkSize <= 0) {
+            throw new IllegalArgumentException("Chunk size must be positive");
+        }
+        this.chunkSize = chunkSize;
+    }
+
+    public int getLimit() {
+        return limit;
+    }
+
+    /**
+     * Maximum number of tasks cleaned by a single invocation of {@link #clean(org.opentox.toxotis.core.component.Task.Status[]) }.
+     * @param limit
+     *      Maximum number of tasks; <code>0</code> for no limit.
+     */
+    public void setLimit(int limit) {
+        this.limit = limit;
+    }
+
     private int disable(Status... status) throws DbException {
-        
-        return 0;
+        return process(true, disableTemplate, status);
     }
 
     private int delete(Status... status) throws DbException {
-        return 0;
+        return process(false, deleteTemplate, status);
     }
 
+    /**
+     * Disables or deletes the tasks with any of the given statuses.
+     * @param status
+     *      Statuses of the tasks to be cleaned.
+     * @return
+     *      Number of tasks disabled or deleted.
+     * @throws DbException
+     *      In case a chunk cannot be processed. Chunks committed before the
+     *      failure remain in effect.
+     */
     public int clean(Status... status) throws DbException {
+        if (status == null || status.length == 0) {
+            return 0;
+        }
         if (CleaningMode.Disable.equals(cleaningMode)) {
             return disable(status);
         } else if (CleaningMode.Delete.equals(cleaningMode)) {
@@ -74,4 +157,86 @@ public class CleanTasks {
         }
         return 0;
     }
+
+    private int process(boolean enabledOnly, String template, Status... status) throws DbException {
+        Timestamp cutoff = new Timestamp(System.currentTimeMillis() - olderThanDays * 24L * 3600L * 1000L);
+        String select = String.format(selectTemplate, placeholders(status.length),
+                enabledOnly ? CleanTasks.enabledOnly : "");
+        int cleaned = 0;
+        try {
+            Connection connection = getConnection();
+            while (true) {
+                int size = limit > 0 ? Math.min(chunkSize, limit - cleaned) : chunkSize;
+                if (size <= 0) {
+                    break;
+                }
+                Object[] parameters = new Object[status.length + 2];
+                System.arraycopy(status, 0, parameters, 0, status.length);
+                parameters[status.length] = cutoff;
+                parameters[status.length + 1] = size;
+                List<String> ids = new ArrayList<String>(size);
+                PreparedStatement statement = prepare(select, parameters);
+                try {
+                    ResultSet rs = statement.executeQuery();
+                    while (rs.next()) {
+                        ids.add(rs.getString(1));
+                    }
+                    rs.close();
+                } finally {
+                    statement.close();
+                }
+                if (ids.isEmpty()) {
+                    break;
+                }
+                connection.setAutoCommit(false);
+                statement = null;
+                try {
+                    /* Tasks that are enabled are no longer counted once disabled or deleted */
+                    CounterDelta counters = new CounterDelta();
+                    if (ComponentCounters.isEnabled()) {
+                        counters.addComponents(connection, ComponentCounters.lock(connection, ids, true), -1);
+                    }
+                    statement = prepare(String.format(template, placeholders(ids.size())), ids.toArray());
+                    cleaned += statement.executeUpdate();
+                    counters.apply(connection);
+                    connection.commit();
+                } catch (final SQLException ex) {
+                    connection.rollback();
+                    throw ex;
+                } finally {
+                    if (statement != null) {
+                        statement.close();
+                    }
+                    connection.setAutoCommit(true);
+                }
+                if (ids.size() < size) {
+                    break;
+                }
+            }
+            logger.debug(cleaningMode + " of " + cleaned + " tasks completed");
+            return cleaned;
+        } catch (final SQLException ex) {
+            final String msg = "Cleaning of tasks failed after " + cleaned + " tasks";
+            logger.warn(msg, ex);
+            throw new DbException(msg, ex);
+        } finally {
+            close();
+        }
+    }
+
+    private static String placeholders(int n) {
+        StringBuilder marks = new StringBuilder(2 * n);
+        for (int i = 0; i < n; i++) {
+            if (i > 0) {
+                marks.append(",");
+            }
+            marks.append("?");
+        }
+        return marks.toString();
+    }
+
+    @Override
+    public String getSqlTemplate() {
+        return selectTemplate;
+    }
 }
@@ -32,10 +32,9 @@
  */
 package org.opentox.toxotis.database.engine.task;
 
-import java.sql.Connection;
+import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
-import java.sql.Statement;
 import org.opentox.toxotis.client.VRI;
 import org.opentox.toxotis.core.component.Task;
 import org.opentox.toxotis.database.IDbIterator;
@@ -53,7 +52,7 @@ public class FindTask extends DbReader<Task> {
     private boolean includeDisabled = false;
     private final boolean resolveErrorReport;
     private final boolean resolveUser;
-    private Statement statement = null;
+    private PreparedStatement statement = null;
     private org.slf4j.Logger logger = org.slf4j.LoggerFactory.getLogger(FindTask.class);
 
     public FindTask(VRI baseUri, boolean resolveErrorReport, boolean resolveUser) {
@@ -64,7 +63,7 @@ public class FindTask extends DbReader<Task> {
     }
 
     public void setSearchById(String id) {
-        setWhere("Task.id='" + id + "'");
+        setWhere("Task.id=?", id);
     }
 
     @Override
@@ -76,22 +75,16 @@ public class FindTask extends DbReader<Task> {
         setInnerJoin("OTComponent ON Task.id=OTComponent.id "
                 + "LEFT JOIN MetaInfo ON OTComponent.meta=MetaInfo.id");
         if (!includeDisabled) {
-            if (where == null) {
-                setWhere("OTComponent.enabled=true");
-            } else {
-                setWhere(where + " AND OTComponent.enabled=true");
-            }
+            addWhere("OTComponent.enabled=true");
         }
         statement = null;
-        Connection connection = null;
-        connection = getConnection();
         try {
-            statement = connection.createStatement();
-            ResultSet rs = statement.executeQuery(getSql());
+            statement = prepareStatement();
+            ResultSet rs = statement.executeQuery();
             TaskIterator it = new TaskIterator(rs, baseUri);
             it.setResolveUser(resolveUser);
             it.setResolveErrorReport(resolveErrorReport);
-            return it;
+            return iterate(it, rs);
         } catch (final SQLException ex) {
             logger.warn(null, ex);
             throw new DbException(ex);
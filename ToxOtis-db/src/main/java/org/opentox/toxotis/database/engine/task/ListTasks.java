@@ -69,19 +69,16 @@ public class ListTasks extends DbReader<String> {
         setTableColumns("Task.id");
         if (!includeDisabled) {
             setInnerJoin("OTComponent ON Task.id=OTComponent.id");
-            if (where != null) {
-                setWhere(where + "AND enabled=true");
-            } else {
-                setWhere("enabled=true");
-            }
-
+            addWhere("enabled=true");
+            setKeyColumns("OTComponent.created", "Task.id");
+        } else {
+            setKeyColumns(null, "Task.id");
         }
         
         try {
-            statement = getConnection().prepareStatement(getSql());
+            statement = prepareStatement();
             ResultSet results = statement.executeQuery();
-            ResultSetIterator it = new ResultSetIterator(results);
-            return it;
+            return iterate(new ResultSetIterator(results), results);
         } catch (final SQLException ex) {
             logger.debug("error while listing task ids", ex);
             throw new DbException(ex);
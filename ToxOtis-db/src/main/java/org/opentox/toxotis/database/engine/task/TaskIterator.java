@@ -44,6 +44,7 @@ import org.opentox.toxotis.database.DbIterator;
 import org.opentox.toxotis.database.IDbIterator;
 import org.opentox.toxotis.database.engine.cache.Cache;
 import org.opentox.toxotis.database.engine.cache.ICache;
+import org.opentox.toxotis.database.engine.cache.SharedCaches;
 import org.opentox.toxotis.database.engine.error.FindError;
 import org.opentox.toxotis.database.engine.user.FindUser;
 import org.opentox.toxotis.database.exception.DbException;
@@ -116,14 +117,25 @@ public class TaskIterator extends DbIterator<Task> {
                 ErrorReport er = errorReportCache.get(errorReportString);
                 if (er == null) {
                     if (resolveErrorReport) {
-                        FindError fe = new FindError(baseVri);
+                        er = SharedCaches.errorReports().get(errorReportString);
+                    }
+                    if (er == null && resolveErrorReport) {// not found in the shared cache either
+                        FindError fe = nested(new FindError(baseVri));
                         fe.setRetrieveStackTrace(true);
                         fe.setSearchById(errorReportString);                        
-                        IDbIterator<ErrorReport> errorIt = fe.list();
-                        if (errorIt.hasNext()) {
-                            er = errorIt.next();
+                        try {
+                            IDbIterator<ErrorReport> errorIt = fe.list();
+                            try {
+                                if (errorIt.hasNext()) {
+                                    er = errorIt.next();
+                                    SharedCaches.errorReports().put(errorReportString, er);
+                                }
+                            } finally {
+                                errorIt.close();
+                            }
+                        } finally {
+                            fe.close();
                         }
-                        fe.close();
                     }
                     errorReportCache.put(errorReportString, er);
                 }                
@@ -134,15 +146,22 @@ public class TaskIterator extends DbIterator<Task> {
             
             if (taskCreator != null) {
                 User user = usersCache.get(taskCreator);//try to get the user from the cache.
+                if (user == null && resolveUser) {
+                    user = SharedCaches.users().get(taskCreator);
+                    if (user != null) {
+                        usersCache.put(taskCreator, user);
+                    }
+                }
                 if (user == null) {// if user is not found in cache, create it and put it there!
                     user = new User();
                     user.setUid(taskCreator);
                     if (resolveUser) {
-                        FindUser fu = new FindUser();
-                        fu.setWhere("uid='" + taskCreator + "'");
+                        FindUser fu = nested(new FindUser());
+                        fu.setWhere("uid=?", taskCreator);
                         IDbIterator<User> users = fu.list();
                         if (users.hasNext()) {
                             user = users.next();
+                            SharedCaches.users().put(taskCreator, user);
                         }
                         users.close();
                         fu.close();
@@ -0,0 +1,377 @@
+/*
+ *
+ * ToxOtis
+ *
+ * ToxOtis is the Greek word for Sagittarius, that actually means ‘archer’. ToxOtis
+ * is a Java interface to the predictive toxicology services of OpenTox. ToxOtis is
+ * being developed to help both those who need a painless way to consume OpenTox
+ * services and for ambitious service providers that don’t want to spend half of
+ * their time in RDF parsing and creation.
+ *
+ * Copyright (C) 2009-2010 Pantelis Sopasakis & Charalampos Chomenides
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Contact:
+ * Pantelis Sopasakis
+ * chvng@mail.ntua.gr
+ * Address: Iroon Politechniou St. 9, Zografou, Athens Greece
+ * tel. +30 210 7723236
+ *
+ */
+package org.opentox.toxotis.database.engine.task;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import org.opentox.toxotis.core.component.Task;
+import org.opentox.toxotis.core.component.Task.Status;
+import org.opentox.toxotis.database.exception.DbException;
+import org.opentox.toxotis.database.metrics.DbMetrics;
+import org.opentox.toxotis.database.pool.DataSourceFactory;
+
+/**
+ * Write-behind updater for the progress of tasks, i.e. their status, percentage
+ * of completion, HTTP status, duration and result URI. Updates are not written
+ * right away; updates of the same task that are submitted within a short window
+ * are merged (keeping the last value of every field) and all pending updates
+ * are then written as a single batch of <code>UPDATE</code> statements on one
+ * connection. Updates that bring a task to a final status ({@link Status#COMPLETED
+ * completed}, {@link Status#ERROR error} or {@link Status#CANCELLED cancelled})
+ * are written immediately, together with all other pending updates.
+ * 
+ * <p>Meta-information, error reports and identifiers of tasks are not handled
+ * here; use {@link UpdateTask} for these.</p>
+ *
+ * @author Pantelis Sopasakis
+ * @author Charalampos Chomenides
+ * @see UpdateTask
+ */
+public class TaskStatusWriter {
+
+    /** Default time (in ms) updates are kept before they are written */
+    public static final long DEFAULT_WINDOW = 500;
+    private static final String SQL_UPDATE = "UPDATE Task SET status=COALESCE(?,status), "
+            + "percentageCompleted=COALESCE(?,percentageCompleted), httpStatus=COALESCE(?,httpStatus), "
+            + "duration=COALESCE(?,duration), resultUri=COALESCE(?,resultUri) WHERE id=?";
+    private static volatile TaskStatusWriter instance;
+    private final ScheduledThreadPoolExecutor scheduler;
+    private final long window;
+    /* Pending updates by task id, in the order they were first submitted */
+    private final Map<String, PendingUpdate> pending = new LinkedHashMap<String, PendingUpdate>();
+    /* Flushes are serialized so that older updates never overwrite newer ones */
+    private final Object flushLock = new Object();
+    private ScheduledFuture<?> scheduledFlush;
+    private final AtomicLong submittedCount = new AtomicLong();
+    private final AtomicLong coalescedCount = new AtomicLong();
+    private final AtomicLong writtenCount = new AtomicLong();
+    private org.slf4j.Logger logger = org.slf4j.LoggerFactory.getLogger(TaskStatusWriter.class);
+
+    /**
+     * The writer shared by the whole application which runs with the default
+     * window. Its thread is a daemon thread.
+     * @return
+     *      The shared task status writer.
+     */
+    public static TaskStatusWriter getInstance() {
+        TaskStatusWriter writer = instance;
+        if (writer == null) {
+            synchronized (TaskStatusWriter.class) {
+                writer = instance;
+                if (writer == null) {
+                    instance = writer = new TaskStatusWriter();
+                }
+            }
+        }
+        return writer;
+    }
+
+    /**
+     * Create a new task status writer with the default window.
+     */
+    public TaskStatusWriter() {
+        this(DEFAULT_WINDOW);
+    }
+
+    /**
+     * Create a new task status writer.
+     * @param window
+     *      Time in milliseconds an update is kept, waiting to be merged with
+     *      subsequent updates of the same task, before it is written.
+     * @throws IllegalArgumentException
+     *      If the window is negative.
+     */
+    public TaskStatusWriter(long window) {
+        if (window < 0) {
+            throw new IllegalArgumentException("Invalid window : " + window);
+        }
+        this.window = window;
+        this.scheduler = new ScheduledThreadPoolExecutor(1, new WriterThreadFactory());
+    }
+
+    /**
+     * Submit an update of a task. The fields of the task that are set, i.e. its
+     * status, result URI, non-negative percentage of completion and HTTP
+     * status and positive duration, will be written in the database. If the
+     * status of the task is final, the update is written before this method
+     * returns.
+     * @param task
+     *      Task with the new values.
+     * @throws DbException
+     *      If the update was written immediately and the writing failed. Errors
+     *      in the background are only logged.
+     * @throws IllegalArgumentException
+     *      If the task has no URI.
+     */
+    public void submit(Task task) throws DbException {
+        if (task == null || task.getUri() == null || task.getUri().getId() == null) {
+            throw new IllegalArgumentException("The task to be updated has no identifier");
+        }
+        String taskId = task.getUri().getId();
+        submittedCount.incrementAndGet();
+        synchronized (pending) {
+            PendingUpdate update = pending.get(taskId);
+            if (update == null) {
+                update = new PendingUpdate(taskId);
+                pending.put(taskId, update);
+            } else {
+                coalescedCount.incrementAndGet();
+            }
+            update.merge(task);
+            if (!isFinal(task.getStatus()) && scheduledFlush == null && !scheduler.isShutdown()) {
+                scheduledFlush = scheduler.schedule(new Runnable() {
+
+                    @Override
+                    public void run() {
+                        try {
+                            flush();
+                        } catch (final DbException ex) {
+                            logger.warn("Task updates could not be written in the database", ex);
+                        }
+                    }
+                }, window, TimeUnit.MILLISECONDS);
+            }
+        }
+        if (isFinal(task.getStatus())) {
+            flush();
+        }
+    }
+
+    /**
+     * Write all pending updates in the database.
+     * @return
+     *      The number of tasks that were updated.
+     * @throws DbException
+     *      If the updates cannot be written. These updates are lost.
+     */
+    public int flush() throws DbException {
+        synchronized (flushLock) {
+            PendingUpdate[] updates;
+            synchronized (pending) {
+                if (scheduledFlush != null) {
+                    scheduledFlush.cancel(false);
+                    scheduledFlush = null;
+                }
+                updates = pending.values().toArray(new PendingUpdate[pending.size()]);
+                pending.clear();
+            }
+            if (updates.length == 0) {
+                return 0;
+            }
+            write(updates);
+            writtenCount.addAndGet(updates.length);
+            return updates.length;
+        }
+    }
+
+    private void write(PendingUpdate[] updates) throws DbException {
+        Connection connection = null;
+        PreparedStatement statement = null;
+        try {
+            connection = DbMetrics.getInstance().instrument(
+                    DataSourceFactory.getInstance().getConnection(), TaskStatusWriter.class);
+            connection.setAutoCommit(false);
+            statement = connection.prepareStatement(SQL_UPDATE);
+            for (PendingUpdate update : updates) {
+                update.bind(statement);
+                statement.addBatch();
+            }
+            statement.executeBatch();
+            connection.commit();
+        } catch (final SQLException ex) {
+            if (connection != null) {
+                try {
+                    connection.rollback();
+                } catch (final SQLException ex1) {
+                    logger.warn("Rollback failed", ex1);
+                }
+            }
+            final String msg = "Updates of " + updates.length + " tasks could not be written in the database";
+            logger.warn(msg, ex);
+            throw new DbException(msg, ex);
+        } finally {
+            if (statement != null) {
+                try {
+                    statement.close();
+                } catch (final SQLException ex) {
+                    logger.warn("SQL statement for updating tasks cannot be closed", ex);
+                }
+            }
+            if (connection != null) {
+                try {
+                    connection.close();
+                } catch (final SQLException ex) {
+                    logger.warn("Connection to the database cannot be closed", ex);
+                }
+            }
+        }
+    }
+
+    /**
+     * Writes all pending updates and stops the background thread. Updates
+     * submitted afterwards are only written when their status is final or
+     * {@link #flush()} is invoked.
+     * @throws DbException
+     *      If the pending updates cannot be written.
+     */
+    public void shutdown() throws DbException {
+        scheduler.shutdown();
+        flush();
+    }
+
+    /**
+     * Number of tasks with updates waiting to be written.
+     * @return
+     *      Number of pending updates.
+     */
+    public int getPendingCount() {
+        synchronized (pending) {
+            return pending.size();
+        }
+    }
+
+    /**
+     * Total number of updates submitted.
+     * @return
+     *      Number of submitted updates.
+     */
+    public long getSubmittedCount() {
+        return submittedCount.get();
+    }
+
+    /**
+     * Number of updates that were merged into a pending update of the same task.
+     * @return
+     *      Number of coalesced updates.
+     */
+    public long getCoalescedCount() {
+        return coalescedCount.get();
+    }
+
+    /**
+     * Number of (merged) updates written in the database.
+     * @return
+     *      Number of written updates.
+     */
+    public long getWrittenCount() {
+        return writtenCount.get();
+    }
+
+    private static boolean isFinal(Status status) {
+        return Status.COMPLETED.equals(status) || Status.ERROR.equals(status)
+                || Status.CANCELLED.equals(status);
+    }
+
+    /**
+     * Merged update of a task; fields that are <code>null</code> are not
+     * updated.
+     */
+    private static class PendingUpdate {
+
+        private final String taskId;
+        private Status status;
+        private Float percentageCompleted;
+        private Float httpStatus;
+        private Long duration;
+        private String resultUri;
+
+        PendingUpdate(String taskId) {
+            this.taskId = taskId;
+        }
+
+        void merge(Task task) {
+            if (task.getStatus() != null) {
+                status = task.getStatus();
+            }
+            if (task.getPercentageCompleted() >= 0) {
+                percentageCompleted = task.getPercentageCompleted();
+            }
+            if (task.getHttpStatus() >= 0) {
+                httpStatus = task.getHttpStatus();
+            }
+            if (task.getDuration() != null && task.getDuration() > 0) {
+                duration = task.getDuration();
+            }
+            if (task.getResultUri() != null) {
+                resultUri = task.getResultUri().toString();
+            }
+        }
+
+        void bind(PreparedStatement statement) throws SQLException {
+            if (status != null) {
+                statement.setString(1, status.toString());
+            } else {
+                statement.setNull(1, Types.VARCHAR);
+            }
+            if (percentageCompleted != null) {
+                statement.setFloat(2, percentageCompleted);
+            } else {
+                statement.setNull(2, Types.FLOAT);
+            }
+            if (httpStatus != null) {
+                statement.setFloat(3, httpStatus);
+            } else {
+                statement.setNull(3, Types.FLOAT);
+            }
+            if (duration != null) {
+                statement.setLong(4, duration);
+            } else {
+                statement.setNull(4, Types.BIGINT);
+            }
+            statement.setString(5, resultUri);
+            statement.setString(6, taskId);
+        }
+    }
+
+    private static class WriterThreadFactory implements ThreadFactory {
+
+        private final AtomicInteger count = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "toxotis-task-status-writer-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
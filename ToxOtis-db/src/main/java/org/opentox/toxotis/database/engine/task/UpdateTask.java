@@ -32,20 +32,22 @@
  */
 package org.opentox.toxotis.database.engine.task;
 
-import java.sql.Blob;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.SQLException;
+import java.sql.Types;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import org.opentox.toxotis.core.component.Task;
 import org.opentox.toxotis.database.DbUpdater;
 import org.opentox.toxotis.database.engine.error.ErrorReportBatchWriter;
+import org.opentox.toxotis.database.engine.metainfo.MetaInfoStore;
 import org.opentox.toxotis.database.exception.DbException;
 import org.opentox.toxotis.ontology.MetaInfo;
-import org.opentox.toxotis.ontology.MetaInfoBlobber;
 
 /**
  * Configurable Updater of a Task.
@@ -217,92 +219,124 @@ public class UpdateTask extends DbUpdater {
     @Override
     public int update() throws DbException {
         Connection connection = getConnection();
+        List<MetaInfoStore.Entry> metaEntries = new ArrayList<MetaInfoStore.Entry>();
         try {
             connection.setAutoCommit(false);
-            /*
-             * New Error Report
-             */
-            if (updateAndRegisterErrorReport) {
-                ErrorReportBatchWriter writer = new ErrorReportBatchWriter(connection, newTask.getErrorReport());
+            try {
+                updateTask(connection, metaEntries);
+            } catch (final SQLException ex) {
+                if (!forgetMissingMetaInfo(ex, metaEntries)) {
+                    throw ex;
+                }
+                retryTask(connection, metaEntries);
+            } catch (final DbException ex) {
+                if (!forgetMissingMetaInfo(ex, metaEntries)) {
+                    throw ex;
+                }
+                retryTask(connection, metaEntries);
+            }
+            connection.commit();
+            remember(metaEntries);
+
+        } catch (SQLException ex) {
+            logger.warn("UpdateTask::Failure", ex);
+            throw new DbException(ex);
+        }
+
+        return -1;
+    }
+
+    private void retryTask(Connection connection, List<MetaInfoStore.Entry> metaEntries) throws SQLException, DbException {
+        connection.rollback();
+        metaEntries.clear();
+        updateTask(connection, metaEntries);
+    }
+
+    /*
+     * Applies the update without committing; the entries of the meta-information
+     * it references are added to the given list.
+     */
+    private void updateTask(Connection connection, List<MetaInfoStore.Entry> metaEntries) throws SQLException, DbException {
+        MetaInfoStore metaStore = MetaInfoStore.getInstance();
+        /*
+         * New Error Report
+         */
+        if (updateAndRegisterErrorReport) {
+            ErrorReportBatchWriter writer = new ErrorReportBatchWriter(connection, newTask.getErrorReport());
+            try {
                 writer.batchStatement();
+            } finally {
+                metaEntries.addAll(writer.getMetaEntries());
             }
-            /*
-             * Register new MetaInfo in the corresponding table... 
-             */
-            if (updateMeta) {
+        }
+        /*
+         * Register new MetaInfo in the corresponding table (unless it is
+         * known to be there already)... 
+         */
+        MetaInfoStore.Entry metaEntry = null;
+        if (updateMeta && newTask.getMeta() != null) {
+            MetaInfo meta = newTask.getMeta();
+            metaEntry = metaStore.lookup(meta);
+            metaEntries.add(metaEntry);
+            if (!metaEntry.isStored()) {
                 metaInsertPS = connection.prepareStatement(__META);
-                MetaInfo meta = newTask.getMeta();
-                
-                metaInsertPS.setInt(1, meta.hashCode());
-                MetaInfoBlobber blobber = new MetaInfoBlobber(meta);
-                Blob blob = null;
-                try {
-                    blob = blobber.toBlob();
-                    metaInsertPS.setBlob(2, blob);
-                } catch (final Exception ex) {
-                    logger.error("Meta Blobbing Exception", ex);
-                    throw new DbException(ex);
-                }
+                metaInsertPS.setBytes(1, metaEntry.getKey());
+                metaInsertPS.setBytes(2, metaEntry.getEncoded());
                 metaInsertPS.executeUpdate();
             }
+        }
 
-            /**
-             * Update OTComponent with the new meta data and new ID
-             */
-            if (updateMeta || updateId) {
-                otComponentUpdatePS = connection.prepareStatement(getComponentUpdateSql());
-                if (updateMeta) {
-                    int metaHashCode = newTask.getMeta().hashCode();
-                    otComponentUpdatePS.setInt(componentPsMapping.get("meta"), metaHashCode);
-                    otComponentUpdatePS.setString(componentPsMapping.size() + 1, taskId);//WHERE clause
-                }
-                if (updateId) {
-                    otComponentUpdatePS.setString(componentPsMapping.get("id"), newId);
+        /**
+         * Update OTComponent with the new meta data and new ID
+         */
+        if (updateMeta || updateId) {
+            otComponentUpdatePS = connection.prepareStatement(getComponentUpdateSql());
+            if (updateMeta) {
+                if (metaEntry != null) {
+                    otComponentUpdatePS.setBytes(componentPsMapping.get("meta"), metaEntry.getKey());
+                } else {
+                    otComponentUpdatePS.setNull(componentPsMapping.get("meta"), Types.BINARY);
                 }
-                otComponentUpdatePS.executeUpdate();
+                otComponentUpdatePS.setString(componentPsMapping.size() + 1, taskId);//WHERE clause
             }
-
-            /*
-             * Update task
-             */
-
-            if (doUpdateTask()) {
-                taskUpdatePS = connection.prepareStatement(getTaskUpdateSql());
-                if (updateDuration) {
-                    taskUpdatePS.setLong(taskPsMapping.get("duration"), newTask.getDuration());
-                }
-                if (updateErrorReport) {
-                    taskUpdatePS.setString(taskPsMapping.get("errorReport"),
-                            newTask.getErrorReport().getUri().getId());
-                }
-                if (updateHttpStatus) {
-                    taskUpdatePS.setFloat(taskPsMapping.get("httpStatus"),
-                            newTask.getHttpStatus());
-                }
-                if (updatePercentageCompleted) {
-                    taskUpdatePS.setFloat(taskPsMapping.get("percentageCompleted"),
-                            newTask.getPercentageCompleted());
-                }
-                if (updateResultUri) {
-                    taskUpdatePS.setString(taskPsMapping.get("resultUri"),
-                            newTask.getResultUri().toString());
-                }
-                if (updateTaskStatus) {
-                    taskUpdatePS.setString(taskPsMapping.get("status"),
-                            newTask.getStatus().toString());
-                }
-                taskUpdatePS.setString(taskPsMapping.get("id"), newTask.getUri().getId());
-                taskUpdatePS.executeUpdate();
+            if (updateId) {
+                otComponentUpdatePS.setString(componentPsMapping.get("id"), newId);
             }
+            otComponentUpdatePS.executeUpdate();
+        }
 
-            connection.commit();
+        /*
+         * Update task
+         */
 
-        } catch (SQLException ex) {
-            logger.warn("UpdateTask::Failure", ex);
-            throw new DbException(ex);
+        if (doUpdateTask()) {
+            taskUpdatePS = connection.prepareStatement(getTaskUpdateSql());
+            if (updateDuration) {
+                taskUpdatePS.setLong(taskPsMapping.get("duration"), newTask.getDuration());
+            }
+            if (updateErrorReport) {
+                taskUpdatePS.setString(taskPsMapping.get("errorReport"),
+                        newTask.getErrorReport().getUri().getId());
+            }
+            if (updateHttpStatus) {
+                taskUpdatePS.setFloat(taskPsMapping.get("httpStatus"),
+                        newTask.getHttpStatus());
+            }
+            if (updatePercentageCompleted) {
+                taskUpdatePS.setFloat(taskPsMapping.get("percentageCompleted"),
+                        newTask.getPercentageCompleted());
+            }
+            if (updateResultUri) {
+                taskUpdatePS.setString(taskPsMapping.get("resultUri"),
+                        newTask.getResultUri().toString());
+            }
+            if (updateTaskStatus) {
+                taskUpdatePS.setString(taskPsMapping.get("status"),
+                        newTask.getStatus().toString());
+            }
+            taskUpdatePS.setString(taskPsMapping.get("id"), newTask.getUri().getId());
+            taskUpdatePS.executeUpdate();
         }
-
-        return -1;
     }
 
     private boolean doUpdateTask() {
@@ -33,12 +33,15 @@
 
 package org.opentox.toxotis.database.engine.user;
 
+import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.SQLException;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import org.opentox.toxotis.core.component.User;
 import org.opentox.toxotis.database.DbOperation;
+import org.opentox.toxotis.database.engine.cache.SharedCaches;
+import org.opentox.toxotis.database.engine.counter.ComponentCounters;
 import org.opentox.toxotis.database.exception.DbException;
 
 /**
@@ -65,16 +68,37 @@ public class DeleteUser extends DbOperation {
 
     public int delete() throws DbException {
         PreparedStatement ps = null;
+        Connection connection = getConnection();
+        boolean counted = ComponentCounters.isEnabled();
         try {
-            ps = getConnection().prepareStatement(getSqlTemplate());
+            if (counted) {
+                connection.setAutoCommit(false);
+                ComponentCounters.removeUser(connection, userToDeltete);
+            }
+            ps = connection.prepareStatement(getSqlTemplate());
             ps.setString(1, userToDeltete);
             
-            return ps.executeUpdate();
+            int deleted = ps.executeUpdate();
+            if (counted) {
+                connection.commit();
+            }
+            SharedCaches.users().remove(userToDeltete);
+            return deleted;
         } catch (SQLException ex) {
+            if (counted) {
+                try {
+                    connection.rollback();
+                } catch (final SQLException ex1) {
+                    Logger.getLogger(DeleteUser.class.getName()).log(Level.SEVERE, null, ex1);
+                }
+            }
             throw new DbException();
         } finally {
             try {
-                ps.close();
+                if (ps != null) {
+                    ps.close();
+                }
+                connection.setAutoCommit(true);
             } catch (SQLException ex) {
                 Logger.getLogger(DeleteUser.class.getName()).log(Level.SEVERE, null, ex);
             }
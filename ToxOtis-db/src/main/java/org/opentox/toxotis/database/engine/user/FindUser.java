@@ -32,10 +32,9 @@
  */
 package org.opentox.toxotis.database.engine.user;
 
-import java.sql.Connection;
+import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
-import java.sql.Statement;
 import org.opentox.toxotis.core.component.User;
 import org.opentox.toxotis.database.DbIterator;
 import org.opentox.toxotis.database.DbReader;
@@ -49,20 +48,18 @@ import org.opentox.toxotis.database.exception.DbException;
  */
 public class FindUser extends DbReader<User> {
 
-    private Statement statement = null;
+    private PreparedStatement statement = null;
     private org.slf4j.Logger logger = org.slf4j.LoggerFactory.getLogger(FindUser.class);
 
     @Override
     public IDbIterator<User> list() throws DbException {
         setTable("User");
         setTableColumns("uid", "name", "mail", "password","maxParallelTasks","maxModels","maxBibTeX");
-        Connection connection = null;
-        connection = getConnection();
         try {
-            statement = connection.createStatement();
-            ResultSet rs = statement.executeQuery(getSql());
+            statement = prepareStatement();
+            ResultSet rs = statement.executeQuery();
             DbIterator<User> it = new UserIterator(rs);
-            return it;
+            return iterate(it, rs);
         } catch (final SQLException ex) {
             String msg = "Database error occured while executing statement : ".concat(getSql());
             logger.warn(msg, ex);
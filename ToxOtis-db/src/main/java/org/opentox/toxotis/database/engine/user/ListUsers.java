@@ -1,9 +1,8 @@
 package org.opentox.toxotis.database.engine.user;
 
-import java.sql.Connection;
+import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
-import java.sql.Statement;
 import org.opentox.toxotis.database.DbReader;
 import org.opentox.toxotis.database.IDbIterator;
 import org.opentox.toxotis.database.ResultSetIterator;
@@ -16,7 +15,7 @@ import org.opentox.toxotis.database.exception.DbException;
  */
 public class ListUsers extends DbReader<String> {
 
-    private Statement statement = null;
+    private PreparedStatement statement = null;
     private ResultSet results;
     private org.slf4j.Logger logger = org.slf4j.LoggerFactory.getLogger(ListUsers.class);
 
@@ -48,12 +47,10 @@ public class ListUsers extends DbReader<String> {
     public IDbIterator<String> list() throws DbException {
         setTable("User");
         setTableColumns("User." + getMode().getColumnName());
-        Connection connection = null;
-        connection = getConnection();
         try {
-            statement = connection.createStatement();
-            results = statement.executeQuery(getSql());
-            return new ResultSetIterator(results);
+            statement = prepareStatement();
+            results = statement.executeQuery();
+            return iterate(new ResultSetIterator(results), results);
         } catch (final SQLException ex) {
             throw new DbException(ex);
         }
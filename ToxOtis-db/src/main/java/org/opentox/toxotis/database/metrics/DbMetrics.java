@@ -0,0 +1,332 @@
+/*
+ *
+ * ToxOtis
+ *
+ * ToxOtis is the Greek word for Sagittarius, that actually means ‘archer’. ToxOtis
+ * is a Java interface to the predictive toxicology services of OpenTox. ToxOtis is
+ * being developed to help both those who need a painless way to consume OpenTox
+ * services and for ambitious service providers that don’t want to spend half of
+ * their time in RDF parsing and creation.
+ *
+ * Copyright (C) 2009-2010 Pantelis Sopasakis & Charalampos Chomenides
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Contact:
+ * Pantelis Sopasakis
+ * chvng@mail.ntua.gr
+ * Address: Iroon Politechniou St. 9, Zografou, Athens Greece
+ * tel. +30 210 7723236
+ *
+ */
+package org.opentox.toxotis.database.metrics;
+
+import com.mchange.v2.c3p0.PooledDataSource;
+import java.lang.management.ManagementFactory;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.sql.DataSource;
+import org.opentox.toxotis.database.exception.DbException;
+import org.opentox.toxotis.database.pool.DataSourceFactory;
+import org.opentox.toxotis.database.pool.IDataSourceC3P0;
+
+/**
+ * Registry of database metrics: time spent waiting for connections from the
+ * pool, execution time and rows read or written per kind of operation, bytes of
+ * BLOBs read and the state of the connection pool. The metrics can be polled
+ * through the getters of this class or exported as an MBean using
+ * {@link #registerMBean()}.
+ *
+ * <p>Metrics are disabled by default and are enabled either by setting the
+ * system property <code>toxotis.db.metrics</code> to <code>true</code> or
+ * by {@link #setEnabled(boolean)}. While disabled, connections are handed to
+ * the operations as they come from the pool and nothing is recorded; the only
+ * overhead is checking the flag when a connection is acquired.</p>
+ *
+ * @author Pantelis Sopasakis
+ * @author Charalampos Chomenides
+ */
+public class DbMetrics implements DbMetricsMXBean {
+
+    /**
+     * Name under which the metrics are registered on the platform MBean server.
+     */
+    public static final String OBJECT_NAME = "org.opentox.toxotis.database:type=DbMetrics";
+    private static volatile DbMetrics instance;
+    private volatile boolean enabled = Boolean.getBoolean("toxotis.db.metrics");
+    private final ConcurrentMap<String, OperationCounter> operations =
+            new ConcurrentHashMap<String, OperationCounter>();
+    private final AtomicLong connectionAcquisitions = new AtomicLong();
+    private final AtomicLong connectionWaitNanos = new AtomicLong();
+    private final AtomicLong connectionWaitMaxNanos = new AtomicLong();
+    private final AtomicLong blobsRead = new AtomicLong();
+    private final AtomicLong blobBytesRead = new AtomicLong();
+    private org.slf4j.Logger logger = org.slf4j.LoggerFactory.getLogger(DbMetrics.class);
+
+    private DbMetrics() {
+    }
+
+    public static DbMetrics getInstance() {
+        DbMetrics result = instance;
+        if (result == null) {
+            synchronized (DbMetrics.class) {
+                result = instance;
+                if (result == null) {
+                    result = new DbMetrics();
+                    instance = result;
+                }
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    @Override
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    /**
+     * Records the time a thread waited to acquire a connection from the pool.
+     * Does nothing if metrics are disabled.
+     *
+     * @param nanos
+     *      Waiting time in nanoseconds.
+     */
+    public void recordConnectionWait(long nanos) {
+        if (!enabled) {
+            return;
+        }
+        connectionAcquisitions.incrementAndGet();
+        connectionWaitNanos.addAndGet(nanos);
+        updateMax(connectionWaitMaxNanos, nanos);
+    }
+
+    /**
+     * Records the size of an uncompressed BLOB read from the database. Does
+     * nothing if metrics are disabled.
+     *
+     * @param bytes
+     *      Size of the BLOB in bytes.
+     */
+    public void recordBlobRead(long bytes) {
+        if (!enabled) {
+            return;
+        }
+        blobsRead.incrementAndGet();
+        blobBytesRead.addAndGet(bytes);
+    }
+
+    /**
+     * Instruments a connection so that the statements executed on it are
+     * accounted to the given operation. If metrics are disabled the connection
+     * is returned as is.
+     *
+     * @param connection
+     *      A connection.
+     * @param operation
+     *      The class of the operation which uses the connection.
+     * @return
+     *      The instrumented connection.
+     */
+    public Connection instrument(Connection connection, Class<?> operation) {
+        if (!enabled || connection == null) {
+            return connection;
+        }
+        return Instrumentation.connection(connection, counter(operation.getName()), this);
+    }
+
+    private OperationCounter counter(String operation) {
+        OperationCounter counter = operations.get(operation);
+        if (counter == null) {
+            OperationCounter created = new OperationCounter(operation);
+            counter = operations.putIfAbsent(operation, created);
+            if (counter == null) {
+                counter = created;
+            }
+        }
+        return counter;
+    }
+
+    static void updateMax(AtomicLong max, long value) {
+        long current = max.get();
+        while (value > current && !max.compareAndSet(current, value)) {
+            current = max.get();
+        }
+    }
+
+    @Override
+    public long getConnectionAcquisitions() {
+        return connectionAcquisitions.get();
+    }
+
+    @Override
+    public double getConnectionWaitTotalMillis() {
+        return connectionWaitNanos.get() / 1E6;
+    }
+
+    @Override
+    public double getConnectionWaitMaxMillis() {
+        return connectionWaitMaxNanos.get() / 1E6;
+    }
+
+    @Override
+    public long getBlobsRead() {
+        return blobsRead.get();
+    }
+
+    @Override
+    public long getBlobBytesRead() {
+        return blobBytesRead.get();
+    }
+
+    /**
+     * Statistics of the operations executed since metrics were enabled or
+     * last reset, sorted by operation name.
+     * @return
+     *      Map from operation names to their statistics.
+     */
+    @Override
+    public Map<String, OperationStats> getOperations() {
+        Map<String, OperationStats> snapshot = new TreeMap<String, OperationStats>();
+        for (OperationCounter counter : operations.values()) {
+            OperationStats stats = counter.snapshot();
+            snapshot.put(stats.getOperation(), stats);
+        }
+        return snapshot;
+    }
+
+    /**
+     * Statistics of a single operation.
+     * @param operation
+     *      The class of the operation.
+     * @return
+     *      Statistics of the operation or <code>null</code> if no statement
+     *      has been recorded for it.
+     */
+    public OperationStats getOperation(Class<?> operation) {
+        OperationCounter counter = operations.get(operation.getName());
+        return counter != null ? counter.snapshot() : null;
+    }
+
+    @Override
+    public int getBusyConnections() {
+        PooledDataSource pool = pool();
+        try {
+            return pool != null ? pool.getNumBusyConnectionsDefaultUser() : 0;
+        } catch (final SQLException ex) {
+            logger.debug("Number of busy connections is not available", ex);
+            return -1;
+        }
+    }
+
+    @Override
+    public int getIdleConnections() {
+        PooledDataSource pool = pool();
+        try {
+            return pool != null ? pool.getNumIdleConnectionsDefaultUser() : 0;
+        } catch (final SQLException ex) {
+            logger.debug("Number of idle connections is not available", ex);
+            return -1;
+        }
+    }
+
+    @Override
+    public int getPendingConnections() {
+        PooledDataSource pool = pool();
+        try {
+            return pool != null ? pool.getNumThreadsAwaitingCheckoutDefaultUser() : 0;
+        } catch (final SQLException ex) {
+            logger.debug("Number of threads awaiting a connection is not available", ex);
+            return -1;
+        }
+    }
+
+    /*
+     * The pool is only inspected, never created, so that polling the metrics
+     * does not open connections to the database.
+     */
+    private PooledDataSource pool() {
+        try {
+            IDataSourceC3P0 c3p0 = DataSourceFactory.getInstance().getDataSourceC3P0();
+            DataSource ds = c3p0 != null ? c3p0.getDatasource() : null;
+            return ds instanceof PooledDataSource ? (PooledDataSource) ds : null;
+        } catch (final DbException ex) {
+            return null;
+        }
+    }
+
+    @Override
+    public void reset() {
+        operations.clear();
+        connectionAcquisitions.set(0);
+        connectionWaitNanos.set(0);
+        connectionWaitMaxNanos.set(0);
+        blobsRead.set(0);
+        blobBytesRead.set(0);
+    }
+
+    /**
+     * Registers the metrics on the platform MBean server under
+     * {@link #OBJECT_NAME}. Does nothing if they are already registered.
+     *
+     * @throws DbException
+     *      In case the MBean cannot be registered.
+     */
+    public synchronized void registerMBean() throws DbException {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName(OBJECT_NAME);
+            if (!server.isRegistered(name)) {
+                server.registerMBean(this, name);
+            }
+        } catch (final JMException ex) {
+            final String msg = "Database metrics could not be registered as an MBean";
+            logger.warn(msg, ex);
+            throw new DbException(msg, ex);
+        }
+    }
+
+    /**
+     * Removes the metrics from the platform MBean server.
+     *
+     * @throws DbException
+     *      In case the MBean cannot be unregistered.
+     */
+    public synchronized void unregisterMBean() throws DbException {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName(OBJECT_NAME);
+            if (server.isRegistered(name)) {
+                server.unregisterMBean(name);
+            }
+        } catch (final JMException ex) {
+            final String msg = "Database metrics MBean could not be unregistered";
+            logger.warn(msg, ex);
+            throw new DbException(msg, ex);
+        }
+    }
+}
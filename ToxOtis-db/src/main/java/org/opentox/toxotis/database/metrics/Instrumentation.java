@@ -0,0 +1,142 @@
+/*
+ *
+ * ToxOtis
+ *
+ * ToxOtis is the Greek word for Sagittarius, that actually means ‘archer’. ToxOtis
+ * is a Java interface to the predictive toxicology services of OpenTox. ToxOtis is
+ * being developed to help both those who need a painless way to consume OpenTox
+ * services and for ambitious service providers that don’t want to spend half of
+ * their time in RDF parsing and creation.
+ *
+ * Copyright (C) 2009-2010 Pantelis Sopasakis & Charalampos Chomenides
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Contact:
+ * Pantelis Sopasakis
+ * chvng@mail.ntua.gr
+ * Address: Iroon Politechniou St. 9, Zografou, Athens Greece
+ * tel. +30 210 7723236
+ *
+ */
+package org.opentox.toxotis.database.metrics;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Blob;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+
+/**
+ * Dynamic proxy of a connection, a statement or a result set which records
+ * the execution time of statements, the rows read and written and the size
+ * of the BLOBs read. Statements created by an instrumented connection and
+ * result sets returned by an instrumented statement are instrumented too.
+ *
+ * @author Pantelis Sopasakis
+ * @author Charalampos Chomenides
+ */
+class Instrumentation implements InvocationHandler {
+
+    private final Object target;
+    private final OperationCounter counter;
+    private final DbMetrics metrics;
+
+    private Instrumentation(Object target, OperationCounter counter, DbMetrics metrics) {
+        this.target = target;
+        this.counter = counter;
+        this.metrics = metrics;
+    }
+
+    static Connection connection(Connection connection, OperationCounter counter, DbMetrics metrics) {
+        return (Connection) proxy(Connection.class, connection, counter, metrics);
+    }
+
+    private static Object proxy(Class<?> type, Object target, OperationCounter counter, DbMetrics metrics) {
+        return Proxy.newProxyInstance(Instrumentation.class.getClassLoader(), new Class<?>[]{type},
+                new Instrumentation(target, counter, metrics));
+    }
+
+    private Object statement(Object statement) {
+        if (statement instanceof CallableStatement) {
+            return proxy(CallableStatement.class, statement, counter, metrics);
+        } else if (statement instanceof PreparedStatement) {
+            return proxy(PreparedStatement.class, statement, counter, metrics);
+        }
+        return proxy(Statement.class, statement, counter, metrics);
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+        String name = method.getName();
+        if (target instanceof Statement && name.startsWith("execute")) {
+            return execute(method, args);
+        }
+        Object result = call(method, args);
+        if (result == null) {
+            return null;
+        }
+        if (target instanceof Connection && result instanceof Statement) {
+            return statement(result);
+        }
+        if (target instanceof Statement && result instanceof ResultSet) {
+            return proxy(ResultSet.class, result, counter, metrics);
+        }
+        if (target instanceof ResultSet) {
+            if ("next".equals(name) && Boolean.TRUE.equals(result)) {
+                counter.recordRowRead();
+            } else if ("getBlob".equals(name)) {
+                metrics.recordBlobRead(((Blob) result).length());
+            }
+        }
+        return result;
+    }
+
+    private Object execute(Method method, Object[] args) throws Throwable {
+        long start = System.nanoTime();
+        boolean failed = true;
+        long written = 0;
+        try {
+            Object result = call(method, args);
+            failed = false;
+            if (result instanceof Integer) {
+                written = (Integer) result;
+            } else if (result instanceof int[]) {
+                for (int count : (int[]) result) {
+                    if (count > 0) {
+                        written += count;
+                    }
+                }
+            } else if (result instanceof ResultSet) {
+                result = proxy(ResultSet.class, result, counter, metrics);
+            }
+            return result;
+        } finally {
+            counter.recordExecution(System.nanoTime() - start, written, failed);
+        }
+    }
+
+    private Object call(Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (final InvocationTargetException ex) {
+            throw ex.getCause();
+        }
+    }
+}
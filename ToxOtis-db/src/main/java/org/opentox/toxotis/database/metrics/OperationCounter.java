@@ -0,0 +1,77 @@
+/*
+ *
+ * ToxOtis
+ *
+ * ToxOtis is the Greek word for Sagittarius, that actually means ‘archer’. ToxOtis
+ * is a Java interface to the predictive toxicology services of OpenTox. ToxOtis is
+ * being developed to help both those who need a painless way to consume OpenTox
+ * services and for ambitious service providers that don’t want to spend half of
+ * their time in RDF parsing and creation.
+ *
+ * Copyright (C) 2009-2010 Pantelis Sopasakis & Charalampos Chomenides
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Contact:
+ * Pantelis Sopasakis
+ * chvng@mail.ntua.gr
+ * Address: Iroon Politechniou St. 9, Zografou, Athens Greece
+ * tel. +30 210 7723236
+ *
+ */
+package org.opentox.toxotis.database.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Live counters of a kind of database operation.
+ *
+ * @author Pantelis Sopasakis
+ * @author Charalampos Chomenides
+ */
+class OperationCounter {
+
+    private final String operation;
+    private final AtomicLong executions = new AtomicLong();
+    private final AtomicLong totalNanos = new AtomicLong();
+    private final AtomicLong maxNanos = new AtomicLong();
+    private final AtomicLong rowsRead = new AtomicLong();
+    private final AtomicLong rowsWritten = new AtomicLong();
+    private final AtomicLong errors = new AtomicLong();
+
+    OperationCounter(String operation) {
+        this.operation = operation;
+    }
+
+    void recordExecution(long nanos, long written, boolean failed) {
+        executions.incrementAndGet();
+        totalNanos.addAndGet(nanos);
+        DbMetrics.updateMax(maxNanos, nanos);
+        if (written > 0) {
+            rowsWritten.addAndGet(written);
+        }
+        if (failed) {
+            errors.incrementAndGet();
+        }
+    }
+
+    void recordRowRead() {
+        rowsRead.incrementAndGet();
+    }
+
+    OperationStats snapshot() {
+        return new OperationStats(operation, executions.get(), totalNanos.get() / 1E6,
+                maxNanos.get() / 1E6, rowsRead.get(), rowsWritten.get(), errors.get());
+    }
+}
@@ -0,0 +1,145 @@
+/*
+ *
+ * ToxOtis
+ *
+ * ToxOtis is the Greek word for Sagittarius, that actually means ‘archer’. ToxOtis
+ * is a Java interface to the predictive toxicology services of OpenTox. ToxOtis is
+ * being developed to help both those who need a painless way to consume OpenTox
+ * services and for ambitious service providers that don’t want to spend half of
+ * their time in RDF parsing and creation.
+ *
+ * Copyright (C) 2009-2010 Pantelis Sopasakis & Charalampos Chomenides
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Contact:
+ * Pantelis Sopasakis
+ * chvng@mail.ntua.gr
+ * Address: Iroon Politechniou St. 9, Zografou, Athens Greece
+ * tel. +30 210 7723236
+ *
+ */
+package org.opentox.toxotis.database.metrics;
+
+import java.beans.ConstructorProperties;
+
+/**
+ * Snapshot of the statistics of the statements executed by some kind of
+ * database operation.
+ *
+ * @author Pantelis Sopasakis
+ * @author Charalampos Chomenides
+ * @see DbMetrics#getOperations()
+ */
+public class OperationStats {
+
+    private final String operation;
+    private final long executions;
+    private final double totalMillis;
+    private final double maxMillis;
+    private final long rowsRead;
+    private final long rowsWritten;
+    private final long errors;
+
+    @ConstructorProperties({"operation", "executions", "totalMillis", "maxMillis", "rowsRead", "rowsWritten", "errors"})
+    public OperationStats(String operation, long executions, double totalMillis, double maxMillis,
+            long rowsRead, long rowsWritten, long errors) {
+        this.operation = operation;
+        this.executions = executions;
+        this.totalMillis = totalMillis;
+        this.maxMillis = maxMillis;
+        this.rowsRead = rowsRead;
+        this.rowsWritten = rowsWritten;
+        this.errors = errors;
+    }
+
+    /**
+     * Name of the operation, i.e. the fully qualified name of its class.
+     * @return
+     *      Operation name.
+     */
+    public String getOperation() {
+        return operation;
+    }
+
+    /**
+     * Number of statements executed (a batch counts as one execution).
+     * @return
+     *      Number of executions.
+     */
+    public long getExecutions() {
+        return executions;
+    }
+
+    /**
+     * Total time spent executing statements, in milliseconds.
+     * @return
+     *      Total execution time.
+     */
+    public double getTotalMillis() {
+        return totalMillis;
+    }
+
+    /**
+     * Longest execution of a statement, in milliseconds.
+     * @return
+     *      Maximum execution time.
+     */
+    public double getMaxMillis() {
+        return maxMillis;
+    }
+
+    /**
+     * Average execution time of a statement, in milliseconds.
+     * @return
+     *      Average execution time or <code>0</code> if no statement was executed.
+     */
+    public double getMeanMillis() {
+        return executions != 0 ? totalMillis / executions : 0;
+    }
+
+    /**
+     * Number of rows read from result sets.
+     * @return
+     *      Rows read.
+     */
+    public long getRowsRead() {
+        return rowsRead;
+    }
+
+    /**
+     * Number of rows inserted, updated or deleted, as reported by the driver.
+     * @return
+     *      Rows written.
+     */
+    public long getRowsWritten() {
+        return rowsWritten;
+    }
+
+    /**
+     * Number of executions that failed with an exception.
+     * @return
+     *      Number of errors.
+     */
+    public long getErrors() {
+        return errors;
+    }
+
+    @Override
+    public String toString() {
+        return operation + " [executions=" + executions + ", totalMillis=" + totalMillis
+                + ", maxMillis=" + maxMillis + ", rowsRead=" + rowsRead
+                + ", rowsWritten=" + rowsWritten + ", errors=" + errors + "]";
+    }
+}
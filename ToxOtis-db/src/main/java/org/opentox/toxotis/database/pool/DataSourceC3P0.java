@@ -43,13 +43,24 @@ class DataSourceC3P0 implements IDataSourceC3P0 {
 
     protected volatile ComboPooledDataSource datasource;
     private org.slf4j.Logger logger = org.slf4j.LoggerFactory.getLogger(DataSourceC3P0.class);
-    private static final String ticket = UUID.randomUUID().toString();
+    private final String ticket = UUID.randomUUID().toString();
 
     /**
      * Default configuration
      * @throws DbException
      */
     public DataSourceC3P0() throws DbException {
+        this(DbConfiguration.getInstance().getProperpties());
+    }
+
+    /**
+     * Datasource configured by the given C3P0 properties instead of the ones
+     * of {@link DbConfiguration}. Used for the replicas of the database.
+     * @param stdProperties
+     *      C3P0 and driver properties.
+     * @throws DbException
+     */
+    DataSourceC3P0(Properties stdProperties) throws DbException {
         try {
             Class.forName("com.mysql.jdbc.Driver");
         } catch (final ClassNotFoundException ex) {
@@ -63,7 +74,6 @@ class DataSourceC3P0 implements IDataSourceC3P0 {
          * work as expected. Also some other properties are not configured 
          * correctly when using just datasource.setProperties(stdProperties);
          */
-        Properties stdProperties = DbConfiguration.getInstance().getProperpties();
         Properties prescribedProps = stdProperties != null ? stdProperties : new Properties();
         datasource.setJdbcUrl(prescribedProps.getProperty("c3p0.jdbcUrl"));
         datasource.setMaxPoolSize(Integer.valueOf(prescribedProps.getProperty("c3p0.maxPoolSize", "1000")));
@@ -75,6 +85,12 @@ class DataSourceC3P0 implements IDataSourceC3P0 {
         datasource.setNumHelperThreads(Integer.valueOf(prescribedProps.getProperty("c3p0.numHelperThreads", "110")));
         datasource.setTestConnectionOnCheckin(Boolean.valueOf(prescribedProps.getProperty("c3p0.testConnectionOnCheckin", "true")));
         datasource.setTestConnectionOnCheckout(Boolean.valueOf(prescribedProps.getProperty("c3p0.testConnectionOnCheckout", "true")));
+        /*
+         * Statements are prepared with the same SQL over and over again (values
+         * are always bound), so they are kept open in a per-connection cache
+         * instead of being prepared anew on every request.
+         */
+        datasource.setMaxStatementsPerConnection(Integer.valueOf(prescribedProps.getProperty("c3p0.maxStatementsPerConnection", "100")));
         datasource.setUser(prescribedProps.getProperty("c3p0.user"));
         datasource.setPassword(prescribedProps.getProperty("c3p0.password"));               
         datasource.setProperties(stdProperties);
@@ -33,16 +33,57 @@
 package org.opentox.toxotis.database.pool;
 
 import java.sql.Connection;
+import java.sql.DriverManager;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
 import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import javax.sql.DataSource;
 import org.opentox.toxotis.database.exception.DbException;
+import org.opentox.toxotis.database.global.DbConfiguration;
+import org.opentox.toxotis.database.metrics.DbMetrics;
 
+/**
+ * Provides the connection pools of the database: the primary datasource, which
+ * serves all writes, and optionally a number of named read-only replicas which
+ * are declared in the C3P0 properties file as follows:
+ *
+ * <pre>
+ * replicas=replica1,replica2
+ * replica.replica1.c3p0.jdbcUrl=jdbc:mysql://replica1:3306/toxotisdb
+ * replica.replica2.c3p0.jdbcUrl=jdbc:mysql://replica2:3306/toxotisdb
+ * replica.pinMillis=2000
+ * replica.maxLagSeconds=5
+ * replica.lagCheckMillis=1000
+ * </pre>
+ *
+ * <p>A replica is configured by the same properties as the primary, overridden
+ * by the ones prefixed with <code>replica.&lt;name&gt;.</code>. Reads that ask
+ * for {@link #getReadDataSource()} are spread over the replicas that are in
+ * sync and fall back to the primary if there are none, if every replica lags
+ * more than <code>replica.maxLagSeconds</code> behind the primary (a negative
+ * value disables the check), or if the current thread wrote to the database in
+ * the last <code>replica.pinMillis</code> milliseconds (see {@link #pin()}), so
+ * that a client always reads its own writes.</p>
+ */
 public class DataSourceFactory {
 
+    /**
+     * Name of the primary datasource.
+     */
+    public static final String PRIMARY = "primary";
+    private static final String REPLICAS_PROPERTY = "replicas";
+    private static final String REPLICA_PREFIX = "replica.";
     protected static final String slash = "/";
     protected static final String qmark = "?";
     protected static final String colon = ":";
@@ -53,6 +94,12 @@ public class DataSourceFactory {
     private final org.slf4j.Logger logger;
     private static final long serialVersionUID = -5768L;
     protected volatile IDataSourceC3P0 datasource;
+    private volatile List<Replica> replicas;
+    private final AtomicInteger nextReplica = new AtomicInteger();
+    private final ThreadLocal<Long> lastWrite = new ThreadLocal<Long>();
+    private volatile long pinMillis;
+    private volatile long maxLagSeconds;
+    private volatile long lagCheckMillis;
 
     private DataSourceFactory() {
         this.logger = org.slf4j.LoggerFactory.getLogger(DataSourceFactory.class);
@@ -85,8 +132,170 @@ public class DataSourceFactory {
         }
     }
 
+    /**
+     * Datasource of the primary or of a replica.
+     *
+     * @param name
+     *      {@link #PRIMARY} or the name of a replica.
+     * @return
+     *      The datasource or <code>null</code> if there is no such replica.
+     * @throws DbException
+     *      In case the datasource cannot be set up.
+     */
+    public DataSource getDataSource(String name) throws DbException {
+        if (PRIMARY.equals(name)) {
+            return getDataSource();
+        }
+        for (Replica replica : getReplicas()) {
+            if (replica.getName().equals(name)) {
+                return replica.getDatasource();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Names of the available datasources, the primary first.
+     * @return
+     *      Datasource names.
+     * @throws DbException
+     *      In case the replicas cannot be set up.
+     */
+    public Set<String> getDataSourceNames() throws DbException {
+        Set<String> names = new LinkedHashSet<String>();
+        names.add(PRIMARY);
+        for (Replica replica : getReplicas()) {
+            names.add(replica.getName());
+        }
+        return names;
+    }
+
+    /**
+     * Datasource for read-only operations: a replica which is in sync with the
+     * primary, chosen round-robin, or the primary if there is no such replica or
+     * the current thread is {@link #isPinned() pinned} to the primary.
+     *
+     * @return
+     *      A datasource to read from.
+     * @throws DbException
+     *      In case the datasource cannot be set up.
+     */
+    public DataSource getReadDataSource() throws DbException {
+        List<Replica> available = getReplicas();
+        if (available.isEmpty() || isPinned()) {
+            return getDataSource();
+        }
+        int size = available.size();
+        int start = (nextReplica.getAndIncrement() & Integer.MAX_VALUE) % size;
+        for (int i = 0; i < size; i++) {
+            Replica replica = available.get((start + i) % size);
+            if (replica.isInSync(maxLagSeconds, lagCheckMillis)) {
+                return replica.getDatasource();
+            }
+        }
+        return getDataSource();
+    }
+
+    /**
+     * Records that the current thread has written to the primary, so that its
+     * reads are served by the primary for the configured pinning window.
+     */
+    public void pin() {
+        lastWrite.set(System.currentTimeMillis());
+    }
+
+    /**
+     * Whether the reads of the current thread are pinned to the primary
+     * because it wrote to the database recently.
+     * @return
+     *      <code>true</code> if reads of this thread go to the primary.
+     */
+    public boolean isPinned() {
+        Long writtenAt = lastWrite.get();
+        if (writtenAt == null) {
+            return false;
+        }
+        if (System.currentTimeMillis() - writtenAt < pinMillis) {
+            return true;
+        }
+        lastWrite.remove();
+        return false;
+    }
+
+    private List<Replica> getReplicas() throws DbException {
+        List<Replica> result = replicas;
+        if (result == null) {
+            synchronized (this) {
+                result = replicas;
+                if (result == null) {
+                    result = setupReplicas();
+                    replicas = result;
+                }
+            }
+        }
+        return result;
+    }
+
+    private List<Replica> setupReplicas() throws DbException {
+        Properties properties = DbConfiguration.getInstance().getProperpties();
+        if (properties == null) {
+            return Collections.emptyList();
+        }
+        pinMillis = Long.valueOf(properties.getProperty(REPLICA_PREFIX + "pinMillis", "2000"));
+        maxLagSeconds = Long.valueOf(properties.getProperty(REPLICA_PREFIX + "maxLagSeconds", "5"));
+        lagCheckMillis = Long.valueOf(properties.getProperty(REPLICA_PREFIX + "lagCheckMillis", "1000"));
+        String names = properties.getProperty(REPLICAS_PROPERTY, "").trim();
+        if (names.length() == 0) {
+            return Collections.emptyList();
+        }
+        Map<String, Replica> created = new LinkedHashMap<String, Replica>();
+        try {
+            for (String name : names.split(",")) {
+                name = name.trim();
+                if (name.length() == 0 || PRIMARY.equals(name) || created.containsKey(name)) {
+                    continue;
+                }
+                Properties replicaProperties = new Properties();
+                replicaProperties.putAll(properties);
+                String prefix = REPLICA_PREFIX + name + ".";
+                for (String key : properties.stringPropertyNames()) {
+                    if (key.startsWith(prefix)) {
+                        replicaProperties.setProperty(key.substring(prefix.length()), properties.getProperty(key));
+                    }
+                }
+                created.put(name, new Replica(name, new DataSourceC3P0(replicaProperties)));
+                logger.info("Read replica '" + name + "' at " + replicaProperties.getProperty("c3p0.jdbcUrl"));
+            }
+        } catch (final DbException ex) {
+            for (Replica replica : created.values()) {
+                closeQuietly(replica);
+            }
+            final String msg = "Replica datasources could not be set up";
+            logger.warn(msg, ex);
+            throw new DbException(msg, ex);
+        }
+        return Collections.unmodifiableList(new ArrayList<Replica>(created.values()));
+    }
+
+    private void closeQuietly(Replica replica) {
+        try {
+            replica.getDataSourceC3P0().close();
+        } catch (final Exception ex) {
+            logger.warn("Replica '" + replica.getName() + "' cannot close", ex);
+        }
+    }
+
     public void close() throws DbException {
         System.out.println("[Shuting Down the Connection Pool]");
+        synchronized (this) {
+            List<Replica> open = replicas;
+            replicas = null;
+            if (open != null) {
+                for (Replica replica : open) {
+                    closeQuietly(replica);
+                }
+            }
+        }
         if (datasource != null) {
             try {
                 /*
@@ -116,13 +325,17 @@ public class DataSourceFactory {
     }
 
     public Connection getConnection() throws DbException {
+        DbMetrics metrics = DbMetrics.getInstance();
+        long start = metrics.isEnabled() ? System.nanoTime() : 0;
         try {
             Connection connection = getDataSource().getConnection();
             if (connection.isClosed()) {
-                return getDataSource().getConnection();
-            } else {
-                return connection;
+                connection = getDataSource().getConnection();
             }
+            if (start != 0) {
+                metrics.recordConnectionWait(System.nanoTime() - start);
+            }
+            return connection;
         } catch (final SQLException sqlEx) {
             final String msg = "Connection could not be retrieved from the pool";
             logger.warn(msg, sqlEx);
@@ -130,6 +343,37 @@ public class DataSourceFactory {
         }
     }
 
+    /**
+     * A connection to the primary which does not come from the pool, for state
+     * bound to the database session (such as named locks) that must not survive
+     * the connection: closing it closes the physical connection. Configured by
+     * the same properties as the pool: <code>c3p0.jdbcUrl</code> and the
+     * credentials in <code>user</code> and <code>password</code> (or else in
+     * <code>c3p0.user</code> and <code>c3p0.password</code>).
+     *
+     * @return
+     *      A new connection to the primary; the caller must close it.
+     * @throws DbException
+     *      In case the connection cannot be established.
+     */
+    public Connection getUnpooledConnection() throws DbException {
+        Properties properties = DbConfiguration.getInstance().getProperpties();
+        try {
+            Class.forName("com.mysql.jdbc.Driver");
+            return DriverManager.getConnection(properties.getProperty("c3p0.jdbcUrl"),
+                    properties.getProperty("user", properties.getProperty("c3p0.user")),
+                    properties.getProperty("password", properties.getProperty("c3p0.password")));
+        } catch (final ClassNotFoundException ex) {
+            final String msg = "Driver com.mysql.jdbc.Driver not found";
+            logger.error(msg, ex);
+            throw new DbException(msg, ex);
+        } catch (final SQLException ex) {
+            final String msg = "Unpooled connection to the database could not be established";
+            logger.warn(msg, ex);
+            throw new DbException(msg, ex);
+        }
+    }
+
     public synchronized IDataSourceC3P0 setupDataSource() throws DbException {
         try {
             IDataSourceC3P0 dataSource = new DataSourceC3P0();
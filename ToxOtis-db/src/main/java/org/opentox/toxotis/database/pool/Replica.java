@@ -0,0 +1,155 @@
+/*
+ *
+ * ToxOtis
+ *
+ * ToxOtis is the Greek word for Sagittarius, that actually means ‘archer’. ToxOtis
+ * is a Java interface to the predictive toxicology services of OpenTox. ToxOtis is
+ * being developed to help both those who need a painless way to consume OpenTox
+ * services and for ambitious service providers that don’t want to spend half of
+ * their time in RDF parsing and creation.
+ *
+ * Copyright (C) 2009-2010 Pantelis Sopasakis & Charalampos Chomenides
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Contact:
+ * Pantelis Sopasakis
+ * chvng@mail.ntua.gr
+ * Address: Iroon Politechniou St. 9, Zografou, Athens Greece
+ * tel. +30 210 7723236
+ *
+ */
+package org.opentox.toxotis.database.pool;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.atomic.AtomicBoolean;
+import javax.sql.DataSource;
+
+/**
+ * A read-only replica of the database together with its replication state.
+ * The lag of the replica is checked at most once per check interval (by one
+ * thread; the others use the last known state) and a replica that lags more
+ * than allowed, or whose state cannot be determined, is reported as out of
+ * sync until the next check.
+ *
+ * @author Pantelis Sopasakis
+ * @author Charalampos Chomenides
+ */
+class Replica {
+
+    private static final String SQL_STATUS = "SHOW SLAVE STATUS";
+    private static final String LAG_COLUMN = "Seconds_Behind_Master";
+    private final String name;
+    private final IDataSourceC3P0 datasource;
+    private final AtomicBoolean checking = new AtomicBoolean(false);
+    private volatile boolean inSync = true;
+    private volatile long checkedAt = 0;
+    private org.slf4j.Logger logger = org.slf4j.LoggerFactory.getLogger(Replica.class);
+
+    Replica(String name, IDataSourceC3P0 datasource) {
+        this.name = name;
+        this.datasource = datasource;
+    }
+
+    String getName() {
+        return name;
+    }
+
+    IDataSourceC3P0 getDataSourceC3P0() {
+        return datasource;
+    }
+
+    DataSource getDatasource() {
+        return datasource.getDatasource();
+    }
+
+    /**
+     * Whether the replica is in sync with the primary.
+     *
+     * @param maxLagSeconds
+     *      Maximum acceptable replication lag in seconds. If negative the lag
+     *      is not checked and the replica is always considered in sync.
+     * @param checkIntervalMillis
+     *      Minimum time between two checks of the replication lag.
+     * @return
+     *      <code>true</code> if the replica can serve reads.
+     */
+    boolean isInSync(long maxLagSeconds, long checkIntervalMillis) {
+        if (maxLagSeconds < 0) {
+            return true;
+        }
+        if (System.currentTimeMillis() - checkedAt >= checkIntervalMillis && checking.compareAndSet(false, true)) {
+            try {
+                boolean wasInSync = inSync;
+                inSync = checkLag(maxLagSeconds);
+                checkedAt = System.currentTimeMillis();
+                if (wasInSync != inSync) {
+                    logger.info("Replica '" + name + "' is " + (inSync ? "back in sync" : "out of sync, reads fall back to the primary"));
+                }
+            } finally {
+                checking.set(false);
+            }
+        }
+        return inSync;
+    }
+
+    /*
+     * A server that is not configured as a slave (empty status) is not behind
+     * anything and is considered in sync; a stopped replication thread is
+     * reported with a NULL lag.
+     */
+    private boolean checkLag(long maxLagSeconds) {
+        Connection connection = null;
+        Statement statement = null;
+        ResultSet rs = null;
+        try {
+            connection = getDatasource().getConnection();
+            statement = connection.createStatement();
+            rs = statement.executeQuery(SQL_STATUS);
+            if (!rs.next()) {
+                return true;
+            }
+            long lag = rs.getLong(LAG_COLUMN);
+            return !rs.wasNull() && lag <= maxLagSeconds;
+        } catch (final SQLException ex) {
+            logger.warn("Replication status of replica '" + name + "' cannot be retrieved", ex);
+            return false;
+        } finally {
+            if (rs != null) {
+                try {
+                    rs.close();
+                } catch (final SQLException ex) {
+                    logger.warn("Result set could not be closed", ex);
+                }
+            }
+            if (statement != null) {
+                try {
+                    statement.close();
+                } catch (final SQLException ex) {
+                    logger.warn("Statement could not be closed", ex);
+                }
+            }
+            if (connection != null) {
+                try {
+                    connection.close();
+                } catch (final SQLException ex) {
+                    logger.warn("Connection could not be closed", ex);
+                }
+            }
+        }
+    }
+}
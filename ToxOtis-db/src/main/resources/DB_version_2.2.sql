@@ -1,5 +1,5 @@
 -- 
--- DATABASE VERSION : 2.2.5
+-- DATABASE VERSION : 2.2.7
 --
 DROP DATABASE IF EXISTS `toxotisdb2`;
 CREATE DATABASE `toxotisdb2` DEFAULT CHARACTER SET utf8 COLLATE utf8_bin;
@@ -14,14 +14,14 @@ CREATE TABLE `Version` (
  `Third` int(11) NOT NULL
 ) ENGINE=MyISAM DEFAULT CHARSET=utf8 COLLATE=utf8_bin;
 LOCK TABLE `Version` WRITE;
-INSERT INTO `Version` (`First`,`Second`,`Third`) VALUES (2,2,5); 
+INSERT INTO `Version` (`First`,`Second`,`Third`) VALUES (2,2,7); 
 UNLOCK TABLE ;
 --
 -- Meta Information (Serialized)
 --
 DROP TABLE IF EXISTS `MetaInfo`;
 CREATE TABLE `MetaInfo` (
- `id` int(11) NOT NULL COMMENT 'HASH Key of MetaInfo obect',
+ `id` binary(16) NOT NULL COMMENT 'Digest of the (canonical) encoded MetaInfo',
  `meta` blob COMMENT 'Actual Data',
   PRIMARY KEY (`id`)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8 COLLATE=utf8_bin;
@@ -34,7 +34,7 @@ CREATE TABLE `OTComponent` (
       COMMENT 'This is a UUID identifying the component, not a URI',
   `enabled` tinyint(1) NOT NULL DEFAULT '1' 
       COMMENT 'You can virtually "delete" a component without removing it',
-  `meta` int(11) COMMENT 'FK to Meta (Hashing)',
+  `meta` binary(16) COMMENT 'FK to Meta (Digest)',
   `created` timestamp NOT NULL DEFAULT CURRENT_TIMESTAMP 
       COMMENT 'Creation timestamp',
   `deletionDate` timestamp NOT NULL DEFAULT '0000-00-00 00:00:00' 
@@ -404,6 +404,17 @@ CREATE TABLE `DatasetFeatures` (
   CONSTRAINT `featureId_REF2` FOREIGN KEY (`featureId`) REFERENCES `JFeature` (`id`)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8 COLLATE=utf8_bin;
 --
+-- Maintained counts of enabled components per type, for all users (empty
+-- owner) and per user
+--
+DROP TABLE IF EXISTS `ComponentCount`;
+CREATE TABLE `ComponentCount` (
+  `type` varchar(16) COLLATE utf8_bin NOT NULL COMMENT 'Model, Task, BibTeX or ErrorReport',
+  `owner` varchar(255) COLLATE utf8_bin NOT NULL DEFAULT '' COMMENT 'Creator (empty for all users)',
+  `enabled` bigint(20) NOT NULL DEFAULT 0 COMMENT 'Number of enabled components',
+  PRIMARY KEY (`type`,`owner`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8 COLLATE=utf8_bin;
+--
 -- Some Triggers...
 --
 DELIMITER $$
@@ -463,4 +474,22 @@ INSERT INTO JFeature (id,units,type) VALUES
 ('regDate','','String'),
 ('mw','g/mol','Numeric'),
 ('iupacName','','String');
-UNLOCK TABLE ;
\ No newline at end of file
+UNLOCK TABLE ;
+--
+-- Initialization of the counters of components
+--
+INSERT INTO `ComponentCount` (`type`,`owner`,`enabled`)
+SELECT 'Model', '', COUNT(*) FROM `Model` INNER JOIN `OTComponent` ON `OTComponent`.`id`=`Model`.`id`
+  WHERE `OTComponent`.`enabled`=true
+UNION ALL SELECT 'Model', `Model`.`createdBy`, COUNT(*) FROM `Model` INNER JOIN `OTComponent` ON `OTComponent`.`id`=`Model`.`id`
+  WHERE `OTComponent`.`enabled`=true AND `Model`.`createdBy` IS NOT NULL GROUP BY `Model`.`createdBy`
+UNION ALL SELECT 'Task', '', COUNT(*) FROM `Task` INNER JOIN `OTComponent` ON `OTComponent`.`id`=`Task`.`id`
+  WHERE `OTComponent`.`enabled`=true
+UNION ALL SELECT 'Task', `Task`.`createdBy`, COUNT(*) FROM `Task` INNER JOIN `OTComponent` ON `OTComponent`.`id`=`Task`.`id`
+  WHERE `OTComponent`.`enabled`=true AND `Task`.`createdBy` IS NOT NULL GROUP BY `Task`.`createdBy`
+UNION ALL SELECT 'BibTeX', '', COUNT(*) FROM `BibTeX` INNER JOIN `OTComponent` ON `OTComponent`.`id`=`BibTeX`.`id`
+  WHERE `OTComponent`.`enabled`=true
+UNION ALL SELECT 'BibTeX', `BibTeX`.`createdBy`, COUNT(*) FROM `BibTeX` INNER JOIN `OTComponent` ON `OTComponent`.`id`=`BibTeX`.`id`
+  WHERE `OTComponent`.`enabled`=true AND `BibTeX`.`createdBy` IS NOT NULL GROUP BY `BibTeX`.`createdBy`
+UNION ALL SELECT 'ErrorReport', '', COUNT(*) FROM `ErrorReport` INNER JOIN `OTComponent` ON `OTComponent`.`id`=`ErrorReport`.`id`
+  WHERE `OTComponent`.`enabled`=true;
\ No newline at end of file
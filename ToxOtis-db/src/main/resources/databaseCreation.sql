@@ -21,7 +21,7 @@ UNLOCK TABLE ;
 --
 DROP TABLE IF EXISTS `MetaInfo`;
 CREATE TABLE `MetaInfo` (
- `id` int(11) NOT NULL COMMENT 'HASH Key of MetaInfo obect',
+ `id` binary(16) NOT NULL COMMENT 'Digest of the (canonical) encoded MetaInfo',
  `meta` blob COMMENT 'Actual Data',
   PRIMARY KEY (`id`)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8 COLLATE=utf8_bin;
@@ -34,7 +34,7 @@ CREATE TABLE `OTComponent` (
       COMMENT 'This is a UUID identifying the component, not a URI',
   `enabled` tinyint(1) NOT NULL DEFAULT '1' 
       COMMENT 'You can virtually "delete" a component without removing it',
-  `meta` int(11) COMMENT 'FK to Meta (Hashing)',
+  `meta` binary(16) COMMENT 'FK to Meta (Digest)',
   `created` timestamp NOT NULL DEFAULT CURRENT_TIMESTAMP 
       COMMENT 'Creation timestamp',
   `deletionDate` timestamp NOT NULL DEFAULT '0000-00-00 00:00:00' 
@@ -403,6 +403,17 @@ CREATE TABLE `DatasetFeatures` (
   CONSTRAINT `featureId_REF2` FOREIGN KEY (`featureId`) REFERENCES `JFeature` (`id`)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8 COLLATE=utf8_bin;
 --
+-- Maintained counts of enabled components per type, for all users (empty
+-- owner) and per user
+--
+DROP TABLE IF EXISTS `ComponentCount`;
+CREATE TABLE `ComponentCount` (
+  `type` varchar(16) COLLATE utf8_bin NOT NULL COMMENT 'Model, Task, BibTeX or ErrorReport',
+  `owner` varchar(255) COLLATE utf8_bin NOT NULL DEFAULT '' COMMENT 'Creator (empty for all users)',
+  `enabled` bigint(20) NOT NULL DEFAULT 0 COMMENT 'Number of enabled components',
+  PRIMARY KEY (`type`,`owner`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8 COLLATE=utf8_bin;
+--
 -- Some Triggers...
 --
 DELIMITER $$
@@ -451,3 +462,21 @@ INSERT INTO `BibTeX`
    'A fast training algorithm for RBF networks based on subtractive clustering',
    'http://dx.doi.org/10.1016/S0925-2312(03)00342-4' ,51,2003,'guest@opensso.in-silico.ch');
 UNLOCK TABLE ;
+--
+-- Initialization of the counters of components
+--
+INSERT INTO `ComponentCount` (`type`,`owner`,`enabled`)
+SELECT 'Model', '', COUNT(*) FROM `Model` INNER JOIN `OTComponent` ON `OTComponent`.`id`=`Model`.`id`
+  WHERE `OTComponent`.`enabled`=true
+UNION ALL SELECT 'Model', `Model`.`createdBy`, COUNT(*) FROM `Model` INNER JOIN `OTComponent` ON `OTComponent`.`id`=`Model`.`id`
+  WHERE `OTComponent`.`enabled`=true AND `Model`.`createdBy` IS NOT NULL GROUP BY `Model`.`createdBy`
+UNION ALL SELECT 'Task', '', COUNT(*) FROM `Task` INNER JOIN `OTComponent` ON `OTComponent`.`id`=`Task`.`id`
+  WHERE `OTComponent`.`enabled`=true
+UNION ALL SELECT 'Task', `Task`.`createdBy`, COUNT(*) FROM `Task` INNER JOIN `OTComponent` ON `OTComponent`.`id`=`Task`.`id`
+  WHERE `OTComponent`.`enabled`=true AND `Task`.`createdBy` IS NOT NULL GROUP BY `Task`.`createdBy`
+UNION ALL SELECT 'BibTeX', '', COUNT(*) FROM `BibTeX` INNER JOIN `OTComponent` ON `OTComponent`.`id`=`BibTeX`.`id`
+  WHERE `OTComponent`.`enabled`=true
+UNION ALL SELECT 'BibTeX', `BibTeX`.`createdBy`, COUNT(*) FROM `BibTeX` INNER JOIN `OTComponent` ON `OTComponent`.`id`=`BibTeX`.`id`
+  WHERE `OTComponent`.`enabled`=true AND `BibTeX`.`createdBy` IS NOT NULL GROUP BY `BibTeX`.`createdBy`
+UNION ALL SELECT 'ErrorReport', '', COUNT(*) FROM `ErrorReport` INNER JOIN `OTComponent` ON `OTComponent`.`id`=`ErrorReport`.`id`
+  WHERE `OTComponent`.`enabled`=true;
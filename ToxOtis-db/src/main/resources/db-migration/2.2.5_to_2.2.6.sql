@@ -0,0 +1,16 @@
+--
+-- MetaInfo entries are keyed by a 128-bit digest of their encoding rather
+-- than by MetaInfo#hashCode(). Existing integer keys are kept as zero-padded
+-- 16-byte values (in both tables) so that the references remain valid; new
+-- entries will use the digest.
+--
+ALTER TABLE `OTComponent` DROP FOREIGN KEY `metainfoFK`;
+ALTER TABLE `MetaInfo` MODIFY `id` varbinary(16) NOT NULL;
+UPDATE `MetaInfo` SET `id`=UNHEX(LPAD(HEX(CAST(CAST(`id` AS CHAR) AS SIGNED) & 0xFFFFFFFF),32,'0'));
+ALTER TABLE `MetaInfo` MODIFY `id` binary(16) NOT NULL COMMENT 'Digest of the (canonical) encoded MetaInfo';
+ALTER TABLE `OTComponent` MODIFY `meta` varbinary(16);
+UPDATE `OTComponent` SET `meta`=UNHEX(LPAD(HEX(CAST(CAST(`meta` AS CHAR) AS SIGNED) & 0xFFFFFFFF),32,'0')) WHERE `meta` IS NOT NULL;
+ALTER TABLE `OTComponent` MODIFY `meta` binary(16) COMMENT 'FK to Meta (Digest)';
+ALTER TABLE `OTComponent` ADD CONSTRAINT `metainfoFK` FOREIGN KEY (`meta`) 
+    REFERENCES `MetaInfo` (`id`) ON DELETE CASCADE ON UPDATE CASCADE;
+UPDATE `Version` SET `First`=2, `Second`=2, `Third`=6;
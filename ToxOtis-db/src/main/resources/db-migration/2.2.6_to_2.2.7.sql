@@ -0,0 +1,28 @@
+--
+-- Counters of enabled components per type and user, maintained by the
+-- operations that add, enable, disable or delete components so that counting
+-- does not need COUNT(*) over the component tables. The counters start from
+-- the current state of the database.
+--
+CREATE TABLE `ComponentCount` (
+  `type` varchar(16) COLLATE utf8_bin NOT NULL COMMENT 'Model, Task, BibTeX or ErrorReport',
+  `owner` varchar(255) COLLATE utf8_bin NOT NULL DEFAULT '' COMMENT 'Creator (empty for all users)',
+  `enabled` bigint(20) NOT NULL DEFAULT 0 COMMENT 'Number of enabled components',
+  PRIMARY KEY (`type`,`owner`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8 COLLATE=utf8_bin;
+INSERT INTO `ComponentCount` (`type`,`owner`,`enabled`)
+SELECT 'Model', '', COUNT(*) FROM `Model` INNER JOIN `OTComponent` ON `OTComponent`.`id`=`Model`.`id`
+  WHERE `OTComponent`.`enabled`=true
+UNION ALL SELECT 'Model', `Model`.`createdBy`, COUNT(*) FROM `Model` INNER JOIN `OTComponent` ON `OTComponent`.`id`=`Model`.`id`
+  WHERE `OTComponent`.`enabled`=true AND `Model`.`createdBy` IS NOT NULL GROUP BY `Model`.`createdBy`
+UNION ALL SELECT 'Task', '', COUNT(*) FROM `Task` INNER JOIN `OTComponent` ON `OTComponent`.`id`=`Task`.`id`
+  WHERE `OTComponent`.`enabled`=true
+UNION ALL SELECT 'Task', `Task`.`createdBy`, COUNT(*) FROM `Task` INNER JOIN `OTComponent` ON `OTComponent`.`id`=`Task`.`id`
+  WHERE `OTComponent`.`enabled`=true AND `Task`.`createdBy` IS NOT NULL GROUP BY `Task`.`createdBy`
+UNION ALL SELECT 'BibTeX', '', COUNT(*) FROM `BibTeX` INNER JOIN `OTComponent` ON `OTComponent`.`id`=`BibTeX`.`id`
+  WHERE `OTComponent`.`enabled`=true
+UNION ALL SELECT 'BibTeX', `BibTeX`.`createdBy`, COUNT(*) FROM `BibTeX` INNER JOIN `OTComponent` ON `OTComponent`.`id`=`BibTeX`.`id`
+  WHERE `OTComponent`.`enabled`=true AND `BibTeX`.`createdBy` IS NOT NULL GROUP BY `BibTeX`.`createdBy`
+UNION ALL SELECT 'ErrorReport', '', COUNT(*) FROM `ErrorReport` INNER JOIN `OTComponent` ON `OTComponent`.`id`=`ErrorReport`.`id`
+  WHERE `OTComponent`.`enabled`=true;
+UPDATE `Version` SET `First`=2, `Second`=2, `Third`=7;
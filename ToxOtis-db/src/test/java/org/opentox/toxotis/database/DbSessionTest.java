@@ -0,0 +1,246 @@
+/*
+ *
+ * ToxOtis
+ *
+ * ToxOtis is the Greek word for Sagittarius, that actually means ‘archer’. ToxOtis
+ * is a Java interface to the predictive toxicology services of OpenTox. ToxOtis is
+ * being developed to help both those who need a painless way to consume OpenTox
+ * services and for ambitious service providers that don’t want to spend half of
+ * their time in RDF parsing and creation.
+ *
+ * Copyright (C) 2009-2010 Pantelis Sopasakis & Charalampos Chomenides
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Contact:
+ * Pantelis Sopasakis
+ * chvng@mail.ntua.gr
+ * Address: Iroon Politechniou St. 9, Zografou, Athens Greece
+ * tel. +30 210 7723236
+ *
+ */
+package org.opentox.toxotis.database;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.opentox.toxotis.client.collection.Services;
+import org.opentox.toxotis.core.component.Task;
+import org.opentox.toxotis.database.engine.metainfo.MetaInfoStore;
+import org.opentox.toxotis.database.engine.task.AddTask;
+import org.opentox.toxotis.database.engine.task.CountTasks;
+import org.opentox.toxotis.database.engine.task.FindTask;
+import org.opentox.toxotis.database.exception.DbException;
+import org.opentox.toxotis.database.metrics.DbMetrics;
+import org.opentox.toxotis.util.ROG;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author chung
+ */
+public class DbSessionTest {
+
+    private static final ROG __ROG = new ROG();
+
+    public DbSessionTest() {
+    }
+
+    @BeforeClass
+    public static void setUpClass() throws Exception {
+        org.opentox.toxotis.database.TestUtils.setUpDB();
+    }
+
+    @AfterClass
+    public static void tearDownClass() throws Exception {
+        org.opentox.toxotis.database.pool.DataSourceFactory.getInstance().close();
+    }
+
+    private boolean exists(String id) throws DbException {
+        FindTask finder = new FindTask(Services.anonymous(), false, false);
+        finder.setSearchById(id);
+        IDbIterator<Task> iterator = finder.list();
+        boolean found = iterator.hasNext();
+        iterator.close();
+        finder.close();
+        return found;
+    }
+
+    private long connectionId(DbOperation operation) throws DbException, SQLException {
+        PreparedStatement statement = operation.getConnection().prepareStatement("SELECT CONNECTION_ID()");
+        try {
+            ResultSet rs = statement.executeQuery();
+            assertTrue(rs.next());
+            long id = rs.getLong(1);
+            rs.close();
+            return id;
+        } finally {
+            statement.close();
+        }
+    }
+
+    private int busyConnections() throws InterruptedException {
+        /* Connections may be checked in to the pool asynchronously */
+        DbMetrics metrics = DbMetrics.getInstance();
+        int busy = metrics.getBusyConnections();
+        for (int i = 0; i < 20 && busy > 0; i++) {
+            Thread.sleep(100);
+            busy = metrics.getBusyConnections();
+        }
+        return busy;
+    }
+
+    @Test
+    public void testBindAndUnbind() throws DbException {
+        assertNull(DbSession.current());
+        DbSession outer = DbSession.open().bind();
+        DbSession inner = DbSession.openReadOnly().bind();
+        assertSame(inner, DbSession.current());
+        inner.close();
+        assertSame(outer, DbSession.current());
+        outer.close();
+        assertNull(DbSession.current());
+        assertTrue(outer.isClosed());
+    }
+
+    @Test
+    public void testOperationsShareConnection() throws DbException {
+        DbSession session = DbSession.open().bind();
+        try {
+            CountTasks first = new CountTasks();
+            first.count();
+            first.close();
+            CountTasks second = new CountTasks();
+            second.count();
+            assertFalse(second.getConnection().isClosed());
+            assertEquals(connectionId(first), connectionId(second));
+            second.close();
+        } finally {
+            session.close();
+        }
+    }
+
+    @Test
+    public void testNestedSessionsReleased() throws Exception {
+        String[] ids = new String[3];
+        for (int i = 0; i < ids.length; i++) {
+            Task task = __ROG.nextTask(3);
+            AddTask adder = new AddTask(task);
+            adder.write();
+            adder.close();
+            ids[i] = task.getUri().getId();
+        }
+
+        /* Exhausted iterator, never closed */
+        FindTask finder = new FindTask(Services.anonymous(), true, false);
+        finder.setWhere("Task.id IN (?,?,?)", (Object[]) ids);
+        IDbIterator<Task> iterator = finder.list();
+        int count = 0;
+        while (iterator.hasNext()) {
+            Task found = iterator.next();
+            assertNotNull(found.getErrorReport());
+            assertNotNull(found.getErrorReport().getErrorCause());
+            count++;
+        }
+        assertEquals(ids.length, count);
+        finder.close();
+        assertEquals(0, busyConnections());
+
+        /* Iterator closed before it is exhausted */
+        finder = new FindTask(Services.anonymous(), true, false);
+        finder.setWhere("Task.id IN (?,?,?)", (Object[]) ids);
+        iterator = finder.list();
+        assertTrue(iterator.hasNext());
+        assertNotNull(iterator.next().getErrorReport().getErrorCause());
+        iterator.close();
+        finder.close();
+        assertEquals(0, busyConnections());
+    }
+
+    @Test(expected = DbException.class)
+    public void testWriteInReadOnlySession() throws DbException {
+        DbSession session = DbSession.openReadOnly();
+        try {
+            AddTask adder = new AddTask(__ROG.nextTask(1));
+            adder.setSession(session);
+            adder.write();
+        } finally {
+            session.close();
+        }
+    }
+
+    @Test
+    public void testCommit() throws DbException {
+        Task task = __ROG.nextTask(1);
+        DbSession session = DbSession.open().bind();
+        try {
+            session.begin();
+            AddTask adder = new AddTask(task);
+            adder.write();
+            adder.close();
+            assertTrue(session.isTransactionActive());
+            session.commit();
+        } finally {
+            session.close();
+        }
+        assertTrue(exists(task.getUri().getId()));
+    }
+
+    @Test
+    public void testRollback() throws DbException {
+        Task task = __ROG.nextTask(1);
+        DbSession session = DbSession.open().bind();
+        try {
+            session.begin();
+            AddTask adder = new AddTask(task);
+            adder.write();
+            adder.close();
+            session.rollback();
+            assertFalse(session.isTransactionActive());
+        } finally {
+            session.close();
+        }
+        assertFalse(exists(task.getUri().getId()));
+    }
+
+    @Test
+    public void testMetaInfoRememberedOnCommit() throws DbException {
+        MetaInfoStore store = MetaInfoStore.getInstance();
+        store.clear();
+        Task committed = __ROG.nextTask(1);
+        Task rolledBack = __ROG.nextTask(1);
+        DbSession session = DbSession.open().bind();
+        try {
+            session.begin();
+            AddTask adder = new AddTask(committed);
+            adder.write();
+            adder.close();
+            assertFalse(store.lookup(committed.getMeta()).isStored());
+            session.commit();
+            assertTrue(store.lookup(committed.getMeta()).isStored());
+
+            session.begin();
+            adder = new AddTask(rolledBack);
+            adder.write();
+            adder.close();
+            session.rollback();
+            assertFalse(store.lookup(rolledBack.getMeta()).isStored());
+        } finally {
+            session.close();
+        }
+    }
+}
@@ -0,0 +1,107 @@
+/*
+ *
+ * ToxOtis
+ *
+ * ToxOtis is the Greek word for Sagittarius, that actually means ‘archer’. ToxOtis
+ * is a Java interface to the predictive toxicology services of OpenTox. ToxOtis is
+ * being developed to help both those who need a painless way to consume OpenTox
+ * services and for ambitious service providers that don’t want to spend half of
+ * their time in RDF parsing and creation.
+ *
+ * Copyright (C) 2009-2010 Pantelis Sopasakis & Charalampos Chomenides
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Contact:
+ * Pantelis Sopasakis
+ * chvng@mail.ntua.gr
+ * Address: Iroon Politechniou St. 9, Zografou, Athens Greece
+ * tel. +30 210 7723236
+ *
+ */
+package org.opentox.toxotis.database.engine;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.opentox.toxotis.client.collection.Services;
+import org.opentox.toxotis.core.component.Task;
+import org.opentox.toxotis.database.IDbIterator;
+import org.opentox.toxotis.database.engine.task.AddTask;
+import org.opentox.toxotis.database.engine.task.FindTask;
+import org.opentox.toxotis.database.pool.DataSourceFactory;
+import org.opentox.toxotis.util.ROG;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author chung
+ */
+public class DeleteOldComponentsTest {
+
+    private static final ROG __ROG = new ROG();
+
+    public DeleteOldComponentsTest() {
+    }
+
+    @BeforeClass
+    public static void setUpClass() throws Exception {
+        org.opentox.toxotis.database.TestUtils.setUpDB();
+    }
+
+    @AfterClass
+    public static void tearDownClass() throws Exception {
+        DataSourceFactory.getInstance().close();
+    }
+
+    @Test
+    public void testPurgeInChunks() throws Exception {
+        String[] ids = new String[5];
+        for (int i = 0; i < ids.length; i++) {
+            Task task = __ROG.nextTask(1);
+            AddTask adder = new AddTask(task);
+            adder.write();
+            adder.close();
+            ids[i] = task.getUri().getId();
+        }
+        DisableComponent disabler = new DisableComponent(ids);
+        assertEquals(ids.length, disabler.disable());
+
+        DeleteOldComponents purge = new DeleteOldComponents();
+        purge.setDays(-1);
+        purge.setChunkSize(2);
+        int deleted = purge.delete();
+        assertTrue(deleted >= ids.length);
+        assertEquals(deleted, purge.getDeleted().get("OTComponent").intValue());
+        assertTrue(purge.getDeleted().get("Task") >= ids.length);
+        assertTrue(purge.getChunks() >= 3);
+
+        for (String id : ids) {
+            FindTask finder = new FindTask(Services.anonymous(), false, false);
+            finder.setSearchById(id);
+            IDbIterator<Task> iterator = finder.list();
+            assertFalse(iterator.hasNext());
+            iterator.close();
+            finder.close();
+        }
+    }
+
+    @Test
+    public void testNothingToPurge() throws Exception {
+        DeleteOldComponents purge = new DeleteOldComponents();
+        purge.setDays(36500);
+        assertEquals(0, purge.delete());
+        assertEquals(0, purge.getChunks());
+    }
+}
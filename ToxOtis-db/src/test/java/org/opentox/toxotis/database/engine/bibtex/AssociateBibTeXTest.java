@@ -86,6 +86,8 @@ public class AssociateBibTeXTest {
         } else {
             return;
         }
+        bibIt.close();
+        listBib.close();
 
         AssociateBibTeX bibTeXAssciator = new AssociateBibTeX(modelID,
                 Services.ntua().augment("bibtex", bibID).toString());
@@ -104,5 +106,7 @@ public class AssociateBibTeXTest {
                 assertNotNull(bibtexUri);
             }
         }
+        modelList.close();
+        finder.close();
     }
 }
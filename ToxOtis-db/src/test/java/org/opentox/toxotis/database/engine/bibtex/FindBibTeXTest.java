@@ -93,6 +93,8 @@ public class FindBibTeXTest {
         finder.setSearchById(bibtex.getUri().getId());
         IDbIterator<BibTeX> iterator = finder.list();
         assertTrue(iterator.hasNext());
+        iterator.close();
+        finder.close();
     }
 
     @Test
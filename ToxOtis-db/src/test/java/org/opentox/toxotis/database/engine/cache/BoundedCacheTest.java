@@ -0,0 +1,144 @@
+/*
+ *
+ * ToxOtis
+ *
+ * ToxOtis is the Greek word for Sagittarius, that actually means ‘archer’. ToxOtis
+ * is a Java interface to the predictive toxicology services of OpenTox. ToxOtis is
+ * being developed to help both those who need a painless way to consume OpenTox
+ * services and for ambitious service providers that don’t want to spend half of
+ * their time in RDF parsing and creation.
+ *
+ * Copyright (C) 2009-2010 Pantelis Sopasakis & Charalampos Chomenides
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Contact:
+ * Pantelis Sopasakis
+ * chvng@mail.ntua.gr
+ * Address: Iroon Politechniou St. 9, Zografou, Athens Greece
+ * tel. +30 210 7723236
+ *
+ */
+package org.opentox.toxotis.database.engine.cache;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author chung
+ */
+public class BoundedCacheTest {
+
+    public BoundedCacheTest() {
+    }
+
+    @Test
+    public void testCaching() {
+        BoundedCache<String, String> cache = new BoundedCache<String, String>(100, 0);
+        assertTrue(cache.isEmpty());
+        cache.put("a", "b");
+        assertFalse(cache.isEmpty());
+        assertEquals("b", cache.get("a"));
+        cache.put("a", "c");
+        assertEquals("c", cache.get("a"));
+        assertEquals(1, cache.size());
+        assertNull(cache.get("notFound"));
+        cache.put(null, "x");
+        assertEquals("x", cache.get(null));
+        cache.remove("a");
+        assertNull(cache.get("a"));
+        assertEquals(3L, cache.getHits());
+        assertEquals(2L, cache.getMisses());
+        cache.clear();
+        assertTrue(cache.isEmpty());
+    }
+
+    @Test
+    public void testSizeBound() {
+        BoundedCache<Integer, Integer> cache = new BoundedCache<Integer, Integer>(10, 0, 1, null);
+        for (int i = 0; i < 10; i++) {
+            cache.put(i, i);
+        }
+        cache.get(0); // 0 is now the most recently used
+        cache.put(10, 10);
+        assertEquals(10, cache.size());
+        assertEquals(1L, cache.getEvictions());
+        assertNotNull(cache.get(0));
+        assertNull(cache.get(1));
+    }
+
+    @Test
+    public void testWeightBound() {
+        BoundedCache<String, String> cache = new BoundedCache<String, String>(10, 0, 1,
+                new BoundedCache.Weigher<String, String>() {
+
+                    @Override
+                    public long weigh(String key, String object) {
+                        return object.length();
+                    }
+                });
+        cache.put("a", "abcd");
+        cache.put("b", "abcd");
+        assertEquals(8L, cache.getWeight());
+        cache.put("c", "abcd");
+        assertEquals(8L, cache.getWeight());
+        assertNull(cache.get("a"));
+        cache.put("d", "this is too heavy to be cached");
+        assertNull(cache.get("d"));
+        assertTrue(cache.getWeight() <= 10);
+    }
+
+    @Test
+    public void testExpiration() throws InterruptedException {
+        BoundedCache<String, String> cache = new BoundedCache<String, String>(10, 50);
+        cache.put("a", "b");
+        assertEquals("b", cache.get("a"));
+        Thread.sleep(100);
+        assertNull(cache.get("a"));
+        assertEquals(1L, cache.getExpirations());
+        assertTrue(cache.isEmpty());
+    }
+
+    @Test
+    public void testConcurrentAccess() throws InterruptedException {
+        final BoundedCache<Integer, Integer> cache = new BoundedCache<Integer, Integer>(1000, 0);
+        final AtomicBoolean failed = new AtomicBoolean(false);
+        ExecutorService es = Executors.newFixedThreadPool(8);
+        for (int t = 0; t < 8; t++) {
+            final int offset = t * 10000;
+            es.submit(new Runnable() {
+
+                @Override
+                public void run() {
+                    for (int i = 0; i < 10000; i++) {
+                        cache.put(offset + i, i);
+                        Integer found = cache.get(offset + i);
+                        if (found != null && found != i) {
+                            failed.set(true);
+                        }
+                    }
+                }
+            });
+        }
+        es.shutdown();
+        assertTrue(es.awaitTermination(1, TimeUnit.MINUTES));
+        assertFalse(failed.get());
+        assertTrue(cache.size() <= 1000 + BoundedCache.DEFAULT_CONCURRENCY_LEVEL);
+    }
+}
@@ -0,0 +1,125 @@
+/*
+ *
+ * ToxOtis
+ *
+ * ToxOtis is the Greek word for Sagittarius, that actually means ‘archer’. ToxOtis
+ * is a Java interface to the predictive toxicology services of OpenTox. ToxOtis is
+ * being developed to help both those who need a painless way to consume OpenTox
+ * services and for ambitious service providers that don’t want to spend half of
+ * their time in RDF parsing and creation.
+ *
+ * Copyright (C) 2009-2010 Pantelis Sopasakis & Charalampos Chomenides
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Contact:
+ * Pantelis Sopasakis
+ * chvng@mail.ntua.gr
+ * Address: Iroon Politechniou St. 9, Zografou, Athens Greece
+ * tel. +30 210 7723236
+ *
+ */
+package org.opentox.toxotis.database.engine.counter;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.opentox.toxotis.core.component.Task;
+import org.opentox.toxotis.core.component.User;
+import org.opentox.toxotis.database.engine.DisableComponent;
+import org.opentox.toxotis.database.engine.task.AddTask;
+import org.opentox.toxotis.database.engine.task.CountTasks;
+import org.opentox.toxotis.database.pool.DataSourceFactory;
+import org.opentox.toxotis.util.ROG;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author chung
+ */
+public class ComponentCountersTest {
+
+    private static final ROG __ROG = new ROG();
+
+    public ComponentCountersTest() {
+    }
+
+    @BeforeClass
+    public static void setUpClass() throws Exception {
+        org.opentox.toxotis.database.TestUtils.setUpDB();
+        ComponentCounters.setEnabled(true);
+        new ReconcileCounters().reconcile();
+    }
+
+    @AfterClass
+    public static void tearDownClass() throws Exception {
+        ComponentCounters.setEnabled(false);
+        DataSourceFactory.getInstance().close();
+    }
+
+    /*
+     * Counts tasks either from the counters or with COUNT(*); counters are
+     * maintained by the writers in both cases.
+     */
+    private static int countTasks(String createdBy, boolean fromCounters) throws Exception {
+        ComponentCounters.setEnabled(fromCounters);
+        CountTasks counter = new CountTasks();
+        counter.setCreatedBy(createdBy);
+        try {
+            return counter.count();
+        } finally {
+            counter.close();
+            ComponentCounters.setEnabled(true);
+        }
+    }
+
+    private static void assertCounted(int expected, String createdBy) throws Exception {
+        assertEquals(expected, countTasks(createdBy, false));
+        assertEquals(expected, countTasks(createdBy, true));
+    }
+
+    @Test
+    public void testReconcile() throws Exception {
+        assertEquals(0, new ReconcileCounters().reconcile());
+        assertEquals(countTasks(null, false), countTasks(null, true));
+        assertEquals(countTasks(User.GUEST.getUid(), false), countTasks(User.GUEST.getUid(), true));
+    }
+
+    @Test
+    public void testAddEnableDisable() throws Exception {
+        String guest = User.GUEST.getUid();
+        int all = countTasks(null, false);
+        int guests = countTasks(guest, false);
+
+        Task task = __ROG.nextTask(1);
+        AddTask adder = new AddTask(task);
+        adder.write();
+        adder.close();
+        assertCounted(all + 1, null);
+        assertCounted(guests + 1, guest);
+
+        new DisableComponent(task.getUri().getId()).disable();
+        assertCounted(all, null);
+        assertCounted(guests, guest);
+
+        /* disabling again changes nothing */
+        new DisableComponent(task.getUri().getId()).disable();
+        assertCounted(all, null);
+
+        new DisableComponent(task.getUri().getId()).enable();
+        assertCounted(all + 1, null);
+        assertCounted(guests + 1, guest);
+        assertEquals(0, new ReconcileCounters().reconcile());
+    }
+}
@@ -36,6 +36,7 @@ package org.opentox.toxotis.database.engine.error;
 
 import org.opentox.toxotis.database.pool.DataSourceFactory;
 import java.sql.SQLException;
+import java.util.Arrays;
 import java.util.UUID;
 import org.junit.After;
 import org.junit.AfterClass;
@@ -44,6 +45,7 @@ import org.junit.BeforeClass;
 import org.junit.Test;
 import org.opentox.toxotis.client.collection.Services;
 import org.opentox.toxotis.core.component.ErrorReport;
+import org.opentox.toxotis.database.IDbIterator;
 import static org.junit.Assert.*;
 
 /**
@@ -82,4 +84,34 @@ public class ErrorReportBatchWriterTest {
         
     }
 
+    @Test
+    public void testCollectionWithSharedCause() throws Exception {
+        ErrorReport cause = new ErrorReport(500, "shared", "root cause", "details", "cause");
+        cause.setMeta(null);
+        ErrorReport first = new ErrorReport(502, "first", "first failure", "details", "first");
+        first.setMeta(null);
+        first.setErrorCause(cause);
+        ErrorReport second = new ErrorReport(502, "second", "second failure", "details", "second");
+        second.setMeta(null);
+        second.setErrorCause(cause);
+        ErrorReport third = new ErrorReport(400, "third", "third failure", "details", "third");
+        third.setMeta(null);
+        third.setErrorCause(second);
+
+        /* The shared cause and the report listed after its consequence are written once */
+        AddErrorReport adder = new AddErrorReport(Arrays.asList(third, first, second));
+        assertEquals(2 * 4, adder.write());
+        adder.close();
+
+        FindError finder = new FindError(Services.ntua());
+        finder.setSearchById(third.getUri().getId());
+        IDbIterator<ErrorReport> iterator = finder.list();
+        assertTrue(iterator.hasNext());
+        ErrorReport found = iterator.next();
+        assertEquals(second.getUri().getId(), found.getErrorCause().getUri().getId());
+        assertEquals(cause.getUri().getId(), found.getErrorCause().getErrorCause().getUri().getId());
+        iterator.close();
+        finder.close();
+    }
+
 }
\ No newline at end of file
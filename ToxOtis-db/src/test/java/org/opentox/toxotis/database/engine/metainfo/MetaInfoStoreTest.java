@@ -0,0 +1,117 @@
+/*
+ *
+ * ToxOtis
+ *
+ * ToxOtis is the Greek word for Sagittarius, that actually means ‘archer’. ToxOtis
+ * is a Java interface to the predictive toxicology services of OpenTox. ToxOtis is
+ * being developed to help both those who need a painless way to consume OpenTox
+ * services and for ambitious service providers that don’t want to spend half of
+ * their time in RDF parsing and creation.
+ *
+ * Copyright (C) 2009-2010 Pantelis Sopasakis & Charalampos Chomenides
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Contact:
+ * Pantelis Sopasakis
+ * chvng@mail.ntua.gr
+ * Address: Iroon Politechniou St. 9, Zografou, Athens Greece
+ * tel. +30 210 7723236
+ *
+ */
+package org.opentox.toxotis.database.engine.metainfo;
+
+import java.util.Arrays;
+import java.util.Collections;
+import org.junit.Test;
+import org.opentox.toxotis.database.exception.DbException;
+import org.opentox.toxotis.ontology.MetaInfo;
+import org.opentox.toxotis.ontology.impl.MetaInfoImpl;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author chung
+ */
+public class MetaInfoStoreTest {
+
+    public MetaInfoStoreTest() {
+    }
+
+    private MetaInfo sample() {
+        MetaInfo meta = new MetaInfoImpl();
+        meta.addTitle("some title").addComment("first comment").addComment("second comment").
+                addIdentifier("http://example.org/component/1");
+        return meta;
+    }
+
+    @Test
+    public void testEqualMetaSameKey() throws DbException {
+        MetaInfoStore store = new MetaInfoStore();
+        MetaInfoStore.Entry first = store.lookup(sample());
+        MetaInfoStore.Entry second = store.lookup(sample());
+        assertEquals(MetaInfoStore.KEY_LENGTH, first.getKey().length);
+        assertTrue(Arrays.equals(first.getKey(), second.getKey()));
+        assertTrue(Arrays.equals(first.getEncoded(), second.getEncoded()));
+
+        MetaInfo other = sample().addComment("third comment");
+        assertFalse(Arrays.equals(first.getKey(), store.lookup(other).getKey()));
+    }
+
+    @Test
+    public void testRememberAfterCommit() throws DbException {
+        MetaInfoStore store = new MetaInfoStore();
+        MetaInfoStore.Entry entry = store.lookup(sample());
+        assertFalse(entry.isStored());
+        assertFalse(store.lookup(sample()).isStored());
+        assertEquals(0, store.size());
+
+        store.remember(entry);
+        assertEquals(1, store.size());
+        MetaInfoStore.Entry cached = store.lookup(sample());
+        assertTrue(cached.isStored());
+        assertNull(cached.getEncoded());
+        assertTrue(Arrays.equals(entry.getKey(), cached.getKey()));
+        assertEquals(1L, store.getHits());
+    }
+
+    @Test
+    public void testBounded() throws DbException {
+        MetaInfoStore store = new MetaInfoStore(2);
+        for (int i = 0; i < 5; i++) {
+            store.remember(store.lookup(new MetaInfoImpl().addComment("comment " + i)));
+        }
+        assertEquals(2, store.size());
+        assertTrue(store.lookup(new MetaInfoImpl().addComment("comment 4")).isStored());
+        assertFalse(store.lookup(new MetaInfoImpl().addComment("comment 0")).isStored());
+    }
+
+    @Test
+    public void testForget() throws DbException {
+        MetaInfoStore store = new MetaInfoStore();
+        MetaInfoStore.Entry entry = store.lookup(sample());
+        store.remember(entry);
+        MetaInfoStore.Entry other = store.lookup(new MetaInfoImpl().addComment("other"));
+        store.remember(other);
+        MetaInfoStore.Entry cached = store.lookup(sample());
+        assertTrue(cached.isStored());
+
+        store.forget(Collections.singletonList(cached));
+        assertEquals(1, store.size());
+        MetaInfoStore.Entry forgotten = store.lookup(sample());
+        assertFalse(forgotten.isStored());
+        assertTrue(Arrays.equals(entry.getEncoded(), forgotten.getEncoded()));
+        assertTrue(store.lookup(new MetaInfoImpl().addComment("other")).isStored());
+    }
+}
@@ -0,0 +1,106 @@
+/*
+ *
+ * ToxOtis
+ *
+ * ToxOtis is the Greek word for Sagittarius, that actually means ‘archer’. ToxOtis
+ * is a Java interface to the predictive toxicology services of OpenTox. ToxOtis is
+ * being developed to help both those who need a painless way to consume OpenTox
+ * services and for ambitious service providers that don’t want to spend half of
+ * their time in RDF parsing and creation.
+ *
+ * Copyright (C) 2009-2010 Pantelis Sopasakis & Charalampos Chomenides
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Contact:
+ * Pantelis Sopasakis
+ * chvng@mail.ntua.gr
+ * Address: Iroon Politechniou St. 9, Zografou, Athens Greece
+ * tel. +30 210 7723236
+ *
+ */
+package org.opentox.toxotis.database.engine.model;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.opentox.toxotis.client.VRI;
+import org.opentox.toxotis.client.collection.Services;
+import org.opentox.toxotis.core.component.Model;
+import org.opentox.toxotis.database.IDbIterator;
+import org.opentox.toxotis.database.pool.DataSourceFactory;
+import org.opentox.toxotis.util.ROG;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author chung
+ */
+public class AddModelsTest {
+
+    private static final ROG _ROG_ = new ROG();
+
+    public AddModelsTest() {
+    }
+
+    @BeforeClass
+    public static void setUpClass() throws Exception {
+        org.opentox.toxotis.database.TestUtils.setUpDB();
+    }
+
+    @AfterClass
+    public static void tearDownClass() throws Exception {
+        DataSourceFactory.getInstance().close();
+    }
+
+    @Test
+    public void testAddModels() throws Exception {
+        List<Model> models = new ArrayList<Model>();
+        for (int i = 0; i < 5; i++) {
+            Model m = _ROG_.nextModel(); // all models share the same features
+            if (i % 2 == 0) {
+                m.setMeta(null);
+            }
+            models.add(m);
+        }
+        AddModels adder = new AddModels(models);
+        adder.setChunkSize(2);
+        assertEquals(5, adder.write());
+        adder.close();
+
+        for (Model m : models) {
+            FindModel finder = new FindModel(new VRI(Services.ntua()));
+            finder.setSearchById(m.getUri().getId());
+            IDbIterator<Model> list = finder.list();
+            assertTrue(list.hasNext());
+            Model found = list.next();
+            assertEquals(m.getMeta(), found.getMeta());
+            assertEquals(m.getDependentFeatures().size(), found.getDependentFeatures().size());
+            assertEquals(m.getIndependentFeatures().size(), found.getIndependentFeatures().size());
+            assertEquals(m.getParameters().size(), found.getParameters().size());
+            assertFalse(list.hasNext());
+            list.close();
+            finder.close();
+        }
+    }
+
+    @Test
+    public void testAddNoModels() throws Exception {
+        AddModels adder = new AddModels(new ArrayList<Model>());
+        assertEquals(0, adder.write());
+        adder.close();
+    }
+}
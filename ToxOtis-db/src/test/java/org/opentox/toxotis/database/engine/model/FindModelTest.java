@@ -90,4 +90,57 @@ public class FindModelTest  {
         fm.close();
     }
 
-}
\ No newline at end of file
+    @Test
+    public synchronized void testFindModelBatched() throws DbException {
+        FindModel fm = new FindModel(Services.ntua());
+        fm.setPageSize(10);
+        fm.setBatchSize(4);
+        IDbIterator<Model> mods = fm.list();
+        int count = 0;
+        while (mods.hasNext()) {
+            Model nextModel = mods.next();
+            assertNotNull(nextModel);
+            assertNotNull(nextModel.getParameters());
+            assertNotNull(nextModel.getDependentFeatures());
+            assertNotNull(nextModel.getIndependentFeatures());
+            assertNotNull(nextModel.getPredictedFeatures());
+            count++;
+        }
+        assertTrue(count <= 10);
+        mods.close();
+        fm.close();
+    }
+
+    @Test
+    public synchronized void testFindModelMetadataOnly() throws DbException {
+        FindModel fm = new FindModel(Services.ntua());
+        fm.setSearchById("1faae8e3-bc4b-4714-ae5b-8c24645ae6a0");
+        fm.setProjection(FindModel.Projection.METADATA_ONLY);
+        IDbIterator<Model> mods = fm.list();
+        while (mods.hasNext()) {
+            Model nextModel = mods.next();
+            assertNotNull(nextModel);
+            assertNotNull(nextModel.getMeta());
+            assertFalse(nextModel.isActualModelLoaded());
+            assertNull(nextModel.getActualModel());
+        }
+        mods.close();
+        fm.close();
+    }
+
+    @Test
+    public synchronized void testFindModelLazyActualModel() throws DbException {
+        FindModel fm = new FindModel(Services.ntua());
+        fm.setSearchById("1faae8e3-bc4b-4714-ae5b-8c24645ae6a0");
+        IDbIterator<Model> mods = fm.list();
+        while (mods.hasNext()) {
+            Model nextModel = mods.next();
+            assertFalse(nextModel.isActualModelLoaded());
+            assertNotNull(nextModel.getActualModel());
+            assertTrue(nextModel.isActualModelLoaded());
+        }
+        mods.close();
+        fm.close();
+    }
+
+}
@@ -32,6 +32,8 @@
  */
 package org.opentox.toxotis.database.engine.task;
 
+import java.sql.Connection;
+import java.sql.PreparedStatement;
 import java.util.UUID;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
@@ -47,6 +49,7 @@ import org.opentox.toxotis.core.component.Task;
 import org.opentox.toxotis.core.component.User;
 import org.opentox.toxotis.database.DbWriter;
 import org.opentox.toxotis.database.IDbIterator;
+import org.opentox.toxotis.database.engine.metainfo.MetaInfoStore;
 import org.opentox.toxotis.util.ROG;
 import org.opentox.toxotis.database.pool.DataSourceFactory;
 import static org.junit.Assert.*;
@@ -154,6 +157,43 @@ public class AddTaskTest {
         ft.close();
     }
 
+    @Test
+    public void testWriteAfterMetaInfoCollected() throws Exception {
+        MetaInfo meta = new MetaInfoImpl().addTitle("collected " + UUID.randomUUID());
+        Task first = __ROG.nextTask(1);
+        first.setMeta(meta);
+        DbWriter writer = new AddTask(first);
+        assertTrue(writer.write() > 0);
+        writer.close();
+        MetaInfoStore.Entry entry = MetaInfoStore.getInstance().lookup(meta);
+        assertTrue(entry.isStored());
+
+        /* The row is garbage-collected (deleting the task as well) while remembered */
+        Connection connection = DataSourceFactory.getInstance().getConnection();
+        try {
+            PreparedStatement delete = connection.prepareStatement("DELETE FROM MetaInfo WHERE id=?");
+            delete.setBytes(1, entry.getKey());
+            assertEquals(1, delete.executeUpdate());
+            delete.close();
+        } finally {
+            connection.close();
+        }
+
+        Task second = __ROG.nextTask(1);
+        second.setMeta(meta);
+        writer = new AddTask(second);
+        assertTrue(writer.write() > 0);
+        writer.close();
+
+        FindTask ft = new FindTask(new VRI("http://alphaville:4000/jaqpot"), false, false);
+        ft.setWhere("Task.id='" + second.getUri().getId() + "'");
+        IDbIterator<Task> iter = ft.list();
+        assertTrue(iter.hasNext());
+        assertEquals(meta, iter.next().getMeta());
+        iter.close();
+        ft.close();
+    }
+
     @Test
     public void testWriteTaskMultithreadedly() throws InterruptedException {
         int poolSize = 50;
@@ -0,0 +1,100 @@
+/*
+ *
+ * ToxOtis
+ *
+ * ToxOtis is the Greek word for Sagittarius, that actually means ‘archer’. ToxOtis
+ * is a Java interface to the predictive toxicology services of OpenTox. ToxOtis is
+ * being developed to help both those who need a painless way to consume OpenTox
+ * services and for ambitious service providers that don’t want to spend half of
+ * their time in RDF parsing and creation.
+ *
+ * Copyright (C) 2009-2010 Pantelis Sopasakis & Charalampos Chomenides
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Contact:
+ * Pantelis Sopasakis
+ * chvng@mail.ntua.gr
+ * Address: Iroon Politechniou St. 9, Zografou, Athens Greece
+ * tel. +30 210 7723236
+ *
+ */
+package org.opentox.toxotis.database.engine.task;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.opentox.toxotis.core.component.Task;
+import org.opentox.toxotis.database.engine.task.CleanTasks.CleaningMode;
+import org.opentox.toxotis.util.ROG;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author chung
+ */
+public class CleanTasksTest {
+
+    private static final ROG __ROG = new ROG();
+
+    public CleanTasksTest() {
+    }
+
+    @BeforeClass
+    public static void setUpClass() throws Exception {
+        org.opentox.toxotis.database.TestUtils.setUpDB();
+    }
+
+    @AfterClass
+    public static void tearDownClass() throws Exception {
+        org.opentox.toxotis.database.pool.DataSourceFactory.getInstance().close();
+    }
+
+    private void addTasks(int n, Task.Status status) throws Exception {
+        for (int i = 0; i < n; i++) {
+            Task task = __ROG.nextTask(1);
+            task.setStatus(status);
+            AddTask adder = new AddTask(task);
+            adder.write();
+            adder.close();
+        }
+    }
+
+    @Test
+    public void testDisableWithLimit() throws Exception {
+        addTasks(3, Task.Status.CANCELLED);
+        CleanTasks cleaner = new CleanTasks(CleaningMode.Disable);
+        cleaner.setOlderThanDays(-1);
+        cleaner.setChunkSize(1);
+        cleaner.setLimit(2);
+        assertEquals(2, cleaner.clean(Task.Status.CANCELLED));
+
+        cleaner = new CleanTasks(CleaningMode.Disable);
+        cleaner.setOlderThanDays(-1);
+        assertTrue(cleaner.clean(Task.Status.CANCELLED) >= 1);
+
+        cleaner = new CleanTasks(CleaningMode.Disable);
+        cleaner.setOlderThanDays(-1);
+        assertEquals(0, cleaner.clean(Task.Status.CANCELLED));
+    }
+
+    @Test
+    public void testDelete() throws Exception {
+        addTasks(2, Task.Status.COMPLETED);
+        CleanTasks cleaner = new CleanTasks(CleaningMode.Delete);
+        cleaner.setOlderThanDays(-1);
+        assertTrue(cleaner.clean(Task.Status.COMPLETED) >= 2);
+        assertEquals(0, new CleanTasks(CleaningMode.Delete).clean());
+    }
+}
@@ -36,6 +36,8 @@ import org.junit.After;
 import org.junit.AfterClass;
 import org.junit.Before;
 import org.junit.BeforeClass;
+import java.util.HashSet;
+import java.util.Set;
 import org.junit.Test;
 import org.opentox.toxotis.database.IDbIterator;
 import static org.junit.Assert.*;
@@ -79,5 +81,60 @@ public class ListTasksTest {
         iterator.close();
         lt.close();
     }
-    
+
+    @Test
+    public void testKeysetPagination() throws DbException {
+        Set<String> all = new HashSet<String>();
+        ListTasks lister = new ListTasks();
+        IDbIterator<String> iterator = lister.list();
+        while (iterator.hasNext()) {
+            all.add(iterator.next());
+        }
+        iterator.close();
+        lister.close();
+
+        Set<String> paged = new HashSet<String>();
+        String cursor = null;
+        do {
+            lister = new ListTasks();
+            lister.setPageSize(7);
+            lister.setKeysetPagination(true);
+            lister.setCursor(cursor);
+            iterator = lister.list();
+            int count = 0;
+            while (iterator.hasNext()) {
+                assertTrue("Pages must not overlap", paged.add(iterator.next()));
+                count++;
+            }
+            assertTrue(count <= 7);
+            cursor = lister.getNextCursor();
+            iterator.close();
+            lister.close();
+        } while (cursor != null);
+        assertEquals(all, paged);
+    }
+
+    @Test
+    public void testStreaming() throws DbException {
+        Set<String> all = new HashSet<String>();
+        ListTasks lister = new ListTasks();
+        IDbIterator<String> iterator = lister.list();
+        while (iterator.hasNext()) {
+            all.add(iterator.next());
+        }
+        iterator.close();
+        lister.close();
+
+        Set<String> streamed = new HashSet<String>();
+        lister = new ListTasks();
+        lister.setStreaming(true);
+        assertTrue(lister.isAutoClose());
+        iterator = lister.list();
+        while (iterator.hasNext()) {
+            streamed.add(iterator.next());
+        }
+        assertFalse(iterator.hasNext());
+        iterator.close(); // no-op: the iterator has closed the reader
+        assertEquals(all, streamed);
+    }
 }
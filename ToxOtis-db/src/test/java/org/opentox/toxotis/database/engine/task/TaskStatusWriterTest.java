@@ -0,0 +1,129 @@
+/*
+ *
+ * ToxOtis
+ *
+ * ToxOtis is the Greek word for Sagittarius, that actually means ‘archer’. ToxOtis
+ * is a Java interface to the predictive toxicology services of OpenTox. ToxOtis is
+ * being developed to help both those who need a painless way to consume OpenTox
+ * services and for ambitious service providers that don’t want to spend half of
+ * their time in RDF parsing and creation.
+ *
+ * Copyright (C) 2009-2010 Pantelis Sopasakis & Charalampos Chomenides
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Contact:
+ * Pantelis Sopasakis
+ * chvng@mail.ntua.gr
+ * Address: Iroon Politechniou St. 9, Zografou, Athens Greece
+ * tel. +30 210 7723236
+ *
+ */
+package org.opentox.toxotis.database.engine.task;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.opentox.toxotis.client.collection.Services;
+import org.opentox.toxotis.core.component.Task;
+import org.opentox.toxotis.database.IDbIterator;
+import org.opentox.toxotis.database.exception.DbException;
+import org.opentox.toxotis.util.ROG;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author chung
+ */
+public class TaskStatusWriterTest {
+
+    private static final ROG __ROG = new ROG();
+
+    public TaskStatusWriterTest() {
+    }
+
+    @BeforeClass
+    public static void setUpClass() throws Exception {
+        org.opentox.toxotis.database.TestUtils.setUpDB();
+    }
+
+    @AfterClass
+    public static void tearDownClass() throws Exception {
+        org.opentox.toxotis.database.pool.DataSourceFactory.getInstance().close();
+    }
+
+    private Task find(String id) throws DbException {
+        FindTask finder = new FindTask(Services.anonymous(), true, true);
+        finder.setSearchById(id);
+        IDbIterator<Task> iterator = finder.list();
+        assertTrue(iterator.hasNext());
+        Task found = iterator.next();
+        iterator.close();
+        finder.close();
+        return found;
+    }
+
+    @Test
+    public void testCoalesceAndFlush() throws DbException {
+        Task task = __ROG.nextTask(1);
+        AddTask adder = new AddTask(task);
+        adder.write();
+        adder.close();
+        String id = task.getUri().getId();
+
+        TaskStatusWriter writer = new TaskStatusWriter(60000);
+        for (int i = 1; i <= 5; i++) {
+            Task update = new Task(task.getUri());
+            update.setStatus(Task.Status.RUNNING);
+            update.setPercentageCompleted(10 * i);
+            writer.submit(update);
+        }
+        Task update = new Task(task.getUri());
+        update.setResultUri(__ROG.nextVri());
+        writer.submit(update);
+
+        assertEquals(1, writer.getPendingCount());
+        assertEquals(6, writer.getSubmittedCount());
+        assertEquals(5, writer.getCoalescedCount());
+        assertEquals(1, writer.flush());
+        assertEquals(0, writer.getPendingCount());
+
+        Task found = find(id);
+        assertEquals(Task.Status.RUNNING, found.getStatus());
+        assertEquals(50f, found.getPercentageCompleted(), 1E-6);
+        assertEquals(update.getResultUri(), found.getResultUri());
+        writer.shutdown();
+    }
+
+    @Test
+    public void testFinalStatusWrittenImmediately() throws DbException {
+        Task task = __ROG.nextTask(1);
+        AddTask adder = new AddTask(task);
+        adder.write();
+        adder.close();
+
+        TaskStatusWriter writer = new TaskStatusWriter(60000);
+        Task update = new Task(task.getUri());
+        update.setStatus(Task.Status.COMPLETED);
+        update.setPercentageCompleted(100);
+        writer.submit(update);
+        assertEquals(0, writer.getPendingCount());
+        assertEquals(1, writer.getWrittenCount());
+
+        Task found = find(task.getUri().getId());
+        assertEquals(Task.Status.COMPLETED, found.getStatus());
+        assertEquals(100f, found.getPercentageCompleted(), 1E-6);
+        writer.shutdown();
+    }
+}
@@ -124,4 +124,24 @@ public class FindUserTest {
         users.close();
         fu.close();
     }
+
+    @Test
+    public void testFindByBoundParameter() throws DbException {
+        FindUser fu = new FindUser();
+        fu.setWhere("uid=?", User.GUEST.getUid());
+        IDbIterator<User> users = fu.list();
+        assertTrue(users.hasNext());
+        assertEquals(User.GUEST.getUid(), users.next().getUid());
+        assertFalse(users.hasNext());
+        users.close();
+        fu.close();
+
+        // Values are bound, never spliced into the SQL
+        fu = new FindUser();
+        fu.setWhere("uid=?", "x' OR 'a'='a");
+        users = fu.list();
+        assertFalse(users.hasNext());
+        users.close();
+        fu.close();
+    }
 }
@@ -0,0 +1,134 @@
+/*
+ *
+ * ToxOtis
+ *
+ * ToxOtis is the Greek word for Sagittarius, that actually means ‘archer’. ToxOtis
+ * is a Java interface to the predictive toxicology services of OpenTox. ToxOtis is
+ * being developed to help both those who need a painless way to consume OpenTox
+ * services and for ambitious service providers that don’t want to spend half of
+ * their time in RDF parsing and creation.
+ *
+ * Copyright (C) 2009-2010 Pantelis Sopasakis & Charalampos Chomenides
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Contact:
+ * Pantelis Sopasakis
+ * chvng@mail.ntua.gr
+ * Address: Iroon Politechniou St. 9, Zografou, Athens Greece
+ * tel. +30 210 7723236
+ *
+ */
+package org.opentox.toxotis.database.metrics;
+
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.opentox.toxotis.client.collection.Services;
+import org.opentox.toxotis.core.component.Task;
+import org.opentox.toxotis.database.IDbIterator;
+import org.opentox.toxotis.database.engine.task.AddTask;
+import org.opentox.toxotis.database.engine.task.FindTask;
+import org.opentox.toxotis.database.exception.DbException;
+import org.opentox.toxotis.util.ROG;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author chung
+ */
+public class DbMetricsTest {
+
+    private static final ROG __ROG = new ROG();
+
+    public DbMetricsTest() {
+    }
+
+    @BeforeClass
+    public static void setUpClass() throws Exception {
+        org.opentox.toxotis.database.TestUtils.setUpDB();
+    }
+
+    @AfterClass
+    public static void tearDownClass() throws Exception {
+        org.opentox.toxotis.database.pool.DataSourceFactory.getInstance().close();
+    }
+
+    @After
+    public void tearDown() {
+        DbMetrics.getInstance().setEnabled(false);
+        DbMetrics.getInstance().reset();
+    }
+
+    @Test
+    public void testOperationMetrics() throws DbException {
+        DbMetrics metrics = DbMetrics.getInstance();
+        metrics.reset();
+        metrics.setEnabled(true);
+
+        Task task = __ROG.nextTask(1);
+        AddTask adder = new AddTask(task);
+        adder.write();
+        adder.close();
+
+        FindTask finder = new FindTask(Services.anonymous(), true, true);
+        finder.setSearchById(task.getUri().getId());
+        IDbIterator<Task> iterator = finder.list();
+        assertTrue(iterator.hasNext());
+        iterator.next();
+        iterator.close();
+        finder.close();
+
+        assertTrue(metrics.getConnectionAcquisitions() >= 2);
+        OperationStats writes = metrics.getOperation(AddTask.class);
+        assertNotNull(writes);
+        assertTrue(writes.getExecutions() > 0);
+        assertTrue(writes.getRowsWritten() > 0);
+        assertEquals(0, writes.getErrors());
+        OperationStats reads = metrics.getOperation(FindTask.class);
+        assertNotNull(reads);
+        assertTrue(reads.getExecutions() >= 1);
+        assertTrue(reads.getRowsRead() >= 1);
+        assertTrue(metrics.getBusyConnections() >= 0);
+        assertTrue(metrics.getIdleConnections() >= 0);
+    }
+
+    @Test
+    public void testDisabled() throws DbException {
+        DbMetrics metrics = DbMetrics.getInstance();
+        metrics.reset();
+        metrics.setEnabled(false);
+
+        Task task = __ROG.nextTask(1);
+        AddTask adder = new AddTask(task);
+        adder.write();
+        adder.close();
+
+        assertEquals(0, metrics.getConnectionAcquisitions());
+        assertNull(metrics.getOperation(AddTask.class));
+        assertTrue(metrics.getOperations().isEmpty());
+    }
+
+    @Test
+    public void testRegisterMBean() throws Exception {
+        DbMetrics metrics = DbMetrics.getInstance();
+        metrics.registerMBean();
+        metrics.registerMBean();
+        javax.management.ObjectName name = new javax.management.ObjectName(DbMetrics.OBJECT_NAME);
+        assertTrue(java.lang.management.ManagementFactory.getPlatformMBeanServer().isRegistered(name));
+        metrics.unregisterMBean();
+        assertFalse(java.lang.management.ManagementFactory.getPlatformMBeanServer().isRegistered(name));
+    }
+}
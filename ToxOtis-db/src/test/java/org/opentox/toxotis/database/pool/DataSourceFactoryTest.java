@@ -99,4 +99,41 @@ public class DataSourceFactoryTest {
             fail("Database is inaccessible! " + ex);
         }
     }
+
+    @Test
+    public void testReplicaRouting() throws Exception {
+        DataSourceFactory factory = DataSourceFactory.getInstance();
+        java.util.Properties properties = DbConfiguration.getInstance().getProperpties();
+        properties.setProperty("replicas", "replica1");
+        properties.setProperty("replica.replica1.c3p0.maxPoolSize", "5");
+        properties.setProperty("replica.replica1.c3p0.minPoolSize", "1");
+        properties.setProperty("replica.replica1.c3p0.initialPoolSize", "1");
+        properties.setProperty("replica.pinMillis", "200");
+        properties.setProperty("replica.maxLagSeconds", "-1");
+        factory.close();
+        try {
+            assertEquals(2, factory.getDataSourceNames().size());
+            assertTrue(factory.getDataSourceNames().contains("replica1"));
+            ComboPooledDataSource replica = (ComboPooledDataSource) factory.getDataSource("replica1");
+            assertNotNull(replica);
+            assertEquals(5, replica.getMaxPoolSize());
+            assertNull(factory.getDataSource("replica2"));
+            assertNotSame(factory.getDataSource(), replica);
+            assertSame(replica, factory.getReadDataSource());
+
+            factory.pin();
+            assertTrue(factory.isPinned());
+            assertSame(factory.getDataSource(), factory.getReadDataSource());
+            Thread.sleep(300);
+            assertFalse(factory.isPinned());
+            assertSame(replica, factory.getReadDataSource());
+
+            Connection connection = factory.getReadDataSource().getConnection();
+            assertNotNull(connection);
+            connection.close();
+        } finally {
+            properties.remove("replicas");
+            factory.close();
+        }
+    }
 }
@@ -1,13 +1,82 @@
+/*
+ *
+ * ToxOtis
+ *
+ * ToxOtis is the Greek word for Sagittarius, that actually means ‘archer’. ToxOtis
+ * is a Java interface to the predictive toxicology services of OpenTox. ToxOtis is
+ * being developed to help both those who need a painless way to consume OpenTox
+ * services and for ambitious service providers that don’t want to spend half of
+ * their time in RDF parsing and creation.
+ *
+ * Copyright (C) 2009-2010 Pantelis Sopasakis & Charalampos Chomenides
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Contact:
+ * Pantelis Sopasakis
+ * chvng@mail.ntua.gr
+ * Address: Iroon Politechniou St. 9, Zografou, Athens Greece
+ * tel. +30 210 7723236
+ *
+ */
 package org.opentox.toxotis.janitor;
 
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Properties;
+
 /**
- * Hello world!
+ * Starts the {@link Janitor} as a long-running process. The configuration is
+ * read from the file given as the first argument or else from
+ * <code>janitor.properties</code> in the classpath. The database is configured
+ * as for every other user of ToxOtis-db (<code>c3p0.properties</code>).
  *
+ * @author Pantelis Sopasakis
+ * @author Charalampos Chomenides
  */
-public class App 
-{
-    public static void main( String[] args )
-    {
-        System.out.println( "Hello World!" );
+public class App {
+
+    private static final String DEFAULT_CONFIGURATION = "janitor.properties";
+    private static final long SHUTDOWN_TIMEOUT = 60000;
+    private static org.slf4j.Logger logger = org.slf4j.LoggerFactory.getLogger(App.class);
+
+    public static void main(String[] args) throws IOException {
+        Properties properties = new Properties();
+        InputStream in = args.length > 0
+                ? new FileInputStream(args[0])
+                : App.class.getClassLoader().getResourceAsStream(DEFAULT_CONFIGURATION);
+        if (in == null) {
+            throw new IOException("Configuration " + DEFAULT_CONFIGURATION + " not found");
+        }
+        try {
+            properties.load(in);
+        } finally {
+            in.close();
+        }
+        final Janitor janitor = Janitor.fromProperties(properties);
+        Runtime.getRuntime().addShutdownHook(new Thread("janitor-shutdown") {
+
+            @Override
+            public void run() {
+                try {
+                    janitor.shutdown(SHUTDOWN_TIMEOUT);
+                } catch (final Exception ex) {
+                    logger.error("Janitor did not shut down cleanly", ex);
+                }
+            }
+        });
+        janitor.start();
     }
 }
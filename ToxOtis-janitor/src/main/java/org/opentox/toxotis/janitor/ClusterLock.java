@@ -0,0 +1,145 @@
+/*
+ *
+ * ToxOtis
+ *
+ * ToxOtis is the Greek word for Sagittarius, that actually means ‘archer’. ToxOtis
+ * is a Java interface to the predictive toxicology services of OpenTox. ToxOtis is
+ * being developed to help both those who need a painless way to consume OpenTox
+ * services and for ambitious service providers that don’t want to spend half of
+ * their time in RDF parsing and creation.
+ *
+ * Copyright (C) 2009-2010 Pantelis Sopasakis & Charalampos Chomenides
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Contact:
+ * Pantelis Sopasakis
+ * chvng@mail.ntua.gr
+ * Address: Iroon Politechniou St. 9, Zografou, Athens Greece
+ * tel. +30 210 7723236
+ *
+ */
+package org.opentox.toxotis.janitor;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import org.opentox.toxotis.database.exception.DbException;
+import org.opentox.toxotis.database.pool.DataSourceFactory;
+
+/**
+ * Lock shared by all nodes which use the same database, based on the named
+ * locks of MySQL (<code>GET_LOCK</code>). The lock is held by the connection
+ * which acquired it, so it is released by the server if the node dies. That
+ * connection does not come from the pool, so that closing it always ends the
+ * database session and a lock which could not be released explicitly does not
+ * outlive it in an idle pooled connection.
+ *
+ * @author Pantelis Sopasakis
+ * @author Charalampos Chomenides
+ */
+public class ClusterLock {
+
+    private static final String SQL_ACQUIRE = "SELECT GET_LOCK(?, 0)";
+    private static final String SQL_RELEASE = "SELECT RELEASE_LOCK(?)";
+    private final String name;
+    private Connection connection;
+    private org.slf4j.Logger logger = org.slf4j.LoggerFactory.getLogger(ClusterLock.class);
+
+    /**
+     * @param name
+     *      Name of the lock (at most 64 characters).
+     */
+    public ClusterLock(String name) {
+        this.name = name;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Acquires the lock if no other node (or other lock object) holds it.
+     * @return
+     *      <code>true</code> if the lock was acquired.
+     * @throws DbException
+     *      In case the database cannot be reached.
+     */
+    public synchronized boolean tryAcquire() throws DbException {
+        if (connection != null) {
+            return true;
+        }
+        Connection candidate = DataSourceFactory.getInstance().getUnpooledConnection();
+        boolean acquired = false;
+        try {
+            PreparedStatement statement = candidate.prepareStatement(SQL_ACQUIRE);
+            try {
+                statement.setString(1, name);
+                ResultSet rs = statement.executeQuery();
+                acquired = rs.next() && rs.getInt(1) == 1;
+                rs.close();
+            } finally {
+                statement.close();
+            }
+        } catch (final SQLException ex) {
+            final String msg = "Lock '" + name + "' cannot be acquired";
+            logger.warn(msg, ex);
+            throw new DbException(msg, ex);
+        } finally {
+            if (!acquired) {
+                closeQuietly(candidate);
+            }
+        }
+        if (acquired) {
+            connection = candidate;
+        }
+        return acquired;
+    }
+
+    /**
+     * Releases the lock if it is held by this object.
+     */
+    public synchronized void release() {
+        if (connection == null) {
+            return;
+        }
+        try {
+            PreparedStatement statement = connection.prepareStatement(SQL_RELEASE);
+            try {
+                statement.setString(1, name);
+                statement.executeQuery().close();
+            } finally {
+                statement.close();
+            }
+        } catch (final SQLException ex) {
+            logger.warn("Lock '" + name + "' cannot be released; it is released as its connection closes", ex);
+        } finally {
+            closeQuietly(connection);
+            connection = null;
+        }
+    }
+
+    public synchronized boolean isHeld() {
+        return connection != null;
+    }
+
+    private void closeQuietly(Connection connection) {
+        try {
+            connection.close();
+        } catch (final SQLException ex) {
+            logger.warn("Connection cannot close", ex);
+        }
+    }
+}
@@ -0,0 +1,93 @@
+/*
+ *
+ * ToxOtis
+ *
+ * ToxOtis is the Greek word for Sagittarius, that actually means ‘archer’. ToxOtis
+ * is a Java interface to the predictive toxicology services of OpenTox. ToxOtis is
+ * being developed to help both those who need a painless way to consume OpenTox
+ * services and for ambitious service providers that don’t want to spend half of
+ * their time in RDF parsing and creation.
+ *
+ * Copyright (C) 2009-2010 Pantelis Sopasakis & Charalampos Chomenides
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Contact:
+ * Pantelis Sopasakis
+ * chvng@mail.ntua.gr
+ * Address: Iroon Politechniou St. 9, Zografou, Athens Greece
+ * tel. +30 210 7723236
+ *
+ */
+package org.opentox.toxotis.janitor;
+
+import java.sql.Timestamp;
+import java.util.Properties;
+import org.opentox.toxotis.database.engine.DeleteOldComponents;
+import org.opentox.toxotis.database.exception.DbException;
+
+/**
+ * Purges disabled components created more than <code>olderThanDays</code>
+ * days ago. Consecutive batches (and runs) resume where the previous one
+ * stopped, so components that cannot be deleted are not examined over and
+ * over again within a pass.
+ *
+ * @author Pantelis Sopasakis
+ * @author Charalampos Chomenides
+ */
+public class ComponentPurgeJob extends MaintenanceJob {
+
+    public static final String NAME = "components";
+    private int olderThanDays = 15;
+    private Timestamp lastCreated;
+    private String lastId;
+
+    public ComponentPurgeJob() {
+        super(NAME);
+    }
+
+    @Override
+    public void configure(Properties properties) {
+        super.configure(properties);
+        olderThanDays = Integer.parseInt(property(properties, "olderThanDays", Integer.toString(olderThanDays)));
+    }
+
+    public int getOlderThanDays() {
+        return olderThanDays;
+    }
+
+    public void setOlderThanDays(int olderThanDays) {
+        this.olderThanDays = olderThanDays;
+    }
+
+    @Override
+    protected int runBatch(int limit) throws DbException {
+        DeleteOldComponents purge = new DeleteOldComponents();
+        purge.setDays(olderThanDays);
+        purge.setChunkSize(limit);
+        purge.setLimit(limit);
+        purge.setResumePoint(lastCreated, lastId);
+        purge.delete();
+        int processed = purge.getProcessed();
+        if (processed < limit) {
+            /* End of the pass; the next one starts from the oldest component */
+            lastCreated = null;
+            lastId = null;
+        } else {
+            lastCreated = purge.getLastCreated();
+            lastId = purge.getLastId();
+        }
+        return processed;
+    }
+}
@@ -0,0 +1,69 @@
+/*
+ *
+ * ToxOtis
+ *
+ * ToxOtis is the Greek word for Sagittarius, that actually means ‘archer’. ToxOtis
+ * is a Java interface to the predictive toxicology services of OpenTox. ToxOtis is
+ * being developed to help both those who need a painless way to consume OpenTox
+ * services and for ambitious service providers that don’t want to spend half of
+ * their time in RDF parsing and creation.
+ *
+ * Copyright (C) 2009-2010 Pantelis Sopasakis & Charalampos Chomenides
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Contact:
+ * Pantelis Sopasakis
+ * chvng@mail.ntua.gr
+ * Address: Iroon Politechniou St. 9, Zografou, Athens Greece
+ * tel. +30 210 7723236
+ *
+ */
+package org.opentox.toxotis.janitor;
+
+import org.opentox.toxotis.database.engine.counter.ReconcileCounters;
+import org.opentox.toxotis.database.exception.DbException;
+
+/**
+ * Recomputes the maintained counters of components and corrects those that
+ * have drifted (see {@link org.opentox.toxotis.database.engine.counter.ComponentCounters}).
+ * Every run scans the component tables, so the job runs rarely.
+ *
+ * @author Pantelis Sopasakis
+ * @author Charalampos Chomenides
+ */
+public class CounterReconciliationJob extends MaintenanceJob {
+
+    public static final String NAME = "counters";
+    private org.slf4j.Logger logger = org.slf4j.LoggerFactory.getLogger(CounterReconciliationJob.class);
+
+    public CounterReconciliationJob() {
+        super(NAME);
+        setIntervalSeconds(21600);
+    }
+
+    /*
+     * All counters are reconciled at once; the number of corrected counters is
+     * reported as the rows of the batch, kept below the limit so that the run
+     * is complete.
+     */
+    @Override
+    protected int runBatch(int limit) throws DbException {
+        int corrected = new ReconcileCounters().reconcile();
+        if (corrected > 0) {
+            logger.info(corrected + " counters of components had drifted and were corrected");
+        }
+        return Math.min(corrected, limit - 1);
+    }
+}
@@ -0,0 +1,152 @@
+/*
+ *
+ * ToxOtis
+ *
+ * ToxOtis is the Greek word for Sagittarius, that actually means ‘archer’. ToxOtis
+ * is a Java interface to the predictive toxicology services of OpenTox. ToxOtis is
+ * being developed to help both those who need a painless way to consume OpenTox
+ * services and for ambitious service providers that don’t want to spend half of
+ * their time in RDF parsing and creation.
+ *
+ * Copyright (C) 2009-2010 Pantelis Sopasakis & Charalampos Chomenides
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Contact:
+ * Pantelis Sopasakis
+ * chvng@mail.ntua.gr
+ * Address: Iroon Politechniou St. 9, Zografou, Athens Greece
+ * tel. +30 210 7723236
+ *
+ */
+package org.opentox.toxotis.janitor;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.opentox.toxotis.database.exception.DbException;
+import org.opentox.toxotis.database.pool.DataSourceFactory;
+
+/**
+ * Runs {@link MaintenanceJob maintenance jobs} periodically against the
+ * ToxOtis database. The jobs are chosen by the property <code>janitor.jobs</code>
+ * (comma-separated names among {@value TaskCleanupJob#NAME},
+ * {@value ComponentPurgeJob#NAME}, {@value MetaInfoCollectionJob#NAME},
+ * {@value StatisticsJob#NAME} and {@value CounterReconciliationJob#NAME}) and each one runs with a fixed delay of its
+ * interval between the end of a run and the start of the next.
+ *
+ * @author Pantelis Sopasakis
+ * @author Charalampos Chomenides
+ */
+public class Janitor {
+
+    private final ScheduledThreadPoolExecutor scheduler;
+    private final List<MaintenanceJob> jobs = new ArrayList<MaintenanceJob>();
+    private org.slf4j.Logger logger = org.slf4j.LoggerFactory.getLogger(Janitor.class);
+
+    public Janitor(int threads) {
+        scheduler = new ScheduledThreadPoolExecutor(threads, new ThreadFactory() {
+
+            private final AtomicInteger count = new AtomicInteger();
+
+            @Override
+            public Thread newThread(Runnable runnable) {
+                return new Thread(runnable, "janitor-" + count.incrementAndGet());
+            }
+        });
+    }
+
+    /**
+     * Creates a janitor with the jobs listed in the given configuration.
+     * @param properties
+     *      Janitor configuration.
+     * @return
+     *      A new janitor; its jobs are not scheduled until {@link #start() }.
+     */
+    public static Janitor fromProperties(Properties properties) {
+        Janitor janitor = new Janitor(Integer.parseInt(properties.getProperty("janitor.threads", "1").trim()));
+        String names = properties.getProperty("janitor.jobs", TaskCleanupJob.NAME + "," + ComponentPurgeJob.NAME
+                + "," + MetaInfoCollectionJob.NAME + "," + StatisticsJob.NAME + "," + CounterReconciliationJob.NAME);
+        for (String name : names.split(",")) {
+            name = name.trim();
+            if (name.length() == 0) {
+                continue;
+            }
+            MaintenanceJob job;
+            if (TaskCleanupJob.NAME.equals(name)) {
+                job = new TaskCleanupJob();
+            } else if (ComponentPurgeJob.NAME.equals(name)) {
+                job = new ComponentPurgeJob();
+            } else if (MetaInfoCollectionJob.NAME.equals(name)) {
+                job = new MetaInfoCollectionJob();
+            } else if (StatisticsJob.NAME.equals(name)) {
+                job = new StatisticsJob();
+            } else if (CounterReconciliationJob.NAME.equals(name)) {
+                job = new CounterReconciliationJob();
+            } else {
+                throw new IllegalArgumentException("Unknown maintenance job : " + name);
+            }
+            job.configure(properties);
+            janitor.add(job);
+        }
+        return janitor;
+    }
+
+    public synchronized void add(MaintenanceJob job) {
+        jobs.add(job);
+    }
+
+    public synchronized List<MaintenanceJob> getJobs() {
+        return Collections.unmodifiableList(new ArrayList<MaintenanceJob>(jobs));
+    }
+
+    /**
+     * Schedules all jobs. The first run of each job starts immediately.
+     */
+    public synchronized void start() {
+        for (MaintenanceJob job : jobs) {
+            scheduler.scheduleWithFixedDelay(job, 0, job.getIntervalSeconds(), TimeUnit.SECONDS);
+            logger.info("Scheduled job '" + job.getName() + "' every " + job.getIntervalSeconds() + "s");
+        }
+    }
+
+    /**
+     * Stops scheduling jobs, waits for the running ones to finish and closes the
+     * connection pool.
+     * @param timeoutMillis
+     *      Maximum time to wait for running jobs.
+     * @throws DbException
+     *      In case the connection pool cannot close.
+     */
+    public void shutdown(long timeoutMillis) throws DbException {
+        scheduler.shutdown();
+        try {
+            if (!scheduler.awaitTermination(timeoutMillis, TimeUnit.MILLISECONDS)) {
+                scheduler.shutdownNow();
+            }
+        } catch (final InterruptedException ex) {
+            scheduler.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+        for (MaintenanceJob job : getJobs()) {
+            logger.info("Job '" + job.getName() + "' : " + job.getStats());
+        }
+        DataSourceFactory.getInstance().close();
+    }
+}
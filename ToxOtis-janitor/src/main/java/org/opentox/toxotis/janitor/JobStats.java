@@ -0,0 +1,154 @@
+/*
+ *
+ * ToxOtis
+ *
+ * ToxOtis is the Greek word for Sagittarius, that actually means ‘archer’. ToxOtis
+ * is a Java interface to the predictive toxicology services of OpenTox. ToxOtis is
+ * being developed to help both those who need a painless way to consume OpenTox
+ * services and for ambitious service providers that don’t want to spend half of
+ * their time in RDF parsing and creation.
+ *
+ * Copyright (C) 2009-2010 Pantelis Sopasakis & Charalampos Chomenides
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Contact:
+ * Pantelis Sopasakis
+ * chvng@mail.ntua.gr
+ * Address: Iroon Politechniou St. 9, Zografou, Athens Greece
+ * tel. +30 210 7723236
+ *
+ */
+package org.opentox.toxotis.janitor;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Metrics of the runs of a maintenance job.
+ *
+ * @author Pantelis Sopasakis
+ * @author Charalampos Chomenides
+ */
+public class JobStats {
+
+    private final AtomicLong runs = new AtomicLong();
+    private final AtomicLong completedRuns = new AtomicLong();
+    private final AtomicLong failedRuns = new AtomicLong();
+    private final AtomicLong skippedRuns = new AtomicLong();
+    private final AtomicLong totalRows = new AtomicLong();
+    private final AtomicLong totalMillis = new AtomicLong();
+    private volatile long lastStart = 0;
+    private volatile long lastRows = 0;
+    private volatile long lastMillis = 0;
+    private volatile String lastError;
+
+    void recordRun(long start, long rows, long millis, boolean complete) {
+        record(start, rows, millis);
+        if (complete) {
+            completedRuns.incrementAndGet();
+        }
+        lastError = null;
+    }
+
+    void recordFailure(long start, long rows, long millis, Throwable error) {
+        record(start, rows, millis);
+        failedRuns.incrementAndGet();
+        lastError = String.valueOf(error);
+    }
+
+    void recordSkipped() {
+        skippedRuns.incrementAndGet();
+    }
+
+    private void record(long start, long rows, long millis) {
+        runs.incrementAndGet();
+        totalRows.addAndGet(rows);
+        totalMillis.addAndGet(millis);
+        lastStart = start;
+        lastRows = rows;
+        lastMillis = millis;
+    }
+
+    /**
+     * Number of runs of the job on this node.
+     * @return
+     *      Number of runs.
+     */
+    public long getRuns() {
+        return runs.get();
+    }
+
+    /**
+     * Number of runs that finished all pending work within their time budget.
+     * @return
+     *      Number of complete runs.
+     */
+    public long getCompletedRuns() {
+        return completedRuns.get();
+    }
+
+    public long getFailedRuns() {
+        return failedRuns.get();
+    }
+
+    /**
+     * Number of runs skipped because the job was running on another node.
+     * @return
+     *      Number of skipped runs.
+     */
+    public long getSkippedRuns() {
+        return skippedRuns.get();
+    }
+
+    public long getTotalRows() {
+        return totalRows.get();
+    }
+
+    public long getTotalMillis() {
+        return totalMillis.get();
+    }
+
+    /**
+     * Start of the last run (milliseconds since the epoch).
+     * @return
+     *      Start time or <code>0</code> if the job has not run yet.
+     */
+    public long getLastStart() {
+        return lastStart;
+    }
+
+    public long getLastRows() {
+        return lastRows;
+    }
+
+    public long getLastMillis() {
+        return lastMillis;
+    }
+
+    /**
+     * The error of the last run.
+     * @return
+     *      Description of the error or <code>null</code> if the last run
+     *      succeeded.
+     */
+    public String getLastError() {
+        return lastError;
+    }
+
+    @Override
+    public String toString() {
+        return "runs=" + getRuns() + ", completed=" + getCompletedRuns() + ", failed=" + getFailedRuns()
+                + ", skipped=" + getSkippedRuns() + ", rows=" + getTotalRows() + ", millis=" + getTotalMillis();
+    }
+}
@@ -0,0 +1,235 @@
+/*
+ *
+ * ToxOtis
+ *
+ * ToxOtis is the Greek word for Sagittarius, that actually means ‘archer’. ToxOtis
+ * is a Java interface to the predictive toxicology services of OpenTox. ToxOtis is
+ * being developed to help both those who need a painless way to consume OpenTox
+ * services and for ambitious service providers that don’t want to spend half of
+ * their time in RDF parsing and creation.
+ *
+ * Copyright (C) 2009-2010 Pantelis Sopasakis & Charalampos Chomenides
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Contact:
+ * Pantelis Sopasakis
+ * chvng@mail.ntua.gr
+ * Address: Iroon Politechniou St. 9, Zografou, Athens Greece
+ * tel. +30 210 7723236
+ *
+ */
+package org.opentox.toxotis.janitor;
+
+import java.util.Properties;
+import org.opentox.toxotis.database.exception.DbException;
+
+/**
+ * A maintenance job that is run periodically by the {@link Janitor}. Each run
+ * processes batches of at most {@link #getBatchSize() } rows until there is
+ * nothing left to do or the {@link #getBudgetMillis() time budget} of the run
+ * is exhausted, and the rate of processed rows is kept below
+ * {@link #getMaxRowsPerSecond() } by pausing between batches. If the job is
+ * {@link #isSingleInstance() single-instance}, a run is skipped when the job is
+ * running on another node that uses the same database.
+ *
+ * <p>Jobs are configured by the properties <code>janitor.&lt;name&gt;.*</code>:
+ * <code>intervalSeconds</code>, <code>budgetSeconds</code>, <code>batchSize</code>,
+ * <code>maxRowsPerSecond</code> and <code>singleInstance</code>, plus those
+ * specific to each job.</p>
+ *
+ * @author Pantelis Sopasakis
+ * @author Charalampos Chomenides
+ */
+public abstract class MaintenanceJob implements Runnable {
+
+    private static final String PROPERTY_PREFIX = "janitor.";
+    private static final String LOCK_PREFIX = "toxotis.janitor.";
+    private final String name;
+    private long intervalSeconds = 3600;
+    private long budgetMillis = 60000;
+    private int batchSize = 500;
+    private int maxRowsPerSecond = 0;
+    private boolean singleInstance = true;
+    private final JobStats stats = new JobStats();
+    private org.slf4j.Logger logger = org.slf4j.LoggerFactory.getLogger(MaintenanceJob.class);
+
+    protected MaintenanceJob(String name) {
+        this.name = name;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public long getIntervalSeconds() {
+        return intervalSeconds;
+    }
+
+    public void setIntervalSeconds(long intervalSeconds) {
+        this.intervalSeconds = intervalSeconds;
+    }
+
+    public long getBudgetMillis() {
+        return budgetMillis;
+    }
+
+    /**
+     * Maximum duration of a run. A run stops after the batch during which the
+     * budget was exhausted and continues on the next run.
+     * @param budgetMillis
+     *      Time budget in milliseconds.
+     */
+    public void setBudgetMillis(long budgetMillis) {
+        this.budgetMillis = budgetMillis;
+    }
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    public void setBatchSize(int batchSize) {
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("Batch size must be positive");
+        }
+        this.batchSize = batchSize;
+    }
+
+    public int getMaxRowsPerSecond() {
+        return maxRowsPerSecond;
+    }
+
+    /**
+     * Maximum average number of rows processed per second during a run.
+     * @param maxRowsPerSecond
+     *      Rate limit; <code>0</code> for no limit.
+     */
+    public void setMaxRowsPerSecond(int maxRowsPerSecond) {
+        this.maxRowsPerSecond = maxRowsPerSecond;
+    }
+
+    public boolean isSingleInstance() {
+        return singleInstance;
+    }
+
+    /**
+     * Whether at most one node may run the job at any time.
+     * @param singleInstance
+     *      Whether the job runs under a {@link ClusterLock}.
+     */
+    public void setSingleInstance(boolean singleInstance) {
+        this.singleInstance = singleInstance;
+    }
+
+    public JobStats getStats() {
+        return stats;
+    }
+
+    /**
+     * Configures the job from the properties <code>janitor.&lt;name&gt;.*</code>.
+     * @param properties
+     *      Janitor configuration.
+     */
+    public void configure(Properties properties) {
+        setIntervalSeconds(Long.parseLong(property(properties, "intervalSeconds", Long.toString(intervalSeconds))));
+        setBudgetMillis(1000L * Long.parseLong(property(properties, "budgetSeconds", Long.toString(budgetMillis / 1000))));
+        setBatchSize(Integer.parseInt(property(properties, "batchSize", Integer.toString(batchSize))));
+        setMaxRowsPerSecond(Integer.parseInt(property(properties, "maxRowsPerSecond", Integer.toString(maxRowsPerSecond))));
+        setSingleInstance(Boolean.parseBoolean(property(properties, "singleInstance", Boolean.toString(singleInstance))));
+    }
+
+    /**
+     * A property of this job.
+     * @param properties
+     *      Janitor configuration.
+     * @param key
+     *      Key of the property without the prefix <code>janitor.&lt;name&gt;.</code>.
+     * @param defaultValue
+     *      Value returned if the property is not set.
+     * @return
+     *      The trimmed value of the property.
+     */
+    protected String property(Properties properties, String key, String defaultValue) {
+        return properties.getProperty(PROPERTY_PREFIX + name + "." + key, defaultValue).trim();
+    }
+
+    /**
+     * Processes a batch of rows.
+     * @param limit
+     *      Maximum number of rows to process.
+     * @return
+     *      Number of rows processed; less than <code>limit</code> if there is
+     *      nothing left to do.
+     * @throws DbException
+     *      In case of a database error; the run stops.
+     */
+    protected abstract int runBatch(int limit) throws DbException;
+
+    @Override
+    public final void run() {
+        ClusterLock lock = singleInstance ? new ClusterLock(LOCK_PREFIX + name) : null;
+        try {
+            if (lock != null && !lock.tryAcquire()) {
+                stats.recordSkipped();
+                logger.debug("Job '" + name + "' is running on another node");
+                return;
+            }
+        } catch (final DbException ex) {
+            stats.recordFailure(System.currentTimeMillis(), 0, 0, ex);
+            logger.error("Job '" + name + "' cannot run", ex);
+            return;
+        }
+        long start = System.currentTimeMillis();
+        long deadline = start + budgetMillis;
+        long rows = 0;
+        try {
+            boolean complete = false;
+            while (true) {
+                int processed = runBatch(batchSize);
+                rows += processed;
+                if (processed < batchSize) {
+                    complete = true;
+                    break;
+                }
+                long now = System.currentTimeMillis();
+                long next = maxRowsPerSecond > 0 ? start + rows * 1000L / maxRowsPerSecond : now;
+                if (now >= deadline || next >= deadline) {
+                    break;
+                }
+                if (next > now) {
+                    Thread.sleep(next - now);
+                }
+            }
+            long millis = System.currentTimeMillis() - start;
+            stats.recordRun(start, rows, millis, complete);
+            logger.info("Job '" + name + "' processed " + rows + " rows in " + millis + "ms"
+                    + (complete ? "" : "; to be continued"));
+        } catch (final InterruptedException ex) {
+            stats.recordFailure(start, rows, System.currentTimeMillis() - start, ex);
+            logger.info("Job '" + name + "' interrupted after " + rows + " rows");
+            Thread.currentThread().interrupt();
+        } catch (final Exception ex) {
+            /*
+             * Not propagated: an exception would cancel all subsequent runs of
+             * the job by the scheduler.
+             */
+            stats.recordFailure(start, rows, System.currentTimeMillis() - start, ex);
+            logger.error("Job '" + name + "' failed after " + rows + " rows", ex);
+        } finally {
+            if (lock != null) {
+                lock.release();
+            }
+        }
+    }
+}
@@ -0,0 +1,195 @@
+/*
+ *
+ * ToxOtis
+ *
+ * ToxOtis is the Greek word for Sagittarius, that actually means ‘archer’. ToxOtis
+ * is a Java interface to the predictive toxicology services of OpenTox. ToxOtis is
+ * being developed to help both those who need a painless way to consume OpenTox
+ * services and for ambitious service providers that don’t want to spend half of
+ * their time in RDF parsing and creation.
+ *
+ * Copyright (C) 2009-2010 Pantelis Sopasakis & Charalampos Chomenides
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Contact:
+ * Pantelis Sopasakis
+ * chvng@mail.ntua.gr
+ * Address: Iroon Politechniou St. 9, Zografou, Athens Greece
+ * tel. +30 210 7723236
+ *
+ */
+package org.opentox.toxotis.janitor;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import org.opentox.toxotis.database.engine.metainfo.DeleteOrphanMetaInfo;
+import org.opentox.toxotis.database.engine.metainfo.MetaInfoStore;
+import org.opentox.toxotis.database.exception.DbException;
+
+/**
+ * Garbage collection of meta-information that is no longer referenced by any
+ * component. Orphans are first recorded as candidates and deleted only if
+ * they are still unreferenced <code>graceMinutes</code> later. A candidate
+ * that a later scan finds referenced again is dropped, so that its grace
+ * period starts over once it is orphaned anew. The grace period must exceed
+ * the {@link MetaInfoStore#getMaxAge() maximum age} of the meta-information
+ * stores of all nodes, since writers reuse remembered keys without inserting
+ * them again (writers that still find some meta-information missing insert it
+ * anew). At most <code>maxCandidates</code> candidates are kept in memory.
+ *
+ * @author Pantelis Sopasakis
+ * @author Charalampos Chomenides
+ */
+public class MetaInfoCollectionJob extends MaintenanceJob {
+
+    public static final String NAME = "metainfo";
+    private long graceMillis = 2 * MetaInfoStore.DEFAULT_MAX_AGE;
+    private int maxCandidates = 100000;
+    /* Candidates by key, in the order they were found (i.e. oldest first) */
+    private final Map<ByteBuffer, Long> candidates = new LinkedHashMap<ByteBuffer, Long>();
+    private byte[] cursor;
+
+    public MetaInfoCollectionJob() {
+        super(NAME);
+    }
+
+    @Override
+    public void configure(Properties properties) {
+        super.configure(properties);
+        graceMillis = 60000L * Long.parseLong(property(properties, "graceMinutes", Long.toString(graceMillis / 60000)));
+        maxCandidates = Integer.parseInt(property(properties, "maxCandidates", Integer.toString(maxCandidates)));
+    }
+
+    public long getGraceMillis() {
+        return graceMillis;
+    }
+
+    public void setGraceMillis(long graceMillis) {
+        this.graceMillis = graceMillis;
+    }
+
+    public int getMaxCandidates() {
+        return maxCandidates;
+    }
+
+    public void setMaxCandidates(int maxCandidates) {
+        this.maxCandidates = maxCandidates;
+    }
+
+    /**
+     * Number of unreferenced meta-information awaiting the end of their grace
+     * period.
+     * @return
+     *      Number of candidates.
+     */
+    public synchronized int getCandidates() {
+        return candidates.size();
+    }
+
+    /*
+     * A batch deletes the candidates whose grace period is over and then looks
+     * for new candidates with the rest of the limit.
+     */
+    @Override
+    protected synchronized int runBatch(int limit) throws DbException {
+        DeleteOrphanMetaInfo collector = new DeleteOrphanMetaInfo();
+        try {
+            long due = System.currentTimeMillis() - graceMillis;
+            List<byte[]> expired = new ArrayList<byte[]>();
+            Iterator<Map.Entry<ByteBuffer, Long>> iterator = candidates.entrySet().iterator();
+            while (expired.size() < limit && iterator.hasNext()) {
+                Map.Entry<ByteBuffer, Long> candidate = iterator.next();
+                if (candidate.getValue() > due) {
+                    break;
+                }
+                expired.add(candidate.getKey().array());
+            }
+            if (!expired.isEmpty()) {
+                collector.delete(expired);
+                /* Deleted or referenced again; either way no longer candidates */
+                for (byte[] key : expired) {
+                    candidates.remove(ByteBuffer.wrap(key));
+                }
+            }
+            int processed = expired.size();
+            int room = Math.min(limit - processed, maxCandidates - candidates.size());
+            if (room > 0) {
+                List<byte[]> orphans = collector.findOrphans(cursor, room);
+                boolean complete = orphans.size() < room;
+                dropReferenced(cursor, complete ? null : orphans.get(orphans.size() - 1), orphans);
+                long now = System.currentTimeMillis();
+                for (byte[] key : orphans) {
+                    ByteBuffer wrapped = ByteBuffer.wrap(key);
+                    if (!candidates.containsKey(wrapped)) {
+                        candidates.put(wrapped, now);
+                    }
+                }
+                processed += orphans.size();
+                /* Start over from the first key after a complete pass */
+                cursor = complete ? null : orphans.get(orphans.size() - 1);
+                if (complete) {
+                    return Math.min(processed, limit - 1);
+                }
+            }
+            return processed;
+        } finally {
+            collector.close();
+        }
+    }
+
+    /*
+     * Drops the candidates in the range of keys that was just scanned for
+     * orphans, (after, upTo], which were not found: they are referenced again
+     * (or already gone).
+     */
+    private void dropReferenced(byte[] after, byte[] upTo, List<byte[]> orphans) {
+        Set<ByteBuffer> found = new HashSet<ByteBuffer>();
+        for (byte[] key : orphans) {
+            found.add(ByteBuffer.wrap(key));
+        }
+        Iterator<ByteBuffer> iterator = candidates.keySet().iterator();
+        while (iterator.hasNext()) {
+            ByteBuffer candidate = iterator.next();
+            byte[] key = candidate.array();
+            if ((after == null || compareKeys(key, after) > 0)
+                    && (upTo == null || compareKeys(key, upTo) <= 0)
+                    && !found.contains(candidate)) {
+                iterator.remove();
+            }
+        }
+    }
+
+    /*
+     * Keys in the order of the database, which compares binary columns byte by
+     * byte as unsigned values.
+     */
+    static int compareKeys(byte[] first, byte[] second) {
+        int length = Math.min(first.length, second.length);
+        for (int i = 0; i < length; i++) {
+            int difference = (first[i] & 0xff) - (second[i] & 0xff);
+            if (difference != 0) {
+                return difference;
+            }
+        }
+        return first.length - second.length;
+    }
+}
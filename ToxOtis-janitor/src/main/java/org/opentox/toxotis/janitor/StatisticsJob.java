@@ -0,0 +1,86 @@
+/*
+ *
+ * ToxOtis
+ *
+ * ToxOtis is the Greek word for Sagittarius, that actually means ‘archer’. ToxOtis
+ * is a Java interface to the predictive toxicology services of OpenTox. ToxOtis is
+ * being developed to help both those who need a painless way to consume OpenTox
+ * services and for ambitious service providers that don’t want to spend half of
+ * their time in RDF parsing and creation.
+ *
+ * Copyright (C) 2009-2010 Pantelis Sopasakis & Charalampos Chomenides
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Contact:
+ * Pantelis Sopasakis
+ * chvng@mail.ntua.gr
+ * Address: Iroon Politechniou St. 9, Zografou, Athens Greece
+ * tel. +30 210 7723236
+ *
+ */
+package org.opentox.toxotis.janitor;
+
+import java.util.Properties;
+import org.opentox.toxotis.database.engine.AnalyzeTables;
+import org.opentox.toxotis.database.exception.DbException;
+
+/**
+ * Refreshes the index statistics of the tables listed in the property
+ * <code>tables</code> (comma-separated).
+ *
+ * @author Pantelis Sopasakis
+ * @author Charalampos Chomenides
+ */
+public class StatisticsJob extends MaintenanceJob {
+
+    public static final String NAME = "statistics";
+    private String[] tables = {"OTComponent", "MetaInfo", "Task", "ErrorReport", "Model", "Parameter",
+        "Feature", "BibTeX", "User"};
+    private org.slf4j.Logger logger = org.slf4j.LoggerFactory.getLogger(StatisticsJob.class);
+
+    public StatisticsJob() {
+        super(NAME);
+        setIntervalSeconds(86400);
+    }
+
+    @Override
+    public void configure(Properties properties) {
+        super.configure(properties);
+        String tableList = property(properties, "tables", "");
+        if (tableList.length() > 0) {
+            tables = tableList.split("\\s*,\\s*");
+        }
+    }
+
+    public String[] getTables() {
+        return tables.clone();
+    }
+
+    public void setTables(String... tables) {
+        this.tables = tables.clone();
+    }
+
+    /*
+     * All tables are analyzed at once; the number of analyzed tables is
+     * reported as the rows of the batch, kept below the limit so that the run
+     * is complete.
+     */
+    @Override
+    protected int runBatch(int limit) throws DbException {
+        int analyzed = new AnalyzeTables(tables).analyze();
+        logger.debug("Statistics of " + analyzed + " of " + tables.length + " tables refreshed");
+        return Math.min(analyzed, limit - 1);
+    }
+}
@@ -0,0 +1,110 @@
+/*
+ *
+ * ToxOtis
+ *
+ * ToxOtis is the Greek word for Sagittarius, that actually means ‘archer’. ToxOtis
+ * is a Java interface to the predictive toxicology services of OpenTox. ToxOtis is
+ * being developed to help both those who need a painless way to consume OpenTox
+ * services and for ambitious service providers that don’t want to spend half of
+ * their time in RDF parsing and creation.
+ *
+ * Copyright (C) 2009-2010 Pantelis Sopasakis & Charalampos Chomenides
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Contact:
+ * Pantelis Sopasakis
+ * chvng@mail.ntua.gr
+ * Address: Iroon Politechniou St. 9, Zografou, Athens Greece
+ * tel. +30 210 7723236
+ *
+ */
+package org.opentox.toxotis.janitor;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import org.opentox.toxotis.core.component.Task.Status;
+import org.opentox.toxotis.database.engine.task.CleanTasks;
+import org.opentox.toxotis.database.engine.task.CleanTasks.CleaningMode;
+import org.opentox.toxotis.database.exception.DbException;
+
+/**
+ * Disables or deletes tasks with given statuses which are older than a number
+ * of days. Properties: <code>mode</code> (<code>Disable</code> or
+ * <code>Delete</code>), <code>statuses</code> (comma-separated) and
+ * <code>olderThanDays</code>.
+ *
+ * @author Pantelis Sopasakis
+ * @author Charalampos Chomenides
+ */
+public class TaskCleanupJob extends MaintenanceJob {
+
+    public static final String NAME = "tasks";
+    private CleaningMode mode = CleaningMode.Disable;
+    private Status[] statuses = {Status.COMPLETED, Status.ERROR, Status.CANCELLED};
+    private int olderThanDays = 7;
+
+    public TaskCleanupJob() {
+        super(NAME);
+    }
+
+    @Override
+    public void configure(Properties properties) {
+        super.configure(properties);
+        mode = CleaningMode.valueOf(property(properties, "mode", mode.name()));
+        String statusList = property(properties, "statuses", "");
+        if (statusList.length() > 0) {
+            List<Status> parsed = new ArrayList<Status>();
+            for (String status : statusList.split(",")) {
+                parsed.add(Status.valueOf(status.trim().toUpperCase()));
+            }
+            statuses = parsed.toArray(new Status[parsed.size()]);
+        }
+        olderThanDays = Integer.parseInt(property(properties, "olderThanDays", Integer.toString(olderThanDays)));
+    }
+
+    public CleaningMode getMode() {
+        return mode;
+    }
+
+    public void setMode(CleaningMode mode) {
+        this.mode = mode;
+    }
+
+    public Status[] getStatuses() {
+        return statuses.clone();
+    }
+
+    public void setStatuses(Status... statuses) {
+        this.statuses = statuses.clone();
+    }
+
+    public int getOlderThanDays() {
+        return olderThanDays;
+    }
+
+    public void setOlderThanDays(int olderThanDays) {
+        this.olderThanDays = olderThanDays;
+    }
+
+    @Override
+    protected int runBatch(int limit) throws DbException {
+        CleanTasks cleaner = new CleanTasks(mode);
+        cleaner.setOlderThanDays(olderThanDays);
+        cleaner.setChunkSize(limit);
+        cleaner.setLimit(limit);
+        return cleaner.clean(statuses);
+    }
+}
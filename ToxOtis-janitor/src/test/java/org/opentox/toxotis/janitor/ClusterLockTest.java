@@ -0,0 +1,79 @@
+/*
+ *
+ * ToxOtis
+ *
+ * ToxOtis is the Greek word for Sagittarius, that actually means ‘archer’. ToxOtis
+ * is a Java interface to the predictive toxicology services of OpenTox. ToxOtis is
+ * being developed to help both those who need a painless way to consume OpenTox
+ * services and for ambitious service providers that don’t want to spend half of
+ * their time in RDF parsing and creation.
+ *
+ * Copyright (C) 2009-2010 Pantelis Sopasakis & Charalampos Chomenides
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Contact:
+ * Pantelis Sopasakis
+ * chvng@mail.ntua.gr
+ * Address: Iroon Politechniou St. 9, Zografou, Athens Greece
+ * tel. +30 210 7723236
+ *
+ */
+package org.opentox.toxotis.janitor;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.opentox.toxotis.database.global.DbConfiguration;
+import org.opentox.toxotis.database.pool.DataSourceFactory;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author chung
+ */
+public class ClusterLockTest {
+
+    public ClusterLockTest() {
+    }
+
+    @BeforeClass
+    public static void setUpClass() throws Exception {
+        DbConfiguration.setC3p0PropertiedFile(DbConfiguration.TEST_C3P0_FILE);
+    }
+
+    @AfterClass
+    public static void tearDownClass() throws Exception {
+        DataSourceFactory.getInstance().close();
+    }
+
+    @Test
+    public void testExclusive() throws Exception {
+        ClusterLock lock = new ClusterLock("toxotis.test.lock");
+        ClusterLock other = new ClusterLock("toxotis.test.lock");
+        try {
+            assertTrue(lock.tryAcquire());
+            assertTrue(lock.isHeld());
+            assertTrue(lock.tryAcquire());
+            assertFalse(other.tryAcquire());
+            assertFalse(other.isHeld());
+            lock.release();
+            assertFalse(lock.isHeld());
+            assertTrue(other.tryAcquire());
+        } finally {
+            lock.release();
+            other.release();
+        }
+    }
+}
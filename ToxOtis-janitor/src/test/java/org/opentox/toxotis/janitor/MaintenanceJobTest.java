@@ -0,0 +1,132 @@
+/*
+ *
+ * ToxOtis
+ *
+ * ToxOtis is the Greek word for Sagittarius, that actually means ‘archer’. ToxOtis
+ * is a Java interface to the predictive toxicology services of OpenTox. ToxOtis is
+ * being developed to help both those who need a painless way to consume OpenTox
+ * services and for ambitious service providers that don’t want to spend half of
+ * their time in RDF parsing and creation.
+ *
+ * Copyright (C) 2009-2010 Pantelis Sopasakis & Charalampos Chomenides
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Contact:
+ * Pantelis Sopasakis
+ * chvng@mail.ntua.gr
+ * Address: Iroon Politechniou St. 9, Zografou, Athens Greece
+ * tel. +30 210 7723236
+ *
+ */
+package org.opentox.toxotis.janitor;
+
+import java.util.Properties;
+import org.junit.Test;
+import org.opentox.toxotis.database.exception.DbException;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author chung
+ */
+public class MaintenanceJobTest {
+
+    public MaintenanceJobTest() {
+    }
+
+    /**
+     * Processes full batches a given number of times, then a partial one.
+     */
+    private static class CountingJob extends MaintenanceJob {
+
+        private int fullBatches;
+        private int batches = 0;
+
+        CountingJob(int fullBatches) {
+            super("counting");
+            this.fullBatches = fullBatches;
+            setSingleInstance(false);
+        }
+
+        @Override
+        protected int runBatch(int limit) throws DbException {
+            batches++;
+            if (fullBatches < 0) {
+                throw new DbException("failed");
+            }
+            return fullBatches-- > 0 ? limit : 1;
+        }
+    }
+
+    @Test
+    public void testRunUntilComplete() {
+        CountingJob job = new CountingJob(3);
+        job.setBatchSize(10);
+        job.run();
+        assertEquals(4, job.batches);
+        assertEquals(1, job.getStats().getRuns());
+        assertEquals(1, job.getStats().getCompletedRuns());
+        assertEquals(31, job.getStats().getLastRows());
+        assertNull(job.getStats().getLastError());
+    }
+
+    @Test
+    public void testTimeBudget() {
+        CountingJob job = new CountingJob(Integer.MAX_VALUE);
+        job.setBatchSize(10);
+        job.setBudgetMillis(100);
+        job.run();
+        assertEquals(1, job.getStats().getRuns());
+        assertEquals(0, job.getStats().getCompletedRuns());
+        assertTrue(job.getStats().getLastMillis() >= 100);
+    }
+
+    @Test
+    public void testRateLimit() {
+        CountingJob job = new CountingJob(3);
+        job.setBatchSize(10);
+        job.setMaxRowsPerSecond(100);
+        job.run();
+        assertEquals(1, job.getStats().getCompletedRuns());
+        assertTrue(job.getStats().getLastMillis() >= 290);
+    }
+
+    @Test
+    public void testFailure() {
+        CountingJob job = new CountingJob(-1);
+        job.run();
+        job.run();
+        assertEquals(2, job.getStats().getRuns());
+        assertEquals(2, job.getStats().getFailedRuns());
+        assertNotNull(job.getStats().getLastError());
+    }
+
+    @Test
+    public void testConfigure() {
+        Properties properties = new Properties();
+        properties.setProperty("janitor.counting.intervalSeconds", "60");
+        properties.setProperty("janitor.counting.budgetSeconds", "5");
+        properties.setProperty("janitor.counting.batchSize", "20");
+        properties.setProperty("janitor.counting.maxRowsPerSecond", "200");
+        properties.setProperty("janitor.counting.singleInstance", "true");
+        CountingJob job = new CountingJob(0);
+        job.configure(properties);
+        assertEquals(60, job.getIntervalSeconds());
+        assertEquals(5000, job.getBudgetMillis());
+        assertEquals(20, job.getBatchSize());
+        assertEquals(200, job.getMaxRowsPerSecond());
+        assertTrue(job.isSingleInstance());
+    }
+}